@@ -0,0 +1,79 @@
+package org.wowtools.hppt.benchmarks;
+
+import org.wowtools.hppt.common.pojo.SessionBytes;
+import org.wowtools.hppt.common.server.LoginClientService;
+import org.wowtools.hppt.common.util.AesCipherUtil;
+import org.wowtools.hppt.common.util.BytesUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 各基准测试共用的测试数据构造。
+ * 各套件统一以payloadSize(每个会话的字节数)和sessionNum(一条消息涉及的会话数)为参数
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+final class BenchmarkData {
+
+    static final String USER = "benchmark";
+    static final String PASSWORD = "benchmark-password";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param size 字节数
+     * @return 随机内容的字节，随机内容使加密和序列化不会因数据规律而失真
+     */
+    static byte[] payload(int size) {
+        byte[] bytes = new byte[size];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * 以同一份payload为sessionNum个会话各构造一个SessionBytes，用完需release
+     */
+    static List<SessionBytes> sessionBytes(byte[] payload, int sessionNum) {
+        List<SessionBytes> list = new ArrayList<>(sessionNum);
+        for (int i = 0; i < sessionNum; i++) {
+            list.add(new SessionBytes(i, payload));
+        }
+        return list;
+    }
+
+    static List<String> commands(int sessionNum) {
+        List<String> list = new ArrayList<>(sessionNum);
+        for (int i = 0; i < sessionNum; i++) {
+            list.add("a" + i);
+        }
+        return list;
+    }
+
+    static AesCipherUtil aesCipherUtil() {
+        return new AesCipherUtil(PASSWORD, System.currentTimeMillis());
+    }
+
+    /**
+     * 按sc的方式生成登录码登录，得到一个ss端的Client
+     */
+    static LoginClientService.Client login() {
+        LoginClientService.Config config = new LoginClientService.Config();
+        config.users.add(new String[]{USER, PASSWORD});
+        LoginClientService loginClientService = new LoginClientService(config);
+        String loginCode = BytesUtil.bytes2base64(aesCipherUtil().encryptor.encrypt(PASSWORD.getBytes(StandardCharsets.UTF_8)));
+        return loginClientService.login(USER + " " + loginCode, new LoginClientService.ClientActiveWatcher() {
+            @Override
+            public void toInactivity() {
+            }
+
+            @Override
+            public void toActivity() {
+            }
+        });
+    }
+}
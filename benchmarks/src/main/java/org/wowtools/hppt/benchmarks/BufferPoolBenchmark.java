@@ -0,0 +1,97 @@
+package org.wowtools.hppt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.hppt.common.util.BufferPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多生产者单消费者场景下，BufferPool(MpscQueue)与原先BufferPool内置的LinkedBlockingQueue的吞吐对比，
+ * 模拟多个会话向同一个客户端的sessionBytesQueue放入数据、回复线程批量取出。
+ * payloadSize为元素字节数，sessionNum为每次放入的元素数(sessionNum个会话同时有数据)
+ * <p>
+ * 运行: java -jar benchmarks/target/benchmarks.jar BufferPoolBenchmark
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BufferPoolBenchmark {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"64", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"1", "16"})
+    public int sessionNum;
+
+    private byte[] element;
+
+    private BufferPool<byte[]> bufferPool;
+    private byte[][] batch;
+
+    private LinkedBlockingQueue<byte[]> linkedBlockingQueue;
+    private List<byte[]> list;
+
+    /**
+     * 消费者实际取出的元素数，drain方法的调用次数不能反映吞吐，以此计数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Drained {
+        public long elements;
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        element = new byte[payloadSize];
+        bufferPool = new BufferPool<>("benchmark");
+        batch = new byte[BATCH_SIZE][];
+        linkedBlockingQueue = new LinkedBlockingQueue<>();
+        list = new ArrayList<>(BATCH_SIZE);
+    }
+
+    @Benchmark
+    @Group("bufferPool")
+    @GroupThreads(PRODUCERS)
+    public void bufferPoolAdd() {
+        for (int i = 0; i < sessionNum; i++) {
+            bufferPool.add(element);
+        }
+    }
+
+    @Benchmark
+    @Group("bufferPool")
+    @GroupThreads(1)
+    public void bufferPoolDrain(Drained drained) {
+        drained.elements += bufferPool.drainTo(batch);
+    }
+
+    @Benchmark
+    @Group("linkedBlockingQueue")
+    @GroupThreads(PRODUCERS)
+    public void linkedBlockingQueueAdd() {
+        for (int i = 0; i < sessionNum; i++) {
+            linkedBlockingQueue.add(element);
+        }
+    }
+
+    @Benchmark
+    @Group("linkedBlockingQueue")
+    @GroupThreads(1)
+    public void linkedBlockingQueueDrain(Drained drained) {
+        list.clear();
+        drained.elements += linkedBlockingQueue.drainTo(list, BATCH_SIZE);
+    }
+}
@@ -0,0 +1,67 @@
+package org.wowtools.hppt.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.hppt.common.util.BytesUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BytesUtil的拆分与合并，sessionNum个payloadSize字节的块合并为一个，或一个大块拆分为sessionNum块
+ * <p>
+ * 运行: java -jar benchmarks/target/benchmarks.jar BytesUtilBenchmark
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BytesUtilBenchmark {
+
+    @Param({"64", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"1", "16"})
+    public int sessionNum;
+
+    private byte[] whole;
+    private List<byte[]> chunks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        whole = BenchmarkData.payload(payloadSize * sessionNum);
+        chunks = new ArrayList<>(sessionNum);
+        for (int i = 0; i < sessionNum; i++) {
+            chunks.add(BenchmarkData.payload(payloadSize));
+        }
+    }
+
+    @Benchmark
+    public byte[][] splitBytes() {
+        return BytesUtil.splitBytes(whole, payloadSize);
+    }
+
+    @Benchmark
+    public byte[] mergeBytes() {
+        return BytesUtil.merge(chunks);
+    }
+
+    @Benchmark
+    public int mergeByteBuf() {
+        List<ByteBuf> byteBufs = new ArrayList<>(sessionNum);
+        for (byte[] chunk : chunks) {
+            byteBufs.add(Unpooled.wrappedBuffer(chunk));
+        }
+        ByteBuf merged = BytesUtil.merge(byteBufs);
+        int n = merged.readableBytes();
+        merged.release();
+        return n;
+    }
+}
@@ -0,0 +1,70 @@
+package org.wowtools.hppt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.hppt.common.pojo.SessionBytes;
+import org.wowtools.hppt.common.pojo.TalkMessage;
+import org.wowtools.hppt.common.util.AesCipherUtil;
+import org.wowtools.hppt.common.util.GridAesCipherUtil;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端数据加解密(AesCipherUtil)与对时登录加解密(GridAesCipherUtil)，
+ * 加密内容为sessionNum个会话、每个会话payloadSize字节的消息序列化结果
+ * <p>
+ * 运行: java -jar benchmarks/target/benchmarks.jar CipherBenchmark
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherBenchmark {
+
+    @Param({"64", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"1", "16"})
+    public int sessionNum;
+
+    private AesCipherUtil aesCipherUtil;
+    private byte[] plain;
+    private byte[] aesEncrypted;
+    private byte[] gridEncrypted;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        aesCipherUtil = BenchmarkData.aesCipherUtil();
+        List<SessionBytes> sessionBytes = BenchmarkData.sessionBytes(BenchmarkData.payload(payloadSize), sessionNum);
+        TalkMessage talkMessage = new TalkMessage(sessionBytes, null);
+        plain = talkMessage.toProto().build().toByteArray();
+        talkMessage.release();
+        aesEncrypted = aesCipherUtil.encryptor.encrypt(plain);
+        gridEncrypted = GridAesCipherUtil.encrypt(plain);
+    }
+
+    @Benchmark
+    public byte[] aesEncrypt() {
+        return aesCipherUtil.encryptor.encrypt(plain);
+    }
+
+    @Benchmark
+    public byte[] aesDecrypt() {
+        return aesCipherUtil.descriptor.decrypt(aesEncrypted);
+    }
+
+    @Benchmark
+    public byte[] gridEncrypt() {
+        return GridAesCipherUtil.encrypt(plain);
+    }
+
+    @Benchmark
+    public byte[] gridDecrypt() {
+        return GridAesCipherUtil.decrypt(gridEncrypted);
+    }
+}
@@ -0,0 +1,64 @@
+package org.wowtools.hppt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.hppt.common.pojo.SendAbleSessionBytes;
+import org.wowtools.hppt.common.pojo.SessionBytes;
+import org.wowtools.hppt.common.server.LoginClientService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ss端回复线程从Client取数据：sessionNum个会话各放入chunksPerSession块payloadSize字节的数据，
+ * 再以fetchBytes取出并按会话merge，最后完成回调并释放
+ * <p>
+ * 运行: java -jar benchmarks/target/benchmarks.jar ClientFetchBenchmark
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientFetchBenchmark {
+
+    private static final SendAbleSessionBytes.CallBack CALL_BACK = (success) -> {
+    };
+
+    @Param({"64", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"1", "16"})
+    public int sessionNum;
+
+    @Param({"4"})
+    public int chunksPerSession;
+
+    private LoginClientService.Client client;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        client = BenchmarkData.login();
+        payload = BenchmarkData.payload(payloadSize);
+    }
+
+    @Benchmark
+    public int addAndFetch() {
+        for (int i = 0; i < chunksPerSession; i++) {
+            for (int s = 0; s < sessionNum; s++) {
+                client.addBytes(new SessionBytes(s, payload), CALL_BACK);
+            }
+        }
+        LoginClientService.FetchedBytes fetched = client.fetchBytes(-1);
+        int n = 0;
+        for (SessionBytes sb : fetched.sessionBytes()) {
+            n += sb.length();
+            sb.release();
+        }
+        SendAbleSessionBytes.complete(fetched.callBacks(), true);
+        return n;
+    }
+}
@@ -0,0 +1,54 @@
+package org.wowtools.hppt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.hppt.common.client.ClientTalker;
+import org.wowtools.hppt.common.pojo.SessionBytes;
+import org.wowtools.hppt.common.util.AesCipherUtil;
+import org.wowtools.hppt.common.util.BufferPool;
+import org.wowtools.hppt.common.util.CommonConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * sc端发送线程组装发往服务端的字节：从命令和字节缓冲池取数据、序列化、加密
+ * <p>
+ * 运行: java -jar benchmarks/target/benchmarks.jar ClientTalkerBenchmark
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientTalkerBenchmark {
+
+    @Param({"64", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"1", "16"})
+    public int sessionNum;
+
+    private final CommonConfig config = new CommonConfig();
+    private final BufferPool<String> sendCommandQueue = new BufferPool<>("benchmark-sendCommand");
+    private final BufferPool<SessionBytes> sendBytesQueue = new BufferPool<>("benchmark-sendBytes");
+    private AesCipherUtil aesCipherUtil;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        aesCipherUtil = BenchmarkData.aesCipherUtil();
+        payload = BenchmarkData.payload(payloadSize);
+    }
+
+    @Benchmark
+    public byte[] buildSendToServerBytes() throws Exception {
+        sendCommandQueue.add("a0");
+        for (int s = 0; s < sessionNum; s++) {
+            sendBytesQueue.add(new SessionBytes(s, payload));
+        }
+        return ClientTalker.buildSendToServerBytes(config, Long.MAX_VALUE, sendCommandQueue, sendBytesQueue, aesCipherUtil, false);
+    }
+}
@@ -0,0 +1,81 @@
+package org.wowtools.hppt.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.hppt.common.filter.ByteArrayHookFilter;
+import org.wowtools.hppt.common.filter.BytesFilter;
+import org.wowtools.hppt.common.filter.FilterChain;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 审计类插件的开销，以byte[]钩子(每块数据拷贝两次)与直接读ByteBuf的过滤器分别统计payloadSize字节的数据块
+ * <p>
+ * 运行: java -jar benchmarks/target/benchmarks.jar FilterChainBenchmark
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    @Param({"64", "4096", "65536"})
+    public int payloadSize;
+
+    private byte[] payload;
+    private long audited;
+    private long written;
+    private FilterChain<Object> hookChain;
+    private FilterChain<Object> filterChain;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        payload = BenchmarkData.payload(payloadSize);
+        FilterChain.Sink sink = buf -> {
+            written += buf.readableBytes();
+            buf.release();
+        };
+        BytesFilter<Object> hook = ByteArrayHookFilter.before((session, bytes) -> {
+            for (byte b : bytes) {
+                audited += b;
+            }
+            return bytes;
+        });
+        BytesFilter<Object> filter = (ctx, buf) -> {
+            buf.forEachByte(b -> {
+                audited += b;
+                return true;
+            });
+            ctx.pass(buf);
+        };
+        hookChain = new FilterChain<>(new Object(), List.of(hook), sink, () -> {
+        });
+        filterChain = new FilterChain<>(new Object(), List.of(filter), sink, () -> {
+        });
+    }
+
+    private ByteBuf chunk() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(payloadSize);
+        buf.writeBytes(payload);
+        return buf;
+    }
+
+    @Benchmark
+    public long byteArrayHook() {
+        hookChain.fire(chunk());
+        return audited + written;
+    }
+
+    @Benchmark
+    public long byteBufFilter() {
+        filterChain.fire(chunk());
+        return audited + written;
+    }
+}
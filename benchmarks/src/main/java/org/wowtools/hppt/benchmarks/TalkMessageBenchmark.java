@@ -0,0 +1,62 @@
+package org.wowtools.hppt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.wowtools.hppt.common.pojo.SessionBytes;
+import org.wowtools.hppt.common.pojo.TalkMessage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TalkMessage的protobuf序列化与aliasing方式解析
+ * <p>
+ * 运行: java -jar benchmarks/target/benchmarks.jar TalkMessageBenchmark
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TalkMessageBenchmark {
+
+    @Param({"64", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"1", "16"})
+    public int sessionNum;
+
+    private List<SessionBytes> sessionBytes;
+    private List<String> commands;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sessionBytes = BenchmarkData.sessionBytes(BenchmarkData.payload(payloadSize), sessionNum);
+        commands = BenchmarkData.commands(sessionNum);
+        encoded = new TalkMessage(sessionBytes, commands).toProto().build().toByteArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (SessionBytes sb : sessionBytes) {
+            sb.release();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        //序列化不消耗SessionBytes，可以反复使用
+        return new TalkMessage(sessionBytes, commands).toProto().build().toByteArray();
+    }
+
+    @Benchmark
+    public TalkMessage decode() {
+        TalkMessage talkMessage = new TalkMessage(encoded);
+        talkMessage.release();
+        return talkMessage;
+    }
+}
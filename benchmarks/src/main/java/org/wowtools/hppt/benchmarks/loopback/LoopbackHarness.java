@@ -0,0 +1,385 @@
+package org.wowtools.hppt.benchmarks.loopback;
+
+import org.wowtools.hppt.common.util.BufferBudget;
+import org.wowtools.hppt.common.util.Constant;
+import org.wowtools.hppt.common.util.OrderedPipeline;
+import org.wowtools.hppt.common.util.ResourcesReader;
+import org.wowtools.hppt.run.Run;
+import org.wowtools.hppt.run.sc.ClientSessionServiceBuilder;
+import org.wowtools.hppt.run.sc.RunSc;
+import org.wowtools.hppt.run.sc.pojo.ScConfig;
+import org.wowtools.hppt.run.ss.ServerSessionServiceBuilder;
+import org.wowtools.hppt.run.ss.common.ServerSessionService;
+import org.wowtools.hppt.run.ss.pojo.SsConfig;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端到端回环压测：在同一个jvm里按每种传输类型起一对ss和sc，经回环地址连接内置的目标端，
+ * 测量吞吐、会话建立速率和小包往返延迟，结果以json输出。
+ * <p>
+ * 运行: java -cp benchmarks/target/benchmarks.jar org.wowtools.hppt.benchmarks.loopback.LoopbackHarness [key=value ...]
+ * <ul>
+ *     <li>types: 逗号分隔的传输类型，默认 hppt,websocket,post,rhppt,rpost,file</li>
+ *     <li>pattern: 吞吐阶段的数据模式 echo/sink/source，默认echo</li>
+ *     <li>sessions: 并发会话数，默认8</li>
+ *     <li>bytes: 吞吐阶段每个会话传输的字节数，默认4194304</li>
+ *     <li>chunk: 吞吐阶段每次写入的字节数，默认16384</li>
+ *     <li>rttSize: 往返延迟阶段每个小包的字节数，默认64</li>
+ *     <li>rttRounds: 往返延迟阶段每个会话的往返次数，默认200</li>
+ *     <li>timeout: 每个阶段的超时秒数，默认120</li>
+ *     <li>out: 结果json文件，默认loopback-report.json</li>
+ * </ul>
+ * file模式的两端以文件锁互斥，同一jvm内会锁冲突，其sc在子进程中运行
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class LoopbackHarness {
+
+    private static final String USER = "loopback";
+    private static final String PASSWORD = "loopback-password";
+
+    private final String pattern;
+    private final int sessions;
+    private final long bytesPerSession;
+    private final int chunk;
+    private final int rttSize;
+    private final int rttRounds;
+    private final long timeoutSeconds;
+
+    private LoopbackHarness(Map<String, String> args) {
+        pattern = args.getOrDefault("pattern", "echo");
+        sessions = Integer.parseInt(args.getOrDefault("sessions", "8"));
+        bytesPerSession = Long.parseLong(args.getOrDefault("bytes", "4194304"));
+        chunk = Integer.parseInt(args.getOrDefault("chunk", "16384"));
+        rttSize = Integer.parseInt(args.getOrDefault("rttSize", "64"));
+        rttRounds = Integer.parseInt(args.getOrDefault("rttRounds", "200"));
+        timeoutSeconds = Long.parseLong(args.getOrDefault("timeout", "120"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argMap = new HashMap<>();
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            argMap.put(kv[0], kv.length > 1 ? kv[1] : "");
+        }
+        BufferBudget.init(new SsConfig().bufferBudget);
+        OrderedPipeline.init(new SsConfig().pipeline);
+        LoopbackHarness harness = new LoopbackHarness(argMap);
+        List<LoopbackResult> results = new ArrayList<>();
+        for (String type : argMap.getOrDefault("types", "hppt,websocket,post,rhppt,rpost,file").split(",")) {
+            results.add(harness.run(type.trim()));
+        }
+        String json = Constant.jsonObjectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(results);
+        Files.writeString(Path.of(argMap.getOrDefault("out", "loopback-report.json")), json);
+        System.out.println(json);
+        //各传输类型的netty线程不会全部退出，直接结束进程
+        System.exit(0);
+    }
+
+    private LoopbackResult run(String type) {
+        LoopbackResult result = new LoopbackResult();
+        result.type = type;
+        result.pattern = pattern;
+        result.sessions = sessions;
+        result.bytesPerSession = bytesPerSession;
+        ServerSessionService<?> ss = null;
+        AutoCloseable sc = null;
+        try (LoopbackTarget probe = new LoopbackTarget(LoopbackTarget.Mode.echo);
+             LoopbackTarget target = new LoopbackTarget(LoopbackTarget.Mode.valueOf(pattern))) {
+            int ssPort = freePort();
+            int probePort = freePort();
+            int dataPort = freePort();
+            Path fileDir = "file".equals(type) ? Files.createTempDirectory("hppt-loopback-") : null;
+            SsConfig ssConfig = buildSsConfig(type, ssPort, fileDir);
+            ScConfig scConfig = buildScConfig(type, ssPort, fileDir, probePort, probe.getPort(), dataPort, target.getPort());
+            //反向模式下sc监听、ss主动连接，故先起sc
+            if ("rhppt".equals(type) || "rpost".equals(type)) {
+                sc = startSc(scConfig);
+                Thread.sleep(1000);
+                ss = startSs(ssConfig);
+            } else {
+                ss = startSs(ssConfig);
+                Thread.sleep(1000);
+                sc = startSc(scConfig);
+            }
+            waitReady(probePort);
+            measureSetup(result, probePort);
+            measureThroughput(result, dataPort, target);
+            measureRtt(result, probePort);
+        } catch (Exception e) {
+            result.failure = String.valueOf(e);
+        } finally {
+            if (null != sc) {
+                try {
+                    sc.close();
+                } catch (Exception e) {
+                    System.err.println("关闭sc异常 " + e);
+                }
+            }
+            if (null != ss) {
+                ss.exit();
+            }
+        }
+        System.err.printf("%s: %.2f MB/s, setup %.1f/s, rtt p50 %.2f ms p99 %.2f ms p999 %.2f ms, errors %d %s%n",
+                type, result.mbPerSecond, result.sessionSetupPerSecond, result.rttP50Ms, result.rttP99Ms, result.rttP999Ms,
+                result.errors, null == result.failure ? "" : result.failure);
+        return result;
+    }
+
+    private SsConfig buildSsConfig(String type, int ssPort, Path fileDir) {
+        SsConfig config = new SsConfig();
+        config.type = type;
+        config.port = ssPort;
+        SsConfig.Client client = new SsConfig.Client();
+        client.user = USER;
+        client.password = PASSWORD;
+        config.clients = new ArrayList<>(List.of(client));
+        config.rhppt.host = "127.0.0.1";
+        config.rhppt.port = ssPort;
+        config.rpost.serverUrl = "http://127.0.0.1:" + ssPort;
+        if (null != fileDir) {
+            config.file.fileDir = fileDir.toString();
+        }
+        return config;
+    }
+
+    private ScConfig buildScConfig(String type, int ssPort, Path fileDir, int probePort, int probeTargetPort, int dataPort, int dataTargetPort) {
+        ScConfig config = new ScConfig();
+        config.type = type;
+        config.clientUser = USER;
+        config.clientPassword = PASSWORD;
+        config.forwards = new ArrayList<>(List.of(forward(probePort, probeTargetPort), forward(dataPort, dataTargetPort)));
+        config.post.serverUrl = "http://127.0.0.1:" + ssPort;
+        config.websocket.serverUrl = "ws://127.0.0.1:" + ssPort;
+        config.hppt.host = "127.0.0.1";
+        config.hppt.port = ssPort;
+        config.rhppt.port = ssPort;
+        config.rpost.port = ssPort;
+        if (null != fileDir) {
+            config.file.fileDir = fileDir.toString();
+        }
+        return config;
+    }
+
+    private static ScConfig.Forward forward(int localPort, int remotePort) {
+        ScConfig.Forward forward = new ScConfig.Forward();
+        forward.localPort = localPort;
+        forward.remoteHost = "127.0.0.1";
+        forward.remotePort = remotePort;
+        return forward;
+    }
+
+    private static ServerSessionService<?> startSs(SsConfig config) throws Exception {
+        ServerSessionService<?> ss = ServerSessionServiceBuilder.build(config);
+        Thread.startVirtualThread(() -> {
+            try {
+                ss.init(config);
+            } catch (Exception e) {
+                ss.exit();
+            }
+        });
+        return ss;
+    }
+
+    private static AutoCloseable startSc(ScConfig config) throws Exception {
+        if (!"file".equals(config.type)) {
+            return ClientSessionServiceBuilder.build(config);
+        }
+        //file模式两端以文件锁互斥读写，同一jvm内会锁冲突，sc另起一个jvm
+        Path dir = Path.of(config.file.fileDir);
+        Path yml = dir.resolveSibling(dir.getFileName() + "-sc.yml");
+        Constant.ymlMapper.writeValue(yml.toFile(), config);
+        //Run以jar所在目录为根读取配置文件
+        String configPath = Path.of(ResourcesReader.getRootPath(RunSc.class)).relativize(yml).toString();
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), Run.class.getName(), "sc", configPath)
+                .redirectErrorStream(true)
+                .redirectOutput(dir.resolveSibling(dir.getFileName() + "-sc.log").toFile())
+                .start();
+        return process::destroy;
+    }
+
+    //对时、登录都完成后探针端口才能完成一次往返
+    private void waitReady(int probePort) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = connect(probePort)) {
+                socket.setSoTimeout(5000);
+                roundTrip(socket, new byte[1]);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(500);
+            }
+        }
+        throw new TimeoutException("等待ss/sc就绪超时");
+    }
+
+    //sessions个会话同时建立并各完成一次1字节往返
+    private void measureSetup(LoopbackResult result, int probePort) throws Exception {
+        long[] nanos = new long[sessions];
+        AtomicInteger n = new AtomicInteger();
+        long start = System.nanoTime();
+        forEachSession((i) -> {
+            long t = System.nanoTime();
+            try (Socket socket = connect(probePort)) {
+                roundTrip(socket, new byte[1]);
+                nanos[n.getAndIncrement()] = System.nanoTime() - t;
+            }
+        }, result);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        result.sessionSetupPerSecond = n.get() / seconds;
+        result.setupP50Ms = LoopbackResult.percentileMs(nanos, n.get(), 0.5);
+        result.setupP99Ms = LoopbackResult.percentileMs(nanos, n.get(), 0.99);
+    }
+
+    private void measureThroughput(LoopbackResult result, int dataPort, LoopbackTarget target) throws Exception {
+        AtomicLong delivered = new AtomicLong();
+        long sinkBase = target.getReceived();
+        long start = System.nanoTime();
+        forEachSession((i) -> {
+            try (Socket socket = connect(dataPort)) {
+                switch (pattern) {
+                    case "echo" -> delivered.addAndGet(echo(socket));
+                    case "sink" -> write(socket.getOutputStream());
+                    case "source" -> {
+                        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                        out.writeLong(bytesPerSession);
+                        out.flush();
+                        delivered.addAndGet(read(socket.getInputStream(), bytesPerSession));
+                    }
+                    default -> throw new IllegalArgumentException("未知pattern " + pattern);
+                }
+            }
+        }, result);
+        if ("sink".equals(pattern)) {
+            //写完不代表送达，等目标端收齐
+            long expected = bytesPerSession * sessions;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (target.getReceived() - sinkBase < expected && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            delivered.set(target.getReceived() - sinkBase);
+        }
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        result.deliveredBytes = delivered.get();
+        result.mbPerSecond = result.deliveredBytes / result.seconds / (1024 * 1024);
+    }
+
+    //sessions个会话同时以rttSize字节的小包做rttRounds次往返
+    private void measureRtt(LoopbackResult result, int probePort) throws Exception {
+        long[] nanos = new long[sessions * rttRounds];
+        AtomicInteger n = new AtomicInteger();
+        forEachSession((i) -> {
+            try (Socket socket = connect(probePort)) {
+                byte[] ping = new byte[rttSize];
+                roundTrip(socket, ping);
+                for (int r = 0; r < rttRounds; r++) {
+                    long t = System.nanoTime();
+                    roundTrip(socket, ping);
+                    nanos[n.getAndIncrement()] = System.nanoTime() - t;
+                }
+            }
+        }, result);
+        result.rttSamples = n.get();
+        result.rttP50Ms = LoopbackResult.percentileMs(nanos, n.get(), 0.5);
+        result.rttP99Ms = LoopbackResult.percentileMs(nanos, n.get(), 0.99);
+        result.rttP999Ms = LoopbackResult.percentileMs(nanos, n.get(), 0.999);
+    }
+
+    @FunctionalInterface
+    private interface SessionTask {
+        void run(int i) throws Exception;
+    }
+
+    private void forEachSession(SessionTask task, LoopbackResult result) throws InterruptedException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(sessions);
+            for (int i = 0; i < sessions; i++) {
+                int idx = i;
+                futures.add(executor.submit(() -> {
+                    task.run(idx);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get(timeoutSeconds, TimeUnit.SECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    result.errors++;
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private Socket connect(int port) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        return socket;
+    }
+
+    private static void roundTrip(Socket socket, byte[] ping) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(ping);
+        out.flush();
+        if (read(socket.getInputStream(), ping.length) < ping.length) {
+            throw new EOFException("往返未完成");
+        }
+    }
+
+    //一边写一边读回，返回读回的字节数
+    private long echo(Socket socket) throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> writer = executor.submit(() -> {
+                write(socket.getOutputStream());
+                return null;
+            });
+            long n = read(socket.getInputStream(), bytesPerSession);
+            writer.get();
+            return n;
+        }
+    }
+
+    private void write(OutputStream out) throws IOException {
+        byte[] buf = new byte[chunk];
+        ThreadLocalRandom.current().nextBytes(buf);
+        long remaining = bytesPerSession;
+        while (remaining > 0) {
+            int n = (int) Math.min(buf.length, remaining);
+            out.write(buf, 0, n);
+            remaining -= n;
+        }
+        out.flush();
+    }
+
+    private static long read(InputStream in, long expected) throws IOException {
+        byte[] buf = new byte[64 * 1024];
+        long total = 0;
+        while (total < expected) {
+            int n = in.read(buf, 0, (int) Math.min(buf.length, expected - total));
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.wowtools.hppt.benchmarks.loopback;
+
+import java.util.Arrays;
+
+/**
+ * 一种传输类型的压测结果，以json输出
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class LoopbackResult {
+    /**
+     * 传输类型
+     */
+    public String type;
+
+    /**
+     * 数据模式 echo/sink/source
+     */
+    public String pattern;
+
+    /**
+     * 并发会话数
+     */
+    public int sessions;
+
+    /**
+     * 每个会话传输的字节数
+     */
+    public long bytesPerSession;
+
+    /**
+     * 吞吐阶段实际送达的总字节数
+     */
+    public long deliveredBytes;
+
+    /**
+     * 吞吐阶段耗时，秒
+     */
+    public double seconds;
+
+    /**
+     * 吞吐，MB/s
+     */
+    public double mbPerSecond;
+
+    /**
+     * 会话建立速率，个/秒，以会话建立并完成第一次往返计
+     */
+    public double sessionSetupPerSecond;
+
+    public double setupP50Ms;
+    public double setupP99Ms;
+
+    /**
+     * 小包往返延迟的分位数，毫秒
+     */
+    public double rttP50Ms;
+    public double rttP99Ms;
+    public double rttP999Ms;
+
+    /**
+     * 往返延迟的样本数
+     */
+    public int rttSamples;
+
+    /**
+     * 出错的会话数
+     */
+    public int errors;
+
+    /**
+     * 整轮压测失败时的原因
+     */
+    public String failure;
+
+    /**
+     * @param nanos 样本，前n个会被排序
+     * @param n     样本数
+     * @param p     分位，如0.99
+     * @return 分位数，毫秒
+     */
+    static double percentileMs(long[] nanos, int n, double p) {
+        if (n == 0) {
+            return 0;
+        }
+        Arrays.sort(nanos, 0, n);
+        int i = (int) Math.min(n - 1, Math.ceil(p * n) - 1);
+        return nanos[Math.max(i, 0)] / 1_000_000.0;
+    }
+}
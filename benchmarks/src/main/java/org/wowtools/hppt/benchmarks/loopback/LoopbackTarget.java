@@ -0,0 +1,105 @@
+package org.wowtools.hppt.benchmarks.loopback;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测用的目标端，监听回环地址的随机端口
+ * <ul>
+ *     <li>echo: 收到什么回什么</li>
+ *     <li>sink: 只收不回，累计收到的字节数</li>
+ *     <li>source: 先读8字节的长度n，再发出n个字节后关闭连接</li>
+ * </ul>
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+final class LoopbackTarget implements AutoCloseable {
+
+    enum Mode {
+        echo, sink, source
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Mode mode;
+    private final ServerSocket serverSocket;
+    private final LongAdder received = new LongAdder();
+    private volatile boolean running = true;
+
+    LoopbackTarget(Mode mode) throws IOException {
+        this.mode = mode;
+        serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        Thread.startVirtualThread(this::acceptLoop);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return sink模式下累计收到的字节数
+     */
+    long getReceived() {
+        return received.sum();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            Thread.startVirtualThread(() -> {
+                try (socket) {
+                    socket.setTcpNoDelay(true);
+                    handle(socket.getInputStream(), socket.getOutputStream());
+                } catch (IOException ignored) {
+                    //压测结束时连接被关闭
+                }
+            });
+        }
+    }
+
+    private void handle(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        switch (mode) {
+            case echo -> {
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    out.write(buf, 0, n);
+                    out.flush();
+                }
+            }
+            case sink -> {
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    received.add(n);
+                }
+            }
+            case source -> {
+                long remaining = new DataInputStream(in).readLong();
+                while (remaining > 0) {
+                    int n = (int) Math.min(buf.length, remaining);
+                    out.write(buf, 0, n);
+                    remaining -= n;
+                }
+                out.flush();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,264 @@
+package org.wowtools.hppt.benchmarks.loopback;
+
+import org.wowtools.hppt.common.util.Constant;
+import org.wowtools.hppt.run.sc.pojo.ScConfig;
+import org.wowtools.hppt.run.ss.pojo.SsConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 启动耗时测试：用打好的hppt.jar起一个ss进程，再反复按需起sc进程(反向模式和file模式下每轮与sc一起重启ss)，
+ * 测量从启动sc进程到第一个字节经隧道往返成功的耗时(time-to-first-forwarded-byte)，结果以json输出。
+ * <p>
+ * ss和sc都以 java -jar hppt.jar 的方式在子进程中运行，与实际部署的启动路径一致，
+ * 因而也用于AppCDS归档的训练和native-image-agent的元数据采集，见benchmarks/pom.xml中的fast-startup profile
+ * <p>
+ * 运行: java -cp benchmarks/target/benchmarks.jar org.wowtools.hppt.benchmarks.loopback.StartupBenchmark [key=value ...]
+ * <ul>
+ *     <li>jar: hppt.jar的路径，默认run/target/hppt.jar</li>
+ *     <li>types: 逗号分隔的传输类型，默认 hppt,websocket,post</li>
+ *     <li>rounds: 每种传输类型启动sc的次数，默认10</li>
+ *     <li>ssJvmArgs: ss进程的jvm参数，空格分隔，其中的{type}会替换为传输类型</li>
+ *     <li>scJvmArgs: sc进程的jvm参数，同上</li>
+ *     <li>timeout: 每轮的超时秒数，默认60</li>
+ *     <li>out: 结果json文件，默认startup-report.json</li>
+ * </ul>
+ * 子进程以SIGTERM结束，保证-XX:ArchiveClassesAtExit和native-image-agent能在退出时写出文件
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class StartupBenchmark {
+
+    private static final String USER = "startup";
+    private static final String PASSWORD = "startup-password";
+
+    private final Path jar;
+    private final int rounds;
+    private final String ssJvmArgs;
+    private final String scJvmArgs;
+    private final long timeoutSeconds;
+    private final Path workDir;
+
+    private StartupBenchmark(Map<String, String> args) throws IOException {
+        jar = Path.of(args.getOrDefault("jar", "run/target/hppt.jar")).toAbsolutePath().normalize();
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException("找不到 " + jar + "，请先打包run模块");
+        }
+        rounds = Integer.parseInt(args.getOrDefault("rounds", "10"));
+        ssJvmArgs = args.getOrDefault("ssJvmArgs", "");
+        scJvmArgs = args.getOrDefault("scJvmArgs", "");
+        timeoutSeconds = Long.parseLong(args.getOrDefault("timeout", "60"));
+        workDir = Files.createTempDirectory("hppt-startup-");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argMap = new HashMap<>();
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            argMap.put(kv[0], kv.length > 1 ? kv[1] : "");
+        }
+        StartupBenchmark benchmark = new StartupBenchmark(argMap);
+        List<StartupResult> results = new ArrayList<>();
+        for (String type : argMap.getOrDefault("types", "hppt,websocket,post").split(",")) {
+            results.add(benchmark.run(type.trim()));
+        }
+        String json = Constant.jsonObjectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(results);
+        Files.writeString(Path.of(argMap.getOrDefault("out", "startup-report.json")), json);
+        System.out.println(json);
+        boolean failed = results.stream().anyMatch(r -> null != r.failure);
+        System.exit(failed ? 1 : 0);
+    }
+
+    private StartupResult run(String type) {
+        StartupResult result = new StartupResult();
+        result.type = type;
+        result.scJvmArgs = jvmArgs(scJvmArgs, type).toString();
+        long[] firstByte = new long[rounds];
+        long[] bind = new long[rounds];
+        //反向模式和file模式下由ss主动连接，sc退出后ss要等重连间隔才能连上新的sc，这不在本测试的范围内，故每轮与sc一起重启ss
+        boolean ssPerRound = "rhppt".equals(type) || "rpost".equals(type) || "file".equals(type);
+        Process ss = null;
+        try (LoopbackTarget target = new LoopbackTarget(LoopbackTarget.Mode.echo)) {
+            int ssPort = freePort();
+            if (!ssPerRound) {
+                ss = launch("ss", type, jvmArgs(ssJvmArgs, type), buildSsConfig(type, ssPort, null));
+                waitListening(ssPort);
+            }
+            for (int i = 0; i < rounds; i++) {
+                int localPort = freePort();
+                Path fileDir = "file".equals(type) ? Files.createTempDirectory(workDir, "file-") : null;
+                long start = System.nanoTime();
+                Process sc = launch("sc", type, jvmArgs(scJvmArgs, type), buildScConfig(type, ssPort, fileDir, localPort, target.getPort()));
+                Process roundSs = null;
+                try {
+                    if (null != fileDir) {
+                        roundSs = launch("ss", type, jvmArgs(ssJvmArgs, type), buildSsConfig(type, ssPort, fileDir));
+                    }
+                    bind[i] = waitListening(localPort) - start;
+                    if (ssPerRound && null == roundSs) {
+                        //反向模式下由sc监听ssPort，sc起来后再起ss，避免ss连接失败后进入重启等待。
+                        //不能探测ssPort，sc会把探测连接当作ss接入，连接断开后sc也会重启
+                        roundSs = launch("ss", type, jvmArgs(ssJvmArgs, type), buildSsConfig(type, ssPort, null));
+                    }
+                    firstByte[i] = waitFirstByte(localPort) - start;
+                } finally {
+                    stop(sc);
+                    if (null != roundSs) {
+                        stop(roundSs);
+                    }
+                }
+                result.rounds++;
+            }
+        } catch (Exception e) {
+            result.failure = String.valueOf(e);
+        } finally {
+            if (null != ss) {
+                stop(ss);
+            }
+        }
+        int n = result.rounds;
+        if (n > 0) {
+            result.firstByteMeanMs = Arrays.stream(firstByte, 0, n).average().orElse(0) / 1_000_000.0;
+            result.firstByteMinMs = LoopbackResult.percentileMs(firstByte, n, 0);
+            result.firstByteP50Ms = LoopbackResult.percentileMs(firstByte, n, 0.5);
+            result.firstByteMaxMs = LoopbackResult.percentileMs(firstByte, n, 1);
+            result.bindP50Ms = LoopbackResult.percentileMs(bind, n, 0.5);
+        }
+        System.err.printf("%s: first byte p50 %.1f ms min %.1f ms max %.1f ms, bind p50 %.1f ms, rounds %d %s%n",
+                type, result.firstByteP50Ms, result.firstByteMinMs, result.firstByteMaxMs, result.bindP50Ms,
+                result.rounds, null == result.failure ? "" : result.failure);
+        return result;
+    }
+
+    private static List<String> jvmArgs(String args, String type) {
+        List<String> list = new ArrayList<>();
+        for (String arg : args.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                list.add(arg.replace("{type}", type));
+            }
+        }
+        return list;
+    }
+
+    private SsConfig buildSsConfig(String type, int ssPort, Path fileDir) {
+        SsConfig config = new SsConfig();
+        config.type = type;
+        config.port = ssPort;
+        SsConfig.Client client = new SsConfig.Client();
+        client.user = USER;
+        client.password = PASSWORD;
+        config.clients = new ArrayList<>(List.of(client));
+        config.rhppt.host = "127.0.0.1";
+        config.rhppt.port = ssPort;
+        config.rpost.serverUrl = "http://127.0.0.1:" + ssPort;
+        if (null != fileDir) {
+            config.file.fileDir = fileDir.toString();
+        }
+        return config;
+    }
+
+    private ScConfig buildScConfig(String type, int ssPort, Path fileDir, int localPort, int targetPort) {
+        ScConfig config = new ScConfig();
+        config.type = type;
+        config.clientUser = USER;
+        config.clientPassword = PASSWORD;
+        ScConfig.Forward forward = new ScConfig.Forward();
+        forward.localPort = localPort;
+        forward.remoteHost = "127.0.0.1";
+        forward.remotePort = targetPort;
+        config.forwards = new ArrayList<>(List.of(forward));
+        config.post.serverUrl = "http://127.0.0.1:" + ssPort;
+        config.websocket.serverUrl = "ws://127.0.0.1:" + ssPort;
+        config.hppt.host = "127.0.0.1";
+        config.hppt.port = ssPort;
+        config.rhppt.port = ssPort;
+        config.rpost.port = ssPort;
+        if (null != fileDir) {
+            config.file.fileDir = fileDir.toString();
+        }
+        return config;
+    }
+
+    //以 java [jvmArgs] -jar hppt.jar ss|sc 配置文件 启动子进程
+    private Process launch(String side, String type, List<String> jvmArgs, Object config) throws IOException {
+        Path yml = Files.createTempFile(workDir, side + "-" + type + "-", ".yml");
+        Constant.ymlMapper.writeValue(yml.toFile(), config);
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.add(side);
+        //Run以jar所在目录为根读取配置文件
+        command.add(jar.getParent().relativize(yml).toString());
+        Path log = yml.resolveSibling(yml.getFileName().toString().replace(".yml", ".log"));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private void stop(Process process) {
+        process.destroy();
+        try {
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //轮询直到端口可连接，返回可连接时的nanoTime
+    private long waitListening(int port) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            try (Socket ignored = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                return System.nanoTime();
+            } catch (IOException e) {
+                Thread.sleep(2);
+            }
+        }
+        throw new TimeoutException("等待端口 " + port + " 监听超时");
+    }
+
+    //登录完成前建立的连接可能被关闭，反复发1字节直到经隧道往返成功，返回成功时的nanoTime
+    private long waitFirstByte(int port) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                OutputStream out = socket.getOutputStream();
+                InputStream in = socket.getInputStream();
+                out.write(1);
+                out.flush();
+                if (in.read() == 1) {
+                    return System.nanoTime();
+                }
+            } catch (IOException e) {
+                //连接被拒绝或被关闭，稍后重试
+            }
+            Thread.sleep(2);
+        }
+        throw new TimeoutException("等待首字节往返超时");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.wowtools.hppt.benchmarks.loopback;
+
+/**
+ * 一种传输类型的启动耗时测试结果，以json输出
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class StartupResult {
+    /**
+     * 传输类型
+     */
+    public String type;
+
+    /**
+     * sc进程的jvm参数
+     */
+    public String scJvmArgs;
+
+    /**
+     * 成功的轮数
+     */
+    public int rounds;
+
+    /**
+     * 从启动sc进程到第一个字节经隧道往返成功的耗时，毫秒
+     */
+    public double firstByteMinMs;
+    public double firstByteP50Ms;
+    public double firstByteMaxMs;
+    public double firstByteMeanMs;
+
+    /**
+     * 从启动sc进程到本地端口可连接的耗时的中位数，毫秒
+     */
+    public double bindP50Ms;
+
+    /**
+     * 整轮测试失败时的原因
+     */
+    public String failure;
+}
@@ -0,0 +1,370 @@
+package org.wowtools.hppt.benchmarks.loopback;
+
+import org.wowtools.hppt.common.pojo.SessionBytes;
+import org.wowtools.hppt.common.pojo.TalkMessage;
+import org.wowtools.hppt.common.record.CaptureReader;
+import org.wowtools.hppt.common.record.TrafficRecorder;
+import org.wowtools.hppt.common.server.LoginClientService;
+import org.wowtools.hppt.common.server.ServerSessionLifecycle;
+import org.wowtools.hppt.common.server.ServerSessionManager;
+import org.wowtools.hppt.common.server.ServerSessionManagerBuilder;
+import org.wowtools.hppt.common.server.ServerTalker;
+import org.wowtools.hppt.common.util.AesCipherUtil;
+import org.wowtools.hppt.common.util.BufferBudget;
+import org.wowtools.hppt.common.util.CommonConfig;
+import org.wowtools.hppt.common.util.Constant;
+import org.wowtools.hppt.common.util.OrderedPipeline;
+import org.wowtools.hppt.run.ss.pojo.SsConfig;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流量回放：把ss或sc上录制的流量文件(见CommonConfig.RecordConfig)中sc发往ss的消息，
+ * 按原始时间间隔(或按倍速加快)重新喂给ServerTalker，目标端替换为内置的echo，结果以json输出。
+ * 录制中的每个流(ss上的每个客户端)对应回放时的一个客户端，新建会话命令中的目标地址改为echo目标端，
+ * 会话id按新建会话时的initFlag从录制时的id映射为回放时的id。
+ * <p>
+ * 运行: java -cp benchmarks/target/benchmarks.jar org.wowtools.hppt.benchmarks.loopback.TrafficReplay file=xxx.hpptcap [key=value ...]
+ * <ul>
+ *     <li>file: 录制文件，必填</li>
+ *     <li>speed: 回放倍速，2表示以一半的时间间隔发出，小于等于0表示不等待、尽快发出，默认1</li>
+ *     <li>target: 目标端地址host:port，为空则使用内置的echo目标端</li>
+ *     <li>sessionWait: 等待会话建立的毫秒数，超时后丢弃该会话的数据，默认10000</li>
+ *     <li>drain: 发完后等待回复的最大秒数，默认30</li>
+ *     <li>out: 结果json文件，默认replay-report.json</li>
+ * </ul>
+ * 只回放ss端：sc端的回放需要真实的用户连接驱动ClientSessionManager，可用LoopbackHarness代替
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class TrafficReplay {
+
+    /**
+     * 回放结果
+     */
+    public static final class Result {
+        public String file;
+        public double speed;
+        public int streams;
+        public int messages;
+        public int createdSessions;
+        public int failedSessions;
+        public long droppedBytes;
+        public long sentBytes;
+        public long receivedBytes;
+        public long capturedMillis;
+        public long replayedMillis;
+        public double sentMBps;
+        public double receivedMBps;
+    }
+
+    private static final CommonConfig talkConfig = new CommonConfig();
+
+    static {
+        //回放直接处理解密后的消息，回复时也不必加密
+        talkConfig.enableEncrypt = false;
+    }
+
+    private final double speed;
+    private final String targetHost;
+    private final int targetPort;
+    private final long sessionWait;
+    private final long drainSeconds;
+    private final ServerSessionManager serverSessionManager;
+    private final LoginClientService loginClientService = new LoginClientService(new LoginClientService.Config());
+    private final Result result = new Result();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private final AtomicInteger createdSessions = new AtomicInteger();
+    private final AtomicInteger failedSessions = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private TrafficReplay(Map<String, String> args, String targetHost, int targetPort) {
+        speed = Double.parseDouble(args.getOrDefault("speed", "1"));
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+        sessionWait = Long.parseLong(args.getOrDefault("sessionWait", "10000"));
+        drainSeconds = Long.parseLong(args.getOrDefault("drain", "30"));
+        serverSessionManager = new ServerSessionManagerBuilder()
+                .setLifecycle(new ServerSessionLifecycle() {
+                })
+                //倍速回放时录制中的保活命令也会提前，放宽超时避免会话被误关
+                .setSessionTimeout(10 * 60 * 1000)
+                .build();
+        result.speed = speed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argMap = new HashMap<>();
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            argMap.put(kv[0], kv.length > 1 ? kv[1] : "");
+        }
+        String file = argMap.get("file");
+        if (null == file || file.isEmpty()) {
+            throw new IllegalArgumentException("缺少参数file");
+        }
+        BufferBudget.init(new SsConfig().bufferBudget);
+        OrderedPipeline.init(new SsConfig().pipeline);
+        CaptureReader capture = CaptureReader.read(Path.of(file));
+
+        Result result;
+        String target = argMap.get("target");
+        if (null == target || target.isEmpty()) {
+            try (LoopbackTarget echo = new LoopbackTarget(LoopbackTarget.Mode.echo)) {
+                result = new TrafficReplay(argMap, "127.0.0.1", echo.getPort()).replay(capture);
+            }
+        } else {
+            int idx = target.lastIndexOf(':');
+            result = new TrafficReplay(argMap, target.substring(0, idx), Integer.parseInt(target.substring(idx + 1))).replay(capture);
+        }
+        result.file = file;
+        String json = Constant.jsonObjectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
+        Files.writeString(Path.of(argMap.getOrDefault("out", "replay-report.json")), json);
+        System.out.println(json);
+        //ServerSessionManager的netty线程不会全部退出，直接结束进程
+        System.exit(0);
+    }
+
+    private Result replay(CaptureReader capture) throws Exception {
+        //按流拆分，每个流各自按顺序回放
+        Map<String, Stream> streams = new LinkedHashMap<>();
+        long firstMicros = -1;
+        long lastMicros = 0;
+        for (CaptureReader.Message message : capture.getMessages()) {
+            Stream stream = streams.computeIfAbsent(message.stream(), Stream::new);
+            if (message.direction() == TrafficRecorder.TO_SERVER) {
+                stream.messages.add(message);
+            } else {
+                stream.readInitSessions(message.bytes());
+            }
+            if (firstMicros < 0) {
+                firstMicros = message.micros();
+            }
+            lastMicros = message.micros();
+        }
+        result.streams = streams.size();
+        result.capturedMillis = (lastMicros - Math.max(firstMicros, 0)) / 1000;
+        //从录制中的第一条消息开始计时
+        long offsetMicros = Math.max(firstMicros, 0);
+
+        long start = System.nanoTime();
+        List<Thread> senders = new ArrayList<>();
+        List<Thread> repliers = new ArrayList<>();
+        for (Stream stream : streams.values()) {
+            if (stream.messages.isEmpty()) {
+                continue;
+            }
+            repliers.add(Thread.startVirtualThread(stream::replyLoop));
+            senders.add(Thread.startVirtualThread(() -> stream.sendLoop(start, offsetMicros)));
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        long sendEnd = System.nanoTime();
+        //echo目标端收多少回多少，等回复追上发出的字节数，或者超时
+        long drainDeadline = sendEnd + TimeUnit.SECONDS.toNanos(drainSeconds);
+        while (receivedBytes.get() < sentBytes.get() && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        long end = System.nanoTime();
+        running = false;
+        for (Thread replier : repliers) {
+            replier.join(5000);
+        }
+
+        for (Stream stream : streams.values()) {
+            result.messages += stream.messages.size();
+            for (CompletableFuture<Integer> future : stream.newIdByFlag.values()) {
+                if (!future.isDone()) {
+                    result.failedSessions++;
+                }
+            }
+        }
+        result.createdSessions = createdSessions.get();
+        result.failedSessions += failedSessions.get();
+        result.sentBytes = sentBytes.get();
+        result.receivedBytes = receivedBytes.get();
+        result.droppedBytes = droppedBytes.get();
+        result.replayedMillis = TimeUnit.NANOSECONDS.toMillis(end - start);
+        double seconds = Math.max(end - start, 1) / 1e9;
+        result.sentMBps = result.sentBytes / seconds / 1024 / 1024;
+        result.receivedMBps = result.receivedBytes / seconds / 1024 / 1024;
+        return result;
+    }
+
+    //录制中的一个流，即一个客户端
+    private final class Stream {
+        private final List<CaptureReader.Message> messages = new ArrayList<>();
+        //录制时的会话id -> initFlag
+        private final Map<Integer, String> flagByOldId = new HashMap<>();
+        //initFlag -> 回放时的会话id
+        private final Map<String, CompletableFuture<Integer>> newIdByFlag = new ConcurrentHashMap<>();
+        //回放时的会话id -> 已发出但还没有回显的字节数
+        private final Map<Integer, AtomicLong> pendingBySession = new ConcurrentHashMap<>();
+        private final LoginClientService.Client client;
+
+        private Stream(String name) {
+            client = loginClientService.login("replay-" + name, new AesCipherUtil("replay", System.currentTimeMillis()), new LoginClientService.ClientActiveWatcher() {
+                @Override
+                public void toInactivity() {
+                }
+
+                @Override
+                public void toActivity() {
+                }
+            });
+            serverSessionManager.assignShard(client);
+        }
+
+        //从录制的ss回复中取出会话建立命令，得到initFlag对应的录制时的会话id
+        private void readInitSessions(byte[] bytes) {
+            TalkMessage talkMessage = new TalkMessage(bytes);
+            for (String command : talkMessage.getCommands()) {
+                if (command.charAt(0) == Constant.ScCommands.InitSession) {
+                    String[] params = command.substring(1).split(Constant.sessionIdJoinFlag);
+                    flagByOldId.put(Integer.parseInt(params[0]), params[1]);
+                }
+            }
+            talkMessage.release();
+        }
+
+        private void sendLoop(long start, long offsetMicros) {
+            for (CaptureReader.Message message : messages) {
+                if (speed > 0) {
+                    long due = start + (long) ((message.micros() - offsetMicros) * 1000 / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        try {
+                            TimeUnit.NANOSECONDS.sleep(wait);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+                TalkMessage recorded = new TalkMessage(message.bytes());
+                TalkMessage replayed = rewrite(recorded);
+                recorded.release();
+                sentBytes.addAndGet(replayed.bytesLength());
+                ServerTalker.receiveClientMessage(serverSessionManager, client, replayed, sessionWait);
+            }
+        }
+
+        //目标地址改为回放的目标端，会话id换成回放时的id
+        private TalkMessage rewrite(TalkMessage recorded) {
+            List<String> commands = new ArrayList<>(recorded.getCommands().size());
+            for (String command : recorded.getCommands()) {
+                char type = command.charAt(0);
+                if (type == Constant.SsCommands.CreateSession) {
+                    String[] params = command.substring(1).split(Constant.sessionIdJoinFlag);
+                    newIdByFlag.put(params[2], new CompletableFuture<>());
+                    commands.add(type + targetHost + Constant.sessionIdJoinFlag + targetPort + Constant.sessionIdJoinFlag + params[2]);
+                } else {
+                    int newId = newId(Integer.parseInt(command.substring(1)));
+                    if (newId <= 0) {
+                        continue;
+                    }
+                    if (type == Constant.SsCommands.CloseSession && pending(newId).get() > 0) {
+                        closeLater(newId);
+                    } else {
+                        commands.add(String.valueOf(type) + newId);
+                    }
+                }
+            }
+            List<SessionBytes> sessionBytes = new ArrayList<>(recorded.getSessionBytes().size());
+            for (SessionBytes sb : recorded.getSessionBytes()) {
+                int newId = newId(sb.getSessionId());
+                if (newId > 0) {
+                    pending(newId).addAndGet(sb.length());
+                    sessionBytes.add(new SessionBytes(newId, sb.getBytes()));
+                } else {
+                    droppedBytes.addAndGet(sb.length());
+                }
+            }
+            return new TalkMessage(sessionBytes, commands);
+        }
+
+        private AtomicLong pending(int newId) {
+            return pendingBySession.computeIfAbsent(newId, id -> new AtomicLong());
+        }
+
+        //加速回放时关闭命令会紧跟着数据到达，等该会话的数据都回显后(最多等sessionWait)再关闭，避免目标端的回复被截断
+        private void closeLater(int newId) {
+            Thread.startVirtualThread(() -> {
+                long deadline = System.currentTimeMillis() + sessionWait;
+                try {
+                    while (pending(newId).get() > 0 && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(5);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                List<String> commands = new ArrayList<>(1);
+                commands.add(String.valueOf(Constant.SsCommands.CloseSession) + newId);
+                ServerTalker.receiveClientMessage(serverSessionManager, client, new TalkMessage(new ArrayList<>(0), commands), sessionWait);
+            });
+        }
+
+        //录制时的会话id换成回放时的id，会话未建立或建立失败返回-1
+        private int newId(int oldId) {
+            String flag = flagByOldId.get(oldId);
+            if (null == flag) {
+                return -1;
+            }
+            CompletableFuture<Integer> future = newIdByFlag.get(flag);
+            if (null == future) {
+                return -1;
+            }
+            try {
+                return future.get(sessionWait, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+
+        private void replyLoop() {
+            ServerTalker.Replier replier = bytes -> {
+                TalkMessage talkMessage = new TalkMessage(bytes);
+                for (String command : talkMessage.getCommands()) {
+                    if (command.charAt(0) == Constant.ScCommands.InitSession) {
+                        String[] params = command.substring(1).split(Constant.sessionIdJoinFlag);
+                        CompletableFuture<Integer> future = newIdByFlag.get(params[1]);
+                        int newId = Integer.parseInt(params[0]);
+                        //回执发出前会话已注册，此时取不到说明连接目标端失败
+                        if (null == serverSessionManager.getServerSessionBySessionId(newId)) {
+                            failedSessions.incrementAndGet();
+                        } else {
+                            createdSessions.incrementAndGet();
+                        }
+                        if (null != future) {
+                            future.complete(newId);
+                        }
+                    }
+                }
+                for (SessionBytes sb : talkMessage.getSessionBytes()) {
+                    pending(sb.getSessionId()).addAndGet(-sb.length());
+                }
+                receivedBytes.addAndGet(talkMessage.bytesLength());
+                talkMessage.release();
+                return true;
+            };
+            while (running) {
+                try {
+                    ServerTalker.replyToClient(talkConfig, serverSessionManager, client, 10 * 1024 * 1024, true, replier);
+                } catch (Exception e) {
+                    System.err.println("回复异常 " + e);
+                    return;
+                }
+            }
+        }
+    }
+}
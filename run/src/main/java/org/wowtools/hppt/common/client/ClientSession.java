@@ -1,10 +1,19 @@
 package org.wowtools.hppt.common.client;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.filter.BytesFilter;
+import org.wowtools.hppt.common.filter.FilterChain;
+import org.wowtools.hppt.common.metrics.Counter;
+import org.wowtools.hppt.common.metrics.HopTrace;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
+import org.wowtools.hppt.common.pojo.SessionBytes;
 import org.wowtools.hppt.common.util.BufferPool;
 import org.wowtools.hppt.common.util.BytesUtil;
 
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -18,42 +27,89 @@ public class ClientSession {
     private final int sessionId;
     private final ChannelHandlerContext channelHandlerContext;
 
-    private final BufferPool<byte[]> sendToUserBytesQueue = new BufferPool<>("<ClientSession-sendToUserBytesQueue");
+    private final BufferPool<SessionBytes> sendToUserBytesQueue = new BufferPool<>("<ClientSession-sendToUserBytesQueue");
     private volatile boolean running = true;
 
-    ClientSession(int sessionId, ChannelHandlerContext channelHandlerContext, ClientSessionLifecycle lifecycle) {
+    //从用户读入、向用户写出的字节数
+    final Counter inBytes;
+    private final Counter outBytes;
+    //已送入过滤器链、等待写出的被采样数据块，过滤器可能异步传递或拆分合并数据，以其后第一次写出完成的时间作为写给用户的时间
+    private final ConcurrentLinkedQueue<HopTrace> writingTraces = new ConcurrentLinkedQueue<>();
+
+    //发给用户的数据经过的过滤器链，没有过滤器时为null
+    private final FilterChain<ClientSession> toUserChain;
+    //发给目标端的数据经过的过滤器链，没有过滤器时为null，由ClientSessionManager在会话登记前设置
+    FilterChain<ClientSession> toTargetChain;
+
+    ClientSession(int sessionId, ChannelHandlerContext channelHandlerContext,
+                  String forward, List<BytesFilter<ClientSession>> toUserFilters) {
         this.sessionId = sessionId;
         this.channelHandlerContext = channelHandlerContext;
+        inBytes = HpptMetrics.forwardBytes(HpptMetrics.SIDE_SC, forward, HpptMetrics.IN);
+        outBytes = HpptMetrics.forwardBytes(HpptMetrics.SIDE_SC, forward, HpptMetrics.OUT);
+        toUserChain = toUserFilters.isEmpty() ? null : new FilterChain<>(this, toUserFilters, this::writeToUser, this::close);
         Thread.startVirtualThread(() -> {
             while (running) {
-                byte[] bytes = sendToUserBytesQueue.poll(10, TimeUnit.SECONDS);
-                if (null == bytes) {
+                SessionBytes sessionBytes = sendToUserBytesQueue.poll(10, TimeUnit.SECONDS);
+                if (null == sessionBytes) {
                     continue;
                 }
-                bytes = lifecycle.beforeSendToUser(this, bytes);
-                if (null != bytes) {
-                    log.debug("ClientSession {} 向用户发送字节 {}", sessionId, bytes.length);
-                    Throwable e = BytesUtil.writeToChannelHandlerContext(channelHandlerContext, bytes);
-                    if (null != e) {
-                        log.warn("向用户发送字节异常", e);
-                        close();
-                    } else if (log.isDebugEnabled()) {
-                        log.debug("ClientSession {} 向用户发送字节完成 {}", sessionId, bytes.length);
-                    }
-                    lifecycle.afterSendToUser(this, bytes);
+                HopTrace trace = sessionBytes.getTrace();
+                ByteBuf byteBuf = sessionBytes.getByteBuf().retain();
+                sessionBytes.release();
+                if (null != trace) {
+                    writingTraces.add(trace);
+                }
+                if (null != toUserChain) {
+                    toUserChain.fire(byteBuf);
+                } else {
+                    writeToUser(byteBuf);
                 }
             }
+            sendToUserBytesQueue.clear(SessionBytes::release);
+            writingTraces.clear();
             log.debug("ClientSession {} 接收线程结束", sessionId);
         });
     }
 
+    //经过滤器后的数据写出给用户
+    private void writeToUser(ByteBuf byteBuf) {
+        int length = byteBuf.readableBytes();
+        log.debug("ClientSession {} 向用户发送字节 {}", sessionId, length);
+        Throwable e = BytesUtil.writeToChannelHandlerContext(channelHandlerContext, byteBuf);
+        if (null != e) {
+            log.warn("向用户发送字节异常", e);
+            close();
+        } else {
+            //writeToChannelHandlerContext返回时写出已完成
+            HopTrace trace;
+            while (null != (trace = writingTraces.poll())) {
+                trace.stamp(HopTrace.Hop.user_write);
+                trace.finish();
+            }
+            outBytes.add(length);
+            if (log.isDebugEnabled()) {
+                log.debug("ClientSession {} 向用户发送字节完成 {}", sessionId, length);
+            }
+        }
+    }
+
     /**
      * 发bytes到用户
      *
      * @param bytes bytes
      */
     public void sendToUser(byte[] bytes) {
-        sendToUserBytesQueue.add(bytes);
+        sendToUserBytesQueue.add(new SessionBytes(sessionId, bytes));
+    }
+
+    /**
+     * 发bytes到用户
+     *
+     * @param sessionBytes sessionBytes，所有权转移给ClientSession
+     */
+    public void sendToUser(SessionBytes sessionBytes) {
+        sendToUserBytesQueue.add(sessionBytes);
     }
 
 
@@ -68,6 +124,13 @@ public class ClientSession {
     void close() {
         running = false;
         channelHandlerContext.close();
+        if (null != toUserChain) {
+            toUserChain.close();
+        }
+        FilterChain<ClientSession> chain = toTargetChain;
+        if (null != chain) {
+            chain.close();
+        }
     }
 
 
@@ -1,5 +1,9 @@
 package org.wowtools.hppt.common.client;
 
+import org.wowtools.hppt.common.filter.BytesFilter;
+
+import java.util.List;
+
 /**
  * ClientSession的生命周期，包含ClientSession从创建、交互、销毁各过程的触发事件
  *
@@ -18,7 +22,26 @@ public interface ClientSessionLifecycle {
     }
 
     /**
-     * 发送字节给用户前触发
+     * 发送给用户的数据经过的过滤器，在ClientSessionManager构造时取一次，所有会话共用。
+     * 与beforeSendToUser相比，过滤器直接处理ByteBuf，不必拷贝为byte[]，且可以异步、拆分或合并数据
+     *
+     * @return 过滤器，按先后顺序排列
+     */
+    default List<BytesFilter<ClientSession>> toUserFilters() {
+        return List.of();
+    }
+
+    /**
+     * 发送给目标端口的数据经过的过滤器，在ClientSessionManager构造时取一次，所有会话共用
+     *
+     * @return 过滤器，按先后顺序排列
+     */
+    default List<BytesFilter<ClientSession>> toTargetFilters() {
+        return List.of();
+    }
+
+    /**
+     * 发送字节给用户前触发，重写后会作为第一个过滤器执行，每块数据都会拷贝为byte[]，建议改用toUserFilters
      *
      * @param clientSession ClientSession
      * @param bytes         发送的字节
@@ -38,11 +61,11 @@ public interface ClientSessionLifecycle {
     }
 
     /**
-     * 发送字节给目标端口前触发
+     * 发送字节给目标端口前触发，重写后会作为第一个过滤器执行，每块数据都会拷贝为byte[]，建议改用toTargetFilters
      *
      * @param clientSession ClientSession
      * @param bytes         发送的字节
-     *                      return 修改后的字节，若不需要修改直接返回bytes，返回null则表示忽略掉此字节
+     * @return 修改后的字节，若不需要修改直接返回bytes，返回null则表示忽略掉此字节
      */
     default byte[] beforeSendToTarget(ClientSession clientSession, byte[] bytes) {
         return bytes;
@@ -6,12 +6,22 @@ import io.netty.channel.*;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.filter.ByteArrayHookFilter;
+import org.wowtools.hppt.common.filter.BytesFilter;
+import org.wowtools.hppt.common.filter.FilterChain;
+import org.wowtools.hppt.common.jfr.SessionCloseEvent;
+import org.wowtools.hppt.common.jfr.SessionOpenEvent;
+import org.wowtools.hppt.common.metrics.Counter;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
+import org.wowtools.hppt.common.metrics.Metrics;
 import org.wowtools.hppt.common.pojo.SessionBytes;
-import org.wowtools.hppt.common.util.BytesUtil;
 import org.wowtools.hppt.common.util.DebugConfig;
 import org.wowtools.hppt.common.util.NettyObjectBuilder;
+import org.wowtools.hppt.common.util.ReflectUtil;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -30,10 +40,19 @@ public class ClientSessionManager {
     private final ServerBootstrap serverBootstrap = new ServerBootstrap();
     private final ClientSessionLifecycle lifecycle;
     private final ClientBytesSender clientBytesSender;
+    //两个方向上的过滤器，以byte[]为参数的钩子已适配为其中的过滤器
+    private final List<BytesFilter<ClientSession>> toTargetFilters;
+    private final List<BytesFilter<ClientSession>> toUserFilters;
 
     private final List<Channel> channels = new LinkedList<>();
     private final ClientSessionManagerBuilder builder;
 
+    private final RecvByteBufAllocator defaultRecvAllocator;
+    //<端口,读缓冲分配器> 单独配置了读缓冲大小的端口
+    private final Map<Integer, RecvByteBufAllocator> portRecvAllocators = new ConcurrentHashMap<>();
+
+    private final Counter sessionsOpened = HpptMetrics.sessionsOpened(HpptMetrics.SIDE_SC);
+    private final Counter sessionsClosed = HpptMetrics.sessionsClosed(HpptMetrics.SIDE_SC);
 
     ClientSessionManager(ClientSessionManagerBuilder builder) {
         this.builder = builder;
@@ -45,21 +64,71 @@ public class ClientSessionManager {
         if (null == clientBytesSender) {
             throw new RuntimeException("clientBytesSender不能为空");
         }
+        toTargetFilters = buildToTargetFilters(lifecycle);
+        toUserFilters = buildToUserFilters(lifecycle);
+        defaultRecvAllocator = newRecvAllocator(builder.minRecvBuffer, builder.initialRecvBuffer, builder.maxRecvBuffer);
         serverBootstrap.group(builder.bossGroup, builder.workerGroup)
                 .channel(NettyObjectBuilder.getServerSocketChannelClass())
                 .option(ChannelOption.SO_BACKLOG, 128)
-                .childOption(ChannelOption.SO_SNDBUF, builder.bufferSize)
-                .childOption(ChannelOption.SO_RCVBUF, builder.bufferSize)
 //                        .handler(new LoggingHandler(LogLevel.INFO))
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) {
 //                                ch.pipeline().addLast(new LoggingHandler(LogLevel.INFO));
                         ch.pipeline().addLast(new SimpleHandler());
-                        ch.config().setRecvByteBufAllocator(new FixedRecvByteBufAllocator(builder.bufferSize));
-                        ch.config().setSendBufferSize(builder.bufferSize);
+                        //读缓冲按实际读到的字节数自适应，空闲连接不会占用大块内存
+                        RecvByteBufAllocator allocator = portRecvAllocators.get(ch.localAddress().getPort());
+                        ch.config().setRecvByteBufAllocator(null == allocator ? defaultRecvAllocator : allocator);
                     }
                 });
+        if (builder.socketBufferSize > 0) {
+            serverBootstrap.childOption(ChannelOption.SO_SNDBUF, builder.socketBufferSize)
+                    .childOption(ChannelOption.SO_RCVBUF, builder.socketBufferSize);
+        }
+        Metrics.gauge("hppt_sessions", "当前的会话数", clientSessionMap::size, "side", HpptMetrics.SIDE_SC);
+    }
+
+    /**
+     * 取生命周期中发给目标端的数据经过的全部过滤器，重写了的beforeSendToTarget、afterSendToTarget钩子分别适配为首、尾两个过滤器，
+     * 未重写的钩子不参与，以免为调用它而把ByteBuf拷贝为byte[]
+     *
+     * @param lifecycle 生命周期
+     * @return 过滤器
+     */
+    public static List<BytesFilter<ClientSession>> buildToTargetFilters(ClientSessionLifecycle lifecycle) {
+        List<BytesFilter<ClientSession>> res = new ArrayList<>();
+        if (ReflectUtil.isOverridden(lifecycle, ClientSessionLifecycle.class, "beforeSendToTarget", ClientSession.class, byte[].class)) {
+            res.add(ByteArrayHookFilter.before(lifecycle::beforeSendToTarget));
+        }
+        List<BytesFilter<ClientSession>> filters = lifecycle.toTargetFilters();
+        if (null != filters) {
+            res.addAll(filters);
+        }
+        if (ReflectUtil.isOverridden(lifecycle, ClientSessionLifecycle.class, "afterSendToTarget", ClientSession.class, byte[].class)) {
+            res.add(ByteArrayHookFilter.after(lifecycle::afterSendToTarget));
+        }
+        return res;
+    }
+
+    /**
+     * 取生命周期中发给用户的数据经过的全部过滤器，重写了的beforeSendToUser、afterSendToUser钩子分别适配为首、尾两个过滤器
+     *
+     * @param lifecycle 生命周期
+     * @return 过滤器
+     */
+    public static List<BytesFilter<ClientSession>> buildToUserFilters(ClientSessionLifecycle lifecycle) {
+        List<BytesFilter<ClientSession>> res = new ArrayList<>();
+        if (ReflectUtil.isOverridden(lifecycle, ClientSessionLifecycle.class, "beforeSendToUser", ClientSession.class, byte[].class)) {
+            res.add(ByteArrayHookFilter.before(lifecycle::beforeSendToUser));
+        }
+        List<BytesFilter<ClientSession>> filters = lifecycle.toUserFilters();
+        if (null != filters) {
+            res.addAll(filters);
+        }
+        if (ReflectUtil.isOverridden(lifecycle, ClientSessionLifecycle.class, "afterSendToUser", ClientSession.class, byte[].class)) {
+            res.add(ByteArrayHookFilter.after(lifecycle::afterSendToUser));
+        }
+        return res;
     }
 
     public boolean bindPort(int port) {
@@ -78,14 +147,83 @@ public class ClientSessionManager {
 
     }
 
+    /**
+     * 设置某个端口上此后新建的连接的读缓冲大小，实际大小按最近读到的字节数在[min,max]之间自适应调整
+     *
+     * @param port    端口
+     * @param min     最小字节数
+     * @param initial 初始字节数
+     * @param max     最大字节数
+     */
+    public void setRecvBuffer(int port, int min, int initial, int max) {
+        portRecvAllocators.put(port, newRecvAllocator(min, initial, max));
+    }
+
+    /**
+     * 移除某个端口单独的读缓冲设置，此后新建的连接使用默认值
+     *
+     * @param port 端口
+     */
+    public void removeRecvBuffer(int port) {
+        portRecvAllocators.remove(port);
+    }
+
+    private static RecvByteBufAllocator newRecvAllocator(int min, int initial, int max) {
+        min = Math.max(min, 64);
+        max = Math.max(max, min);
+        initial = Math.min(Math.max(initial, min), max);
+        return new AdaptiveRecvByteBufAllocator(min, initial, max);
+    }
+
+    /**
+     * 停止监听端口，不再接受新的连接，已建立的连接不受影响，直到各自关闭
+     *
+     * @param port 端口
+     * @return 是否找到并关闭了该端口的监听
+     */
+    public boolean unbindPort(int port) {
+        synchronized (channels) {
+            Iterator<Channel> iterator = channels.iterator();
+            while (iterator.hasNext()) {
+                Channel channel = iterator.next();
+                if (channel.localAddress() instanceof InetSocketAddress address && address.getPort() == port) {
+                    iterator.remove();
+                    channel.close().syncUninterruptibly();
+                    log.debug("unbindPort {} success", port);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
     public void disposeClientSession(ClientSession clientSession, String type) {
         clientSession.close();
         log.info("ClientSession {} close,type [{}]", clientSession.getSessionId(), type);
         if (null != clientSessionMap.remove(clientSession.getSessionId())) {
+            sessionsClosed.inc();
+            SessionCloseEvent event = new SessionCloseEvent();
+            if (event.shouldCommit()) {
+                event.side = HpptMetrics.SIDE_SC;
+                event.sessionId = clientSession.getSessionId();
+                event.reason = type;
+                event.commit();
+            }
             lifecycle.closed(clientSession);
         }
     }
 
+    /**
+     * 关闭全部ClientSession，监听的端口不受影响
+     *
+     * @param type 关闭原因
+     */
+    public void disposeAllClientSessions(String type) {
+        for (ClientSession clientSession : new ArrayList<>(clientSessionMap.values())) {
+            disposeClientSession(clientSession, type);
+        }
+    }
+
     public ClientSession getClientSessionBySessionId(int sessionId) {
         return clientSessionMap.get(sessionId);
     }
@@ -105,6 +243,14 @@ public class ClientSessionManager {
         builder.workerGroup.shutdownGracefully();
     }
 
+    //经过滤器后的用户端数据交给clientBytesSender
+    private void sendToTarget(ClientSession clientSession, SessionBytes sessionBytes) {
+        if (DebugConfig.OpenSerialNumber) {
+            log.debug("用户端发来字节 >sessionBytes-SerialNumber {}", sessionBytes.getSerialNumber());
+        }
+        clientBytesSender.sendToTarget(clientSession, sessionBytes);
+    }
+
     private final Map<ChannelHandlerContext, ClientSession> clientSessionMapByCtx = new ConcurrentHashMap<>();
 
     private final class SimpleHandler extends ByteToMessageDecoder {
@@ -119,10 +265,24 @@ public class ClientSessionManager {
             ClientBytesSender.SessionIdCallBack cb = new ClientBytesSender.SessionIdCallBack(channelHandlerContext) {
                 @Override
                 public void cb(int sessionId) {
-                    ClientSession clientSession = new ClientSession(sessionId, channelHandlerContext, lifecycle);
+                    ClientSession clientSession = new ClientSession(sessionId, channelHandlerContext,
+                            String.valueOf(localPort), toUserFilters);
+                    if (!toTargetFilters.isEmpty()) {
+                        clientSession.toTargetChain = new FilterChain<>(clientSession, toTargetFilters,
+                                buf -> sendToTarget(clientSession, new SessionBytes(sessionId, buf)),
+                                () -> disposeClientSession(clientSession, "filter error"));
+                    }
                     log.debug("ClientSession {} 初始化完成 {}", clientSession.getSessionId(), channelHandlerContext.hashCode());
                     clientSessionMapByCtx.put(channelHandlerContext, clientSession);
                     clientSessionMap.put(sessionId, clientSession);
+                    sessionsOpened.inc();
+                    SessionOpenEvent event = new SessionOpenEvent();
+                    if (event.shouldCommit()) {
+                        event.side = HpptMetrics.SIDE_SC;
+                        event.sessionId = sessionId;
+                        event.forward = String.valueOf(localPort);
+                        event.commit();
+                    }
                     lifecycle.created(clientSession);
                 }
             };
@@ -150,7 +310,6 @@ public class ClientSessionManager {
 
         @Override
         protected synchronized void decode(ChannelHandlerContext channelHandlerContext, ByteBuf byteBuf, List<Object> list) {
-            byte[] bytes = BytesUtil.byteBuf2bytes(byteBuf);
             ClientSession clientSession = null;
             for (int i = 0; i < 1000; i++) {
                 clientSession = clientSessionMapByCtx.get(channelHandlerContext);
@@ -168,23 +327,33 @@ public class ClientSessionManager {
 //                    log.debug(new String(bytes, StandardCharsets.UTF_8));
 //                }
                 //触发数据回调事件 转发数据到真实端口
+                clientSession.inBytes.add(byteBuf.readableBytes());
                 if (log.isDebugEnabled()) {
-                    log.debug("ClientSession {} 收到用户端字节 {}", clientSession.getSessionId(), bytes.length);
+                    log.debug("ClientSession {} 收到用户端字节 {}", clientSession.getSessionId(), byteBuf.readableBytes());
                 }
-                bytes = lifecycle.beforeSendToTarget(clientSession, bytes);
-                if (null == bytes) {
-                    return;
+                ByteBuf chunk = readChunk(channelHandlerContext, byteBuf);
+                FilterChain<ClientSession> chain = clientSession.toTargetChain;
+                if (null != chain) {
+                    chain.fire(chunk);
+                } else {
+                    sendToTarget(clientSession, new SessionBytes(clientSession.getSessionId(), chunk));
                 }
-                SessionBytes sessionBytes = new SessionBytes(clientSession.getSessionId(), bytes);
-                if (DebugConfig.OpenSerialNumber) {
-                    log.debug("用户端发来字节 >sessionBytes-SerialNumber {}", sessionBytes.getSerialNumber());
-                }
-                clientBytesSender.sendToTarget(clientSession, sessionBytes);
-                lifecycle.afterSendToTarget(clientSession, bytes);
             } else {
+                byteBuf.skipBytes(byteBuf.readableBytes());
                 log.warn("找不到channelHandlerContext对应的client session");
             }
         }
+
+        //从累积缓冲区中取出全部字节，一般直接切片；若数据远小于缓冲区容量，则拷贝到大小合适的池化ByteBuf中，以免小数据长期占住大的接收缓冲区
+        private static ByteBuf readChunk(ChannelHandlerContext ctx, ByteBuf in) {
+            int length = in.readableBytes();
+            if (length * 2 >= in.capacity()) {
+                return in.readRetainedSlice(length);
+            }
+            ByteBuf out = ctx.alloc().buffer(length, length);
+            out.writeBytes(in);
+            return out;
+        }
     }
 
 
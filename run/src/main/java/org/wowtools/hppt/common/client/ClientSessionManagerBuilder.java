@@ -8,15 +8,31 @@ import org.wowtools.hppt.common.util.NettyObjectBuilder;
  * @date 2024/1/4
  */
 public class ClientSessionManagerBuilder {
-    protected int bufferSize;
+    protected int socketBufferSize;
+    protected int minRecvBuffer = 1024;
+    protected int initialRecvBuffer = 16 * 1024;
+    protected int maxRecvBuffer = 1024 * 1024;
     protected EventLoopGroup bossGroup;
     protected EventLoopGroup workerGroup;
 
     protected ClientSessionLifecycle lifecycle;
     protected ClientBytesSender clientBytesSender;
 
-    public ClientSessionManagerBuilder setBufferSize(int bufferSize) {
-        this.bufferSize = bufferSize;
+    /**
+     * 设置用户连接的内核收发缓冲字节数(SO_RCVBUF/SO_SNDBUF)，小于等于0表示使用系统默认
+     */
+    public ClientSessionManagerBuilder setSocketBufferSize(int socketBufferSize) {
+        this.socketBufferSize = socketBufferSize;
+        return this;
+    }
+
+    /**
+     * 设置用户连接默认的读缓冲大小，实际大小按最近读到的字节数在[min,max]之间自适应调整
+     */
+    public ClientSessionManagerBuilder setRecvBuffer(int min, int initial, int max) {
+        minRecvBuffer = min;
+        initialRecvBuffer = initial;
+        maxRecvBuffer = max;
         return this;
     }
 
@@ -41,9 +57,6 @@ public class ClientSessionManagerBuilder {
     }
 
     public ClientSessionManager build() {
-        if (bufferSize <= 0) {
-            bufferSize = 10240;
-        }
         if (bossGroup == null) {
             bossGroup = NettyObjectBuilder.buildVirtualThreadEventLoopGroup(1);
         }
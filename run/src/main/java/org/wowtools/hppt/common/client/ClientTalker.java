@@ -1,8 +1,14 @@
 package org.wowtools.hppt.common.client;
 
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.jfr.TalkMessageReceiveEvent;
+import org.wowtools.hppt.common.jfr.TalkMessageSendEvent;
+import org.wowtools.hppt.common.metrics.Histogram;
+import org.wowtools.hppt.common.metrics.HopTrace;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
 import org.wowtools.hppt.common.pojo.SessionBytes;
 import org.wowtools.hppt.common.pojo.TalkMessage;
+import org.wowtools.hppt.common.record.TrafficRecorder;
 import org.wowtools.hppt.common.util.*;
 
 import java.nio.charset.StandardCharsets;
@@ -19,6 +25,12 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class ClientTalker {
 
+    private static final Histogram sendBatchSessions = HpptMetrics.batchSessions(HpptMetrics.SIDE_SC);
+    private static final Histogram sendBatchBytes = HpptMetrics.batchBytes(HpptMetrics.SIDE_SC);
+
+    //流量录制中sc侧消息所属的流名称，sc只和一个ss通信
+    private static final String RECORD_STREAM = "ss";
+
     /**
      * 将缓冲区的数据转为满足向服务端发送的字节
      *
@@ -27,13 +39,33 @@ public class ClientTalker {
      * @param sendCommandQueue 命令队列
      * @param sendBytesQueue   字节队列
      * @param aesCipherUtil    加密工具
-     * @param wait             若两个队列为空且wait为true，则取数据时会阻塞等待3秒
+     * @param wait             若两个队列为空且wait为true，则取数据时会阻塞等待3秒，期间向命令队列添加命令后需调用sendBytesQueue.wakeUp()提前结束等待
      * @return
      * @throws Exception
      */
     public static byte[] buildSendToServerBytes(CommonConfig config, long maxSendBodySize,
                                                 BufferPool<String> sendCommandQueue, BufferPool<SessionBytes> sendBytesQueue,
                                                 AesCipherUtil aesCipherUtil, boolean wait) throws Exception {
+        TalkMessage talkMessage = fetchSendToServerMessage(maxSendBodySize, sendCommandQueue, sendBytesQueue, wait);
+        if (null == talkMessage) {
+            return null;
+        }
+        return encodeSendToServerMessage(config, talkMessage, aesCipherUtil);
+    }
+
+    /**
+     * 从缓冲区取出数据组装为向服务端发送的消息
+     *
+     * @param maxSendBodySize  最多发送多少字节
+     * @param sendCommandQueue 命令队列
+     * @param sendBytesQueue   字节队列
+     * @param wait             若两个队列为空且wait为true，则取数据时会阻塞等待3秒，期间向命令队列添加命令后需调用sendBytesQueue.wakeUp()提前结束等待
+     * @return 消息，没有数据时返回null
+     * @throws Exception
+     */
+    public static TalkMessage fetchSendToServerMessage(long maxSendBodySize,
+                                                       BufferPool<String> sendCommandQueue, BufferPool<SessionBytes> sendBytesQueue,
+                                                       boolean wait) throws Exception {
         long sendBodySize = 0;//大致预估发送体积
         //命令
         LinkedList<String> commands = new LinkedList<>();
@@ -53,6 +85,7 @@ public class ClientTalker {
         }
         //bytes
         List<SessionBytes> bytesPbList = new LinkedList<>();
+        long batchBytes = 0;
         do {
             if (sendBodySize >= maxSendBodySize) {
                 break;
@@ -67,13 +100,18 @@ public class ClientTalker {
             if (null == bytes) {
                 break;
             }
-            sendBodySize += bytes.getBytes().length;
+            sendBodySize += bytes.length();
+            batchBytes += bytes.length();
             bytesPbList.add(bytes);
         } while (true);
 
         if (sendBodySize == 0) {
             return null;
         }
+        if (!bytesPbList.isEmpty()) {
+            sendBatchSessions.record(bytesPbList.size());
+            sendBatchBytes.record(batchBytes);
+        }
         if (DebugConfig.OpenSerialNumber) {
             for (SessionBytes sessionBytes : bytesPbList) {
                 log.debug("ClientTalker收集 >sessionBytes-SerialNumber {}", sessionBytes.getSerialNumber());
@@ -84,39 +122,142 @@ public class ClientTalker {
         if (DebugConfig.OpenSerialNumber) {
             log.debug("ClientTalker组装 >talkMessage-SerialNumber {}", talkMessage.getSerialNumber());
         }
-        byte[] bytes = talkMessage.toProto().build().toByteArray();
+        return talkMessage;
+    }
+
+    /**
+     * 序列化并加密向服务端发送的消息，不涉及缓冲区，可在多个线程中并行执行
+     *
+     * @param config        config
+     * @param talkMessage   消息，序列化后其中的SessionBytes被释放
+     * @param aesCipherUtil 加密工具
+     * @return 向服务端发送的字节
+     */
+    public static byte[] encodeSendToServerMessage(CommonConfig config, TalkMessage talkMessage, AesCipherUtil aesCipherUtil) {
+        byte[] bytes = encodeSendToServerMessage(config, talkMessage, aesCipherUtil, null);
+        recordSendToServer(talkMessage.getRecordBytes());
+        return bytes;
+    }
+
+    /**
+     * 录制一条发往服务端的消息，需按发送顺序调用
+     *
+     * @param recordBytes 序列化时留下的明文TalkMessage.getRecordBytes()，未开启录制时为null
+     */
+    public static void recordSendToServer(byte[] recordBytes) {
+        TrafficRecorder.record(TrafficRecorder.TO_SERVER, RECORD_STREAM, recordBytes);
+    }
+
+    /**
+     * 序列化并加密向服务端发送的消息，序列化后的明文保留在link中，以便传输层重连后重发。
+     * 开启流量录制时明文留在talkMessage.recordBytes中，由调用方按发送顺序调用recordSendToServer
+     *
+     * @param config        config
+     * @param talkMessage   消息，序列化后其中的SessionBytes被释放
+     * @param aesCipherUtil 加密工具
+     * @param link          可恢复的消息链路，为null则不保留
+     * @return 向服务端发送的字节
+     */
+    public static byte[] encodeSendToServerMessage(CommonConfig config, TalkMessage talkMessage, AesCipherUtil aesCipherUtil, ReliableLink link) {
+        TalkMessageSendEvent event = new TalkMessageSendEvent();
+        event.begin();
+        byte[] bytes;
+        try {
+            bytes = talkMessage.toProto().build().toByteArray();
+            if (TrafficRecorder.enabled()) {
+                //本方法可能在多个线程中并行执行，由调用方按发送顺序调用recordSendToServer录制
+                talkMessage.setRecordBytes(bytes);
+            }
+            if (null != link) {
+                link.sent(talkMessage.getSeq(), bytes);
+            }
+        } finally {
+            //序列化完成后SessionBytes就不再需要了
+            talkMessage.release();
+        }
+        long encryptTime = 0;
         //加密
         if (config.enableEncrypt) {
+            long t = System.nanoTime();
             bytes = aesCipherUtil.encryptor.encrypt(bytes);
+            encryptTime = System.nanoTime() - t;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit(HpptMetrics.SIDE_SC, bytes.length, talkMessage, encryptTime);
         }
-
         return bytes;
 
     }
 
-    //接收服务端发来的字节并做相应处理
+    /**
+     * 接收服务端发来的字节并做相应处理
+     *
+     * @param dt 对时得到的时钟偏差，服务端时间减本地时间，毫秒，用于把采样追踪中服务端的时间戳换算到本地
+     */
     public static boolean receiveServerBytes(CommonConfig config, byte[] responseBody,
                                              ClientSessionManager clientSessionManager, AesCipherUtil aesCipherUtil, BufferPool<String> sendCommandQueue,
-                                             Map<Integer, ClientBytesSender.SessionIdCallBack> sessionIdCallBackMap) throws Exception {
+                                             Map<Integer, ClientBytesSender.SessionIdCallBack> sessionIdCallBackMap, long dt) throws Exception {
+        return receiveServerBytes(config, responseBody, clientSessionManager, aesCipherUtil, sendCommandQueue, sessionIdCallBackMap, dt, null);
+    }
+
+    /**
+     * 接收服务端发来的字节并做相应处理，按link中的序号舍弃重发导致的重复消息
+     *
+     * @param dt   对时得到的时钟偏差，服务端时间减本地时间，毫秒，用于把采样追踪中服务端的时间戳换算到本地
+     * @param link 可恢复的消息链路，为null则不做确认和去重
+     */
+    public static boolean receiveServerBytes(CommonConfig config, byte[] responseBody,
+                                             ClientSessionManager clientSessionManager, AesCipherUtil aesCipherUtil, BufferPool<String> sendCommandQueue,
+                                             Map<Integer, ClientBytesSender.SessionIdCallBack> sessionIdCallBackMap, long dt,
+                                             ReliableLink link) throws Exception {
         if (null == responseBody) {
             return true;
         }
+        long receiveMicros = HopTrace.nowMicros();
         TalkMessage talkMessage;
         try {
+            TalkMessageReceiveEvent event = new TalkMessageReceiveEvent();
+            event.begin();
+            int size = responseBody.length;
+            long decryptTime = 0;
             //解密
             if (config.enableEncrypt) {
+                long t = System.nanoTime();
                 responseBody = aesCipherUtil.descriptor.decrypt(responseBody);
+                decryptTime = System.nanoTime() - t;
             }
             log.debug("收到服务端发回字节数 {}", responseBody.length);
+            TrafficRecorder.record(TrafficRecorder.TO_CLIENT, RECORD_STREAM, responseBody);
             talkMessage = new TalkMessage(responseBody);
             if (DebugConfig.OpenSerialNumber) {
                 log.debug("ClientTalker收到服务端发回 <talkMessage-SerialNumber {}", talkMessage.getSerialNumber());
             }
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit(HpptMetrics.SIDE_SC, size, talkMessage, decryptTime);
+            }
         } catch (Exception e) {
             log.warn("服务端响应错误  {}", new String(responseBody, StandardCharsets.UTF_8), e);
             Thread.sleep(10000);
             return true;
         }
+        if (null != link) {
+            link.acked(talkMessage.getAck());
+            boolean fresh;
+            try {
+                fresh = link.receive(talkMessage.getSeq(), talkMessage.bytesLength());
+            } catch (IllegalStateException e) {
+                //抛给调用方断开传输层，重连后服务端从缺失处重发
+                talkMessage.release();
+                throw e;
+            }
+            if (!fresh) {
+                log.debug("重复的消息，舍弃 {}", talkMessage.getSeq());
+                talkMessage.release();
+                return true;
+            }
+        }
 
         boolean isEmpty = true;
         //收命令
@@ -165,9 +306,14 @@ public class ClientTalker {
         if (null != sessionBytes && !sessionBytes.isEmpty()) {
             isEmpty = false;
             for (SessionBytes sessionByte : sessionBytes) {
+                HopTrace trace = sessionByte.getTrace();
+                if (null != trace) {
+                    trace.toLocalClock(dt);
+                    trace.stamp(HopTrace.Hop.peer_receive, receiveMicros);
+                }
                 ClientSession clientSession = clientSessionManager.getClientSessionBySessionId(sessionByte.getSessionId());
                 if (clientSession != null) {
-                    clientSession.sendToUser(sessionByte.getBytes());
+                    clientSession.sendToUser(sessionByte);
                 } else {
                     //客户端没有这个session，异步等待一下看是否是未初始化完成
                     Thread.startVirtualThread(() -> {
@@ -181,10 +327,11 @@ public class ClientTalker {
                             }
                             clientSession1 = clientSessionManager.getClientSessionBySessionId(sessionByte.getSessionId());
                             if (null != clientSession1) {
-                                clientSession1.sendToUser(sessionByte.getBytes());
+                                clientSession1.sendToUser(sessionByte);
                                 return;
                             }
                         }
+                        sessionByte.release();
 //                        //客户端没有这个session 通知服务端关闭
 //                        log.info("sessionId {} 不存在，关闭session", bytesPb.getSessionId());
 //                        sendCommandQueue.add(String.valueOf(Constant.SsCommands.CloseSession) + bytesPb.getSessionId());
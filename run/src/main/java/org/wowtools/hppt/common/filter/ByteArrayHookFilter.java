@@ -0,0 +1,84 @@
+package org.wowtools.hppt.common.filter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+/**
+ * 把生命周期中以byte[]为参数的钩子适配为过滤器，每块数据都会拷贝为byte[]，新写的插件应直接实现BytesFilter
+ *
+ * @param <S> 会话类型
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public final class ByteArrayHookFilter<S> implements BytesFilter<S> {
+
+    /**
+     * 发送前的钩子，可修改数据
+     */
+    @FunctionalInterface
+    public interface BeforeHook<S> {
+        /**
+         * @param session 会话
+         * @param bytes   数据
+         * @return 修改后的数据，返回null表示忽略掉此数据
+         */
+        byte[] apply(S session, byte[] bytes);
+    }
+
+    /**
+     * 发送后的钩子，只读
+     */
+    @FunctionalInterface
+    public interface AfterHook<S> {
+        /**
+         * @param session 会话
+         * @param bytes   已发送的数据
+         */
+        void accept(S session, byte[] bytes);
+    }
+
+    private final BeforeHook<S> before;
+    private final AfterHook<S> after;
+
+    private ByteArrayHookFilter(BeforeHook<S> before, AfterHook<S> after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * @param hook 发送前的钩子
+     * @return 放在过滤器链最前面的过滤器
+     */
+    public static <S> ByteArrayHookFilter<S> before(BeforeHook<S> hook) {
+        return new ByteArrayHookFilter<>(hook, null);
+    }
+
+    /**
+     * @param hook 发送后的钩子
+     * @return 放在过滤器链最后面的过滤器，下游同步写出数据后触发钩子
+     */
+    public static <S> ByteArrayHookFilter<S> after(AfterHook<S> hook) {
+        return new ByteArrayHookFilter<>(null, hook);
+    }
+
+    @Override
+    public void filter(FilterContext<S> ctx, ByteBuf buf) {
+        if (null != after) {
+            byte[] bytes = ByteBufUtil.getBytes(buf);
+            ctx.pass(buf);
+            after.accept(ctx.session(), bytes);
+            return;
+        }
+        byte[] bytes;
+        try {
+            bytes = ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+        bytes = before.apply(ctx.session(), bytes);
+        if (null != bytes) {
+            ctx.pass(Unpooled.wrappedBuffer(bytes));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.wowtools.hppt.common.filter;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 会话数据过滤器，以ByteBuf为单位流式地检查或改写会话中某一方向的数据。
+ * 多个过滤器组成一条FilterChain，每块数据依次经过各过滤器后写出。
+ * 过滤器实例被所有会话共用，会话相关的状态存放在FilterContext中
+ *
+ * @param <S> 会话类型，ClientSession或ServerSession
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public interface BytesFilter<S> {
+
+    /**
+     * 处理一块数据。buf的所有权转移给过滤器，过滤器通过ctx.pass把零到多块数据交给下一个过滤器，
+     * 可以原样传递、改写、拆分、暂存后与后续数据合并，也可以在其它可阻塞的线程(不能是netty的io线程)中异步传递，但须自行保证同一会话内的先后顺序；
+     * 不再向下传递的ByteBuf须由过滤器自行release
+     *
+     * @param ctx 本过滤器在此会话上的上下文
+     * @param buf 数据
+     * @throws Exception 抛出异常时关闭会话
+     */
+    void filter(FilterContext<S> ctx, ByteBuf buf) throws Exception;
+
+    /**
+     * 会话关闭时触发，用于释放暂存的数据
+     *
+     * @param ctx 本过滤器在此会话上的上下文
+     */
+    default void closed(FilterContext<S> ctx) {
+
+    }
+}
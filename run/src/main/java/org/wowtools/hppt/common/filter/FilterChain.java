@@ -0,0 +1,124 @@
+package org.wowtools.hppt.common.filter;
+
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个会话在某一方向上的过滤器链，数据依次经过各过滤器后交给sink写出
+ *
+ * @param <S> 会话类型
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class FilterChain<S> {
+
+    /**
+     * 过滤后数据的去处
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * @param buf 数据，所有权转移给sink
+         * @throws Throwable 抛出异常时关闭会话
+         */
+        void accept(ByteBuf buf) throws Throwable;
+    }
+
+    final S session;
+    private final BytesFilter<S>[] filters;
+    private final FilterContext<S>[] contexts;
+    private final Sink sink;
+    private final Runnable onError;
+    private volatile boolean closed;
+    //正在执行的fire数，关闭时有fire在执行则由最后退出的fire通知各过滤器，避免过滤器处理数据时其状态被释放
+    private final AtomicInteger firing = new AtomicInteger();
+    private final AtomicBoolean closeNotified = new AtomicBoolean();
+
+    /**
+     * @param session 会话
+     * @param filters 过滤器，按先后顺序排列
+     * @param sink    过滤后数据的去处
+     * @param onError 过滤器或sink出错时的处理，一般是关闭会话
+     */
+    @SuppressWarnings("unchecked")
+    public FilterChain(S session, List<BytesFilter<S>> filters, Sink sink, Runnable onError) {
+        this.session = session;
+        this.filters = filters.toArray(new BytesFilter[0]);
+        this.sink = sink;
+        this.onError = onError;
+        contexts = new FilterContext[this.filters.length];
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = new FilterContext<>(this, i);
+        }
+    }
+
+    /**
+     * 把一块数据送入过滤器链
+     *
+     * @param buf 数据，所有权转移给过滤器链
+     */
+    public void fire(ByteBuf buf) {
+        fire(0, buf);
+    }
+
+    void fire(int index, ByteBuf buf) {
+        firing.incrementAndGet();
+        try {
+            if (closed) {
+                buf.release();
+                return;
+            }
+            if (index < filters.length) {
+                filters[index].filter(contexts[index], buf);
+            } else {
+                sink.accept(buf);
+            }
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            if (firing.decrementAndGet() == 0 && closed) {
+                notifyClosed();
+            }
+        }
+    }
+
+    void fail(Throwable cause) {
+        if (closed) {
+            return;
+        }
+        log.warn("过滤器链异常 {}", session, cause);
+        onError.run();
+    }
+
+    /**
+     * 会话关闭时调用，通知各过滤器释放暂存的数据，此后送入的数据直接丢弃。
+     * 可在任意线程中调用，不会等待正在处理的数据，正在处理时由处理完的线程通知各过滤器
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (firing.get() == 0) {
+            notifyClosed();
+        }
+    }
+
+    private void notifyClosed() {
+        if (!closeNotified.compareAndSet(false, true)) {
+            return;
+        }
+        for (int i = 0; i < filters.length; i++) {
+            try {
+                filters[i].closed(contexts[i]);
+            } catch (Exception e) {
+                log.warn("过滤器关闭异常 {}", session, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.wowtools.hppt.common.filter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * 过滤器在某个会话上的上下文，每个会话的每个过滤器各有一个
+ *
+ * @param <S> 会话类型
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public final class FilterContext<S> {
+
+    private final FilterChain<S> chain;
+    private final int index;
+    private Object state;
+
+    FilterContext(FilterChain<S> chain, int index) {
+        this.chain = chain;
+        this.index = index;
+    }
+
+    /**
+     * @return 所属会话
+     */
+    public S session() {
+        return chain.session;
+    }
+
+    /**
+     * 把数据交给下一个过滤器，最后一个过滤器交出的数据直接写出，buf的所有权随之转移。
+     * 在调用线程中同步执行下游过滤器和sink，sink可能等待写完成，因此异步传递时须在可阻塞的线程(如自建的虚拟线程)中调用，
+     * 不能转到netty的io线程(如channel.eventLoop())中调用。
+     * 下游出错时关闭会话而不向调用方抛出异常
+     *
+     * @param buf 数据
+     */
+    public void pass(ByteBuf buf) {
+        chain.fire(index + 1, buf);
+    }
+
+    /**
+     * 以异常结束会话，用于异步处理中出错的情况
+     *
+     * @param cause 异常
+     */
+    public void fail(Throwable cause) {
+        chain.fail(cause);
+    }
+
+    /**
+     * @return 拆分、合并数据时申请ByteBuf用的分配器
+     */
+    public ByteBufAllocator alloc() {
+        return ByteBufAllocator.DEFAULT;
+    }
+
+    /**
+     * @return 过滤器在此会话上的状态，未设置过则为null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getState() {
+        return (T) state;
+    }
+
+    /**
+     * @param state 过滤器在此会话上的状态
+     */
+    public void setState(Object state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,31 @@
+package org.wowtools.hppt.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * 向channel写数据时等待写出完成的jfr事件，等待超过阈值才记录，阈值可在事件设置中调整
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Name("hppt.BlockedWrite")
+@Label("Blocked Write")
+@Category({"hppt", "Netty"})
+@Description("BytesUtil同步等待writeAndFlush完成的时长")
+@Threshold("20 ms")
+public final class BlockedWriteEvent extends Event {
+    @Label("Remote Address")
+    public String remoteAddress;
+
+    @Label("Completed")
+    @Description("是否在超时前完成")
+    public boolean completed;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,47 @@
+package org.wowtools.hppt.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+
+/**
+ * 缓冲池元素个数越过高水位线的jfr事件。
+ * 水位线以事件设置waterline指定，如 -XX:StartFlightRecording:hppt.BufferPoolWaterline#waterline=1000，
+ * 多个录制同时开启时取其中最小的值
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Name("hppt.BufferPoolWaterline")
+@Label("BufferPool Waterline")
+@Category({"hppt", "BufferPool"})
+@Description("缓冲池中元素个数从水位线以下涨到水位线及以上")
+public final class BufferPoolWaterlineEvent extends Event {
+    @Label("Pool")
+    public String pool;
+
+    @Label("Size")
+    @Description("越过水位线后的元素个数")
+    public int size;
+
+    @Label("Waterline")
+    public int waterline;
+
+    /**
+     * @return 当前生效的水位线
+     */
+    public static int waterline() {
+        return WaterlineSetting.waterline;
+    }
+
+    @Name("waterline")
+    @Label("Waterline")
+    @SettingDefinition
+    @SuppressWarnings("unused")
+    boolean waterline(WaterlineSetting setting) {
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package org.wowtools.hppt.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * post模式下ss挂起一次长轮询请求的jfr事件，事件时长为请求等待数据的时长
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Name("hppt.LongPoll")
+@Label("Long Poll")
+@Category({"hppt", "Post"})
+@Description("ss处理一次post长轮询请求")
+@StackTrace(false)
+public final class LongPollEvent extends Event {
+    @Label("Cookie Hash")
+    @Description("cookie的sha-256摘要前8字节，jfr录制常被导出分享，不记录cookie本身")
+    public String cookieHash;
+
+    @Label("Size")
+    @Description("返回的字节数，无数据时为0")
+    @DataAmount
+    public int size;
+}
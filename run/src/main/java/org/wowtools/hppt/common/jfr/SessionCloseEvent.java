@@ -0,0 +1,32 @@
+package org.wowtools.hppt.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 会话关闭的jfr事件
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Name("hppt.SessionClose")
+@Label("Session Close")
+@Category({"hppt", "Session"})
+@Description("会话关闭")
+@StackTrace(false)
+public final class SessionCloseEvent extends Event {
+    @Label("Side")
+    @Description("ss或sc")
+    public String side;
+
+    @Label("Session Id")
+    public int sessionId;
+
+    @Label("Reason")
+    @Description("关闭原因")
+    public String reason;
+}
@@ -0,0 +1,36 @@
+package org.wowtools.hppt.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 会话建立的jfr事件
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Name("hppt.SessionOpen")
+@Label("Session Open")
+@Category({"hppt", "Session"})
+@Description("ss连上目标端或sc接入用户连接，建立了一个会话")
+@StackTrace(false)
+public final class SessionOpenEvent extends Event {
+    @Label("Side")
+    @Description("ss或sc")
+    public String side;
+
+    @Label("Session Id")
+    public int sessionId;
+
+    @Label("Client")
+    @Description("客户端id，sc端为空")
+    public String client;
+
+    @Label("Forward")
+    @Description("ss上为目标端host:port，sc上为本地端口")
+    public String forward;
+}
@@ -0,0 +1,61 @@
+package org.wowtools.hppt.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.wowtools.hppt.common.pojo.TalkMessage;
+
+/**
+ * 收到一条TalkMessage的jfr事件，事件时长为解密解析的耗时
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Name("hppt.TalkMessageReceive")
+@Label("TalkMessage Receive")
+@Category({"hppt", "TalkMessage"})
+@Description("ss收到客户端或sc收到ss的一条消息")
+@StackTrace(false)
+public final class TalkMessageReceiveEvent extends Event {
+    @Label("Side")
+    @Description("ss或sc")
+    public String side;
+
+    @Label("Size")
+    @Description("解密前的字节数")
+    @DataAmount
+    public int size;
+
+    @Label("Session Count")
+    @Description("消息中SessionBytes的个数")
+    public int sessionCount;
+
+    @Label("Command Count")
+    public int commandCount;
+
+    @Label("Decrypt Time")
+    @Timespan
+    public long decryptTime;
+
+    /**
+     * 填入消息的信息并提交
+     *
+     * @param side        ss或sc
+     * @param size        字节数
+     * @param talkMessage 消息
+     * @param decryptTime 解密耗时，纳秒
+     */
+    public void commit(String side, int size, TalkMessage talkMessage, long decryptTime) {
+        this.side = side;
+        this.size = size;
+        sessionCount = null == talkMessage.getSessionBytes() ? 0 : talkMessage.getSessionBytes().size();
+        commandCount = null == talkMessage.getCommands() ? 0 : talkMessage.getCommands().size();
+        this.decryptTime = decryptTime;
+        commit();
+    }
+}
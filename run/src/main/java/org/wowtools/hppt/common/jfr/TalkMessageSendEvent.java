@@ -0,0 +1,61 @@
+package org.wowtools.hppt.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.wowtools.hppt.common.pojo.TalkMessage;
+
+/**
+ * 发出一条TalkMessage的jfr事件，事件时长为序列化加密的耗时
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Name("hppt.TalkMessageSend")
+@Label("TalkMessage Send")
+@Category({"hppt", "TalkMessage"})
+@Description("ss回复客户端或sc发往ss的一条消息")
+@StackTrace(false)
+public final class TalkMessageSendEvent extends Event {
+    @Label("Side")
+    @Description("ss或sc")
+    public String side;
+
+    @Label("Size")
+    @Description("序列化加密后的字节数")
+    @DataAmount
+    public int size;
+
+    @Label("Session Count")
+    @Description("消息中SessionBytes的个数")
+    public int sessionCount;
+
+    @Label("Command Count")
+    public int commandCount;
+
+    @Label("Encrypt Time")
+    @Timespan
+    public long encryptTime;
+
+    /**
+     * 填入消息的信息并提交
+     *
+     * @param side        ss或sc
+     * @param size        字节数
+     * @param talkMessage 消息
+     * @param encryptTime 加密耗时，纳秒
+     */
+    public void commit(String side, int size, TalkMessage talkMessage, long encryptTime) {
+        this.side = side;
+        this.size = size;
+        sessionCount = null == talkMessage.getSessionBytes() ? 0 : talkMessage.getSessionBytes().size();
+        commandCount = null == talkMessage.getCommands() ? 0 : talkMessage.getCommands().size();
+        this.encryptTime = encryptTime;
+        commit();
+    }
+}
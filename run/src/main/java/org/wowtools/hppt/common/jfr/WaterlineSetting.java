@@ -0,0 +1,55 @@
+package org.wowtools.hppt.common.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.MetadataDefinition;
+import jdk.jfr.Name;
+import jdk.jfr.SettingControl;
+
+import java.util.Set;
+
+/**
+ * BufferPoolWaterlineEvent的水位线设置，由jfr在录制开始或设置变化时回调
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@MetadataDefinition
+@Name("hppt.Waterline")
+@Label("Waterline")
+@Description("缓冲池元素个数的水位线")
+public final class WaterlineSetting extends SettingControl {
+    private static final int DEFAULT = 1000;
+
+    static volatile int waterline = DEFAULT;
+
+    private String value = String.valueOf(DEFAULT);
+
+    @Override
+    public String combine(Set<String> values) {
+        int min = Integer.MAX_VALUE;
+        for (String v : values) {
+            min = Math.min(min, parse(v));
+        }
+        return String.valueOf(min == Integer.MAX_VALUE ? DEFAULT : min);
+    }
+
+    @Override
+    public void setValue(String value) {
+        this.value = value;
+        waterline = parse(value);
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    private static int parse(String v) {
+        try {
+            return Math.max(Integer.parseInt(v.trim()), 1);
+        } catch (NumberFormatException e) {
+            return DEFAULT;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.wowtools.hppt.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 只增不减的计数器，基于LongAdder，多线程累加时无锁无竞争
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void add(long n) {
+        value.add(n);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
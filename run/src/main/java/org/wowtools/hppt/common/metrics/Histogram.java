@@ -0,0 +1,91 @@
+package org.wowtools.hppt.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 直方图，桶的上界按2的幂递增，记录时只做一次位运算定位桶再累加LongAdder，无锁
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public final class Histogram {
+
+    /**
+     * 记录值的单位，决定桶的范围和输出时的换算
+     */
+    public enum Unit {
+        /**
+         * 纳秒，桶从约1微秒到约68秒，输出时换算为秒
+         */
+        NANOS(10, 36, 1e-9),
+        /**
+         * 字节，桶从64B到64MB
+         */
+        BYTES(6, 26, 1),
+        /**
+         * 个数，桶从1到4096
+         */
+        COUNT(0, 12, 1);
+
+        private final int minExp;
+        private final int maxExp;
+        private final double scale;
+
+        Unit(int minExp, int maxExp, double scale) {
+            this.minExp = minExp;
+            this.maxExp = maxExp;
+            this.scale = scale;
+        }
+    }
+
+    private final Unit unit;
+    //buckets[i]记录(2^(minExp+i-1), 2^(minExp+i)]内的值，最后一个桶记录超出maxExp的值
+    private final LongAdder[] buckets;
+    private final LongAdder sum = new LongAdder();
+
+    Histogram(Unit unit) {
+        this.unit = unit;
+        buckets = new LongAdder[unit.maxExp - unit.minExp + 2];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一个值
+     *
+     * @param v 值，单位见Unit
+     */
+    public void record(long v) {
+        //不小于v的最小的2的幂的指数
+        int exp = v <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(v - 1);
+        int i = Math.min(Math.max(exp - unit.minExp, 0), buckets.length - 1);
+        buckets[i].increment();
+        sum.add(v);
+    }
+
+    /**
+     * 以开始时间记录到现在经过的纳秒数，用于Unit.NANOS
+     *
+     * @param startNanos System.nanoTime()取得的开始时间
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    void write(StringBuilder sb, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String le = i == buckets.length - 1 ? "+Inf" : Metrics.formatNumber((double) (1L << (unit.minExp + i)) * unit.scale);
+            sb.append(name).append("_bucket{");
+            if (!labels.isEmpty()) {
+                sb.append(labels).append(',');
+            }
+            sb.append("le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        String braced = labels.isEmpty() ? "" : "{" + labels + "}";
+        sb.append(name).append("_sum").append(braced).append(' ').append(Metrics.formatNumber(sum.sum() * unit.scale)).append('\n');
+        sb.append(name).append("_count").append(braced).append(' ').append(cumulative).append('\n');
+    }
+}
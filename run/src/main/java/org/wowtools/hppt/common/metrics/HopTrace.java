@@ -0,0 +1,226 @@
+package org.wowtools.hppt.common.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.protobuf.ProtoMessage;
+import org.wowtools.hppt.common.util.CommonConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 分环节的延迟追踪。
+ * ss按采样率随机挑选从目标端读到的数据块，在数据块经过的各环节记下时间戳，随BytesPb一起发到sc，
+ * sc用对时(dt)得到的时钟偏差把ss的时间戳换算到本地时钟，数据写给用户后按相邻环节的耗时记入直方图，
+ * 由此在延迟升高时定位是哪个队列/环节造成的
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class HopTrace {
+
+    /**
+     * 数据块从目标端到用户依次经过的环节
+     */
+    public enum Hop {
+        /**
+         * ss从目标端读到字节
+         */
+        target_read,
+        /**
+         * 字节进入客户端的待回复缓冲区
+         */
+        client_enqueue,
+        /**
+         * 回复线程从缓冲区取出字节，组装回复消息
+         */
+        reply_assembled,
+        /**
+         * 回复消息序列化，随后加密并交给传输层发送
+         */
+        transport_send,
+        /**
+         * sc收到服务端发来的消息
+         */
+        peer_receive,
+        /**
+         * sc把字节写给用户
+         */
+        user_write
+    }
+
+    private static final Hop[] hops = Hop.values();
+
+    //以启动时的系统时间为基准，叠加nanoTime的流逝，得到单调且与系统时间对齐的微秒时钟
+    private static final long baseMicros = System.currentTimeMillis() * 1000;
+    private static final long baseNanos = System.nanoTime();
+
+    private static final Histogram[] hopLatency = new Histogram[hops.length];
+    private static final Histogram totalLatency = Metrics.histogram("hppt_trace_total_seconds",
+            "被采样的数据块从ss读到到sc写给用户的总耗时", Histogram.Unit.NANOS);
+
+    private static volatile int sampleRate = new CommonConfig.TraceConfig().sampleRate;
+    private static boolean inited;
+
+    static {
+        for (int i = 1; i < hops.length; i++) {
+            hopLatency[i] = Metrics.histogram("hppt_trace_hop_seconds", "被采样的数据块到达某环节时距上一环节的耗时",
+                    Histogram.Unit.NANOS, "hop", hops[i].name());
+        }
+    }
+
+    //各环节的时间戳，微秒，0表示未经过
+    private final long[] stamps = new long[hops.length];
+
+    private HopTrace() {
+    }
+
+    /**
+     * 以配置初始化采样率，同一进程中有多个配置时(如中继模式)以先调用的为准
+     *
+     * @param config 配置
+     */
+    public static synchronized void init(CommonConfig.TraceConfig config) {
+        if (null == config || inited) {
+            return;
+        }
+        inited = true;
+        sampleRate = config.sampleRate;
+    }
+
+    /**
+     * 按采样率决定是否追踪一个新的数据块
+     *
+     * @return 被采样时返回追踪对象，否则返回null
+     */
+    public static HopTrace sample() {
+        int rate = sampleRate;
+        if (rate <= 0 || ThreadLocalRandom.current().nextInt(rate) != 0) {
+            return null;
+        }
+        return new HopTrace();
+    }
+
+    /**
+     * @return 当前时间，微秒
+     */
+    public static long nowMicros() {
+        return baseMicros + (System.nanoTime() - baseNanos) / 1000;
+    }
+
+    /**
+     * 记录到达某环节的时间为当前时间
+     *
+     * @param hop 环节
+     */
+    public void stamp(Hop hop) {
+        stamps[hop.ordinal()] = nowMicros();
+    }
+
+    /**
+     * 记录到达某环节的时间
+     *
+     * @param hop    环节
+     * @param micros 时间，微秒
+     */
+    public void stamp(Hop hop, long micros) {
+        stamps[hop.ordinal()] = micros;
+    }
+
+    /**
+     * 写入BytesPb，格式见ProtoMessage.proto中BytesPb.trace的说明
+     *
+     * @param builder builder
+     */
+    public void writeTo(ProtoMessage.BytesPb.Builder builder) {
+        long base = Long.MAX_VALUE;
+        for (long stamp : stamps) {
+            if (stamp != 0 && stamp < base) {
+                base = stamp;
+            }
+        }
+        if (base == Long.MAX_VALUE) {
+            return;
+        }
+        builder.addTrace(base);
+        for (long stamp : stamps) {
+            builder.addTrace(stamp == 0 ? 0 : stamp - base + 1);
+        }
+    }
+
+    /**
+     * 从BytesPb中读出对端记录的追踪
+     *
+     * @param pb pb
+     * @return 追踪，pb中没有追踪时返回null
+     */
+    public static HopTrace readFrom(ProtoMessage.BytesPb pb) {
+        int n = pb.getTraceCount();
+        if (n == 0) {
+            return null;
+        }
+        HopTrace trace = new HopTrace();
+        long base = pb.getTrace(0);
+        for (int i = 1; i < n && i <= hops.length; i++) {
+            long offset = pb.getTrace(i);
+            trace.stamps[i - 1] = offset == 0 ? 0 : base + offset - 1;
+        }
+        return trace;
+    }
+
+    /**
+     * 把对端记录的时间戳换算到本地时钟
+     *
+     * @param dt 对时得到的时钟偏差，对端时间减本地时间，毫秒
+     */
+    public void toLocalClock(long dt) {
+        long dtMicros = dt * 1000;
+        for (int i = 0; i < stamps.length; i++) {
+            if (stamps[i] != 0) {
+                stamps[i] -= dtMicros;
+            }
+        }
+    }
+
+    /**
+     * 追踪结束，把相邻两个已经过环节之间的耗时记入直方图。
+     * 跨越ss和sc的环节含有对时误差，对时误差不超过对时请求往返时间的一半，偏差为负时记为0
+     */
+    public void finish() {
+        int first = -1;
+        int prev = -1;
+        for (int i = 0; i < stamps.length; i++) {
+            if (stamps[i] == 0) {
+                continue;
+            }
+            if (prev < 0) {
+                first = i;
+            } else {
+                hopLatency[i].record(Math.max(stamps[i] - stamps[prev], 0) * 1000);
+            }
+            prev = i;
+        }
+        if (first >= 0 && prev > first) {
+            totalLatency.record(Math.max(stamps[prev] - stamps[first], 0) * 1000);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("采样追踪 {}", this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("HopTrace[");
+        long prev = 0;
+        for (int i = 0; i < stamps.length; i++) {
+            if (stamps[i] == 0) {
+                continue;
+            }
+            if (prev != 0) {
+                sb.append(" +").append(stamps[i] - prev).append("us ");
+            }
+            sb.append(hops[i].name());
+            prev = stamps[i];
+        }
+        return sb.append(']').toString();
+    }
+}
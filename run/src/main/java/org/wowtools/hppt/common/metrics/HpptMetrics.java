@@ -0,0 +1,90 @@
+package org.wowtools.hppt.common.metrics;
+
+/**
+ * ss、sc共用的业务指标，集中定义指标名和标签，避免各处拼写不一致
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public final class HpptMetrics {
+
+    public static final String SIDE_SS = "ss";
+    public static final String SIDE_SC = "sc";
+
+    /**
+     * 流入本端，对客户端/对端而言为收到的字节，对转发而言为从本端连接读入隧道的字节
+     */
+    public static final String IN = "in";
+
+    /**
+     * 流出本端，对客户端/对端而言为发出的字节，对转发而言为从隧道写出到本端连接的字节
+     */
+    public static final String OUT = "out";
+
+    private HpptMetrics() {
+    }
+
+    /**
+     * 与对端(ss上为各客户端，sc上为ss)之间收发的隧道字节数，含加密和协议开销
+     *
+     * @param side      ss或sc
+     * @param client    客户端id
+     * @param direction IN或OUT
+     * @return 计数器
+     */
+    public static Counter clientBytes(String side, String client, String direction) {
+        return Metrics.counter("hppt_client_bytes_total", "与对端之间收发的隧道字节数",
+                "side", side, "client", client, "direction", direction);
+    }
+
+    /**
+     * 各转发收发的原始字节数
+     *
+     * @param side      ss或sc
+     * @param forward   转发，ss上为目标端host:port，sc上为本地端口
+     * @param direction IN或OUT
+     * @return 计数器
+     */
+    public static Counter forwardBytes(String side, String forward, String direction) {
+        return Metrics.counter("hppt_forward_bytes_total", "各转发收发的原始字节数",
+                "side", side, "forward", forward, "direction", direction);
+    }
+
+    public static Counter sessionsOpened(String side) {
+        return Metrics.counter("hppt_sessions_opened_total", "累计建立的会话数", "side", side);
+    }
+
+    public static Counter sessionsClosed(String side) {
+        return Metrics.counter("hppt_sessions_closed_total", "累计关闭的会话数", "side", side);
+    }
+
+    /**
+     * 一批发往对端的消息中的SessionBytes个数
+     *
+     * @param side ss(回复客户端)或sc(发往ss)
+     * @return 直方图
+     */
+    public static Histogram batchSessions(String side) {
+        return Metrics.histogram("hppt_batch_sessions", "一批发往对端的消息中SessionBytes的个数", Histogram.Unit.COUNT, "side", side);
+    }
+
+    /**
+     * 一批发往对端的消息中的原始字节数
+     *
+     * @param side ss(回复客户端)或sc(发往ss)
+     * @return 直方图
+     */
+    public static Histogram batchBytes(String side) {
+        return Metrics.histogram("hppt_batch_bytes", "一批发往对端的消息中的原始字节数", Histogram.Unit.BYTES, "side", side);
+    }
+
+    /**
+     * post长轮询从发起到返回的耗时
+     *
+     * @param side ss(服务端挂起请求的时长)或sc(客户端请求往返的时长)
+     * @return 直方图
+     */
+    public static Histogram longPoll(String side) {
+        return Metrics.histogram("hppt_long_poll_seconds", "post长轮询从发起到返回的耗时", Histogram.Unit.NANOS, "side", side);
+    }
+}
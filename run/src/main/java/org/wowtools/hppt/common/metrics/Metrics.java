@@ -0,0 +1,265 @@
+package org.wowtools.hppt.common.metrics;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.util.BufferBudget;
+import org.wowtools.hppt.common.util.BufferPool;
+import org.wowtools.hppt.common.util.CommonConfig;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程级的指标注册表，以prometheus文本格式输出。
+ * 计数器、直方图在业务代码中取得一次后反复累加，累加基于LongAdder，无锁；
+ * 仪表(gauge)和缓冲池的统计在采集时才读取，不在业务路径上产生开销
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class Metrics {
+
+    private static final String COUNTER = "counter";
+    private static final String HISTOGRAM = "histogram";
+    private static final String GAUGE = "gauge";
+
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    //缓冲池随会话创建和丢弃，这里只持有弱引用，采集时顺带清理已回收的
+    private static final ConcurrentLinkedQueue<WeakReference<BufferPool<?>>> bufferPools = new ConcurrentLinkedQueue<>();
+
+    //登记缓冲池的次数，每登记一定次数清理一次已回收的，避免长期无人采集时弱引用堆积
+    private static final AtomicInteger bufferPoolRegistrations = new AtomicInteger();
+    private static final int BUFFER_POOL_PRUNE_INTERVAL = 1024;
+
+    private static volatile MetricsServer server;
+
+    static {
+        gauge("hppt_buffer_budget_used_bytes", "缓冲内存预算已占用的字节数", BufferBudget::getUsed);
+        if (ByteBufAllocator.DEFAULT instanceof PooledByteBufAllocator allocator) {
+            PooledByteBufAllocatorMetric metric = allocator.metric();
+            gauge("hppt_netty_allocator_used_bytes", "netty池化内存分配器已占用的字节数", metric::usedHeapMemory, "type", "heap");
+            gauge("hppt_netty_allocator_used_bytes", "netty池化内存分配器已占用的字节数", metric::usedDirectMemory, "type", "direct");
+            gauge("hppt_netty_allocator_arenas", "netty池化内存分配器的arena数", metric::numHeapArenas, "type", "heap");
+            gauge("hppt_netty_allocator_arenas", "netty池化内存分配器的arena数", metric::numDirectArenas, "type", "direct");
+            gauge("hppt_netty_allocator_thread_local_caches", "netty池化内存分配器的线程缓存数", metric::numThreadLocalCaches);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * 按配置启动指标http服务，端口小于等于0时不启动，同一进程中有多个配置时(如中继模式)以先启动的为准
+     *
+     * @param config 配置
+     */
+    public static synchronized void init(CommonConfig.MetricsConfig config) {
+        if (null == config || config.port <= 0 || null != server) {
+            return;
+        }
+        server = new MetricsServer(config.host, config.port);
+        log.info("指标服务已启动 http://{}:{}/metrics", config.host, config.port);
+    }
+
+    /**
+     * @return 指标http服务是否已启动，未启动时不必登记只在采集时才用到的对象(如缓冲池)
+     */
+    public static boolean isEnabled() {
+        return null != server;
+    }
+
+    /**
+     * 取得计数器，同名同标签的计数器只有一个
+     *
+     * @param name   指标名
+     * @param help   说明
+     * @param labels 标签，按 名,值,名,值 的顺序传入
+     * @return 计数器
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, COUNTER).children.computeIfAbsent(labels(labels), (k) -> new Counter());
+    }
+
+    /**
+     * 取得直方图，同名同标签的直方图只有一个
+     *
+     * @param name   指标名
+     * @param help   说明
+     * @param unit   记录值的单位
+     * @param labels 标签，按 名,值,名,值 的顺序传入
+     * @return 直方图
+     */
+    public static Histogram histogram(String name, String help, Histogram.Unit unit, String... labels) {
+        return (Histogram) family(name, help, HISTOGRAM).children.computeIfAbsent(labels(labels), (k) -> new Histogram(unit));
+    }
+
+    /**
+     * 注册仪表，采集时调用supplier取值，同名同标签重复注册时后注册的覆盖先注册的
+     *
+     * @param name     指标名
+     * @param help     说明
+     * @param supplier 取值
+     * @param labels   标签，按 名,值,名,值 的顺序传入
+     */
+    public static void gauge(String name, String help, LongSupplier supplier, String... labels) {
+        family(name, help, GAUGE).children.put(labels(labels), supplier);
+    }
+
+    /**
+     * 注销仪表，用于随对象创建和丢弃的仪表，避免标签值只增不减
+     *
+     * @param name   指标名
+     * @param labels 标签，按 名,值,名,值 的顺序传入
+     */
+    public static void removeGauge(String name, String... labels) {
+        Family family = families.get(name);
+        if (null != family) {
+            family.children.remove(labels(labels));
+        }
+    }
+
+    /**
+     * 登记缓冲池，采集时按缓冲池名字汇总元素数和字节数
+     *
+     * @param bufferPool 缓冲池
+     */
+    public static void registerBufferPool(BufferPool<?> bufferPool) {
+        bufferPools.add(new WeakReference<>(bufferPool));
+        if (bufferPoolRegistrations.incrementAndGet() % BUFFER_POOL_PRUNE_INTERVAL == 0) {
+            bufferPools.removeIf((ref) -> null == ref.get());
+        }
+    }
+
+    /**
+     * @return prometheus文本格式的全部指标
+     */
+    public static String scrape() {
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        for (Family family : families.values()) {
+            family.write(sb);
+        }
+        writeBufferPools(sb);
+        return sb.toString();
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, (k) -> new Family(name, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("指标 " + name + " 已注册为 " + family.type);
+        }
+        return family;
+    }
+
+    private static void writeBufferPools(StringBuilder sb) {
+        //名字 -> [缓冲池数, 元素数, 内存字节数, 溢出字节数]
+        Map<String, long[]> stats = new TreeMap<>();
+        Iterator<WeakReference<BufferPool<?>>> iterator = bufferPools.iterator();
+        while (iterator.hasNext()) {
+            BufferPool<?> pool = iterator.next().get();
+            if (null == pool) {
+                iterator.remove();
+                continue;
+            }
+            long[] s = stats.computeIfAbsent(pool.getName(), (k) -> new long[4]);
+            s[0]++;
+            s[1] += pool.size();
+            s[2] += pool.getBytes();
+            s[3] += pool.getSpilledBytes();
+        }
+        String[][] metas = {
+                {"hppt_buffer_pool_count", "同名缓冲池的个数"},
+                {"hppt_buffer_pool_elements", "同名缓冲池中排队的元素数之和"},
+                {"hppt_buffer_pool_bytes", "同名缓冲池中排队的元素在内存中的字节数之和"},
+                {"hppt_buffer_pool_spilled_bytes", "同名缓冲池溢出到文件尚未读回的字节数之和"},
+        };
+        for (int i = 0; i < metas.length; i++) {
+            writeHeader(sb, metas[i][0], metas[i][1], GAUGE);
+            for (Map.Entry<String, long[]> e : stats.entrySet()) {
+                sb.append(metas[i][0]).append("{pool=\"").append(escape(e.getKey())).append("\"} ")
+                        .append(e.getValue()[i]).append('\n');
+            }
+        }
+    }
+
+    private static void writeHeader(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String labels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("标签需按 名,值 成对传入");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        if (null == value) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static String formatNumber(double v) {
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) {
+            return Long.toString((long) v);
+        }
+        return Double.toString(v);
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, Object> children = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        private void write(StringBuilder sb) {
+            writeHeader(sb, name, help, type);
+            for (Map.Entry<String, Object> e : new TreeMap<>(children).entrySet()) {
+                String labels = e.getKey();
+                switch (e.getValue()) {
+                    case Counter counter -> writeSample(sb, name, labels, counter.get());
+                    case Histogram histogram -> histogram.write(sb, name, labels);
+                    case LongSupplier supplier -> writeSample(sb, name, labels, supplier.getAsLong());
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        private static void writeSample(StringBuilder sb, String name, String labels, long value) {
+            sb.append(name);
+            if (!labels.isEmpty()) {
+                sb.append('{').append(labels).append('}');
+            }
+            sb.append(' ').append(value).append('\n');
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.wowtools.hppt.common.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * 指标http服务，GET /metrics 输出prometheus文本格式的指标。
+ * 采集频率低，用jdk自带的HttpServer即可，不占用业务的netty线程
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+final class MetricsServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer httpServer;
+
+    MetricsServer(String host, int port) {
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("指标服务启动失败 " + host + ":" + port, e);
+        }
+        httpServer.setExecutor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("hppt-metrics-", 0).factory()));
+        httpServer.createContext("/metrics", this::handle);
+        httpServer.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+}
@@ -1,15 +1,102 @@
 package org.wowtools.hppt.common.pojo;
 
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.util.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
 /**
  * 可发送的SessionBytes，被发送后会触发回调函数并告知是否成功
  *
  * @author liuyu
  * @date 2024/10/20
  */
+@Slf4j
 public record SendAbleSessionBytes(SessionBytes sessionBytes,
                                    org.wowtools.hppt.common.pojo.SendAbleSessionBytes.CallBack callBack) {
     public interface CallBack {
         void cb(boolean success);
+
+        /**
+         * 执行回调的executor，为空则在完成回复的线程中直接执行，此时回调应当足够轻量(如只是complete一个future)
+         *
+         * @return executor or null
+         */
+        default Executor executor() {
+            return null;
+        }
+    }
+
+    /**
+     * 一次性完成一批回调：没有executor的回调直接执行，有executor的按executor分组，每个executor只提交一个任务
+     *
+     * @param callBacks 回调
+     * @param success   是否成功
+     */
+    public static void complete(List<CallBack> callBacks, boolean success) {
+        Map<Executor, List<CallBack>> executorCallBacks = null;
+        for (CallBack callBack : callBacks) {
+            Executor executor = callBack.executor();
+            if (null == executor) {
+                runCallBack(callBack, success);
+                continue;
+            }
+            if (null == executorCallBacks) {
+                executorCallBacks = new IdentityHashMap<>();
+            }
+            executorCallBacks.computeIfAbsent(executor, (e) -> new ArrayList<>()).add(callBack);
+        }
+        if (null == executorCallBacks) {
+            return;
+        }
+        executorCallBacks.forEach((executor, list) -> executor.execute(() -> {
+            for (CallBack callBack : list) {
+                runCallBack(callBack, success);
+            }
+        }));
+    }
+
+    private static void runCallBack(CallBack callBack, boolean success) {
+        try {
+            callBack.cb(success);
+        } catch (Exception e) {
+            log.warn("CallBack err", e);
+        }
+    }
+
+    /**
+     * 新建一个缓冲池溢出到文件时的编解码器，每个缓冲池用一个。
+     * 只有字节写入溢出文件，回调留在内存中按写入顺序排队，读回时再挂到元素上，
+     * 所以回调仍在数据真正发出后才执行，数据的生产方照常被阻塞，不会因为溢出而失去背压
+     *
+     * @return 编解码器
+     */
+    public static BufferPool.SpillCodec<SendAbleSessionBytes> newSpillCodec() {
+        Queue<CallBack> callBacks = new ConcurrentLinkedQueue<>();
+        return new BufferPool.SpillCodec<>() {
+            @Override
+            public int length(SendAbleSessionBytes ssb) {
+                return SessionBytes.SPILL_CODEC.length(ssb.sessionBytes);
+            }
+
+            @Override
+            public void encode(SendAbleSessionBytes ssb, ByteBuffer dst) {
+                SessionBytes.SPILL_CODEC.encode(ssb.sessionBytes, dst);
+                callBacks.add(ssb.callBack);
+            }
+
+            @Override
+            public SendAbleSessionBytes decode(ByteBuffer src) {
+                return new SendAbleSessionBytes(SessionBytes.SPILL_CODEC.decode(src), callBacks.remove());
+            }
+        };
     }
 
 }
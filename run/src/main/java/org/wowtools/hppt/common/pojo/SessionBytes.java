@@ -2,23 +2,38 @@ package org.wowtools.hppt.common.pojo;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
-import lombok.Getter;
+import com.google.protobuf.UnsafeByteOperations;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.ResourceLeakTracker;
+import org.wowtools.hppt.common.metrics.HopTrace;
 import org.wowtools.hppt.common.protobuf.ProtoMessage;
+import org.wowtools.hppt.common.util.BufferPool;
 import org.wowtools.hppt.common.util.DebugConfig;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * session发/收的bytes，包含sessionId和具体bytes
+ * 字节以ByteBuf持有(通常是从netty读到的池化ByteBuf的切片)，SessionBytes拥有这个ByteBuf，
+ * 谁最后持有SessionBytes谁负责调用release()，需要继续使用ByteBuf时请先retain。
+ * 未释放的SessionBytes会被ResourceLeakDetector按DebugConfig.NettyResourceLeakDetectorLevel的级别检测并报告
  *
  * @author liuyu
  * @date 2023/11/17
  */
-@Getter
 public class SessionBytes {
 
     private static final AtomicInteger serialNumberBuilder;
 
+    private static final ResourceLeakDetector<SessionBytes> leakDetector =
+            ResourceLeakDetectorFactory.instance().newResourceLeakDetector(SessionBytes.class);
+
     static {
         if (DebugConfig.OpenSerialNumber) {
             serialNumberBuilder = new AtomicInteger();
@@ -27,59 +42,170 @@ public class SessionBytes {
         }
     }
 
+    /**
+     * 缓冲池溢出到文件时的编解码器，格式为[4字节sessionId][字节]，编码后原SessionBytes被释放
+     */
+    public static final BufferPool.SpillCodec<SessionBytes> SPILL_CODEC = new BufferPool.SpillCodec<>() {
+        @Override
+        public int length(SessionBytes sessionBytes) {
+            return 4 + sessionBytes.length();
+        }
+
+        @Override
+        public void encode(SessionBytes sessionBytes, ByteBuffer dst) {
+            dst.putInt(sessionBytes.sessionId);
+            ByteBuf buf = sessionBytes.byteBuf;
+            buf.getBytes(buf.readerIndex(), dst);
+            sessionBytes.release();
+        }
+
+        @Override
+        public SessionBytes decode(ByteBuffer src) {
+            int sessionId = src.getInt();
+            ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(src.remaining());
+            buf.writeBytes(src);
+            return new SessionBytes(sessionId, buf);
+        }
+    };
+
     private final int sessionId;
-    private final byte[] bytes;
+    private final ByteBuf byteBuf;
     private final int serialNumber;
+    private final ResourceLeakTracker<SessionBytes> leakTracker;
+    private final AtomicInteger released = new AtomicInteger();
+    //采样追踪，未被采样时为空，溢出到文件的SessionBytes不再追踪
+    private HopTrace trace;
 
-    public SessionBytes(int sessionId, byte[] bytes) {
+    /**
+     * @param sessionId sessionId
+     * @param byteBuf   字节，所有权转移给SessionBytes
+     */
+    public SessionBytes(int sessionId, ByteBuf byteBuf) {
         this.sessionId = sessionId;
-        this.bytes = bytes;
+        this.byteBuf = byteBuf;
         if (!DebugConfig.OpenSerialNumber) {
             serialNumber = 0;
         } else {
             serialNumber = serialNumberBuilder.incrementAndGet();
         }
+        leakTracker = leakDetector.track(this);
+    }
+
+    public SessionBytes(int sessionId, byte[] bytes) {
+        this(sessionId, Unpooled.wrappedBuffer(bytes));
     }
 
     public SessionBytes(byte[] pbBytes) {
-        ProtoMessage.BytesPb pb;
-        try {
-            pb = ProtoMessage.BytesPb.parseFrom(pbBytes);
-        } catch (InvalidProtocolBufferException e) {
-            throw new RuntimeException(e);
-        }
-        sessionId = pb.getSessionId();
-        bytes = pb.getBytes().toByteArray();
-        if (!DebugConfig.OpenSerialNumber) {
-            serialNumber = 0;
-        } else {
-            serialNumber = pb.getSerialNumber();
-        }
+        this(parse(pbBytes));
     }
 
     protected SessionBytes(ProtoMessage.BytesPb pb) {
         sessionId = pb.getSessionId();
-        bytes = pb.getBytes().toByteArray();
+        //pb以aliasing方式解析时，ByteString直接引用原数组，这里也不拷贝
+        byteBuf = Unpooled.wrappedBuffer(pb.getBytes().asReadOnlyByteBuffer());
         if (!DebugConfig.OpenSerialNumber) {
             serialNumber = 0;
         } else {
             serialNumber = pb.getSerialNumber();
         }
+        trace = HopTrace.readFrom(pb);
+        leakTracker = leakDetector.track(this);
+    }
+
+    private static ProtoMessage.BytesPb parse(byte[] pbBytes) {
+        try {
+            return ProtoMessage.BytesPb.parseFrom(pbBytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public int getSessionId() {
+        return sessionId;
     }
 
     public int getSerialNumber() {
         return serialNumber;
     }
 
+    /**
+     * @return 采样追踪，未被采样时为空
+     */
+    public HopTrace getTrace() {
+        return trace;
+    }
+
+    public void setTrace(HopTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * 获取持有的ByteBuf，所有权不转移，需要在SessionBytes释放后继续使用时请先retain
+     *
+     * @return ByteBuf
+     */
+    public ByteBuf getByteBuf() {
+        return byteBuf;
+    }
+
+    /**
+     * 拷贝出字节，会产生一次拷贝，热点路径上请使用getByteBuf
+     *
+     * @return bytes
+     */
+    public byte[] getBytes() {
+        return ByteBufUtil.getBytes(byteBuf);
+    }
+
+    /**
+     * @return 字节数
+     */
+    public int length() {
+        return byteBuf.readableBytes();
+    }
+
+    /**
+     * 释放持有的ByteBuf，重复调用只会释放一次
+     */
+    public void release() {
+        if (released.getAndIncrement() != 0) {
+            return;
+        }
+        byteBuf.release();
+        if (null != leakTracker) {
+            leakTracker.close(this);
+        }
+    }
+
     public ProtoMessage.BytesPb.Builder toProto() {
         ProtoMessage.BytesPb.Builder builder = ProtoMessage.BytesPb.newBuilder()
-                .setBytes(ByteString.copyFrom(bytes))
+                .setBytes(toByteString())
                 .setSessionId(sessionId);
         if (DebugConfig.OpenSerialNumber) {
             builder.setSerialNumber(serialNumber);
         }
+        if (null != trace) {
+            trace.stamp(HopTrace.Hop.transport_send);
+            trace.writeTo(builder);
+        }
         return builder;
     }
 
+    //不拷贝地把ByteBuf包装为ByteString，返回值在SessionBytes释放前有效
+    private ByteString toByteString() {
+        int n = byteBuf.nioBufferCount();
+        if (n == 1) {
+            return UnsafeByteOperations.unsafeWrap(byteBuf.nioBuffer());
+        }
+        if (n < 1) {
+            return ByteString.copyFrom(byteBuf.nioBuffer());
+        }
+        //CompositeByteBuf等由多段组成时，以ByteString的concat拼接，也不拷贝
+        ByteString byteString = ByteString.EMPTY;
+        for (ByteBuffer nioBuffer : byteBuf.nioBuffers()) {
+            byteString = byteString.concat(UnsafeByteOperations.unsafeWrap(nioBuffer));
+        }
+        return byteString;
+    }
 
 }
@@ -1,10 +1,11 @@
 package org.wowtools.hppt.common.pojo;
 
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
 import lombok.Getter;
 import org.wowtools.hppt.common.protobuf.ProtoMessage;
 import org.wowtools.hppt.common.util.DebugConfig;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,6 +31,11 @@ public class TalkMessage {
     private final List<SessionBytes> sessionBytes;
     private final List<String> commands;
     private final int serialNumber;
+    //可恢复链路上的序号和累计确认，见ReliableLink
+    private long seq;
+    private long ack;
+    //解密后的明文，只在开启流量录制时由并行的编解码阶段留下，交给按顺序执行的投递阶段录制
+    private byte[] recordBytes;
 
     public TalkMessage(List<SessionBytes> sessionBytes, List<String> commands) {
         this.sessionBytes = sessionBytes;
@@ -44,8 +50,11 @@ public class TalkMessage {
     public TalkMessage(byte[] pbBytes) {
         ProtoMessage.MessagePb pb;
         try {
-            pb = ProtoMessage.MessagePb.parseFrom(pbBytes);
-        } catch (InvalidProtocolBufferException e) {
+            //aliasing方式解析，解析出的SessionBytes直接引用pbBytes，不再拷贝
+            CodedInputStream input = CodedInputStream.newInstance(pbBytes);
+            input.enableAliasing(true);
+            pb = ProtoMessage.MessagePb.parseFrom(input);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
         commands = pb.getCommandListList();
@@ -62,12 +71,46 @@ public class TalkMessage {
         } else {
             serialNumber = pb.getSerialNumber();
         }
+        seq = pb.getSeq();
+        ack = pb.getAck();
     }
 
     public int getSerialNumber() {
         return serialNumber;
     }
 
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public void setAck(long ack) {
+        this.ack = ack;
+    }
+
+    public void setRecordBytes(byte[] recordBytes) {
+        this.recordBytes = recordBytes;
+    }
+
+    /**
+     * @return 消息中是否既没有命令也没有字节，如只携带确认的消息
+     */
+    public boolean isEmpty() {
+        return (null == commands || commands.isEmpty()) && (null == sessionBytes || sessionBytes.isEmpty());
+    }
+
+    /**
+     * @return 消息中字节的总长度
+     */
+    public long bytesLength() {
+        long length = 0;
+        if (null != sessionBytes) {
+            for (SessionBytes sessionByte : sessionBytes) {
+                length += sessionByte.length();
+            }
+        }
+        return length;
+    }
+
     public ProtoMessage.MessagePb.Builder toProto() {
         ProtoMessage.MessagePb.Builder builder = ProtoMessage.MessagePb.newBuilder();
         if (null != commands && !commands.isEmpty()) {
@@ -83,6 +126,23 @@ public class TalkMessage {
         if (DebugConfig.OpenSerialNumber) {
             builder.setSerialNumber(serialNumber);
         }
+        if (seq != 0) {
+            builder.setSeq(seq);
+        }
+        if (ack != 0) {
+            builder.setAck(ack);
+        }
         return builder;
     }
+
+    /**
+     * 释放消息中的SessionBytes，消息不再投递时调用
+     */
+    public void release() {
+        if (null != sessionBytes) {
+            for (SessionBytes sessionByte : sessionBytes) {
+                sessionByte.release();
+            }
+        }
+    }
 }
@@ -1,5 +1,5 @@
 // Generated by the protocol buffer compiler.  DO NOT EDIT!
-// source: definition/ProtoMessage.proto
+// source: ProtoMessage.proto
 
 // Protobuf Java Version: 3.25.1
 package org.wowtools.hppt.common.protobuf;
@@ -21,7 +21,7 @@ public final class ProtoMessage {
 
     /**
      * <pre>
-     *��ʵ�ֽ�
+     *真实字节
      * </pre>
      *
      * <code>bytes bytes = 1;</code>
@@ -31,7 +31,7 @@ public final class ProtoMessage {
 
     /**
      * <pre>
-     *�Ựid ͨ����idȷ���ֽڸ����ĸ��˿�/�ĸ��û��˽���
+     *会话id 通过此id确认字节该与哪个端口/哪个用户端交互
      * </pre>
      *
      * <code>int32 sessionId = 2;</code>
@@ -41,17 +41,46 @@ public final class ProtoMessage {
 
     /**
      * <pre>
-     *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+     *流水号 用于调试消息后发先至等问题，非调试时流水号为空
      * </pre>
      *
      * <code>int32 serialNumber = 3;</code>
      * @return The serialNumber.
      */
     int getSerialNumber();
+
+    /**
+     * <pre>
+     *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+     * </pre>
+     *
+     * <code>repeated int64 trace = 4;</code>
+     * @return A list containing the trace.
+     */
+    java.util.List<java.lang.Long> getTraceList();
+    /**
+     * <pre>
+     *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+     * </pre>
+     *
+     * <code>repeated int64 trace = 4;</code>
+     * @return The count of trace.
+     */
+    int getTraceCount();
+    /**
+     * <pre>
+     *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+     * </pre>
+     *
+     * <code>repeated int64 trace = 4;</code>
+     * @param index The index of the element to return.
+     * @return The trace at the given index.
+     */
+    long getTrace(int index);
   }
   /**
    * <pre>
-   *��Ϣ�ֽ�
+   *消息字节
    * </pre>
    *
    * Protobuf type {@code pojo.BytesPb}
@@ -67,39 +96,40 @@ public final class ProtoMessage {
     }
     private BytesPb() {
       bytes_ = com.google.protobuf.ByteString.EMPTY;
+      trace_ = emptyLongList();
     }
 
-    @Override
+    @java.lang.Override
     @SuppressWarnings({"unused"})
-    protected Object newInstance(
+    protected java.lang.Object newInstance(
         UnusedPrivateParameter unused) {
       return new BytesPb();
     }
 
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
-      return ProtoMessage.internal_static_pojo_BytesPb_descriptor;
+      return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesPb_descriptor;
     }
 
-    @Override
-    protected FieldAccessorTable
+    @java.lang.Override
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
         internalGetFieldAccessorTable() {
-      return ProtoMessage.internal_static_pojo_BytesPb_fieldAccessorTable
+      return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesPb_fieldAccessorTable
           .ensureFieldAccessorsInitialized(
-              BytesPb.class, Builder.class);
+              org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.class, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder.class);
     }
 
     public static final int BYTES_FIELD_NUMBER = 1;
     private com.google.protobuf.ByteString bytes_ = com.google.protobuf.ByteString.EMPTY;
     /**
      * <pre>
-     *��ʵ�ֽ�
+     *真实字节
      * </pre>
      *
      * <code>bytes bytes = 1;</code>
      * @return The bytes.
      */
-    @Override
+    @java.lang.Override
     public com.google.protobuf.ByteString getBytes() {
       return bytes_;
     }
@@ -108,13 +138,13 @@ public final class ProtoMessage {
     private int sessionId_ = 0;
     /**
      * <pre>
-     *�Ựid ͨ����idȷ���ֽڸ����ĸ��˿�/�ĸ��û��˽���
+     *会话id 通过此id确认字节该与哪个端口/哪个用户端交互
      * </pre>
      *
      * <code>int32 sessionId = 2;</code>
      * @return The sessionId.
      */
-    @Override
+    @java.lang.Override
     public int getSessionId() {
       return sessionId_;
     }
@@ -123,19 +153,61 @@ public final class ProtoMessage {
     private int serialNumber_ = 0;
     /**
      * <pre>
-     *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+     *流水号 用于调试消息后发先至等问题，非调试时流水号为空
      * </pre>
      *
      * <code>int32 serialNumber = 3;</code>
      * @return The serialNumber.
      */
-    @Override
+    @java.lang.Override
     public int getSerialNumber() {
       return serialNumber_;
     }
 
+    public static final int TRACE_FIELD_NUMBER = 4;
+    @SuppressWarnings("serial")
+    private com.google.protobuf.Internal.LongList trace_ =
+        emptyLongList();
+    /**
+     * <pre>
+     *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+     * </pre>
+     *
+     * <code>repeated int64 trace = 4;</code>
+     * @return A list containing the trace.
+     */
+    @java.lang.Override
+    public java.util.List<java.lang.Long>
+        getTraceList() {
+      return trace_;
+    }
+    /**
+     * <pre>
+     *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+     * </pre>
+     *
+     * <code>repeated int64 trace = 4;</code>
+     * @return The count of trace.
+     */
+    public int getTraceCount() {
+      return trace_.size();
+    }
+    /**
+     * <pre>
+     *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+     * </pre>
+     *
+     * <code>repeated int64 trace = 4;</code>
+     * @param index The index of the element to return.
+     * @return The trace at the given index.
+     */
+    public long getTrace(int index) {
+      return trace_.getLong(index);
+    }
+    private int traceMemoizedSerializedSize = -1;
+
     private byte memoizedIsInitialized = -1;
-    @Override
+    @java.lang.Override
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
       if (isInitialized == 1) return true;
@@ -145,9 +217,10 @@ public final class ProtoMessage {
       return true;
     }
 
-    @Override
+    @java.lang.Override
     public void writeTo(com.google.protobuf.CodedOutputStream output)
                         throws java.io.IOException {
+      getSerializedSize();
       if (!bytes_.isEmpty()) {
         output.writeBytes(1, bytes_);
       }
@@ -157,10 +230,17 @@ public final class ProtoMessage {
       if (serialNumber_ != 0) {
         output.writeInt32(3, serialNumber_);
       }
+      if (getTraceList().size() > 0) {
+        output.writeUInt32NoTag(34);
+        output.writeUInt32NoTag(traceMemoizedSerializedSize);
+      }
+      for (int i = 0; i < trace_.size(); i++) {
+        output.writeInt64NoTag(trace_.getLong(i));
+      }
       getUnknownFields().writeTo(output);
     }
 
-    @Override
+    @java.lang.Override
     public int getSerializedSize() {
       int size = memoizedSize;
       if (size != -1) return size;
@@ -178,20 +258,34 @@ public final class ProtoMessage {
         size += com.google.protobuf.CodedOutputStream
           .computeInt32Size(3, serialNumber_);
       }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < trace_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeInt64SizeNoTag(trace_.getLong(i));
+        }
+        size += dataSize;
+        if (!getTraceList().isEmpty()) {
+          size += 1;
+          size += com.google.protobuf.CodedOutputStream
+              .computeInt32SizeNoTag(dataSize);
+        }
+        traceMemoizedSerializedSize = dataSize;
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSize = size;
       return size;
     }
 
-    @Override
-    public boolean equals(final Object obj) {
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
       if (obj == this) {
        return true;
       }
-      if (!(obj instanceof BytesPb)) {
+      if (!(obj instanceof org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb)) {
         return super.equals(obj);
       }
-      BytesPb other = (BytesPb) obj;
+      org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb other = (org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb) obj;
 
       if (!getBytes()
           .equals(other.getBytes())) return false;
@@ -199,11 +293,13 @@ public final class ProtoMessage {
           != other.getSessionId()) return false;
       if (getSerialNumber()
           != other.getSerialNumber()) return false;
+      if (!getTraceList()
+          .equals(other.getTraceList())) return false;
       if (!getUnknownFields().equals(other.getUnknownFields())) return false;
       return true;
     }
 
-    @Override
+    @java.lang.Override
     public int hashCode() {
       if (memoizedHashCode != 0) {
         return memoizedHashCode;
@@ -216,49 +312,53 @@ public final class ProtoMessage {
       hash = (53 * hash) + getSessionId();
       hash = (37 * hash) + SERIALNUMBER_FIELD_NUMBER;
       hash = (53 * hash) + getSerialNumber();
+      if (getTraceCount() > 0) {
+        hash = (37 * hash) + TRACE_FIELD_NUMBER;
+        hash = (53 * hash) + getTraceList().hashCode();
+      }
       hash = (29 * hash) + getUnknownFields().hashCode();
       memoizedHashCode = hash;
       return hash;
     }
 
-    public static BytesPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(
         java.nio.ByteBuffer data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static BytesPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(
         java.nio.ByteBuffer data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static BytesPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static BytesPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static BytesPb parseFrom(byte[] data)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static BytesPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static BytesPb parseFrom(java.io.InputStream input)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static BytesPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -266,26 +366,26 @@ public final class ProtoMessage {
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
 
-    public static BytesPb parseDelimitedFrom(java.io.InputStream input)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input);
     }
 
-    public static BytesPb parseDelimitedFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
     }
-    public static BytesPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(
         com.google.protobuf.CodedInputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static BytesPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb parseFrom(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -293,29 +393,29 @@ public final class ProtoMessage {
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
 
-    @Override
+    @java.lang.Override
     public Builder newBuilderForType() { return newBuilder(); }
     public static Builder newBuilder() {
       return DEFAULT_INSTANCE.toBuilder();
     }
-    public static Builder newBuilder(BytesPb prototype) {
+    public static Builder newBuilder(org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb prototype) {
       return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
     }
-    @Override
+    @java.lang.Override
     public Builder toBuilder() {
       return this == DEFAULT_INSTANCE
           ? new Builder() : new Builder().mergeFrom(this);
     }
 
-    @Override
+    @java.lang.Override
     protected Builder newBuilderForType(
-        BuilderParent parent) {
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
       Builder builder = new Builder(parent);
       return builder;
     }
     /**
      * <pre>
-     *��Ϣ�ֽ�
+     *消息字节
      * </pre>
      *
      * Protobuf type {@code pojo.BytesPb}
@@ -323,18 +423,18 @@ public final class ProtoMessage {
     public static final class Builder extends
         com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
         // @@protoc_insertion_point(builder_implements:pojo.BytesPb)
-        BytesPbOrBuilder {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder {
       public static final com.google.protobuf.Descriptors.Descriptor
           getDescriptor() {
-        return ProtoMessage.internal_static_pojo_BytesPb_descriptor;
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesPb_descriptor;
       }
 
-      @Override
-      protected FieldAccessorTable
+      @java.lang.Override
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
           internalGetFieldAccessorTable() {
-        return ProtoMessage.internal_static_pojo_BytesPb_fieldAccessorTable
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesPb_fieldAccessorTable
             .ensureFieldAccessorsInitialized(
-                BytesPb.class, Builder.class);
+                org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.class, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder.class);
       }
 
       // Construct using org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.newBuilder()
@@ -343,49 +443,50 @@ public final class ProtoMessage {
       }
 
       private Builder(
-          BuilderParent parent) {
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
         super(parent);
 
       }
-      @Override
+      @java.lang.Override
       public Builder clear() {
         super.clear();
         bitField0_ = 0;
         bytes_ = com.google.protobuf.ByteString.EMPTY;
         sessionId_ = 0;
         serialNumber_ = 0;
+        trace_ = emptyLongList();
         return this;
       }
 
-      @Override
+      @java.lang.Override
       public com.google.protobuf.Descriptors.Descriptor
           getDescriptorForType() {
-        return ProtoMessage.internal_static_pojo_BytesPb_descriptor;
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesPb_descriptor;
       }
 
-      @Override
-      public BytesPb getDefaultInstanceForType() {
-        return BytesPb.getDefaultInstance();
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb getDefaultInstanceForType() {
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.getDefaultInstance();
       }
 
-      @Override
-      public BytesPb build() {
-        BytesPb result = buildPartial();
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb build() {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(result);
         }
         return result;
       }
 
-      @Override
-      public BytesPb buildPartial() {
-        BytesPb result = new BytesPb(this);
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb buildPartial() {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb result = new org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb(this);
         if (bitField0_ != 0) { buildPartial0(result); }
         onBuilt();
         return result;
       }
 
-      private void buildPartial0(BytesPb result) {
+      private void buildPartial0(org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb result) {
         int from_bitField0_ = bitField0_;
         if (((from_bitField0_ & 0x00000001) != 0)) {
           result.bytes_ = bytes_;
@@ -396,52 +497,56 @@ public final class ProtoMessage {
         if (((from_bitField0_ & 0x00000004) != 0)) {
           result.serialNumber_ = serialNumber_;
         }
+        if (((from_bitField0_ & 0x00000008) != 0)) {
+          trace_.makeImmutable();
+          result.trace_ = trace_;
+        }
       }
 
-      @Override
+      @java.lang.Override
       public Builder clone() {
         return super.clone();
       }
-      @Override
+      @java.lang.Override
       public Builder setField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
+          java.lang.Object value) {
         return super.setField(field, value);
       }
-      @Override
+      @java.lang.Override
       public Builder clearField(
           com.google.protobuf.Descriptors.FieldDescriptor field) {
         return super.clearField(field);
       }
-      @Override
+      @java.lang.Override
       public Builder clearOneof(
           com.google.protobuf.Descriptors.OneofDescriptor oneof) {
         return super.clearOneof(oneof);
       }
-      @Override
+      @java.lang.Override
       public Builder setRepeatedField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          int index, Object value) {
+          int index, java.lang.Object value) {
         return super.setRepeatedField(field, index, value);
       }
-      @Override
+      @java.lang.Override
       public Builder addRepeatedField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
+          java.lang.Object value) {
         return super.addRepeatedField(field, value);
       }
-      @Override
+      @java.lang.Override
       public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof BytesPb) {
-          return mergeFrom((BytesPb)other);
+        if (other instanceof org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb) {
+          return mergeFrom((org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb)other);
         } else {
           super.mergeFrom(other);
           return this;
         }
       }
 
-      public Builder mergeFrom(BytesPb other) {
-        if (other == BytesPb.getDefaultInstance()) return this;
+      public Builder mergeFrom(org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb other) {
+        if (other == org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.getDefaultInstance()) return this;
         if (other.getBytes() != com.google.protobuf.ByteString.EMPTY) {
           setBytes(other.getBytes());
         }
@@ -451,23 +556,34 @@ public final class ProtoMessage {
         if (other.getSerialNumber() != 0) {
           setSerialNumber(other.getSerialNumber());
         }
+        if (!other.trace_.isEmpty()) {
+          if (trace_.isEmpty()) {
+            trace_ = other.trace_;
+            trace_.makeImmutable();
+            bitField0_ |= 0x00000008;
+          } else {
+            ensureTraceIsMutable();
+            trace_.addAll(other.trace_);
+          }
+          onChanged();
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         onChanged();
         return this;
       }
 
-      @Override
+      @java.lang.Override
       public final boolean isInitialized() {
         return true;
       }
 
-      @Override
+      @java.lang.Override
       public Builder mergeFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws java.io.IOException {
         if (extensionRegistry == null) {
-          throw new NullPointerException();
+          throw new java.lang.NullPointerException();
         }
         try {
           boolean done = false;
@@ -492,6 +608,22 @@ public final class ProtoMessage {
                 bitField0_ |= 0x00000004;
                 break;
               } // case 24
+              case 32: {
+                long v = input.readInt64();
+                ensureTraceIsMutable();
+                trace_.addLong(v);
+                break;
+              } // case 32
+              case 34: {
+                int length = input.readRawVarint32();
+                int limit = input.pushLimit(length);
+                ensureTraceIsMutable();
+                while (input.getBytesUntilLimit() > 0) {
+                  trace_.addLong(input.readInt64());
+                }
+                input.popLimit(limit);
+                break;
+              } // case 34
               default: {
                 if (!super.parseUnknownField(input, extensionRegistry, tag)) {
                   done = true; // was an endgroup tag
@@ -512,19 +644,19 @@ public final class ProtoMessage {
       private com.google.protobuf.ByteString bytes_ = com.google.protobuf.ByteString.EMPTY;
       /**
        * <pre>
-       *��ʵ�ֽ�
+       *真实字节
        * </pre>
        *
        * <code>bytes bytes = 1;</code>
        * @return The bytes.
        */
-      @Override
+      @java.lang.Override
       public com.google.protobuf.ByteString getBytes() {
         return bytes_;
       }
       /**
        * <pre>
-       *��ʵ�ֽ�
+       *真实字节
        * </pre>
        *
        * <code>bytes bytes = 1;</code>
@@ -540,7 +672,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��ʵ�ֽ�
+       *真实字节
        * </pre>
        *
        * <code>bytes bytes = 1;</code>
@@ -556,19 +688,19 @@ public final class ProtoMessage {
       private int sessionId_ ;
       /**
        * <pre>
-       *�Ựid ͨ����idȷ���ֽڸ����ĸ��˿�/�ĸ��û��˽���
+       *会话id 通过此id确认字节该与哪个端口/哪个用户端交互
        * </pre>
        *
        * <code>int32 sessionId = 2;</code>
        * @return The sessionId.
        */
-      @Override
+      @java.lang.Override
       public int getSessionId() {
         return sessionId_;
       }
       /**
        * <pre>
-       *�Ựid ͨ����idȷ���ֽڸ����ĸ��˿�/�ĸ��û��˽���
+       *会话id 通过此id确认字节该与哪个端口/哪个用户端交互
        * </pre>
        *
        * <code>int32 sessionId = 2;</code>
@@ -584,7 +716,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�Ựid ͨ����idȷ���ֽڸ����ĸ��˿�/�ĸ��û��˽���
+       *会话id 通过此id确认字节该与哪个端口/哪个用户端交互
        * </pre>
        *
        * <code>int32 sessionId = 2;</code>
@@ -600,19 +732,19 @@ public final class ProtoMessage {
       private int serialNumber_ ;
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 3;</code>
        * @return The serialNumber.
        */
-      @Override
+      @java.lang.Override
       public int getSerialNumber() {
         return serialNumber_;
       }
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 3;</code>
@@ -628,7 +760,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 3;</code>
@@ -640,13 +772,125 @@ public final class ProtoMessage {
         onChanged();
         return this;
       }
-      @Override
+
+      private com.google.protobuf.Internal.LongList trace_ = emptyLongList();
+      private void ensureTraceIsMutable() {
+        if (!trace_.isModifiable()) {
+          trace_ = makeMutableCopy(trace_);
+        }
+        bitField0_ |= 0x00000008;
+      }
+      /**
+       * <pre>
+       *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+       * </pre>
+       *
+       * <code>repeated int64 trace = 4;</code>
+       * @return A list containing the trace.
+       */
+      public java.util.List<java.lang.Long>
+          getTraceList() {
+        trace_.makeImmutable();
+        return trace_;
+      }
+      /**
+       * <pre>
+       *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+       * </pre>
+       *
+       * <code>repeated int64 trace = 4;</code>
+       * @return The count of trace.
+       */
+      public int getTraceCount() {
+        return trace_.size();
+      }
+      /**
+       * <pre>
+       *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+       * </pre>
+       *
+       * <code>repeated int64 trace = 4;</code>
+       * @param index The index of the element to return.
+       * @return The trace at the given index.
+       */
+      public long getTrace(int index) {
+        return trace_.getLong(index);
+      }
+      /**
+       * <pre>
+       *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+       * </pre>
+       *
+       * <code>repeated int64 trace = 4;</code>
+       * @param index The index to set the value at.
+       * @param value The trace to set.
+       * @return This builder for chaining.
+       */
+      public Builder setTrace(
+          int index, long value) {
+
+        ensureTraceIsMutable();
+        trace_.setLong(index, value);
+        bitField0_ |= 0x00000008;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+       * </pre>
+       *
+       * <code>repeated int64 trace = 4;</code>
+       * @param value The trace to add.
+       * @return This builder for chaining.
+       */
+      public Builder addTrace(long value) {
+
+        ensureTraceIsMutable();
+        trace_.addLong(value);
+        bitField0_ |= 0x00000008;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+       * </pre>
+       *
+       * <code>repeated int64 trace = 4;</code>
+       * @param values The trace to add.
+       * @return This builder for chaining.
+       */
+      public Builder addAllTrace(
+          java.lang.Iterable<? extends java.lang.Long> values) {
+        ensureTraceIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, trace_);
+        bitField0_ |= 0x00000008;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       *采样追踪 被采样的字节在各环节的时间戳(微秒)，第一个值为基准时间，其后依次为各环节相对基准时间的偏移+1，0表示未经过该环节，未被采样时为空
+       * </pre>
+       *
+       * <code>repeated int64 trace = 4;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearTrace() {
+        trace_ = emptyLongList();
+        bitField0_ = (bitField0_ & ~0x00000008);
+        onChanged();
+        return this;
+      }
+      @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFields(unknownFields);
       }
 
-      @Override
+      @java.lang.Override
       public final Builder mergeUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.mergeUnknownFields(unknownFields);
@@ -657,18 +901,18 @@ public final class ProtoMessage {
     }
 
     // @@protoc_insertion_point(class_scope:pojo.BytesPb)
-    private static final BytesPb DEFAULT_INSTANCE;
+    private static final org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb DEFAULT_INSTANCE;
     static {
-      DEFAULT_INSTANCE = new BytesPb();
+      DEFAULT_INSTANCE = new org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb();
     }
 
-    public static BytesPb getDefaultInstance() {
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb getDefaultInstance() {
       return DEFAULT_INSTANCE;
     }
 
     private static final com.google.protobuf.Parser<BytesPb>
         PARSER = new com.google.protobuf.AbstractParser<BytesPb>() {
-      @Override
+      @java.lang.Override
       public BytesPb parsePartialFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
@@ -692,13 +936,13 @@ public final class ProtoMessage {
       return PARSER;
     }
 
-    @Override
+    @java.lang.Override
     public com.google.protobuf.Parser<BytesPb> getParserForType() {
       return PARSER;
     }
 
-    @Override
-    public BytesPb getDefaultInstanceForType() {
+    @java.lang.Override
+    public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb getDefaultInstanceForType() {
       return DEFAULT_INSTANCE;
     }
 
@@ -710,24 +954,24 @@ public final class ProtoMessage {
 
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    java.util.List<BytesPb>
+    java.util.List<org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb> 
         getBytesPbListList();
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    BytesPb getBytesPbList(int index);
+    org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb getBytesPbList(int index);
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
@@ -735,36 +979,36 @@ public final class ProtoMessage {
     int getBytesPbListCount();
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    java.util.List<? extends BytesPbOrBuilder>
+    java.util.List<? extends org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder> 
         getBytesPbListOrBuilderList();
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    BytesPbOrBuilder getBytesPbListOrBuilder(
+    org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder getBytesPbListOrBuilder(
         int index);
 
     /**
      * <pre>
-     *�ͻ���/�������Ҫִ�е�����
+     *客户端/服务端需要执行的命令
      * </pre>
      *
      * <code>repeated string commandList = 2;</code>
      * @return A list containing the commandList.
      */
-    java.util.List<String>
+    java.util.List<java.lang.String>
         getCommandListList();
     /**
      * <pre>
-     *�ͻ���/�������Ҫִ�е�����
+     *客户端/服务端需要执行的命令
      * </pre>
      *
      * <code>repeated string commandList = 2;</code>
@@ -773,17 +1017,17 @@ public final class ProtoMessage {
     int getCommandListCount();
     /**
      * <pre>
-     *�ͻ���/�������Ҫִ�е�����
+     *客户端/服务端需要执行的命令
      * </pre>
      *
      * <code>repeated string commandList = 2;</code>
      * @param index The index of the element to return.
      * @return The commandList at the given index.
      */
-    String getCommandList(int index);
+    java.lang.String getCommandList(int index);
     /**
      * <pre>
-     *�ͻ���/�������Ҫִ�е�����
+     *客户端/服务端需要执行的命令
      * </pre>
      *
      * <code>repeated string commandList = 2;</code>
@@ -795,13 +1039,33 @@ public final class ProtoMessage {
 
     /**
      * <pre>
-     *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+     *流水号 用于调试消息后发先至等问题，非调试时流水号为空
      * </pre>
      *
      * <code>int32 serialNumber = 3;</code>
      * @return The serialNumber.
      */
     int getSerialNumber();
+
+    /**
+     * <pre>
+     *序号 可恢复的链路上按发送顺序从1开始编号，用于传输层重连后重发和去重，0表示不参与编号
+     * </pre>
+     *
+     * <code>int64 seq = 4;</code>
+     * @return The seq.
+     */
+    long getSeq();
+
+    /**
+     * <pre>
+     *累计确认 已按序收到的对端消息的最大序号
+     * </pre>
+     *
+     * <code>int64 ack = 5;</code>
+     * @return The ack.
+     */
+    long getAck();
   }
   /**
    * Protobuf type {@code pojo.MessagePb}
@@ -821,83 +1085,83 @@ public final class ProtoMessage {
           com.google.protobuf.LazyStringArrayList.emptyList();
     }
 
-    @Override
+    @java.lang.Override
     @SuppressWarnings({"unused"})
-    protected Object newInstance(
+    protected java.lang.Object newInstance(
         UnusedPrivateParameter unused) {
       return new MessagePb();
     }
 
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
-      return ProtoMessage.internal_static_pojo_MessagePb_descriptor;
+      return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_MessagePb_descriptor;
     }
 
-    @Override
-    protected FieldAccessorTable
+    @java.lang.Override
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
         internalGetFieldAccessorTable() {
-      return ProtoMessage.internal_static_pojo_MessagePb_fieldAccessorTable
+      return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_MessagePb_fieldAccessorTable
           .ensureFieldAccessorsInitialized(
-              MessagePb.class, Builder.class);
+              org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb.class, org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb.Builder.class);
     }
 
     public static final int BYTESPBLIST_FIELD_NUMBER = 1;
     @SuppressWarnings("serial")
-    private java.util.List<BytesPb> bytesPbList_;
+    private java.util.List<org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb> bytesPbList_;
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    @Override
-    public java.util.List<BytesPb> getBytesPbListList() {
+    @java.lang.Override
+    public java.util.List<org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb> getBytesPbListList() {
       return bytesPbList_;
     }
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    @Override
-    public java.util.List<? extends BytesPbOrBuilder>
+    @java.lang.Override
+    public java.util.List<? extends org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder> 
         getBytesPbListOrBuilderList() {
       return bytesPbList_;
     }
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    @Override
+    @java.lang.Override
     public int getBytesPbListCount() {
       return bytesPbList_.size();
     }
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    @Override
-    public BytesPb getBytesPbList(int index) {
+    @java.lang.Override
+    public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb getBytesPbList(int index) {
       return bytesPbList_.get(index);
     }
     /**
      * <pre>
-     *��Ϣ�ֽ�list
+     *消息字节list
      * </pre>
      *
      * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
      */
-    @Override
-    public BytesPbOrBuilder getBytesPbListOrBuilder(
+    @java.lang.Override
+    public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder getBytesPbListOrBuilder(
         int index) {
       return bytesPbList_.get(index);
     }
@@ -908,7 +1172,7 @@ public final class ProtoMessage {
         com.google.protobuf.LazyStringArrayList.emptyList();
     /**
      * <pre>
-     *�ͻ���/�������Ҫִ�е�����
+     *客户端/服务端需要执行的命令
      * </pre>
      *
      * <code>repeated string commandList = 2;</code>
@@ -920,7 +1184,7 @@ public final class ProtoMessage {
     }
     /**
      * <pre>
-     *�ͻ���/�������Ҫִ�е�����
+     *客户端/服务端需要执行的命令
      * </pre>
      *
      * <code>repeated string commandList = 2;</code>
@@ -931,19 +1195,19 @@ public final class ProtoMessage {
     }
     /**
      * <pre>
-     *�ͻ���/�������Ҫִ�е�����
+     *客户端/服务端需要执行的命令
      * </pre>
      *
      * <code>repeated string commandList = 2;</code>
      * @param index The index of the element to return.
      * @return The commandList at the given index.
      */
-    public String getCommandList(int index) {
+    public java.lang.String getCommandList(int index) {
       return commandList_.get(index);
     }
     /**
      * <pre>
-     *�ͻ���/�������Ҫִ�е�����
+     *客户端/服务端需要执行的命令
      * </pre>
      *
      * <code>repeated string commandList = 2;</code>
@@ -959,19 +1223,49 @@ public final class ProtoMessage {
     private int serialNumber_ = 0;
     /**
      * <pre>
-     *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+     *流水号 用于调试消息后发先至等问题，非调试时流水号为空
      * </pre>
      *
      * <code>int32 serialNumber = 3;</code>
      * @return The serialNumber.
      */
-    @Override
+    @java.lang.Override
     public int getSerialNumber() {
       return serialNumber_;
     }
 
+    public static final int SEQ_FIELD_NUMBER = 4;
+    private long seq_ = 0L;
+    /**
+     * <pre>
+     *序号 可恢复的链路上按发送顺序从1开始编号，用于传输层重连后重发和去重，0表示不参与编号
+     * </pre>
+     *
+     * <code>int64 seq = 4;</code>
+     * @return The seq.
+     */
+    @java.lang.Override
+    public long getSeq() {
+      return seq_;
+    }
+
+    public static final int ACK_FIELD_NUMBER = 5;
+    private long ack_ = 0L;
+    /**
+     * <pre>
+     *累计确认 已按序收到的对端消息的最大序号
+     * </pre>
+     *
+     * <code>int64 ack = 5;</code>
+     * @return The ack.
+     */
+    @java.lang.Override
+    public long getAck() {
+      return ack_;
+    }
+
     private byte memoizedIsInitialized = -1;
-    @Override
+    @java.lang.Override
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
       if (isInitialized == 1) return true;
@@ -981,7 +1275,7 @@ public final class ProtoMessage {
       return true;
     }
 
-    @Override
+    @java.lang.Override
     public void writeTo(com.google.protobuf.CodedOutputStream output)
                         throws java.io.IOException {
       for (int i = 0; i < bytesPbList_.size(); i++) {
@@ -993,10 +1287,16 @@ public final class ProtoMessage {
       if (serialNumber_ != 0) {
         output.writeInt32(3, serialNumber_);
       }
+      if (seq_ != 0L) {
+        output.writeInt64(4, seq_);
+      }
+      if (ack_ != 0L) {
+        output.writeInt64(5, ack_);
+      }
       getUnknownFields().writeTo(output);
     }
 
-    @Override
+    @java.lang.Override
     public int getSerializedSize() {
       int size = memoizedSize;
       if (size != -1) return size;
@@ -1018,20 +1318,28 @@ public final class ProtoMessage {
         size += com.google.protobuf.CodedOutputStream
           .computeInt32Size(3, serialNumber_);
       }
+      if (seq_ != 0L) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(4, seq_);
+      }
+      if (ack_ != 0L) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(5, ack_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSize = size;
       return size;
     }
 
-    @Override
-    public boolean equals(final Object obj) {
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
       if (obj == this) {
        return true;
       }
-      if (!(obj instanceof MessagePb)) {
+      if (!(obj instanceof org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb)) {
         return super.equals(obj);
       }
-      MessagePb other = (MessagePb) obj;
+      org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb other = (org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb) obj;
 
       if (!getBytesPbListList()
           .equals(other.getBytesPbListList())) return false;
@@ -1039,11 +1347,15 @@ public final class ProtoMessage {
           .equals(other.getCommandListList())) return false;
       if (getSerialNumber()
           != other.getSerialNumber()) return false;
+      if (getSeq()
+          != other.getSeq()) return false;
+      if (getAck()
+          != other.getAck()) return false;
       if (!getUnknownFields().equals(other.getUnknownFields())) return false;
       return true;
     }
 
-    @Override
+    @java.lang.Override
     public int hashCode() {
       if (memoizedHashCode != 0) {
         return memoizedHashCode;
@@ -1060,49 +1372,55 @@ public final class ProtoMessage {
       }
       hash = (37 * hash) + SERIALNUMBER_FIELD_NUMBER;
       hash = (53 * hash) + getSerialNumber();
+      hash = (37 * hash) + SEQ_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+          getSeq());
+      hash = (37 * hash) + ACK_FIELD_NUMBER;
+      hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+          getAck());
       hash = (29 * hash) + getUnknownFields().hashCode();
       memoizedHashCode = hash;
       return hash;
     }
 
-    public static MessagePb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(
         java.nio.ByteBuffer data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static MessagePb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(
         java.nio.ByteBuffer data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static MessagePb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static MessagePb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static MessagePb parseFrom(byte[] data)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static MessagePb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static MessagePb parseFrom(java.io.InputStream input)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static MessagePb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -1110,26 +1428,26 @@ public final class ProtoMessage {
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
 
-    public static MessagePb parseDelimitedFrom(java.io.InputStream input)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input);
     }
 
-    public static MessagePb parseDelimitedFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
     }
-    public static MessagePb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(
         com.google.protobuf.CodedInputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static MessagePb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb parseFrom(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -1137,23 +1455,23 @@ public final class ProtoMessage {
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
 
-    @Override
+    @java.lang.Override
     public Builder newBuilderForType() { return newBuilder(); }
     public static Builder newBuilder() {
       return DEFAULT_INSTANCE.toBuilder();
     }
-    public static Builder newBuilder(MessagePb prototype) {
+    public static Builder newBuilder(org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb prototype) {
       return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
     }
-    @Override
+    @java.lang.Override
     public Builder toBuilder() {
       return this == DEFAULT_INSTANCE
           ? new Builder() : new Builder().mergeFrom(this);
     }
 
-    @Override
+    @java.lang.Override
     protected Builder newBuilderForType(
-        BuilderParent parent) {
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
       Builder builder = new Builder(parent);
       return builder;
     }
@@ -1163,18 +1481,18 @@ public final class ProtoMessage {
     public static final class Builder extends
         com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
         // @@protoc_insertion_point(builder_implements:pojo.MessagePb)
-        MessagePbOrBuilder {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePbOrBuilder {
       public static final com.google.protobuf.Descriptors.Descriptor
           getDescriptor() {
-        return ProtoMessage.internal_static_pojo_MessagePb_descriptor;
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_MessagePb_descriptor;
       }
 
-      @Override
-      protected FieldAccessorTable
+      @java.lang.Override
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
           internalGetFieldAccessorTable() {
-        return ProtoMessage.internal_static_pojo_MessagePb_fieldAccessorTable
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_MessagePb_fieldAccessorTable
             .ensureFieldAccessorsInitialized(
-                MessagePb.class, Builder.class);
+                org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb.class, org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb.Builder.class);
       }
 
       // Construct using org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb.newBuilder()
@@ -1183,11 +1501,11 @@ public final class ProtoMessage {
       }
 
       private Builder(
-          BuilderParent parent) {
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
         super(parent);
 
       }
-      @Override
+      @java.lang.Override
       public Builder clear() {
         super.clear();
         bitField0_ = 0;
@@ -1201,39 +1519,41 @@ public final class ProtoMessage {
         commandList_ =
             com.google.protobuf.LazyStringArrayList.emptyList();
         serialNumber_ = 0;
+        seq_ = 0L;
+        ack_ = 0L;
         return this;
       }
 
-      @Override
+      @java.lang.Override
       public com.google.protobuf.Descriptors.Descriptor
           getDescriptorForType() {
-        return ProtoMessage.internal_static_pojo_MessagePb_descriptor;
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_MessagePb_descriptor;
       }
 
-      @Override
-      public MessagePb getDefaultInstanceForType() {
-        return MessagePb.getDefaultInstance();
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb getDefaultInstanceForType() {
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb.getDefaultInstance();
       }
 
-      @Override
-      public MessagePb build() {
-        MessagePb result = buildPartial();
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb build() {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(result);
         }
         return result;
       }
 
-      @Override
-      public MessagePb buildPartial() {
-        MessagePb result = new MessagePb(this);
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb buildPartial() {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb result = new org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb(this);
         buildPartialRepeatedFields(result);
         if (bitField0_ != 0) { buildPartial0(result); }
         onBuilt();
         return result;
       }
 
-      private void buildPartialRepeatedFields(MessagePb result) {
+      private void buildPartialRepeatedFields(org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb result) {
         if (bytesPbListBuilder_ == null) {
           if (((bitField0_ & 0x00000001) != 0)) {
             bytesPbList_ = java.util.Collections.unmodifiableList(bytesPbList_);
@@ -1245,7 +1565,7 @@ public final class ProtoMessage {
         }
       }
 
-      private void buildPartial0(MessagePb result) {
+      private void buildPartial0(org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb result) {
         int from_bitField0_ = bitField0_;
         if (((from_bitField0_ & 0x00000002) != 0)) {
           commandList_.makeImmutable();
@@ -1254,52 +1574,58 @@ public final class ProtoMessage {
         if (((from_bitField0_ & 0x00000004) != 0)) {
           result.serialNumber_ = serialNumber_;
         }
+        if (((from_bitField0_ & 0x00000008) != 0)) {
+          result.seq_ = seq_;
+        }
+        if (((from_bitField0_ & 0x00000010) != 0)) {
+          result.ack_ = ack_;
+        }
       }
 
-      @Override
+      @java.lang.Override
       public Builder clone() {
         return super.clone();
       }
-      @Override
+      @java.lang.Override
       public Builder setField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
+          java.lang.Object value) {
         return super.setField(field, value);
       }
-      @Override
+      @java.lang.Override
       public Builder clearField(
           com.google.protobuf.Descriptors.FieldDescriptor field) {
         return super.clearField(field);
       }
-      @Override
+      @java.lang.Override
       public Builder clearOneof(
           com.google.protobuf.Descriptors.OneofDescriptor oneof) {
         return super.clearOneof(oneof);
       }
-      @Override
+      @java.lang.Override
       public Builder setRepeatedField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          int index, Object value) {
+          int index, java.lang.Object value) {
         return super.setRepeatedField(field, index, value);
       }
-      @Override
+      @java.lang.Override
       public Builder addRepeatedField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
+          java.lang.Object value) {
         return super.addRepeatedField(field, value);
       }
-      @Override
+      @java.lang.Override
       public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof MessagePb) {
-          return mergeFrom((MessagePb)other);
+        if (other instanceof org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb) {
+          return mergeFrom((org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb)other);
         } else {
           super.mergeFrom(other);
           return this;
         }
       }
 
-      public Builder mergeFrom(MessagePb other) {
-        if (other == MessagePb.getDefaultInstance()) return this;
+      public Builder mergeFrom(org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb other) {
+        if (other == org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb.getDefaultInstance()) return this;
         if (bytesPbListBuilder_ == null) {
           if (!other.bytesPbList_.isEmpty()) {
             if (bytesPbList_.isEmpty()) {
@@ -1318,7 +1644,7 @@ public final class ProtoMessage {
               bytesPbListBuilder_ = null;
               bytesPbList_ = other.bytesPbList_;
               bitField0_ = (bitField0_ & ~0x00000001);
-              bytesPbListBuilder_ =
+              bytesPbListBuilder_ = 
                 com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
                    getBytesPbListFieldBuilder() : null;
             } else {
@@ -1339,23 +1665,29 @@ public final class ProtoMessage {
         if (other.getSerialNumber() != 0) {
           setSerialNumber(other.getSerialNumber());
         }
+        if (other.getSeq() != 0L) {
+          setSeq(other.getSeq());
+        }
+        if (other.getAck() != 0L) {
+          setAck(other.getAck());
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         onChanged();
         return this;
       }
 
-      @Override
+      @java.lang.Override
       public final boolean isInitialized() {
         return true;
       }
 
-      @Override
+      @java.lang.Override
       public Builder mergeFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws java.io.IOException {
         if (extensionRegistry == null) {
-          throw new NullPointerException();
+          throw new java.lang.NullPointerException();
         }
         try {
           boolean done = false;
@@ -1366,9 +1698,9 @@ public final class ProtoMessage {
                 done = true;
                 break;
               case 10: {
-                BytesPb m =
+                org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb m =
                     input.readMessage(
-                        BytesPb.parser(),
+                        org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.parser(),
                         extensionRegistry);
                 if (bytesPbListBuilder_ == null) {
                   ensureBytesPbListIsMutable();
@@ -1379,7 +1711,7 @@ public final class ProtoMessage {
                 break;
               } // case 10
               case 18: {
-                String s = input.readStringRequireUtf8();
+                java.lang.String s = input.readStringRequireUtf8();
                 ensureCommandListIsMutable();
                 commandList_.add(s);
                 break;
@@ -1389,6 +1721,16 @@ public final class ProtoMessage {
                 bitField0_ |= 0x00000004;
                 break;
               } // case 24
+              case 32: {
+                seq_ = input.readInt64();
+                bitField0_ |= 0x00000008;
+                break;
+              } // case 32
+              case 40: {
+                ack_ = input.readInt64();
+                bitField0_ |= 0x00000010;
+                break;
+              } // case 40
               default: {
                 if (!super.parseUnknownField(input, extensionRegistry, tag)) {
                   done = true; // was an endgroup tag
@@ -1406,26 +1748,26 @@ public final class ProtoMessage {
       }
       private int bitField0_;
 
-      private java.util.List<BytesPb> bytesPbList_ =
+      private java.util.List<org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb> bytesPbList_ =
         java.util.Collections.emptyList();
       private void ensureBytesPbListIsMutable() {
         if (!((bitField0_ & 0x00000001) != 0)) {
-          bytesPbList_ = new java.util.ArrayList<BytesPb>(bytesPbList_);
+          bytesPbList_ = new java.util.ArrayList<org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb>(bytesPbList_);
           bitField0_ |= 0x00000001;
          }
       }
 
       private com.google.protobuf.RepeatedFieldBuilderV3<
-          BytesPb, BytesPb.Builder, BytesPbOrBuilder> bytesPbListBuilder_;
+          org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder> bytesPbListBuilder_;
 
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public java.util.List<BytesPb> getBytesPbListList() {
+      public java.util.List<org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb> getBytesPbListList() {
         if (bytesPbListBuilder_ == null) {
           return java.util.Collections.unmodifiableList(bytesPbList_);
         } else {
@@ -1434,7 +1776,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
@@ -1448,12 +1790,12 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public BytesPb getBytesPbList(int index) {
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb getBytesPbList(int index) {
         if (bytesPbListBuilder_ == null) {
           return bytesPbList_.get(index);
         } else {
@@ -1462,13 +1804,13 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
       public Builder setBytesPbList(
-          int index, BytesPb value) {
+          int index, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb value) {
         if (bytesPbListBuilder_ == null) {
           if (value == null) {
             throw new NullPointerException();
@@ -1483,13 +1825,13 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
       public Builder setBytesPbList(
-          int index, BytesPb.Builder builderForValue) {
+          int index, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder builderForValue) {
         if (bytesPbListBuilder_ == null) {
           ensureBytesPbListIsMutable();
           bytesPbList_.set(index, builderForValue.build());
@@ -1501,12 +1843,12 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public Builder addBytesPbList(BytesPb value) {
+      public Builder addBytesPbList(org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb value) {
         if (bytesPbListBuilder_ == null) {
           if (value == null) {
             throw new NullPointerException();
@@ -1521,13 +1863,13 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
       public Builder addBytesPbList(
-          int index, BytesPb value) {
+          int index, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb value) {
         if (bytesPbListBuilder_ == null) {
           if (value == null) {
             throw new NullPointerException();
@@ -1542,13 +1884,13 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
       public Builder addBytesPbList(
-          BytesPb.Builder builderForValue) {
+          org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder builderForValue) {
         if (bytesPbListBuilder_ == null) {
           ensureBytesPbListIsMutable();
           bytesPbList_.add(builderForValue.build());
@@ -1560,13 +1902,13 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
       public Builder addBytesPbList(
-          int index, BytesPb.Builder builderForValue) {
+          int index, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder builderForValue) {
         if (bytesPbListBuilder_ == null) {
           ensureBytesPbListIsMutable();
           bytesPbList_.add(index, builderForValue.build());
@@ -1578,13 +1920,13 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
       public Builder addAllBytesPbList(
-          Iterable<? extends BytesPb> values) {
+          java.lang.Iterable<? extends org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb> values) {
         if (bytesPbListBuilder_ == null) {
           ensureBytesPbListIsMutable();
           com.google.protobuf.AbstractMessageLite.Builder.addAll(
@@ -1597,7 +1939,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
@@ -1614,7 +1956,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
@@ -1631,23 +1973,23 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public BytesPb.Builder getBytesPbListBuilder(
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder getBytesPbListBuilder(
           int index) {
         return getBytesPbListFieldBuilder().getBuilder(index);
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public BytesPbOrBuilder getBytesPbListOrBuilder(
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder getBytesPbListOrBuilder(
           int index) {
         if (bytesPbListBuilder_ == null) {
           return bytesPbList_.get(index);  } else {
@@ -1656,12 +1998,12 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public java.util.List<? extends BytesPbOrBuilder>
+      public java.util.List<? extends org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder> 
            getBytesPbListOrBuilderList() {
         if (bytesPbListBuilder_ != null) {
           return bytesPbListBuilder_.getMessageOrBuilderList();
@@ -1671,44 +2013,44 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public BytesPb.Builder addBytesPbListBuilder() {
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder addBytesPbListBuilder() {
         return getBytesPbListFieldBuilder().addBuilder(
-            BytesPb.getDefaultInstance());
+            org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.getDefaultInstance());
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public BytesPb.Builder addBytesPbListBuilder(
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder addBytesPbListBuilder(
           int index) {
         return getBytesPbListFieldBuilder().addBuilder(
-            index, BytesPb.getDefaultInstance());
+            index, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.getDefaultInstance());
       }
       /**
        * <pre>
-       *��Ϣ�ֽ�list
+       *消息字节list
        * </pre>
        *
        * <code>repeated .pojo.BytesPb bytesPbList = 1;</code>
        */
-      public java.util.List<BytesPb.Builder>
+      public java.util.List<org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder> 
            getBytesPbListBuilderList() {
         return getBytesPbListFieldBuilder().getBuilderList();
       }
       private com.google.protobuf.RepeatedFieldBuilderV3<
-          BytesPb, BytesPb.Builder, BytesPbOrBuilder>
+          org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder> 
           getBytesPbListFieldBuilder() {
         if (bytesPbListBuilder_ == null) {
           bytesPbListBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
-              BytesPb, BytesPb.Builder, BytesPbOrBuilder>(
+              org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPb.Builder, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesPbOrBuilder>(
                   bytesPbList_,
                   ((bitField0_ & 0x00000001) != 0),
                   getParentForChildren(),
@@ -1728,7 +2070,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
@@ -1741,7 +2083,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
@@ -1752,19 +2094,19 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
        * @param index The index of the element to return.
        * @return The commandList at the given index.
        */
-      public String getCommandList(int index) {
+      public java.lang.String getCommandList(int index) {
         return commandList_.get(index);
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
@@ -1777,7 +2119,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
@@ -1786,7 +2128,7 @@ public final class ProtoMessage {
        * @return This builder for chaining.
        */
       public Builder setCommandList(
-          int index, String value) {
+          int index, java.lang.String value) {
         if (value == null) { throw new NullPointerException(); }
         ensureCommandListIsMutable();
         commandList_.set(index, value);
@@ -1796,7 +2138,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
@@ -1804,7 +2146,7 @@ public final class ProtoMessage {
        * @return This builder for chaining.
        */
       public Builder addCommandList(
-          String value) {
+          java.lang.String value) {
         if (value == null) { throw new NullPointerException(); }
         ensureCommandListIsMutable();
         commandList_.add(value);
@@ -1814,7 +2156,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
@@ -1822,7 +2164,7 @@ public final class ProtoMessage {
        * @return This builder for chaining.
        */
       public Builder addAllCommandList(
-          Iterable<String> values) {
+          java.lang.Iterable<java.lang.String> values) {
         ensureCommandListIsMutable();
         com.google.protobuf.AbstractMessageLite.Builder.addAll(
             values, commandList_);
@@ -1832,7 +2174,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
@@ -1847,7 +2189,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *�ͻ���/�������Ҫִ�е�����
+       *客户端/服务端需要执行的命令
        * </pre>
        *
        * <code>repeated string commandList = 2;</code>
@@ -1868,19 +2210,19 @@ public final class ProtoMessage {
       private int serialNumber_ ;
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 3;</code>
        * @return The serialNumber.
        */
-      @Override
+      @java.lang.Override
       public int getSerialNumber() {
         return serialNumber_;
       }
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 3;</code>
@@ -1896,7 +2238,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 3;</code>
@@ -1908,13 +2250,101 @@ public final class ProtoMessage {
         onChanged();
         return this;
       }
-      @Override
+
+      private long seq_ ;
+      /**
+       * <pre>
+       *序号 可恢复的链路上按发送顺序从1开始编号，用于传输层重连后重发和去重，0表示不参与编号
+       * </pre>
+       *
+       * <code>int64 seq = 4;</code>
+       * @return The seq.
+       */
+      @java.lang.Override
+      public long getSeq() {
+        return seq_;
+      }
+      /**
+       * <pre>
+       *序号 可恢复的链路上按发送顺序从1开始编号，用于传输层重连后重发和去重，0表示不参与编号
+       * </pre>
+       *
+       * <code>int64 seq = 4;</code>
+       * @param value The seq to set.
+       * @return This builder for chaining.
+       */
+      public Builder setSeq(long value) {
+
+        seq_ = value;
+        bitField0_ |= 0x00000008;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       *序号 可恢复的链路上按发送顺序从1开始编号，用于传输层重连后重发和去重，0表示不参与编号
+       * </pre>
+       *
+       * <code>int64 seq = 4;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearSeq() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        seq_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private long ack_ ;
+      /**
+       * <pre>
+       *累计确认 已按序收到的对端消息的最大序号
+       * </pre>
+       *
+       * <code>int64 ack = 5;</code>
+       * @return The ack.
+       */
+      @java.lang.Override
+      public long getAck() {
+        return ack_;
+      }
+      /**
+       * <pre>
+       *累计确认 已按序收到的对端消息的最大序号
+       * </pre>
+       *
+       * <code>int64 ack = 5;</code>
+       * @param value The ack to set.
+       * @return This builder for chaining.
+       */
+      public Builder setAck(long value) {
+
+        ack_ = value;
+        bitField0_ |= 0x00000010;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       *累计确认 已按序收到的对端消息的最大序号
+       * </pre>
+       *
+       * <code>int64 ack = 5;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearAck() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        ack_ = 0L;
+        onChanged();
+        return this;
+      }
+      @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFields(unknownFields);
       }
 
-      @Override
+      @java.lang.Override
       public final Builder mergeUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.mergeUnknownFields(unknownFields);
@@ -1925,18 +2355,18 @@ public final class ProtoMessage {
     }
 
     // @@protoc_insertion_point(class_scope:pojo.MessagePb)
-    private static final MessagePb DEFAULT_INSTANCE;
+    private static final org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb DEFAULT_INSTANCE;
     static {
-      DEFAULT_INSTANCE = new MessagePb();
+      DEFAULT_INSTANCE = new org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb();
     }
 
-    public static MessagePb getDefaultInstance() {
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb getDefaultInstance() {
       return DEFAULT_INSTANCE;
     }
 
     private static final com.google.protobuf.Parser<MessagePb>
         PARSER = new com.google.protobuf.AbstractParser<MessagePb>() {
-      @Override
+      @java.lang.Override
       public MessagePb parsePartialFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
@@ -1960,13 +2390,13 @@ public final class ProtoMessage {
       return PARSER;
     }
 
-    @Override
+    @java.lang.Override
     public com.google.protobuf.Parser<MessagePb> getParserForType() {
       return PARSER;
     }
 
-    @Override
-    public MessagePb getDefaultInstanceForType() {
+    @java.lang.Override
+    public org.wowtools.hppt.common.protobuf.ProtoMessage.MessagePb getDefaultInstanceForType() {
       return DEFAULT_INSTANCE;
     }
 
@@ -2007,7 +2437,7 @@ public final class ProtoMessage {
 
     /**
      * <pre>
-     *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+     *流水号 用于调试消息后发先至等问题，非调试时流水号为空
      * </pre>
      *
      * <code>int32 serialNumber = 2;</code>
@@ -2031,24 +2461,24 @@ public final class ProtoMessage {
       bytesList_ = emptyList(com.google.protobuf.ByteString.class);
     }
 
-    @Override
+    @java.lang.Override
     @SuppressWarnings({"unused"})
-    protected Object newInstance(
+    protected java.lang.Object newInstance(
         UnusedPrivateParameter unused) {
       return new BytesListPb();
     }
 
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
-      return ProtoMessage.internal_static_pojo_BytesListPb_descriptor;
+      return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesListPb_descriptor;
     }
 
-    @Override
-    protected FieldAccessorTable
+    @java.lang.Override
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
         internalGetFieldAccessorTable() {
-      return ProtoMessage.internal_static_pojo_BytesListPb_fieldAccessorTable
+      return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesListPb_fieldAccessorTable
           .ensureFieldAccessorsInitialized(
-              BytesListPb.class, Builder.class);
+              org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb.class, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb.Builder.class);
     }
 
     public static final int BYTESLIST_FIELD_NUMBER = 1;
@@ -2063,7 +2493,7 @@ public final class ProtoMessage {
      * <code>repeated bytes bytesList = 1;</code>
      * @return A list containing the bytesList.
      */
-    @Override
+    @java.lang.Override
     public java.util.List<com.google.protobuf.ByteString>
         getBytesListList() {
       return bytesList_;
@@ -2096,19 +2526,19 @@ public final class ProtoMessage {
     private int serialNumber_ = 0;
     /**
      * <pre>
-     *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+     *流水号 用于调试消息后发先至等问题，非调试时流水号为空
      * </pre>
      *
      * <code>int32 serialNumber = 2;</code>
      * @return The serialNumber.
      */
-    @Override
+    @java.lang.Override
     public int getSerialNumber() {
       return serialNumber_;
     }
 
     private byte memoizedIsInitialized = -1;
-    @Override
+    @java.lang.Override
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
       if (isInitialized == 1) return true;
@@ -2118,7 +2548,7 @@ public final class ProtoMessage {
       return true;
     }
 
-    @Override
+    @java.lang.Override
     public void writeTo(com.google.protobuf.CodedOutputStream output)
                         throws java.io.IOException {
       for (int i = 0; i < bytesList_.size(); i++) {
@@ -2130,7 +2560,7 @@ public final class ProtoMessage {
       getUnknownFields().writeTo(output);
     }
 
-    @Override
+    @java.lang.Override
     public int getSerializedSize() {
       int size = memoizedSize;
       if (size != -1) return size;
@@ -2154,15 +2584,15 @@ public final class ProtoMessage {
       return size;
     }
 
-    @Override
-    public boolean equals(final Object obj) {
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
       if (obj == this) {
        return true;
       }
-      if (!(obj instanceof BytesListPb)) {
+      if (!(obj instanceof org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb)) {
         return super.equals(obj);
       }
-      BytesListPb other = (BytesListPb) obj;
+      org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb other = (org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb) obj;
 
       if (!getBytesListList()
           .equals(other.getBytesListList())) return false;
@@ -2172,7 +2602,7 @@ public final class ProtoMessage {
       return true;
     }
 
-    @Override
+    @java.lang.Override
     public int hashCode() {
       if (memoizedHashCode != 0) {
         return memoizedHashCode;
@@ -2190,44 +2620,44 @@ public final class ProtoMessage {
       return hash;
     }
 
-    public static BytesListPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(
         java.nio.ByteBuffer data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static BytesListPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(
         java.nio.ByteBuffer data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static BytesListPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static BytesListPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static BytesListPb parseFrom(byte[] data)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static BytesListPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static BytesListPb parseFrom(java.io.InputStream input)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static BytesListPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -2235,26 +2665,26 @@ public final class ProtoMessage {
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
 
-    public static BytesListPb parseDelimitedFrom(java.io.InputStream input)
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input);
     }
 
-    public static BytesListPb parseDelimitedFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
     }
-    public static BytesListPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(
         com.google.protobuf.CodedInputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static BytesListPb parseFrom(
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb parseFrom(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -2262,23 +2692,23 @@ public final class ProtoMessage {
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
 
-    @Override
+    @java.lang.Override
     public Builder newBuilderForType() { return newBuilder(); }
     public static Builder newBuilder() {
       return DEFAULT_INSTANCE.toBuilder();
     }
-    public static Builder newBuilder(BytesListPb prototype) {
+    public static Builder newBuilder(org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb prototype) {
       return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
     }
-    @Override
+    @java.lang.Override
     public Builder toBuilder() {
       return this == DEFAULT_INSTANCE
           ? new Builder() : new Builder().mergeFrom(this);
     }
 
-    @Override
+    @java.lang.Override
     protected Builder newBuilderForType(
-        BuilderParent parent) {
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
       Builder builder = new Builder(parent);
       return builder;
     }
@@ -2288,18 +2718,18 @@ public final class ProtoMessage {
     public static final class Builder extends
         com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
         // @@protoc_insertion_point(builder_implements:pojo.BytesListPb)
-        BytesListPbOrBuilder {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPbOrBuilder {
       public static final com.google.protobuf.Descriptors.Descriptor
           getDescriptor() {
-        return ProtoMessage.internal_static_pojo_BytesListPb_descriptor;
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesListPb_descriptor;
       }
 
-      @Override
-      protected FieldAccessorTable
+      @java.lang.Override
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
           internalGetFieldAccessorTable() {
-        return ProtoMessage.internal_static_pojo_BytesListPb_fieldAccessorTable
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesListPb_fieldAccessorTable
             .ensureFieldAccessorsInitialized(
-                BytesListPb.class, Builder.class);
+                org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb.class, org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb.Builder.class);
       }
 
       // Construct using org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb.newBuilder()
@@ -2308,11 +2738,11 @@ public final class ProtoMessage {
       }
 
       private Builder(
-          BuilderParent parent) {
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
         super(parent);
 
       }
-      @Override
+      @java.lang.Override
       public Builder clear() {
         super.clear();
         bitField0_ = 0;
@@ -2321,35 +2751,35 @@ public final class ProtoMessage {
         return this;
       }
 
-      @Override
+      @java.lang.Override
       public com.google.protobuf.Descriptors.Descriptor
           getDescriptorForType() {
-        return ProtoMessage.internal_static_pojo_BytesListPb_descriptor;
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.internal_static_pojo_BytesListPb_descriptor;
       }
 
-      @Override
-      public BytesListPb getDefaultInstanceForType() {
-        return BytesListPb.getDefaultInstance();
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb getDefaultInstanceForType() {
+        return org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb.getDefaultInstance();
       }
 
-      @Override
-      public BytesListPb build() {
-        BytesListPb result = buildPartial();
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb build() {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(result);
         }
         return result;
       }
 
-      @Override
-      public BytesListPb buildPartial() {
-        BytesListPb result = new BytesListPb(this);
+      @java.lang.Override
+      public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb buildPartial() {
+        org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb result = new org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb(this);
         if (bitField0_ != 0) { buildPartial0(result); }
         onBuilt();
         return result;
       }
 
-      private void buildPartial0(BytesListPb result) {
+      private void buildPartial0(org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb result) {
         int from_bitField0_ = bitField0_;
         if (((from_bitField0_ & 0x00000001) != 0)) {
           bytesList_.makeImmutable();
@@ -2360,50 +2790,50 @@ public final class ProtoMessage {
         }
       }
 
-      @Override
+      @java.lang.Override
       public Builder clone() {
         return super.clone();
       }
-      @Override
+      @java.lang.Override
       public Builder setField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
+          java.lang.Object value) {
         return super.setField(field, value);
       }
-      @Override
+      @java.lang.Override
       public Builder clearField(
           com.google.protobuf.Descriptors.FieldDescriptor field) {
         return super.clearField(field);
       }
-      @Override
+      @java.lang.Override
       public Builder clearOneof(
           com.google.protobuf.Descriptors.OneofDescriptor oneof) {
         return super.clearOneof(oneof);
       }
-      @Override
+      @java.lang.Override
       public Builder setRepeatedField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          int index, Object value) {
+          int index, java.lang.Object value) {
         return super.setRepeatedField(field, index, value);
       }
-      @Override
+      @java.lang.Override
       public Builder addRepeatedField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
+          java.lang.Object value) {
         return super.addRepeatedField(field, value);
       }
-      @Override
+      @java.lang.Override
       public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof BytesListPb) {
-          return mergeFrom((BytesListPb)other);
+        if (other instanceof org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb) {
+          return mergeFrom((org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb)other);
         } else {
           super.mergeFrom(other);
           return this;
         }
       }
 
-      public Builder mergeFrom(BytesListPb other) {
-        if (other == BytesListPb.getDefaultInstance()) return this;
+      public Builder mergeFrom(org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb other) {
+        if (other == org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb.getDefaultInstance()) return this;
         if (!other.bytesList_.isEmpty()) {
           if (bytesList_.isEmpty()) {
             bytesList_ = other.bytesList_;
@@ -2423,18 +2853,18 @@ public final class ProtoMessage {
         return this;
       }
 
-      @Override
+      @java.lang.Override
       public final boolean isInitialized() {
         return true;
       }
 
-      @Override
+      @java.lang.Override
       public Builder mergeFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws java.io.IOException {
         if (extensionRegistry == null) {
-          throw new NullPointerException();
+          throw new java.lang.NullPointerException();
         }
         try {
           boolean done = false;
@@ -2561,7 +2991,7 @@ public final class ProtoMessage {
        * @return This builder for chaining.
        */
       public Builder addAllBytesList(
-          Iterable<? extends com.google.protobuf.ByteString> values) {
+          java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
         ensureBytesListIsMutable();
         com.google.protobuf.AbstractMessageLite.Builder.addAll(
             values, bytesList_);
@@ -2587,19 +3017,19 @@ public final class ProtoMessage {
       private int serialNumber_ ;
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 2;</code>
        * @return The serialNumber.
        */
-      @Override
+      @java.lang.Override
       public int getSerialNumber() {
         return serialNumber_;
       }
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 2;</code>
@@ -2615,7 +3045,7 @@ public final class ProtoMessage {
       }
       /**
        * <pre>
-       *��ˮ�� ���ڵ�����Ϣ�����������⣬�ǵ���ʱ��ˮ��Ϊ��
+       *流水号 用于调试消息后发先至等问题，非调试时流水号为空
        * </pre>
        *
        * <code>int32 serialNumber = 2;</code>
@@ -2627,13 +3057,13 @@ public final class ProtoMessage {
         onChanged();
         return this;
       }
-      @Override
+      @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFields(unknownFields);
       }
 
-      @Override
+      @java.lang.Override
       public final Builder mergeUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.mergeUnknownFields(unknownFields);
@@ -2644,18 +3074,18 @@ public final class ProtoMessage {
     }
 
     // @@protoc_insertion_point(class_scope:pojo.BytesListPb)
-    private static final BytesListPb DEFAULT_INSTANCE;
+    private static final org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb DEFAULT_INSTANCE;
     static {
-      DEFAULT_INSTANCE = new BytesListPb();
+      DEFAULT_INSTANCE = new org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb();
     }
 
-    public static BytesListPb getDefaultInstance() {
+    public static org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb getDefaultInstance() {
       return DEFAULT_INSTANCE;
     }
 
     private static final com.google.protobuf.Parser<BytesListPb>
         PARSER = new com.google.protobuf.AbstractParser<BytesListPb>() {
-      @Override
+      @java.lang.Override
       public BytesListPb parsePartialFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
@@ -2679,13 +3109,13 @@ public final class ProtoMessage {
       return PARSER;
     }
 
-    @Override
+    @java.lang.Override
     public com.google.protobuf.Parser<BytesListPb> getParserForType() {
       return PARSER;
     }
 
-    @Override
-    public BytesListPb getDefaultInstanceForType() {
+    @java.lang.Override
+    public org.wowtools.hppt.common.protobuf.ProtoMessage.BytesListPb getDefaultInstanceForType() {
       return DEFAULT_INSTANCE;
     }
 
@@ -2693,17 +3123,17 @@ public final class ProtoMessage {
 
   private static final com.google.protobuf.Descriptors.Descriptor
     internal_static_pojo_BytesPb_descriptor;
-  private static final
+  private static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_pojo_BytesPb_fieldAccessorTable;
   private static final com.google.protobuf.Descriptors.Descriptor
     internal_static_pojo_MessagePb_descriptor;
-  private static final
+  private static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_pojo_MessagePb_fieldAccessorTable;
   private static final com.google.protobuf.Descriptors.Descriptor
     internal_static_pojo_BytesListPb_descriptor;
-  private static final
+  private static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_pojo_BytesListPb_fieldAccessorTable;
 
@@ -2714,15 +3144,16 @@ public final class ProtoMessage {
   private static  com.google.protobuf.Descriptors.FileDescriptor
       descriptor;
   static {
-    String[] descriptorData = {
-      "\n\035definition/ProtoMessage.proto\022\004pojo\"A\n" +
-      "\007BytesPb\022\r\n\005bytes\030\001 \001(\014\022\021\n\tsessionId\030\002 \001" +
-      "(\005\022\024\n\014serialNumber\030\003 \001(\005\"Z\n\tMessagePb\022\"\n" +
-      "\013bytesPbList\030\001 \003(\0132\r.pojo.BytesPb\022\023\n\013com" +
-      "mandList\030\002 \003(\t\022\024\n\014serialNumber\030\003 \001(\005\"6\n\013" +
-      "BytesListPb\022\021\n\tbytesList\030\001 \003(\014\022\024\n\014serial" +
-      "Number\030\002 \001(\005B1\n!org.wowtools.hppt.common" +
-      ".protobufB\014ProtoMessageb\006proto3"
+    java.lang.String[] descriptorData = {
+      "\n\022ProtoMessage.proto\022\004pojo\"P\n\007BytesPb\022\r\n" +
+      "\005bytes\030\001 \001(\014\022\021\n\tsessionId\030\002 \001(\005\022\024\n\014seria" +
+      "lNumber\030\003 \001(\005\022\r\n\005trace\030\004 \003(\003\"t\n\tMessageP" +
+      "b\022\"\n\013bytesPbList\030\001 \003(\0132\r.pojo.BytesPb\022\023\n" +
+      "\013commandList\030\002 \003(\t\022\024\n\014serialNumber\030\003 \001(\005" +
+      "\022\013\n\003seq\030\004 \001(\003\022\013\n\003ack\030\005 \001(\003\"6\n\013BytesListP" +
+      "b\022\021\n\tbytesList\030\001 \003(\014\022\024\n\014serialNumber\030\002 \001" +
+      "(\005B1\n!org.wowtools.hppt.common.protobufB" +
+      "\014ProtoMessageb\006proto3"
     };
     descriptor = com.google.protobuf.Descriptors.FileDescriptor
       .internalBuildGeneratedFileFrom(descriptorData,
@@ -2733,19 +3164,19 @@ public final class ProtoMessage {
     internal_static_pojo_BytesPb_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_pojo_BytesPb_descriptor,
-        new String[] { "Bytes", "SessionId", "SerialNumber", });
+        new java.lang.String[] { "Bytes", "SessionId", "SerialNumber", "Trace", });
     internal_static_pojo_MessagePb_descriptor =
       getDescriptor().getMessageTypes().get(1);
     internal_static_pojo_MessagePb_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_pojo_MessagePb_descriptor,
-        new String[] { "BytesPbList", "CommandList", "SerialNumber", });
+        new java.lang.String[] { "BytesPbList", "CommandList", "SerialNumber", "Seq", "Ack", });
     internal_static_pojo_BytesListPb_descriptor =
       getDescriptor().getMessageTypes().get(2);
     internal_static_pojo_BytesListPb_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_pojo_BytesListPb_descriptor,
-        new String[] { "BytesList", "SerialNumber", });
+        new java.lang.String[] { "BytesList", "SerialNumber", });
   }
 
   // @@protoc_insertion_point(outer_class_scope)
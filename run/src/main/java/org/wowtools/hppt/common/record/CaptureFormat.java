@@ -0,0 +1,59 @@
+package org.wowtools.hppt.common.record;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 流量录制文件的格式：
+ * <pre>
+ * 文件头: [8字节魔数 HPPTCAP1][8字节录制开始的系统时间(ms)]
+ * 记录:   [1字节类型][内容]
+ *   STREAM  [varint 流序号][varint 长度][流名称utf8]，某个流第一次出现时定义其序号，流即ss上的一个客户端
+ *   MESSAGE [1字节方向][varint 流序号][varint 距录制开始的微秒数][varint 长度][解密后的TalkMessage字节]
+ *   0       数据结束(未正常关闭时文件尾部映射过但未写入的区域全为0)
+ * </pre>
+ * varint为无符号LEB128编码
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+final class CaptureFormat {
+
+    static final byte[] MAGIC = {'H', 'P', 'P', 'T', 'C', 'A', 'P', '1'};
+    static final int HEAD_LENGTH = MAGIC.length + 8;
+
+    static final byte END = 0;
+    static final byte STREAM = 1;
+    static final byte MESSAGE = 2;
+
+    private CaptureFormat() {
+    }
+
+    static int varintSize(long v) {
+        int n = 1;
+        while ((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    static void putVarint(ByteBuffer buffer, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    static long getVarint(ByteBuffer buffer) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+}
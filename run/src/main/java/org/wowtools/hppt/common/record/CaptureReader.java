@@ -0,0 +1,105 @@
+package org.wowtools.hppt.common.record;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 读取TrafficRecorder写出的录制文件
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class CaptureReader {
+
+    /**
+     * 录制的一条消息
+     *
+     * @param direction TrafficRecorder.TO_SERVER/TO_CLIENT
+     * @param stream    所属的流，ss上录制时为客户端id
+     * @param micros    距录制开始的微秒数
+     * @param bytes     解密后的TalkMessage字节
+     */
+    public record Message(byte direction, String stream, long micros, byte[] bytes) {
+    }
+
+    private final long startMillis;
+    private final List<Message> messages;
+
+    private CaptureReader(long startMillis, List<Message> messages) {
+        this.startMillis = startMillis;
+        this.messages = messages;
+    }
+
+    /**
+     * 读取录制文件，进程未正常退出导致的尾部不完整的记录会被忽略
+     *
+     * @param path 文件路径
+     * @return CaptureReader
+     */
+    public static CaptureReader read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        byte[] magic = new byte[CaptureFormat.MAGIC.length];
+        if (buffer.remaining() < CaptureFormat.HEAD_LENGTH) {
+            throw new IOException("不是流量录制文件 " + path);
+        }
+        buffer.get(magic);
+        if (!Arrays.equals(magic, CaptureFormat.MAGIC)) {
+            throw new IOException("不是流量录制文件或版本不支持 " + path);
+        }
+        long startMillis = buffer.getLong();
+        List<String> streams = new ArrayList<>();
+        List<Message> messages = new ArrayList<>();
+        try {
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                if (type == CaptureFormat.STREAM) {
+                    int idx = (int) CaptureFormat.getVarint(buffer);
+                    byte[] name = new byte[(int) CaptureFormat.getVarint(buffer)];
+                    buffer.get(name);
+                    if (idx != streams.size()) {
+                        throw new IOException("流序号不连续 " + idx);
+                    }
+                    streams.add(new String(name, StandardCharsets.UTF_8));
+                } else if (type == CaptureFormat.MESSAGE) {
+                    byte direction = buffer.get();
+                    String stream = streams.get((int) CaptureFormat.getVarint(buffer));
+                    long micros = CaptureFormat.getVarint(buffer);
+                    byte[] bytes = new byte[(int) CaptureFormat.getVarint(buffer)];
+                    buffer.get(bytes);
+                    messages.add(new Message(direction, stream, micros, bytes));
+                } else {
+                    break;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            //最后一条记录未写完整
+        }
+        return new CaptureReader(startMillis, messages);
+    }
+
+    /**
+     * @return 录制开始的系统时间(ms)
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return 按录制先后排列的所有消息
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+}
@@ -0,0 +1,233 @@
+package org.wowtools.hppt.common.record;
+
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.util.CommonConfig;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流量录制，把sc与ss之间的每条TalkMessage(解密后)连同时间和方向写入录制文件，用于在压测中回放生产环境的流量形态。
+ * 调用方只把消息放入队列，由单独的线程以内存映射的方式追加写入文件；待写入的数据超过上限时丢弃新的消息，不阻塞数据通路。
+ * 文件格式见CaptureFormat
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class TrafficRecorder implements AutoCloseable {
+
+    /**
+     * sc发往ss的消息
+     */
+    public static final byte TO_SERVER = 0;
+    /**
+     * ss发往sc的消息
+     */
+    public static final byte TO_CLIENT = 1;
+
+    private static volatile TrafficRecorder instance;
+
+    private record Entry(byte direction, String stream, long nanos, byte[] bytes) {
+    }
+
+    private static final Entry CLOSE = new Entry((byte) 0, null, 0, null);
+
+    private final Path path;
+    private final long maxBytes;
+    private final long queueBytes;
+    private final int segmentSize;
+    private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private final Thread writerThread;
+
+    //以下字段只在写入线程中使用
+    private final FileChannel channel;
+    private final Map<String, Integer> streams = new HashMap<>();
+    private MappedByteBuffer segment;
+    //segment在文件中的起始位置
+    private long segmentStart;
+    private volatile boolean full;
+
+    private TrafficRecorder(CommonConfig.RecordConfig config) throws IOException {
+        path = Path.of(config.file);
+        maxBytes = config.maxBytes;
+        queueBytes = config.queueBytes;
+        segmentSize = config.segmentSize;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(0, CaptureFormat.HEAD_LENGTH);
+        segment.put(CaptureFormat.MAGIC);
+        segment.putLong(System.currentTimeMillis());
+        writerThread = Thread.ofVirtual().name("hppt-traffic-recorder").start(this::writeLoop);
+    }
+
+    /**
+     * 按配置开始录制，未配置文件时不录制
+     *
+     * @param config 配置
+     */
+    public static synchronized void init(CommonConfig.RecordConfig config) {
+        if (null == config || null == config.file || config.file.isEmpty() || null != instance) {
+            return;
+        }
+        try {
+            instance = new TrafficRecorder(config);
+        } catch (IOException e) {
+            throw new RuntimeException("创建流量录制文件异常 " + config.file, e);
+        }
+        TrafficRecorder recorder = instance;
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close));
+        log.info("流量录制已开启 {}", config.file);
+    }
+
+    /**
+     * @return 是否正在录制，调用方可据此跳过为录制而做的准备工作
+     */
+    public static boolean enabled() {
+        return null != instance;
+    }
+
+    /**
+     * 录制一条消息，未开启录制时直接返回
+     *
+     * @param direction 方向 TO_SERVER/TO_CLIENT
+     * @param stream    所属的流，ss上为客户端id
+     * @param bytes     解密后的TalkMessage字节，放入队列后不能再被修改
+     */
+    public static void record(byte direction, String stream, byte[] bytes) {
+        TrafficRecorder recorder = instance;
+        if (null == recorder || null == bytes) {
+            return;
+        }
+        recorder.add(new Entry(direction, stream, System.nanoTime(), bytes));
+    }
+
+    private void add(Entry entry) {
+        if (full) {
+            return;
+        }
+        if (pendingBytes.addAndGet(entry.bytes.length) > queueBytes) {
+            pendingBytes.addAndGet(-entry.bytes.length);
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                log.warn("流量录制写入跟不上，已丢弃 {} 条消息", dropped.get());
+            }
+            return;
+        }
+        queue.add(entry);
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (entry == CLOSE) {
+                break;
+            }
+            pendingBytes.addAndGet(-entry.bytes.length);
+            if (full) {
+                continue;
+            }
+            try {
+                write(entry);
+            } catch (Exception e) {
+                log.warn("写入流量录制文件异常，停止录制", e);
+                full = true;
+            }
+        }
+        finish();
+    }
+
+    private void write(Entry entry) throws IOException {
+        Integer idx = streams.get(entry.stream);
+        if (null == idx) {
+            idx = streams.size();
+            byte[] name = String.valueOf(entry.stream).getBytes(StandardCharsets.UTF_8);
+            if (!ensure(1 + CaptureFormat.varintSize(idx) + CaptureFormat.varintSize(name.length) + name.length)) {
+                return;
+            }
+            streams.put(entry.stream, idx);
+            segment.put(CaptureFormat.STREAM);
+            CaptureFormat.putVarint(segment, idx);
+            CaptureFormat.putVarint(segment, name.length);
+            segment.put(name);
+        }
+        long micros = (entry.nanos - startNanos) / 1000;
+        int need = 2 + CaptureFormat.varintSize(idx) + CaptureFormat.varintSize(micros)
+                + CaptureFormat.varintSize(entry.bytes.length) + entry.bytes.length;
+        if (!ensure(need)) {
+            return;
+        }
+        segment.put(CaptureFormat.MESSAGE);
+        segment.put(entry.direction);
+        CaptureFormat.putVarint(segment, idx);
+        CaptureFormat.putVarint(segment, micros);
+        CaptureFormat.putVarint(segment, entry.bytes.length);
+        segment.put(entry.bytes);
+    }
+
+    //保证映射区域还能写入need个字节，文件达到上限时返回false
+    private boolean ensure(int need) throws IOException {
+        long position = segmentStart + segment.position();
+        if (maxBytes > 0 && position + need > maxBytes) {
+            full = true;
+            log.info("流量录制文件已达上限 {} bytes，停止录制", maxBytes);
+            return false;
+        }
+        if (segment.remaining() < need) {
+            map(position, Math.max(segmentSize, need));
+        }
+        return true;
+    }
+
+    private void map(long position, int size) throws IOException {
+        if (null != segment) {
+            segment.force();
+        }
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        segmentStart = position;
+    }
+
+    private void finish() {
+        try {
+            long end = segmentStart + segment.position();
+            segment.force();
+            segment = null;
+            //截掉映射时多占的尾部
+            channel.truncate(end);
+            channel.close();
+            log.info("流量录制结束 {} {} bytes, 丢弃 {} 条消息", path, end, dropped.get());
+        } catch (IOException e) {
+            log.warn("关闭流量录制文件异常", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (instance == this) {
+            instance = null;
+        }
+        if (writerThread.isAlive()) {
+            queue.add(CLOSE);
+            try {
+                writerThread.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.wowtools.hppt.common.server;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端分片。
+ * 客户端登录时被分配到一个分片，此后它的所有目标端连接注册在分片的EventLoop上，
+ * 同一客户端的目标端数据不再在多个EventLoop之间来回传递，一个繁忙的客户端也只会占满自己所在的分片。
+ * 客户端的接收、回复循环是普通的虚拟线程，jdk不支持把虚拟线程绑定到指定的载体线程，故分片不约束它们
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public final class ClientShard {
+    private final int index;
+    private final EventLoopGroup eventLoop;
+    private final Bootstrap bootstrap;
+    //分片上的客户端数，分配时选客户端最少的分片
+    final AtomicInteger clientNum = new AtomicInteger();
+
+    ClientShard(int index, EventLoopGroup eventLoop, Bootstrap bootstrap) {
+        this.index = index;
+        this.eventLoop = eventLoop;
+        this.bootstrap = bootstrap;
+    }
+
+    /**
+     * @return 分片序号，未启用分片时为-1
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return 分片的EventLoop，未启用分片时为所有客户端共用的EventLoopGroup
+     */
+    public EventLoopGroup getEventLoop() {
+        return eventLoop;
+    }
+
+    /**
+     * @return 分片上的客户端数
+     */
+    public int getClientNum() {
+        return clientNum.get();
+    }
+
+    Bootstrap getBootstrap() {
+        return bootstrap;
+    }
+
+    @Override
+    public String toString() {
+        return "shard-" + index;
+    }
+}
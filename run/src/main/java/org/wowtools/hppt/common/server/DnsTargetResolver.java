@@ -0,0 +1,88 @@
+package org.wowtools.hppt.common.server;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.resolver.ResolvedAddressTypes;
+import io.netty.resolver.dns.*;
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.util.NettyObjectBuilder;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于netty DnsNameResolver的异步解析器，ss默认使用。
+ * 解析结果按dns记录的ttl缓存，解析失败的结果也会缓存一段时间，避免对不存在的域名反复查询；
+ * 同时查询ipv4和ipv6地址，交给连接方按happy eyeballs的方式竞争连接
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public class DnsTargetResolver implements TargetResolver {
+
+    private final EventLoopGroup group;
+    private final DnsNameResolver resolver;
+
+    public DnsTargetResolver() {
+        this(null, 5000, 0, 3600, 5, false);
+    }
+
+    /**
+     * @param servers      dns服务器地址，格式host:port或host，为空则读取系统配置
+     * @param queryTimeout 单次查询超时毫秒数
+     * @param minTtl       缓存最短保留秒数
+     * @param maxTtl       缓存最长保留秒数
+     * @param negativeTtl  解析失败的结果缓存秒数
+     * @param preferIpv6   同时有ipv4和ipv6地址时是否优先ipv6
+     */
+    public DnsTargetResolver(List<String> servers, long queryTimeout, int minTtl, int maxTtl, int negativeTtl, boolean preferIpv6) {
+        //dns查询只收发很小的udp包，一个线程足够
+        group = NettyObjectBuilder.buildEventLoopGroup(1);
+        DnsNameResolverBuilder builder = new DnsNameResolverBuilder(group.next())
+                .channelType(NioDatagramChannel.class)
+                .queryTimeoutMillis(queryTimeout)
+                .resolveCache(new DefaultDnsCache(minTtl, maxTtl, negativeTtl))
+                .cnameCache(new DefaultDnsCnameCache(minTtl, maxTtl))
+                .resolvedAddressTypes(preferIpv6 ? ResolvedAddressTypes.IPV6_PREFERRED : ResolvedAddressTypes.IPV4_PREFERRED);
+        if (null != servers && !servers.isEmpty()) {
+            List<InetSocketAddress> addresses = new ArrayList<>(servers.size());
+            for (String server : servers) {
+                int idx = server.lastIndexOf(':');
+                if (idx > 0 && server.indexOf(':') == idx) {
+                    addresses.add(new InetSocketAddress(server.substring(0, idx), Integer.parseInt(server.substring(idx + 1))));
+                } else {
+                    addresses.add(new InetSocketAddress(server, 53));
+                }
+            }
+            builder.nameServerProvider(new SequentialDnsServerAddressStreamProvider(addresses));
+        }
+        resolver = builder.build();
+        log.info("dns解析器 servers {} queryTimeout {} ttl [{},{}] negativeTtl {} preferIpv6 {}",
+                servers, queryTimeout, minTtl, maxTtl, negativeTtl, preferIpv6);
+    }
+
+    @Override
+    public CompletableFuture<List<InetAddress>> resolve(String host) {
+        CompletableFuture<List<InetAddress>> future = new CompletableFuture<>();
+        resolver.resolveAll(host).addListener(f -> {
+            if (f.isSuccess()) {
+                @SuppressWarnings("unchecked")
+                List<InetAddress> addresses = (List<InetAddress>) f.getNow();
+                future.complete(addresses);
+            } else {
+                future.completeExceptionally(f.cause());
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void close() {
+        resolver.close();
+        group.shutdownGracefully();
+    }
+}
@@ -1,14 +1,20 @@
 package org.wowtools.hppt.common.server;
 
+import io.netty.buffer.ByteBuf;
+import org.wowtools.hppt.common.metrics.HopTrace;
 import org.wowtools.hppt.common.pojo.SendAbleSessionBytes;
 import org.wowtools.hppt.common.pojo.SessionBytes;
 import org.wowtools.hppt.common.util.AesCipherUtil;
+import org.wowtools.hppt.common.util.BufferBudget;
 import org.wowtools.hppt.common.util.BufferPool;
 import org.wowtools.hppt.common.util.BytesUtil;
+import org.wowtools.hppt.common.util.ReliableLink;
 
 import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -28,6 +34,11 @@ public class LoginClientService {
          * 密码重试次数
          */
         public int passwordRetryNum;
+
+        /**
+         * 票据有效期(ms)，小于等于0表示不签发票据
+         */
+        public long ticketTimeout;
     }
 
 
@@ -37,23 +48,43 @@ public class LoginClientService {
 
         private final BufferPool<String> commandQueue = new BufferPool<>("<LoginClientService-Client-commandQueue");
 
-        private final BufferPool<SendAbleSessionBytes> sessionBytesQueue = new BufferPool<>("<LoginClientService-Client-sessionBytesQueue");
-        public final BufferPool<byte[]> receiveClientBytes = new BufferPool<>("<LoginClientService-Client-receiveClientBytes");
+        //客户端的内存预算账户，客户端的各缓冲池共用
+        public final BufferBudget.Account account;
+
+        private final BufferPool<SendAbleSessionBytes> sessionBytesQueue;
+        //批量取出sessionBytesQueue时复用的数组，只在回复线程中使用
+        private final SendAbleSessionBytes[] fetchBatch = new SendAbleSessionBytes[256];
+        public final BufferPool<byte[]> receiveClientBytes;
 
         private final HashMap<Integer, ServerSession> sessions = new HashMap<>();
 
         private final ClientActiveWatcher activeWatcher;
 
+        //客户端所在的分片，登录后由ServerSessionManager分配
+        volatile ClientShard shard;
+
+        //可恢复的消息链路，客户端不支持会话恢复时为空
+        public volatile ReliableLink link;
+
 
         private Client(String clientId, AesCipherUtil aesCipherUtil, ClientActiveWatcher activeWatcher) {
             this.clientId = clientId;
             this.aesCipherUtil = aesCipherUtil;
             this.activeWatcher = activeWatcher;
+            account = BufferBudget.newAccount(clientId);
+            sessionBytesQueue = new BufferPool<>("<LoginClientService-Client-sessionBytesQueue", account, SendAbleSessionBytes.newSpillCodec());
+            receiveClientBytes = new BufferPool<>("<LoginClientService-Client-receiveClientBytes", account, BufferPool.BYTES_CODEC);
         }
 
-        //添加一条向客户端发送的命令
+        //添加一条向客户端发送的命令，并唤醒阻塞在fetchBytesBlocked上的回复线程，命令不必等到取bytes超时才发出
         public void addCommand(String cmd) {
             commandQueue.add(cmd);
+            sessionBytesQueue.wakeUp();
+        }
+
+        //唤醒阻塞在fetchBytesBlocked上的回复线程
+        public void wakeUp() {
+            sessionBytesQueue.wakeUp();
         }
 
         //取出所有需要向客户端发送的命令 无命令则返回null
@@ -81,6 +112,9 @@ public class LoginClientService {
 
         //添加一条向客户端发送的bytes
         public void addBytes(SessionBytes sessionBytes, SendAbleSessionBytes.CallBack callBack) {
+            if (null != sessionBytes.getTrace()) {
+                sessionBytes.getTrace().stamp(HopTrace.Hop.client_enqueue);
+            }
             SendAbleSessionBytes sasb = new SendAbleSessionBytes(
                     sessionBytes,
                     callBack
@@ -89,13 +123,13 @@ public class LoginClientService {
         }
 
         //取出所有需要向客户端发送的bytes 取出的bytes会按相同sessionId进行整合 无bytes则返回null
-        public List<SendAbleSessionBytes> fetchBytes(long maxReturnBodySize) {
+        public FetchedBytes fetchBytes(long maxReturnBodySize) {
             if (sessionBytesQueue.isEmpty()) {
                 return null;
             }
-            List<SendAbleSessionBytes> bytesList = new LinkedList<>();
+            List<SendAbleSessionBytes> bytesList = new ArrayList<>();
             if (maxReturnBodySize < 0) {
-                sessionBytesQueue.drainToList(bytesList);
+                drainBytes(bytesList);
             } else {
                 //根据maxReturnBodySize的限制取出队列中的数据返回
                 long currentReturnBodySize = 0L;
@@ -105,74 +139,127 @@ public class LoginClientService {
                         break;
                     }
                     bytesList.add(next);
-                    currentReturnBodySize += next.sessionBytes().getBytes().length;
+                    currentReturnBodySize += next.sessionBytes().length();
                 }
             }
             return merge(bytesList);
 
         }
 
-        //取出所有需要向客户端发送的bytes 取出的bytes会按相同sessionId进行整合 无bytes则阻塞3秒后返回
-        public List<SendAbleSessionBytes> fetchBytesBlocked(long maxReturnBodySize) {
-            List<SendAbleSessionBytes> bytesList = new LinkedList<>();
-            SendAbleSessionBytes first= sessionBytesQueue.poll(3, TimeUnit.SECONDS);
+        //取出所有需要向客户端发送的bytes 取出的bytes会按相同sessionId进行整合 无bytes则阻塞3秒后返回null，期间有新命令则提前返回null
+        public FetchedBytes fetchBytesBlocked(long maxReturnBodySize) {
+            SendAbleSessionBytes first = sessionBytesQueue.poll(3, TimeUnit.SECONDS);
             if (null == first) {
-                return bytesList;
+                return null;
             }
+            List<SendAbleSessionBytes> bytesList = new ArrayList<>();
             bytesList.add(first);
             if (sessionBytesQueue.isEmpty()) {
-                return bytesList;
+                return merge(bytesList);
             }
             if (maxReturnBodySize < 0) {
-                sessionBytesQueue.drainToList(bytesList);
-                return merge(bytesList);
+                drainBytes(bytesList);
             } else {
                 //根据maxReturnBodySize的限制取出队列中的数据返回
-                long currentReturnBodySize = first.sessionBytes().getBytes().length;
+                long currentReturnBodySize = first.sessionBytes().length();
                 while (currentReturnBodySize < maxReturnBodySize) {
                     SendAbleSessionBytes next = sessionBytesQueue.poll();
                     if (null == next) {
                         break;
                     }
                     bytesList.add(next);
-                    currentReturnBodySize += next.sessionBytes().getBytes().length;
+                    currentReturnBodySize += next.sessionBytes().length();
                 }
-                return merge(bytesList);
             }
+            return merge(bytesList);
+
+        }
 
+        //以复用的数组批量取出队列中当前可用的bytes
+        private void drainBytes(List<SendAbleSessionBytes> bytesList) {
+            int n;
+            do {
+                n = sessionBytesQueue.drainTo(fetchBatch);
+                for (int i = 0; i < n; i++) {
+                    bytesList.add(fetchBatch[i]);
+                    fetchBatch[i] = null;
+                }
+            } while (n == fetchBatch.length);
         }
 
-        private static final class MergeCell {
-            private final List<byte[]> bytesList = new LinkedList<>();
-            private final List<SendAbleSessionBytes.CallBack> callBacks = new LinkedList<>();
+        //清空尚未发送给客户端的bytes，释放其持有的ByteBuf并以失败回调，客户端断开后调用
+        public void clearBytes() {
+            List<SendAbleSessionBytes.CallBack> callBacks = new ArrayList<>();
+            sessionBytesQueue.clear((ssb) -> {
+                ssb.sessionBytes().release();
+                callBacks.add(ssb.callBack());
+            });
+            SendAbleSessionBytes.complete(callBacks, false);
         }
 
-        private static List<SendAbleSessionBytes> merge(List<SendAbleSessionBytes> bytesList) {
-            Map<Integer, MergeCell> bytesMap = new HashMap<>();
+        /**
+         * 客户端已下线，清空缓冲的数据，删除溢出文件并关闭预算账户
+         */
+        public void close() {
+            clearBytes();
+            receiveClientBytes.clear((bytes) -> {
+            });
+            sessionBytesQueue.close();
+            receiveClientBytes.close();
+            account.close();
+            ReliableLink link = this.link;
+            if (null != link) {
+                link.close();
+            }
+        }
+
+        //按sessionId整合，回调不做整合，平铺在一个列表里，回复完成后一次性完成
+        private static FetchedBytes merge(List<SendAbleSessionBytes> bytesList) {
+            List<SendAbleSessionBytes.CallBack> callBacks = new ArrayList<>(bytesList.size());
+            if (bytesList.size() == 1) {
+                SendAbleSessionBytes ssb = bytesList.getFirst();
+                callBacks.add(ssb.callBack());
+                return new FetchedBytes(List.of(ssb.sessionBytes()), callBacks);
+            }
+            //<sessionId,该session的bytes> 保持各session首次出现的顺序
+            Map<Integer, List<SessionBytes>> bytesMap = new LinkedHashMap<>();
             for (SendAbleSessionBytes ssb : bytesList) {
-                MergeCell mergeCell = bytesMap.computeIfAbsent(ssb.sessionBytes().getSessionId(), (r) -> new MergeCell());
-                mergeCell.bytesList.add(ssb.sessionBytes().getBytes());
-                mergeCell.callBacks.add(ssb.callBack());
+                bytesMap.computeIfAbsent(ssb.sessionBytes().getSessionId(), (r) -> new ArrayList<>(2)).add(ssb.sessionBytes());
+                callBacks.add(ssb.callBack());
             }
-            List<SendAbleSessionBytes> res = new ArrayList<>(bytesMap.size());
-            bytesMap.forEach((sessionId, mergeCell) -> {
-                SessionBytes sessionBytes = new SessionBytes(sessionId, BytesUtil.merge(mergeCell.bytesList));
-                SendAbleSessionBytes.CallBack callBack;
-                if (mergeCell.callBacks.size() == 1) {
-                    callBack = mergeCell.callBacks.getFirst();
-                } else {
-                    callBack = (success) -> {
-                        for (SendAbleSessionBytes.CallBack callBack1 : mergeCell.callBacks) {
-                            callBack1.cb(success);
-                        }
-                    };
+            List<SessionBytes> res = new ArrayList<>(bytesMap.size());
+            bytesMap.forEach((sessionId, sessionBytesList) -> {
+                if (sessionBytesList.size() == 1) {
+                    res.add(sessionBytesList.getFirst());
+                    return;
+                }
+                //以CompositeByteBuf合并，不拷贝，原SessionBytes的ByteBuf转移给合并结果，合并结果沿用最早被采样的那块的追踪
+                List<ByteBuf> byteBufs = new ArrayList<>(sessionBytesList.size());
+                HopTrace trace = null;
+                for (SessionBytes sb : sessionBytesList) {
+                    byteBufs.add(sb.getByteBuf().retain());
+                    if (null == trace) {
+                        trace = sb.getTrace();
+                    }
+                    sb.release();
                 }
-                res.add(new SendAbleSessionBytes(sessionBytes, callBack));
+                SessionBytes merged = new SessionBytes(sessionId, BytesUtil.merge(byteBufs));
+                merged.setTrace(trace);
+                res.add(merged);
             });
-            return res;
+            return new FetchedBytes(res, callBacks);
         }
     }
 
+    /**
+     * 从客户端缓冲区中取出的待发送数据
+     *
+     * @param sessionBytes 按sessionId整合后的bytes
+     * @param callBacks    取出的各条bytes的回调，回复完成后以SendAbleSessionBytes.complete一次性完成
+     */
+    public record FetchedBytes(List<SessionBytes> sessionBytes, List<SendAbleSessionBytes.CallBack> callBacks) {
+    }
+
     /**
      * 客户端是否活跃的观察器
      */
@@ -201,16 +288,58 @@ public class LoginClientService {
         private int passwordErrorNum;
     }
 
-    private final Map<String, ClientInfo> users;
+    //客户端凭票据重新登录时直接取用登录时的加密工具，省去密钥派生
+    private static final class Ticket {
+        private final String user;
+        private final AesCipherUtil aesCipherUtil;
+        private final long expireTime;
+
+        private Ticket(String user, AesCipherUtil aesCipherUtil, long expireTime) {
+            this.user = user;
+            this.aesCipherUtil = aesCipherUtil;
+            this.expireTime = expireTime;
+        }
+    }
+
+    private final Map<String, ClientInfo> users = new ConcurrentHashMap<>();
     private final int passwordRetryNum;
+    private final long ticketTimeout;
+    //<ticketId,Ticket>
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
 
     public LoginClientService(Config config) {
-        Map<String, ClientInfo> _users = new HashMap<>();
-        for (String[] u : config.users) {
-            _users.put(u[0], new ClientInfo(u[0], u[1]));
-        }
-        users = Map.copyOf(_users);
+        updateUsers(config.users);
         passwordRetryNum = config.passwordRetryNum;
+        ticketTimeout = config.ticketTimeout;
+    }
+
+    /**
+     * 更新用户，新增的用户此后即可登录，被删除或密码被修改的用户作为吊销的用户返回，由调用方断开其已登录的客户端。
+     * 未变化的用户不受影响，其密码错误次数也继续累计
+     *
+     * @param newUsers 每行一条用户名和密码
+     * @return 被吊销的用户名
+     */
+    public synchronized List<String> updateUsers(List<String[]> newUsers) {
+        Map<String, String> passwords = new HashMap<>();
+        for (String[] u : newUsers) {
+            passwords.put(u[0], u[1]);
+        }
+        List<String> revoked = new ArrayList<>();
+        users.forEach((user, clientInfo) -> {
+            if (!passwords.containsKey(user) || !Objects.equals(clientInfo.password, passwords.get(user))) {
+                revoked.add(user);
+            }
+        });
+        for (String user : revoked) {
+            users.remove(user);
+        }
+        if (!revoked.isEmpty()) {
+            tickets.values().removeIf((ticket) -> revoked.contains(ticket.user));
+        }
+        passwords.forEach((user, password) -> users.computeIfAbsent(user, (k) -> new ClientInfo(user, password)));
+        return revoked;
     }
 
     /**
@@ -221,6 +350,40 @@ public class LoginClientService {
      * @return 登录成功则返回Client对象，否则抛出异常
      */
     public Client login(String code, ClientActiveWatcher clientActiveWatcher) {
+        String user = code.split(" ", 2)[0];
+        return new Client(user, authenticate(code), clientActiveWatcher);
+    }
+
+    /**
+     * 已通过authenticate或redeemTicket校验的客户端登录
+     *
+     * @param user                用户名
+     * @param aesCipherUtil       校验时得到的加密工具
+     * @param clientActiveWatcher 用以观察客户端活跃状态的变化
+     * @return Client
+     */
+    public Client login(String user, AesCipherUtil aesCipherUtil, ClientActiveWatcher clientActiveWatcher) {
+        return new Client(user, aesCipherUtil, clientActiveWatcher);
+    }
+
+    /**
+     * 校验loginCode，用于已登录的客户端在传输层重连后恢复，不新建Client
+     *
+     * @param code loginCode
+     * @return 校验通过则返回以当前时间生成的加密工具，否则抛出异常
+     */
+    public AesCipherUtil authenticate(String code) {
+        return authenticate(code, System.currentTimeMillis());
+    }
+
+    /**
+     * 以客户端给出的时间戳校验loginCode，时间戳与服务端时间的偏差由调用方校验
+     *
+     * @param code loginCode
+     * @param ts   客户端生成loginCode时所用的时间戳
+     * @return 校验通过则返回以ts生成的加密工具，否则抛出异常
+     */
+    public AesCipherUtil authenticate(String code, long ts) {
         String[] strs = code.split(" ", 2);
         String user = strs[0];
         String pwdCode = strs[1];
@@ -231,11 +394,11 @@ public class LoginClientService {
         if (clientInfo.passwordErrorNum > passwordRetryNum) {
             throw new RuntimeException("多次登录失败，用户已锁定");
         }
-        AesCipherUtil aesCipherUtil = new AesCipherUtil(clientInfo.password, System.currentTimeMillis());
+        AesCipherUtil aesCipherUtil = new AesCipherUtil(clientInfo.password, ts);
         try {
             if (new String(aesCipherUtil.descriptor.decrypt(BytesUtil.base642bytes(pwdCode)), StandardCharsets.UTF_8).equals(clientInfo.password)) {
                 clientInfo.passwordErrorNum = 0;
-                return new Client(user, aesCipherUtil, clientActiveWatcher);
+                return aesCipherUtil;
             }
         } catch (Exception ignored) {
         }
@@ -243,4 +406,60 @@ public class LoginClientService {
         throw new RuntimeException("密码不正确或对时时差过长");
     }
 
+    /**
+     * 签发票据，客户端此后重连时可凭票据登录
+     *
+     * @param user          用户名
+     * @param aesCipherUtil 客户端此后使用的加密工具
+     * @return 票据，不签发票据时返回null
+     */
+    public String issueTicket(String user, AesCipherUtil aesCipherUtil) {
+        if (ticketTimeout <= 0) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        tickets.values().removeIf((ticket) -> ticket.expireTime < now);
+        byte[] id = new byte[16];
+        random.nextBytes(id);
+        String ticketId = BytesUtil.bytes2base64(id);
+        tickets.put(ticketId, new Ticket(user, aesCipherUtil, now + ticketTimeout));
+        return ticketId;
+    }
+
+    /**
+     * 凭票据登录，票据只能使用一次，登录成功后应签发新的票据
+     *
+     * @param user     用户名
+     * @param ticketId 票据
+     * @param proof    客户端以票据对应的加密工具加密"用户名 时间戳"得到的凭证
+     * @param ts       凭证中的时间戳，与服务端时间的偏差由调用方校验
+     * @return 票据对应的加密工具，校验不通过则抛出异常
+     */
+    public AesCipherUtil redeemTicket(String user, String ticketId, String proof, long ts) {
+        //先校验再作废，避免伪造的凭证把合法客户端的票据消耗掉
+        Ticket ticket = tickets.get(ticketId);
+        if (null == ticket) {
+            throw new RuntimeException("票据无效");
+        }
+        if (ticket.expireTime < System.currentTimeMillis()) {
+            tickets.remove(ticketId, ticket);
+            throw new RuntimeException("票据无效");
+        }
+        if (!ticket.user.equals(user) || !users.containsKey(user)) {
+            throw new RuntimeException("票据无效");
+        }
+        boolean verified;
+        try {
+            String s = new String(ticket.aesCipherUtil.descriptor.decrypt(BytesUtil.base642bytes(proof)), StandardCharsets.UTF_8);
+            verified = s.equals(user + " " + ts);
+        } catch (Exception e) {
+            verified = false;
+        }
+        //校验通过后原子地作废，并发的重放只有一个能成功
+        if (!verified || !tickets.remove(ticketId, ticket)) {
+            throw new RuntimeException("票据无效");
+        }
+        return ticket.aesCipherUtil;
+    }
+
 }
@@ -1,13 +1,20 @@
 package org.wowtools.hppt.common.server;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.filter.BytesFilter;
+import org.wowtools.hppt.common.filter.FilterChain;
+import org.wowtools.hppt.common.metrics.Counter;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
 import org.wowtools.hppt.common.pojo.SessionBytes;
 import org.wowtools.hppt.common.util.BufferPool;
 import org.wowtools.hppt.common.util.BytesUtil;
 import org.wowtools.hppt.common.util.DebugConfig;
 import org.wowtools.hppt.common.util.RoughTimeUtil;
 
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -26,20 +33,38 @@ public class ServerSession {
     private final long sessionTimeout;
 
     private final ServerSessionLifecycle lifecycle;
+    //负载均衡选出的目标端，只有一个目标端时为null
+    private final TargetBalancer.Target target;
+    private final boolean afterSendToTargetHooked;
+    //发给目标端的数据经过的过滤器链，没有过滤器时为null
+    private final FilterChain<ServerSession> toTargetChain;
 
-    private final BufferPool<SessionBytes> sendBytesQueue = new BufferPool<>(">ServerSession-sendBytesQueue");
+    private final BufferPool<SessionBytes> sendBytesQueue;
+
+    //从目标端读入、向目标端写出的字节数
+    final Counter inBytes;
+    private final Counter outBytes;
     //上次活跃时间
     private long activeTime;
+    //目标端读到、尚未发给客户端的字节块数，只在channel的EventLoop中读写
+    int inFlightReads;
 
     private volatile boolean running = true;
 
 
-    ServerSession(long sessionTimeout, int sessionId, LoginClientService.Client client, ServerSessionLifecycle lifecycle, Channel channel) {
+    ServerSession(long sessionTimeout, int sessionId, LoginClientService.Client client, ServerSessionLifecycle lifecycle, Channel channel,
+                  String forward, TargetBalancer.Target target, List<BytesFilter<ServerSession>> toTargetFilters, boolean afterSendToTargetHooked) {
+        this.afterSendToTargetHooked = afterSendToTargetHooked;
+        this.target = target;
         this.sessionId = sessionId;
         this.channel = channel;
         this.sessionTimeout = sessionTimeout;
         this.lifecycle = lifecycle;
         this.client = client;
+        sendBytesQueue = new BufferPool<>(">ServerSession-sendBytesQueue", client.account, SessionBytes.SPILL_CODEC);
+        inBytes = HpptMetrics.forwardBytes(HpptMetrics.SIDE_SS, forward, HpptMetrics.IN);
+        outBytes = HpptMetrics.forwardBytes(HpptMetrics.SIDE_SS, forward, HpptMetrics.OUT);
+        toTargetChain = toTargetFilters.isEmpty() ? null : new FilterChain<>(this, toTargetFilters, this::writeToTarget, this::close);
         activeSession();
         startSendThread();
         client.addSession(this);
@@ -56,31 +81,55 @@ public class ServerSession {
                     if (DebugConfig.OpenSerialNumber) {
                         log.debug("取出session待发送缓冲区数据 >sessionBytes-SerialNumber {}", sessionBytes.getSerialNumber());
                     }
-                    byte[] bytes = sessionBytes.getBytes();
-
-                    bytes = lifecycle.beforeSendToTarget(this, bytes);
-
-                    if (bytes != null) {
-                        Throwable e = BytesUtil.writeToChannel(channel, bytes);
-                        if (null != e) {
-                            log.warn("BytesUtil.writeToChannel err", e);
-                            throw e;
+                    int length = sessionBytes.length();
+                    ByteBuf byteBuf = sessionBytes.getByteBuf().retain();
+                    sessionBytes.release();
+                    try {
+                        if (null != toTargetChain) {
+                            toTargetChain.fire(byteBuf);
+                        } else {
+                            writeToTarget(byteBuf);
                         }
-                        if (log.isDebugEnabled()) {
-                            log.debug("向目标端口发送字节 {}", bytes.length);
+                    } finally {
+                        if (null != target) {
+                            target.written(length);
                         }
-                        lifecycle.afterSendToTarget(this, bytes);
                     }
                 } catch (Throwable e) {
                     log.warn("SendThread err", e);
                     close();
                 }
             }
+            sendBytesQueue.clear(sessionBytes -> {
+                if (null != target) {
+                    target.written(sessionBytes.length());
+                }
+                sessionBytes.release();
+            });
+            sendBytesQueue.close();
             log.info("{} sendThread stop", this);
         });
 
     }
 
+    //经过滤器后的数据写出到目标端
+    private void writeToTarget(ByteBuf byteBuf) throws Throwable {
+        int length = byteBuf.readableBytes();
+        byte[] bytes = afterSendToTargetHooked ? ByteBufUtil.getBytes(byteBuf) : null;
+        Throwable e = BytesUtil.writeToChannel(channel, byteBuf);
+        if (null != e) {
+            log.warn("BytesUtil.writeToChannel err", e);
+            throw e;
+        }
+        outBytes.add(length);
+        if (log.isDebugEnabled()) {
+            log.debug("向目标端口发送字节 {}", length);
+        }
+        if (afterSendToTargetHooked) {
+            lifecycle.afterSendToTarget(this, bytes);
+        }
+    }
+
     /**
      * 向目标端口发送字节
      *
@@ -89,6 +138,9 @@ public class ServerSession {
     public void sendToTarget(SessionBytes bytes) {
         activeSession();
         if (bytes != null) {
+            if (null != target) {
+                target.queued(bytes.length());
+            }
             sendBytesQueue.add(bytes);
         }
     }
@@ -118,6 +170,9 @@ public class ServerSession {
     void close() {
         running = false;
         channel.close();
+        if (null != toTargetChain) {
+            toTargetChain.close();
+        }
         client.removeSession(this);
     }
 
@@ -136,4 +191,11 @@ public class ServerSession {
     public LoginClientService.Client getClient() {
         return client;
     }
+
+    /**
+     * @return 负载均衡选出的目标端，只有一个目标端时为null
+     */
+    public TargetBalancer.Target getTarget() {
+        return target;
+    }
 }
@@ -1,9 +1,11 @@
 package org.wowtools.hppt.common.server;
 
-
+import org.wowtools.hppt.common.filter.BytesFilter;
 import org.wowtools.hppt.common.pojo.SendAbleSessionBytes;
 import org.wowtools.hppt.common.pojo.SessionBytes;
 
+import java.util.List;
+
 /**
  * ServerSession的生命周期，包含ServerSession从创建、交互、销毁各过程的触发事件
  *
@@ -22,7 +24,17 @@ public interface ServerSessionLifecycle {
     }
 
     /**
-     * 发送字节给目标端口前触发
+     * 发送给目标端口的数据经过的过滤器，在ServerSessionManager构造时取一次，所有会话共用。
+     * 与beforeSendToTarget相比，过滤器直接处理ByteBuf，不必拷贝为byte[]，且可以异步、拆分或合并数据
+     *
+     * @return 过滤器，按先后顺序排列
+     */
+    default List<BytesFilter<ServerSession>> toTargetFilters() {
+        return List.of();
+    }
+
+    /**
+     * 发送字节给目标端口前触发，重写后会作为第一个过滤器执行，每块数据都会拷贝为byte[]，建议改用toTargetFilters
      *
      * @param serverSession ServerSession
      * @param bytes         发送的字节
@@ -2,22 +2,33 @@ package org.wowtools.hppt.common.server;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.*;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.filter.ByteArrayHookFilter;
+import org.wowtools.hppt.common.filter.BytesFilter;
+import org.wowtools.hppt.common.jfr.SessionCloseEvent;
+import org.wowtools.hppt.common.jfr.SessionOpenEvent;
+import org.wowtools.hppt.common.metrics.Counter;
+import org.wowtools.hppt.common.metrics.HopTrace;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
+import org.wowtools.hppt.common.metrics.Metrics;
 import org.wowtools.hppt.common.pojo.SendAbleSessionBytes;
 import org.wowtools.hppt.common.pojo.SessionBytes;
-import org.wowtools.hppt.common.util.BytesUtil;
 import org.wowtools.hppt.common.util.Constant;
 import org.wowtools.hppt.common.util.DebugConfig;
 import org.wowtools.hppt.common.util.NettyObjectBuilder;
+import org.wowtools.hppt.common.util.ReflectUtil;
 
-import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -39,13 +50,38 @@ public class ServerSessionManager implements AutoCloseable {
     private final Map<String, Map<Integer, ServerSession>> clientIdServerSessionMap = new ConcurrentHashMap<>();
 
     private final Bootstrap bootstrap = new Bootstrap();//TODO 这里改到每个session里，减少eventloop数，实现阻塞等待，以此避免接收目标端数据过快
+    //客户端分片，未启用分片时只有一个所有客户端共用的分片
+    private final ClientShard[] shards;
 
     private final ServerSessionLifecycle lifecycle;
     private final long sessionTimeout;
+    private final TargetResolver resolver;
+    private final TargetConnector connector;
+    private final TargetBalancer balancer;
+
+    private final Counter sessionsOpened = HpptMetrics.sessionsOpened(HpptMetrics.SIDE_SS);
+    private final Counter sessionsClosed = HpptMetrics.sessionsClosed(HpptMetrics.SIDE_SS);
+    //生命周期是否重写了以byte[]为参数的after钩子，未重写时无需把ByteBuf转为byte[]
+    private final boolean afterSendToTargetHooked;
+    //发给目标端的数据经过的过滤器，beforeSendToTarget钩子已适配为其中的第一个过滤器
+    private final List<BytesFilter<ServerSession>> toTargetFilters = new ArrayList<>();
 
     ServerSessionManager(ServerSessionManagerBuilder builder) {
         lifecycle = builder.lifecycle;
         sessionTimeout = builder.sessionTimeout;
+        resolver = builder.resolver;
+        connector = new TargetConnector(resolver, builder.connectAttemptDelay);
+        balancer = builder.balancer;
+        if (ReflectUtil.isOverridden(lifecycle, ServerSessionLifecycle.class,
+                "beforeSendToTarget", ServerSession.class, byte[].class)) {
+            toTargetFilters.add(ByteArrayHookFilter.before(lifecycle::beforeSendToTarget));
+        }
+        List<BytesFilter<ServerSession>> filters = lifecycle.toTargetFilters();
+        if (null != filters) {
+            toTargetFilters.addAll(filters);
+        }
+        afterSendToTargetHooked = ReflectUtil.isOverridden(lifecycle, ServerSessionLifecycle.class,
+                "afterSendToTarget", ServerSession.class, byte[].class);
 //        bootstrap.option(ChannelOption.SO_RCVBUF, 1024 * 1024); // 设置接收缓冲区为1MB
 //        bootstrap.option(ChannelOption.SO_SNDBUF, 1024 * 1024); // 设置发送缓冲区为1MB
         bootstrap.group(builder.group)
@@ -58,6 +94,9 @@ public class ServerSessionManager implements AutoCloseable {
                         pipeline.addLast(new SimpleHandler());
                     }
                 });
+        shards = buildShards(builder);
+        log.info("客户端分片数 {}", shards.length);
+        Metrics.gauge("hppt_sessions", "当前的会话数", serverSessionMap::size, "side", HpptMetrics.SIDE_SS);
         //定期检查超时session
         Thread.startVirtualThread(() -> {
             while (running) {
@@ -93,82 +132,173 @@ public class ServerSessionManager implements AutoCloseable {
         });
     }
 
+    private ClientShard[] buildShards(ServerSessionManagerBuilder builder) {
+        if (builder.shardNum < 0) {
+            return new ClientShard[]{new ClientShard(-1, builder.group, bootstrap)};
+        }
+        List<ClientShard> list = new ArrayList<>();
+        for (EventExecutor executor : builder.group) {
+            if (builder.shardNum > 0 && list.size() >= builder.shardNum) {
+                break;
+            }
+            //每个分片的Bootstrap只绑定一个EventLoop，分片上的目标端连接都注册到它上面
+            EventLoop eventLoop = (EventLoop) executor;
+            list.add(new ClientShard(list.size(), eventLoop, bootstrap.clone(eventLoop)));
+        }
+        return list.toArray(new ClientShard[0]);
+    }
+
+    /**
+     * 为刚登录的客户端分配分片，选当前客户端数最少的分片
+     *
+     * @param client 客户端
+     * @return 分片
+     */
+    public synchronized ClientShard assignShard(LoginClientService.Client client) {
+        ClientShard shard = shards[0];
+        for (ClientShard s : shards) {
+            if (s.clientNum.get() < shard.clientNum.get()) {
+                shard = s;
+            }
+        }
+        shard.clientNum.incrementAndGet();
+        client.shard = shard;
+        log.info("客户端 {} 分配到分片 {}", client.clientId, shard);
+        return shard;
+    }
+
+    /**
+     * 客户端下线后归还其分片
+     *
+     * @param client 客户端
+     */
+    public void releaseShard(LoginClientService.Client client) {
+        ClientShard shard = client.shard;
+        if (null != shard) {
+            client.shard = null;
+            shard.clientNum.decrementAndGet();
+        }
+    }
+
     @Override
     public void close() {
         running = false;
+        resolver.close();
     }
 
-    //新建一个session并返回sessionId
-    public int createServerSession(LoginClientService.Client client, String host, int port, long timeoutMillis) {
+    /**
+     * 新建一个session，域名解析和连接都是异步的，不阻塞调用线程
+     *
+     * @return sessionId，无论成功与否都会返回，失败时getServerSessionBySessionId取不到对应的session
+     */
+    public CompletableFuture<Integer> createServerSession(LoginClientService.Client client, String host, int port, long timeoutMillis) {
+        return createServerSession(client, host, port, null, timeoutMillis);
+    }
+
+    /**
+     * 新建一个session，有多个目标端时按负载均衡策略选择，连接失败时依次尝试下一个
+     *
+     * @param targets 新建会话命令中的目标端参数，为空时只连接host:port
+     * @return sessionId，无论成功与否都会返回，失败时getServerSessionBySessionId取不到对应的session
+     */
+    public CompletableFuture<Integer> createServerSession(LoginClientService.Client client, String host, int port, String targets, long timeoutMillis) {
         int sessionId = sessionIdBuilder.addAndGet(1);
         Map<Integer, ServerSession> clientSessions = clientIdServerSessionMap.computeIfAbsent(client.clientId, (id) -> new ConcurrentHashMap<>());
 
-        class ChannelRes {
-            Throwable cause;
-            Channel channel;
+        //目标端连接注册在客户端所在分片的EventLoop上
+        ClientShard shard = client.shard;
+        Bootstrap b = null == shard ? bootstrap : shard.getBootstrap();
+        if (null == targets || targets.isEmpty()) {
+            return connector.connect(b, host, port, timeoutMillis)
+                    .handle((channel, cause) -> {
+                        if (null != cause) {
+                            log.warn("获取channel异常 sessionId {} {}:{}", sessionId, host, port, cause);
+                            return sessionId;
+                        }
+                        log.info("new ServerSession {} {}:{} from {}", sessionId, host, port, client.clientId);
+                        registerServerSession(client, clientSessions, sessionId, channel, host + ":" + port, null);
+                        return sessionId;
+                    });
         }
-        CompletableFuture<ChannelRes> resFuture = new CompletableFuture<>();
+        CompletableFuture<Integer> res = new CompletableFuture<>();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        connectNext(client, clientSessions, sessionId, b, balancer.order(targets), 0, deadline, res);
+        return res;
+    }
 
-        ChannelFuture future = bootstrap.connect(new InetSocketAddress(host, port));
-        // 添加超时处理
-        future.addListener((ChannelFutureListener) f -> {
-            ChannelRes res = new ChannelRes();
+    //按顺序尝试第idx个目标端，失败时尝试下一个，直到连上、全部失败或超时
+    private void connectNext(LoginClientService.Client client, Map<Integer, ServerSession> clientSessions, int sessionId, Bootstrap b,
+                             List<TargetBalancer.Target> order, int idx, long deadline, CompletableFuture<Integer> res) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (idx >= order.size() || remaining <= 0) {
+            log.warn("所有目标端均连接失败 sessionId {} {}", sessionId, order);
+            res.complete(sessionId);
+            return;
+        }
+        TargetBalancer.Target target = order.get(idx);
+        long timeout = idx == order.size() - 1 ? remaining : Math.min(remaining, balancer.getConnectTimeout());
+        connector.connect(b, target.getHost(), target.getPort(), timeout).whenComplete((channel, cause) -> {
+            if (null != cause) {
+                balancer.failed(target, cause);
+                connectNext(client, clientSessions, sessionId, b, order, idx + 1, deadline, res);
+                return;
+            }
+            balancer.succeeded(target);
+            log.info("new ServerSession {} {} from {}", sessionId, target, client.clientId);
             try {
-                if (!f.isSuccess()) {
-                    try {
-                        future.cancel(true); // 取消未完成的连接尝试
-                    } catch (Exception e) {
-                        log.warn("future.channel, sessionId {}", sessionId, e);
-                    }
-                    res.cause = f.cause();
-                } else {
-                    // 设置连接超时
-                    boolean isConnected = future.awaitUninterruptibly(timeoutMillis, TimeUnit.MILLISECONDS);
-                    if (!isConnected) {
-                        try {
-                            future.cancel(true); // 取消未完成的连接尝试
-                        } catch (Exception e) {
-                            log.warn("future.channel, sessionId {}", sessionId, e);
-                        }
-                    } else {
-                        res.channel = future.channel();
-                        log.info("new ServerSession {} {}:{} from {}", sessionId, host, port, client.clientId);
-                    }
-                }
-            } catch (Exception e) {
-                res.cause = e;
+                registerServerSession(client, clientSessions, sessionId, channel, target.toString(), target);
             } finally {
-                resFuture.complete(res);
+                res.complete(sessionId);
             }
-
         });
+    }
 
-        ChannelRes res;
-        try {
-            res = resFuture.get(timeoutMillis, TimeUnit.MINUTES);
-        } catch (Exception e) {
-            log.warn("获取ChannelRes异常 sessionId {}", sessionId, e);
-            return sessionId;
-        }
-        if (null == res) {
-            log.warn("获取channel超时 sessionId {}", sessionId);
-            return sessionId;
-        }
-        if (null != res.cause) {
-            log.warn("获取channel异常 sessionId {}", sessionId, res.cause);
-            return sessionId;
-        }
-
-        Channel channel = res.channel;
-        if (null == channel) {
-            log.warn("获取channel为空 sessionId {}", sessionId);
-            return sessionId;
+    private void registerServerSession(LoginClientService.Client client, Map<Integer, ServerSession> clientSessions,
+                                       int sessionId, Channel channel, String forward, TargetBalancer.Target target) {
+        ServerSession serverSession = new ServerSession(sessionTimeout, sessionId, client, lifecycle, channel,
+                forward, target, toTargetFilters, afterSendToTargetHooked);
+        if (null != target) {
+            target.opened();
         }
-        ServerSession serverSession = new ServerSession(sessionTimeout, sessionId, client, lifecycle, channel);
         channelServerSessionMap.put(channel, serverSession);
         serverSessionMap.put(sessionId, serverSession);
+        sessionsOpened.inc();
+        SessionOpenEvent event = new SessionOpenEvent();
+        if (event.shouldCommit()) {
+            event.side = HpptMetrics.SIDE_SS;
+            event.sessionId = sessionId;
+            event.client = client.clientId;
+            event.forward = forward;
+            event.commit();
+        }
         clientSessions.put(sessionId, serverSession);
-        return sessionId;
+        lifecycle.created(serverSession);
+        //session已登记，恢复channelActive中可能暂停的读取，并补上登记前已读到的字节，放到EventLoop中执行以保证在channelActive之后
+        channel.eventLoop().execute(() -> {
+            List<ByteBuf> pendingReads = channel.attr(PENDING_READS).getAndSet(null);
+            if (null != pendingReads) {
+                for (ByteBuf buf : pendingReads) {
+                    channel.pipeline().fireChannelRead(buf);
+                }
+            }
+            resumeReadIfIdle(serverSession);
+        });
+    }
+
+    //目标端读到的字节都已发给客户端、且客户端溢出到磁盘的字节未达上限时恢复读取目标端，只在channel的EventLoop中执行
+    private void resumeReadIfIdle(ServerSession session) {
+        Channel channel = session.getChannel();
+        if (session.inFlightReads > 0 || !channel.isOpen()) {
+            return;
+        }
+        LoginClientService.Client client = session.getClient();
+        if (client.account.isSpillFull()) {
+            //客户端溢出到磁盘的数据已达上限，溢出的数据发出一半后再恢复
+            log.info("serverSession {} 客户端溢出字节数达到上限，暂停读取目标端", session);
+            client.account.onSpillDrained(() -> channel.eventLoop().execute(() -> resumeReadIfIdle(session)));
+            return;
+        }
+        channel.config().setAutoRead(true);
     }
 
     public void disposeServerSession(ServerSession serverSession, String type) {
@@ -180,6 +310,17 @@ public class ServerSessionManager implements AutoCloseable {
         log.info("serverSession {} close,type [{}]", serverSession.getSessionId(), type);
         if (null != serverSessionMap.remove(serverSession.getSessionId())) {
             serverSession.getClient().addCommand(String.valueOf(Constant.ScCommands.CloseSession) + serverSession.getSessionId());
+            sessionsClosed.inc();
+            if (null != serverSession.getTarget()) {
+                serverSession.getTarget().closed();
+            }
+            SessionCloseEvent event = new SessionCloseEvent();
+            if (event.shouldCommit()) {
+                event.side = HpptMetrics.SIDE_SS;
+                event.sessionId = serverSession.getSessionId();
+                event.reason = type;
+                event.commit();
+            }
             lifecycle.closed(serverSession);
         }
         clientIdServerSessionMap.get(serverSession.getClient().clientId).remove(serverSession.getSessionId());
@@ -193,38 +334,34 @@ public class ServerSessionManager implements AutoCloseable {
         return serverSessionMap.get(sessionId);
     }
 
+    //session登记前目标端已发来的字节，只在EventLoop中读写
+    private static final AttributeKey<List<ByteBuf>> PENDING_READS = AttributeKey.valueOf("hppt.pendingReads");
+
     private class SimpleHandler extends ChannelInboundHandlerAdapter {
 
         private ServerSession getServeSession(ChannelHandlerContext ctx) {
-            ServerSession session = channelServerSessionMap.get(ctx.channel());
-            if (null == session && ctx.channel().isOpen()) {
-                for (int i = 0; i < 10; i++) {
-                    log.debug("获取ServerSession为空，重试");
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException ignored) {
-                    }
-                    session = channelServerSessionMap.get(ctx.channel());
-                    if (null != session || !ctx.channel().isOpen()) {
-                        break;
-                    }
-                }
-            }
-            return session;
+            return channelServerSessionMap.get(ctx.channel());
         }
 
         @Override
         public void channelActive(ChannelHandlerContext ctx) {
-            ServerSession session = getServeSession(ctx);
-            log.info("serverSession channelActive {}", session);
-            if (session != null) {
-                lifecycle.created(session);
+            //connect的监听器是在connect返回后才添加的，常常排在channelActive之后由EventLoop执行，
+            //此时session还未登记，若在这里等待会把EventLoop连同监听器一起卡住直到超时。
+            //故不等待，先暂停读取，由createServerSession登记session后恢复
+            ServerSession session = channelServerSessionMap.get(ctx.channel());
+            if (null == session) {
+                ctx.channel().config().setAutoRead(false);
             }
+            log.info("serverSession channelActive {}", ctx.channel());
         }
 
         @Override
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             super.channelInactive(ctx);
+            List<ByteBuf> pendingReads = ctx.channel().attr(PENDING_READS).getAndSet(null);
+            if (null != pendingReads) {
+                pendingReads.forEach(ByteBuf::release);
+            }
             ServerSession session = channelServerSessionMap.remove(ctx.channel());
             if (null == session) {
                 log.warn("channelInactive session不存在");
@@ -234,54 +371,58 @@ public class ServerSessionManager implements AutoCloseable {
             disposeServerSession(session, "channelInactive");
         }
 
-        private record CallBack(CompletableFuture<Boolean> future) implements SendAbleSessionBytes.CallBack {
-
-            @Override
-                    public void cb(boolean success) {
-                        //锁住当前线程直至字节发送成功，避免缓冲区积压过多数据或后发先至问题
-                        future.complete(success);
-                    }
-                }
-
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            //ByteBuf的所有权直接转移给SessionBytes，由最终发送它的一方释放
             ByteBuf buf = (ByteBuf) msg;
-            byte[] bytes = null;
-            try {
-                bytes = BytesUtil.byteBuf2bytes(buf);
-            } finally {
-                //channelRead方法需要手动释放ByteBuf
-                buf.release();
+            List<ByteBuf> pendingReads = ctx.channel().attr(PENDING_READS).get();
+            ServerSession session = null == pendingReads ? getServeSession(ctx) : null;
+            if (null == session && ctx.channel().isOpen()) {
+                //session还未登记(或登记前的字节还未补上)，不在EventLoop中等待，暂停读取并暂存，由registerServerSession补上后恢复
+                if (null == pendingReads) {
+                    pendingReads = new ArrayList<>();
+                    ctx.channel().attr(PENDING_READS).set(pendingReads);
+                }
+                pendingReads.add(buf);
+                ctx.channel().config().setAutoRead(false);
+                log.debug("serverSession还未登记，暂存目标端字节 {}", ctx.channel());
+                return;
             }
-            ServerSession session = getServeSession(ctx);
             if (null != session) {
                 session.activeSession();
-                log.debug("serverSession {} 收到目标端口字节 {} {}", session, bytes.length, this);
-                CompletableFuture<Boolean> future = new CompletableFuture<>();
-                CallBack callBack = new CallBack(future);
-                SessionBytes sessionBytes = new SessionBytes(session.getSessionId(), bytes);
+                int length = buf.readableBytes();
+                session.inBytes.add(length);
+                log.debug("serverSession {} 收到目标端口字节 {} {}", session, length, this);
+                byte[] hookBytes = afterSendToTargetHooked ? ByteBufUtil.getBytes(buf) : null;
+                SessionBytes sessionBytes = new SessionBytes(session.getSessionId(), buf);
+                HopTrace trace = HopTrace.sample();
+                if (null != trace) {
+                    trace.stamp(HopTrace.Hop.target_read);
+                    sessionBytes.setTrace(trace);
+                }
                 if (DebugConfig.OpenSerialNumber) {
                     log.debug("目标端发来字节 <sessionBytes-SerialNumber {}", sessionBytes.getSerialNumber());
                 }
-                lifecycle.sendToClientBuffer(sessionBytes, session.getClient(), callBack);
-                Boolean success;
-                try {
-                    success = future.get(30, TimeUnit.SECONDS);
-                } catch (Exception e) {
-                    log.warn("serverSession {} 字节发送异常 {}", session, bytes.length, e);
-                    throw new RuntimeException(e);
-                }
-                log.debug("serverSession {} 字节发送至客户端完成 {} success? {} {}", session, bytes.length, success, this);
-
-                if (null == success) {
-                    throw new RuntimeException("字节发送超时, session: " + session.getSessionId());
-                }
-                if (!success) {
-                    throw new RuntimeException("字节发送失败, session: " + session.getSessionId());
-                }
-
-                lifecycle.afterSendToTarget(session, bytes);
+                //不在EventLoop中等待发送完成：暂停读取后放入客户端缓冲区，发送完成的回调里再恢复，
+                //分片的EventLoop因此不会被某个慢客户端卡住，溢出到磁盘的数据也不会因等待超时而断开session
+                Channel channel = ctx.channel();
+                session.inFlightReads++;
+                channel.config().setAutoRead(false);
+                lifecycle.sendToClientBuffer(sessionBytes, session.getClient(), (success) -> {
+                    log.debug("serverSession {} 字节发送至客户端完成 {} success? {}", session, length, success);
+                    if (!success) {
+                        log.warn("serverSession {} 字节发送失败 {}", session, length);
+                        disposeServerSession(session, "字节发送失败");
+                    } else if (afterSendToTargetHooked) {
+                        lifecycle.afterSendToTarget(session, hookBytes);
+                    }
+                    channel.eventLoop().execute(() -> {
+                        session.inFlightReads--;
+                        resumeReadIfIdle(session);
+                    });
+                });
             } else {
+                buf.release();
                 log.warn("channelRead session不存在");
             }
         }
@@ -11,6 +11,10 @@ public class ServerSessionManagerBuilder {
     protected EventLoopGroup group;
     protected ServerSessionLifecycle lifecycle;
     protected long sessionTimeout = 60000;
+    protected int shardNum = 0;
+    protected TargetResolver resolver;
+    protected long connectAttemptDelay = 250;
+    protected TargetBalancer balancer;
 
     public ServerSessionManagerBuilder setSessionTimeout(long sessionTimeout) {
         this.sessionTimeout = sessionTimeout;
@@ -22,6 +26,38 @@ public class ServerSessionManagerBuilder {
         return this;
     }
 
+    /**
+     * 设置客户端分片数，每个分片独占group中的一个EventLoop，小于0表示不分片，所有客户端共用group，0表示取cpu核数
+     */
+    public ServerSessionManagerBuilder setShardNum(int shardNum) {
+        this.shardNum = shardNum;
+        return this;
+    }
+
+    /**
+     * 设置目标端域名解析器，不设置则使用默认配置的DnsTargetResolver
+     */
+    public ServerSessionManagerBuilder setResolver(TargetResolver resolver) {
+        this.resolver = resolver;
+        return this;
+    }
+
+    /**
+     * 设置连接目标端时，上一个地址多少毫秒未连上就并行尝试下一个地址
+     */
+    public ServerSessionManagerBuilder setConnectAttemptDelay(long connectAttemptDelay) {
+        this.connectAttemptDelay = connectAttemptDelay;
+        return this;
+    }
+
+    /**
+     * 设置新建会话有多个目标端时的负载均衡，不设置则使用默认配置的TargetBalancer
+     */
+    public ServerSessionManagerBuilder setBalancer(TargetBalancer balancer) {
+        this.balancer = balancer;
+        return this;
+    }
+
     public ServerSessionManagerBuilder setGroup(EventLoopGroup group) {
         this.group = group;
         return this;
@@ -29,13 +65,22 @@ public class ServerSessionManagerBuilder {
 
     public ServerSessionManager build() {
         if (group == null) {
-            group = NettyObjectBuilder.buildEventLoopGroup();
+            //分片时EventLoop数与分片数一致，不分片时用netty的默认线程数
+            group = NettyObjectBuilder.buildEventLoopGroup(shardNum == 0 ? Runtime.getRuntime().availableProcessors() : Math.max(shardNum, 0));
         }
 
         if (lifecycle == null) {
             throw new RuntimeException("lifecycle不能为空");
         }
 
+        if (resolver == null) {
+            resolver = new DnsTargetResolver();
+        }
+
+        if (balancer == null) {
+            balancer = new TargetBalancer();
+        }
+
         return new ServerSessionManager(this);
     }
 
@@ -1,15 +1,20 @@
 package org.wowtools.hppt.common.server;
 
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.jfr.TalkMessageReceiveEvent;
+import org.wowtools.hppt.common.jfr.TalkMessageSendEvent;
+import org.wowtools.hppt.common.metrics.Histogram;
+import org.wowtools.hppt.common.metrics.HopTrace;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
 import org.wowtools.hppt.common.pojo.SendAbleSessionBytes;
 import org.wowtools.hppt.common.pojo.SessionBytes;
 import org.wowtools.hppt.common.pojo.TalkMessage;
-import org.wowtools.hppt.common.util.BufferPool;
+import org.wowtools.hppt.common.record.TrafficRecorder;
 import org.wowtools.hppt.common.util.CommonConfig;
 import org.wowtools.hppt.common.util.Constant;
 import org.wowtools.hppt.common.util.DebugConfig;
+import org.wowtools.hppt.common.util.ReliableLink;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -24,17 +29,88 @@ public class ServerTalker {
     //接收客户端发来的字节并做相应处理
     public static void receiveClientBytes(CommonConfig config, ServerSessionManager serverSessionManager,
                                           LoginClientService.Client client, byte[] bytes, long timeoutMillis) throws Exception {
-        if (null == bytes || bytes.length == 0) {
+        TalkMessage talkMessage = decodeClientBytes(config, client, bytes);
+        if (null == talkMessage) {
             return;
         }
+        receiveClientMessage(serverSessionManager, client, talkMessage, timeoutMillis);
+    }
+
+    /**
+     * 解密并解析客户端发来的字节，不涉及会话状态，可在多个线程中并行执行
+     *
+     * @return 解析出的消息，字节为空时返回null
+     */
+    public static TalkMessage decodeClientBytes(CommonConfig config, LoginClientService.Client client, byte[] bytes) throws Exception {
+        if (null == bytes || bytes.length == 0) {
+            return null;
+        }
+        TalkMessageReceiveEvent event = new TalkMessageReceiveEvent();
+        event.begin();
+        int size = bytes.length;
+        long decryptTime = 0;
         //解密
         if (config.enableEncrypt) {
+            long t = System.nanoTime();
             bytes = client.aesCipherUtil.descriptor.decrypt(bytes);
+            decryptTime = System.nanoTime() - t;
         }
         TalkMessage talkMessage = new TalkMessage(bytes);
+        if (TrafficRecorder.enabled()) {
+            //本方法在多个线程中并行执行，留到receiveClientMessage中按顺序录制
+            talkMessage.setRecordBytes(bytes);
+        }
         if (DebugConfig.OpenSerialNumber) {
             log.debug("客户端发来的字节解析 >talkMessage-SerialNumber {}", talkMessage.getSerialNumber());
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit(HpptMetrics.SIDE_SS, size, talkMessage, decryptTime);
+        }
+        return talkMessage;
+    }
+
+    /**
+     * 处理解析后的客户端消息，同一客户端的消息需按发来的顺序逐条处理
+     */
+    public static void receiveClientMessage(ServerSessionManager serverSessionManager,
+                                            LoginClientService.Client client, TalkMessage talkMessage, long timeoutMillis) {
+        TrafficRecorder.record(TrafficRecorder.TO_SERVER, client.clientId, talkMessage.getRecordBytes());
+        ReliableLink link = client.link;
+        if (null != link) {
+            link.acked(talkMessage.getAck());
+            boolean fresh;
+            try {
+                fresh = link.receive(talkMessage.getSeq(), talkMessage.bytesLength());
+            } catch (IllegalStateException e) {
+                //抛给调用方断开传输层，客户端重连后从缺失处重发
+                talkMessage.release();
+                throw e;
+            }
+            if (!fresh) {
+                log.debug("重复的消息，舍弃 {}", talkMessage.getSeq());
+                talkMessage.release();
+                return;
+            }
+        }
+        try {
+            dispatchClientMessage(serverSessionManager, client, talkMessage, timeoutMillis);
+        } catch (RuntimeException e) {
+            //消息已记为收到，客户端不会再重发，链路上的数据已不完整，不能再恢复
+            if (null != link) {
+                link.abandon();
+            }
+            throw e;
+        }
+
+        if (null != link && link.needAck()) {
+            //收到较多消息还没确认，唤醒回复线程，没有数据要回复时也回一条确认
+            client.wakeUp();
+        }
+    }
+
+    private static void dispatchClientMessage(ServerSessionManager serverSessionManager,
+                                              LoginClientService.Client client, TalkMessage talkMessage, long timeoutMillis) {
         Map<Integer, ServerSession> serverSessionMap = serverSessionManager.getServerSessionMapByClientId(client.clientId);
 
         /* 发消息 */
@@ -53,6 +129,7 @@ public class ServerTalker {
                 }
                 ServerSession severSession = serverSessionMap.get(sessionByte.getSessionId());
                 if (null == severSession) {
+                    sessionByte.release();
                     //服务端已经没有这个session了，给客户端发关闭命令
                     client.addCommand(String.valueOf(Constant.ScCommands.CloseSession) + sessionByte.getSessionId());
                 } else {
@@ -60,7 +137,6 @@ public class ServerTalker {
                 }
             }
         }
-
     }
 
     private static void receiveClientCommand(String command,
@@ -70,12 +146,15 @@ public class ServerTalker {
         switch (type) {
             case Constant.SsCommands.CreateSession -> {
                 String[] params = command.substring(1).split(Constant.sessionIdJoinFlag);
-                int sessionId = serverSessionManager.createServerSession(client, params[0], Integer.parseInt(params[1]), timeoutMillis);
-                client.addCommand(String.valueOf(Constant.ScCommands.InitSession) + sessionId + Constant.sessionIdJoinFlag + params[2]);
-                if (null == serverSessionManager.getServerSessionBySessionId(sessionId)) {
-                    //获取sessionId为空，说明刚才serverSessionManager.createServerSession失败了，所以接着发一条关闭命令给客户端
-                    client.addCommand(String.valueOf(Constant.ScCommands.CloseSession) + sessionId);
-                }
+                //连接完成后再回复，不阻塞后续命令，同时到来的多个新建会话命令并行解析、连接
+                serverSessionManager.createServerSession(client, params[0], Integer.parseInt(params[1]),
+                        params.length > 3 ? params[3] : null, timeoutMillis).thenAccept(sessionId -> {
+                    client.addCommand(String.valueOf(Constant.ScCommands.InitSession) + sessionId + Constant.sessionIdJoinFlag + params[2]);
+                    if (null == serverSessionManager.getServerSessionBySessionId(sessionId)) {
+                        //获取sessionId为空，说明刚才serverSessionManager.createServerSession失败了，所以接着发一条关闭命令给客户端
+                        client.addCommand(String.valueOf(Constant.ScCommands.CloseSession) + sessionId);
+                    }
+                });
             }
             case Constant.SsCommands.CloseSession -> {
                 if (null == serverSessionMap) {
@@ -111,6 +190,9 @@ public class ServerTalker {
         boolean reply(byte[] bytes);
     }
 
+    private static final Histogram replyBatchSessions = HpptMetrics.batchSessions(HpptMetrics.SIDE_SS);
+    private static final Histogram replyBatchBytes = HpptMetrics.batchBytes(HpptMetrics.SIDE_SS);
+
     //生成向客户端回复的消息
     public static void replyToClient(CommonConfig config, ServerSessionManager serverSessionManager,
                                      LoginClientService.Client client, long maxReturnBodySize, boolean blocked, Replier replier) throws Exception {
@@ -125,88 +207,90 @@ public class ServerTalker {
         }
 
         //取bytes
-        List<SendAbleSessionBytes> fetchBytes = blocked ? client.fetchBytesBlocked(maxReturnBodySize) : client.fetchBytes(maxReturnBodySize);
+        LoginClientService.FetchedBytes fetchBytes = blocked ? client.fetchBytesBlocked(maxReturnBodySize) : client.fetchBytes(maxReturnBodySize);
+        if (blocked && null == fetchBytes) {
+            //阻塞期间可能有新命令到达(如新建会话的回执)，随本次回复一并发出
+            fetchCommands = client.fetchCommands();
+            if (null != fetchCommands && !fetchCommands.isEmpty()) {
+                empty = false;
+            }
+        }
         List<SessionBytes> sessionBytes = null;
-        if (null != fetchBytes && !fetchBytes.isEmpty()) {
-            if (DebugConfig.OpenSerialNumber) {
-                for (SendAbleSessionBytes ssb : fetchBytes) {
-                    log.debug("生成向客户端回复的消息 <sessionBytes-SerialNumber {}", ssb.sessionBytes().getSerialNumber());
+        if (null != fetchBytes) {
+            sessionBytes = fetchBytes.sessionBytes();
+            long batchBytes = 0;
+            for (SessionBytes sb : sessionBytes) {
+                batchBytes += sb.length();
+                if (null != sb.getTrace()) {
+                    sb.getTrace().stamp(HopTrace.Hop.reply_assembled);
                 }
             }
-
-            sessionBytes = new ArrayList<>(fetchBytes.size());
-            for (SendAbleSessionBytes ssb : fetchBytes) {
-                SessionBytes fetchByte = ssb.sessionBytes();
-                sessionBytes.add(fetchByte);
+            replyBatchSessions.record(sessionBytes.size());
+            replyBatchBytes.record(batchBytes);
+            if (DebugConfig.OpenSerialNumber) {
+                for (SessionBytes sb : sessionBytes) {
+                    log.debug("生成向客户端回复的消息 <sessionBytes-SerialNumber {}", sb.getSerialNumber());
+                }
             }
             empty = false;
         }
 
-        if (empty) {
+        ReliableLink link = client.link;
+        if (empty && (null == link || !link.hasPendingAck())) {
             return;
         }
 
         TalkMessage talkMessage = new TalkMessage(sessionBytes, fetchCommands);
+        if (null != link) {
+            //只携带确认的空消息不编号，丢了也无妨
+            if (!empty) {
+                talkMessage.setSeq(link.nextSeq());
+            }
+            talkMessage.setAck(link.takeAck());
+        }
         if (DebugConfig.OpenSerialNumber) {
             log.debug("ServerTalker组装 <talkMessage-SerialNumber {}", talkMessage.getSerialNumber());
         }
-        byte[] bytes = talkMessage.toProto().build().toByteArray();
-        //加密
-        if (config.enableEncrypt) {
-            bytes = client.aesCipherUtil.encryptor.encrypt(bytes);
-        }
-
-        boolean success;
-        Exception exception = null;
+        boolean success = false;
         try {
+            TalkMessageSendEvent event = new TalkMessageSendEvent();
+            event.begin();
+            byte[] bytes;
+            try {
+                bytes = talkMessage.toProto().build().toByteArray();
+                TrafficRecorder.record(TrafficRecorder.TO_CLIENT, client.clientId, bytes);
+                if (null != link) {
+                    link.sent(talkMessage.getSeq(), bytes);
+                }
+            } finally {
+                //序列化完成后SessionBytes就不再需要了
+                if (null != sessionBytes) {
+                    for (SessionBytes sessionByte : sessionBytes) {
+                        sessionByte.release();
+                    }
+                }
+            }
+            long encryptTime = 0;
+            //加密
+            if (config.enableEncrypt) {
+                long t = System.nanoTime();
+                bytes = client.aesCipherUtil.encryptor.encrypt(bytes);
+                encryptTime = System.nanoTime() - t;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit(HpptMetrics.SIDE_SS, bytes.length, talkMessage, encryptTime);
+            }
             success = replier.reply(bytes);
-        } catch (Exception e) {
-            exception = e;
-            success = false;
-        }
-
-        if (null != fetchBytes) {
-            for (SendAbleSessionBytes fetchByte : fetchBytes) {
-                sendAbleSessionBytesResultQueue.add(new SendAbleSessionBytesResult(success, fetchByte.callBack()));
+            if (!success && null != link && talkMessage.getSeq() > 0 && link.isResumable()) {
+                //消息已保留在链路中，客户端重连后会重发
+                success = true;
             }
-        }
-
-        if (null != exception) {
-            throw exception;
-        }
-    }
-
-    //处理SendAbleSessionBytes的回调
-        private record SendAbleSessionBytesResult(boolean success, SendAbleSessionBytes.CallBack callBack) {
-    }
-
-    @Slf4j
-        private record CbRunnable(SendAbleSessionBytesResult sendAbleSessionBytesResult) implements Runnable {
-
-        @Override
-            public void run() {
-                try {
-                    sendAbleSessionBytesResult.callBack.cb(sendAbleSessionBytesResult.success);
-                } catch (Exception e) {
-                    log.warn("CbRunnable err", e);
-                }
+        } finally {
+            //在当前客户端的回复线程中一次性完成本次回复涉及的所有回调
+            if (null != fetchBytes) {
+                SendAbleSessionBytes.complete(fetchBytes.callBacks(), success);
             }
         }
-
-    private static final BufferPool<SendAbleSessionBytesResult> sendAbleSessionBytesResultQueue
-            = new BufferPool<>("ServerTalker.sendAbleSessionBytesResultQueue");
-
-    static {
-        Thread.startVirtualThread(() -> {
-            while (true) {
-                try {
-                    SendAbleSessionBytesResult sendAbleSessionBytesResult = sendAbleSessionBytesResultQueue.take();
-                    CbRunnable cbRunnable = new CbRunnable(sendAbleSessionBytesResult);
-                    Thread.startVirtualThread(cbRunnable);
-                } catch (Exception e) {
-                    log.warn("sendAbleSessionBytesResultQueue.take err", e);
-                }
-            }
-        });
     }
 }
@@ -0,0 +1,309 @@
+package org.wowtools.hppt.common.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.metrics.Counter;
+import org.wowtools.hppt.common.metrics.Metrics;
+import org.wowtools.hppt.common.util.Constant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多目标端的负载均衡。sc的一个forward配置了多个目标端时，由ss在其中选择：
+ * 按权重折算后选活跃会话数最少或待写出字节数最少的目标端，连接失败时依次尝试下一个。
+ * 连续连接失败达到阈值的目标端被暂时摘除，摘除时间随连续摘除的次数翻倍，到期后放回，再失败则立即重新摘除；
+ * 所有目标端都被摘除时仍按原顺序尝试，不会因此拒绝新建会话。
+ * 各目标端的统计在所有客户端之间共享。目标端由客户端的新建会话命令给出，长期闲置的统计会被清理，
+ * 按目标端区分的指标也只为前若干个目标端登记
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public class TargetBalancer {
+
+    /**
+     * 选择目标端的策略
+     */
+    public enum Strategy {
+        /**
+         * 活跃会话数最少
+         */
+        leastActive,
+        /**
+         * 已收到但还未写出到目标端的字节数最少，相同时比较活跃会话数
+         */
+        leastOutstandingBytes
+    }
+
+    /**
+     * 一个目标端及其统计
+     */
+    public static final class Target {
+        private final String host;
+        private final int port;
+        private final String key;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong outstanding = new AtomicLong();
+        //最近一次被选择的时间
+        private volatile long lastUsed;
+        //是否登记了按目标端区分的指标
+        private volatile boolean labeled;
+        //以下字段的读写都在synchronized中
+        private int fails;
+        private int ejections;
+        private long ejectedUntil;
+
+        private Target(String host, int port, String key) {
+            this.host = host;
+            this.port = port;
+            this.key = key;
+            lastUsed = System.currentTimeMillis();
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        /**
+         * 有数据要写到此目标端时调用
+         */
+        public void queued(long bytes) {
+            outstanding.addAndGet(bytes);
+        }
+
+        /**
+         * 数据写出或丢弃后调用
+         */
+        public void written(long bytes) {
+            outstanding.addAndGet(-bytes);
+        }
+
+        void opened() {
+            active.incrementAndGet();
+        }
+
+        void closed() {
+            active.decrementAndGet();
+        }
+
+        private synchronized boolean isEjected(long now) {
+            return ejectedUntil > now;
+        }
+
+        private synchronized long getEjectedUntil() {
+            return ejectedUntil;
+        }
+
+        //没有会话、没有待写出的数据、未被摘除且闲置已久
+        private boolean isIdle(long now, long idleTimeout) {
+            return active.get() <= 0 && outstanding.get() <= 0 && now - lastUsed > idleTimeout && !isEjected(now);
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+
+    //一次选择中的候选目标端，同一目标端在不同forward中的权重可以不同，排序前先按权重折算好分值，避免排序过程中统计值变化
+    private record Candidate(Target target, double outstanding, double active) {
+        Candidate(Target target, int weight) {
+            this(target, (double) Math.max(target.outstanding.get(), 0) / weight, (double) target.active.get() / weight);
+        }
+    }
+
+    private final Strategy strategy;
+    private final int failThreshold;
+    private final long ejectTime;
+    private final long maxEjectTime;
+    private final long connectTimeout;
+    private final long idleTimeout;
+    private final int maxTargetMetrics;
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    //已登记指标的目标端数
+    private final AtomicInteger labeledTargets = new AtomicInteger();
+    //清理闲置目标端的间隔及上次清理时间
+    private static final long SWEEP_INTERVAL = 60_000;
+    private volatile long lastSweep = System.currentTimeMillis();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final Counter ejectCounter = Metrics.counter("hppt_target_ejections_total", "目标端因连续连接失败被摘除的次数");
+
+    /**
+     * @param strategy       选择策略
+     * @param failThreshold  连续连接失败多少次后摘除
+     * @param ejectTime      第一次摘除的毫秒数，连续摘除时逐次翻倍
+     * @param maxEjectTime   摘除毫秒数的上限
+     * @param connectTimeout   连接单个目标端的超时毫秒数，超时后尝试下一个
+     * @param idleTimeout      目标端闲置多少毫秒后清理其统计
+     * @param maxTargetMetrics 最多为多少个目标端登记按目标端区分的指标
+     */
+    public TargetBalancer(Strategy strategy, int failThreshold, long ejectTime, long maxEjectTime, long connectTimeout,
+                          long idleTimeout, int maxTargetMetrics) {
+        this.strategy = strategy;
+        this.failThreshold = Math.max(failThreshold, 1);
+        this.ejectTime = ejectTime;
+        this.maxEjectTime = Math.max(maxEjectTime, ejectTime);
+        this.connectTimeout = connectTimeout;
+        this.idleTimeout = idleTimeout;
+        this.maxTargetMetrics = maxTargetMetrics;
+    }
+
+    public TargetBalancer() {
+        this(Strategy.leastOutstandingBytes, 3, 10_000, 300_000, 5_000, 600_000, 256);
+    }
+
+    long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * 把一个目标端编码为新建会话命令中的参数，多个目标端以Constant.targetJoinFlag连接
+     *
+     * @param host   域名或ip
+     * @param port   端口
+     * @param weight 权重
+     * @return host:port:weight
+     */
+    public static String encode(String host, int port, int weight) {
+        return host + ":" + port + ":" + weight;
+    }
+
+    /**
+     * 按策略对新建会话命令中的目标端排序，返回依次尝试的顺序
+     *
+     * @param param 新建会话命令中的目标端参数，见encode
+     * @return 目标端
+     */
+    List<Target> order(String param) {
+        String[] items = param.split(Constant.targetJoinFlag);
+        List<Candidate> healthy = new ArrayList<>(items.length);
+        List<Candidate> ejected = new ArrayList<>(0);
+        long now = System.currentTimeMillis();
+        sweep(now);
+        for (String item : items) {
+            //host中可能有ipv6地址的冒号，从后往前取
+            int i2 = item.lastIndexOf(':');
+            int i1 = item.lastIndexOf(':', i2 - 1);
+            if (i1 <= 0) {
+                log.warn("目标端参数格式错误 {}", item);
+                continue;
+            }
+            String host = item.substring(0, i1);
+            int port = Integer.parseInt(item.substring(i1 + 1, i2));
+            int weight = Math.max(Integer.parseInt(item.substring(i2 + 1)), 1);
+            Target target = target(host, port);
+            target.lastUsed = now;
+            Candidate candidate = new Candidate(target, weight);
+            if (candidate.target.isEjected(now)) {
+                ejected.add(candidate);
+            } else {
+                healthy.add(candidate);
+            }
+        }
+        //先打乱再稳定排序，分值相同的目标端随机先后
+        Collections.shuffle(healthy, ThreadLocalRandom.current());
+        healthy.sort(comparator());
+        //被摘除的放在最后，最早到期的优先
+        ejected.sort(Comparator.comparingLong(c -> c.target.getEjectedUntil()));
+        List<Target> res = new ArrayList<>(healthy.size() + ejected.size());
+        for (Candidate candidate : healthy) {
+            res.add(candidate.target);
+        }
+        for (Candidate candidate : ejected) {
+            res.add(candidate.target);
+        }
+        return res;
+    }
+
+    private Comparator<Candidate> comparator() {
+        Comparator<Candidate> byActive = Comparator.comparingDouble(Candidate::active);
+        if (strategy == Strategy.leastActive) {
+            return byActive;
+        }
+        return Comparator.comparingDouble(Candidate::outstanding).thenComparing(byActive);
+    }
+
+    private Target target(String host, int port) {
+        String key = host + ":" + port;
+        return targets.computeIfAbsent(key, k -> {
+            Target target = new Target(host, port, k);
+            //目标端由客户端给出，限制指标的标签数，超出的目标端不单独登记
+            if (labeledTargets.incrementAndGet() <= maxTargetMetrics) {
+                target.labeled = true;
+                Metrics.gauge("hppt_target_sessions", "目标端的活跃会话数", target.active::get, "target", k);
+                Metrics.gauge("hppt_target_outstanding_bytes", "待写出到目标端的字节数", target.outstanding::get, "target", k);
+                Metrics.gauge("hppt_target_ejected", "目标端是否被摘除", () -> target.isEjected(System.currentTimeMillis()) ? 1 : 0, "target", k);
+            } else {
+                labeledTargets.decrementAndGet();
+            }
+            return target;
+        });
+    }
+
+    //定期清理闲置的目标端，连同其指标
+    private void sweep(long now) {
+        if (now - lastSweep < SWEEP_INTERVAL || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lastSweep = now;
+            targets.values().removeIf(target -> {
+                if (!target.isIdle(now, idleTimeout)) {
+                    return false;
+                }
+                if (target.labeled) {
+                    Metrics.removeGauge("hppt_target_sessions", "target", target.key);
+                    Metrics.removeGauge("hppt_target_outstanding_bytes", "target", target.key);
+                    Metrics.removeGauge("hppt_target_ejected", "target", target.key);
+                    labeledTargets.decrementAndGet();
+                }
+                return true;
+            });
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * 连接成功
+     */
+    void succeeded(Target target) {
+        synchronized (target) {
+            target.fails = 0;
+            target.ejections = 0;
+        }
+    }
+
+    /**
+     * 连接失败，连续失败达到阈值时摘除
+     */
+    void failed(Target target, Throwable cause) {
+        long time;
+        synchronized (target) {
+            target.fails++;
+            //摘除到期后的第一次尝试就失败，立即重新摘除
+            if (target.fails < failThreshold && target.ejections == 0) {
+                return;
+            }
+            time = Math.min(ejectTime << Math.min(target.ejections, 30), maxEjectTime);
+            target.ejections++;
+            target.fails = 0;
+            target.ejectedUntil = System.currentTimeMillis() + time;
+        }
+        ejectCounter.inc();
+        log.warn("目标端 {} 连接失败，摘除 {}ms", target, time, cause);
+    }
+}
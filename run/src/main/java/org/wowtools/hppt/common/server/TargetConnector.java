@@ -0,0 +1,173 @@
+package org.wowtools.hppt.common.server;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 连接目标端。先异步解析域名，再按happy eyeballs(RFC 8305)的方式连接：
+ * 地址按ipv4/ipv6交替排列，上一个地址在attemptDelay内未连上就并行尝试下一个，某个地址失败时立即尝试下一个，
+ * 最先连上的胜出，其余的关闭。这样一个域名下有不通的地址时，不用等它超时
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+class TargetConnector {
+
+    private final TargetResolver resolver;
+    private final long attemptDelay;
+
+    TargetConnector(TargetResolver resolver, long attemptDelay) {
+        this.resolver = resolver;
+        this.attemptDelay = attemptDelay;
+    }
+
+    /**
+     * 连接目标端
+     *
+     * @param bootstrap     用于连接的Bootstrap
+     * @param host          域名或ip
+     * @param port          端口
+     * @param timeoutMillis 解析加连接的总超时毫秒数
+     * @return 连上的channel，失败或超时时异常完成
+     */
+    CompletableFuture<Channel> connect(Bootstrap bootstrap, String host, int port, long timeoutMillis) {
+        //竞速的定时和各次尝试都跑在分片的EventLoop上，目标端channel的读取只暂停autoRead、不在EventLoop中等待发送，
+        //所以这里的attemptDelay和超时不会被同一分片上的慢客户端拖住
+        EventLoop eventLoop = bootstrap.config().group().next();
+        Race race = new Race(bootstrap, eventLoop, port);
+        ScheduledFuture<?> timeout = eventLoop.schedule(
+                () -> race.fail(new TimeoutException("连接 " + host + ":" + port + " 超时")), timeoutMillis, TimeUnit.MILLISECONDS);
+        race.result.whenComplete((c, e) -> timeout.cancel(false));
+        resolver.resolve(host).whenComplete((addresses, e) -> {
+            if (null != e) {
+                race.fail(e);
+            } else if (null == addresses || addresses.isEmpty()) {
+                race.fail(new RuntimeException("未解析到地址 " + host));
+            } else {
+                eventLoop.execute(() -> race.start(interleave(addresses)));
+            }
+        });
+        return race.result;
+    }
+
+    //按地址族交替排列，第一个地址的地址族优先
+    private static List<InetAddress> interleave(List<InetAddress> addresses) {
+        if (addresses.size() <= 1) {
+            return addresses;
+        }
+        boolean firstV6 = addresses.get(0) instanceof Inet6Address;
+        List<InetAddress> first = new ArrayList<>();
+        List<InetAddress> second = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            if ((address instanceof Inet6Address) == firstV6) {
+                first.add(address);
+            } else {
+                second.add(address);
+            }
+        }
+        List<InetAddress> res = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size()) {
+                res.add(first.get(i));
+            }
+            if (i < second.size()) {
+                res.add(second.get(i));
+            }
+        }
+        return res;
+    }
+
+    //一次竞争连接，除fail外的方法都在eventLoop中执行
+    private final class Race {
+        final CompletableFuture<Channel> result = new CompletableFuture<>();
+        final Bootstrap bootstrap;
+        final EventLoop eventLoop;
+        final int port;
+        final List<ChannelFuture> attempts = new ArrayList<>();
+        List<InetAddress> addresses;
+        int next;
+        int failed;
+        Throwable lastCause;
+        ScheduledFuture<?> delayTask;
+
+        Race(Bootstrap bootstrap, EventLoop eventLoop, int port) {
+            this.bootstrap = bootstrap;
+            this.eventLoop = eventLoop;
+            this.port = port;
+        }
+
+        void start(List<InetAddress> addresses) {
+            this.addresses = addresses;
+            attemptNext();
+        }
+
+        void attemptNext() {
+            if (result.isDone() || next >= addresses.size()) {
+                return;
+            }
+            if (null != delayTask) {
+                delayTask.cancel(false);
+                delayTask = null;
+            }
+            InetAddress address = addresses.get(next++);
+            ChannelFuture cf = bootstrap.connect(new InetSocketAddress(address, port));
+            attempts.add(cf);
+            cf.addListener(f -> eventLoop.execute(() -> onAttemptDone(address, cf)));
+            if (next < addresses.size()) {
+                delayTask = eventLoop.schedule(this::attemptNext, attemptDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void onAttemptDone(InetAddress address, ChannelFuture cf) {
+            if (cf.isSuccess()) {
+                if (result.complete(cf.channel())) {
+                    closeOthers(cf);
+                } else {
+                    cf.channel().close();
+                }
+                return;
+            }
+            failed++;
+            lastCause = cf.cause();
+            log.debug("连接 {}:{} 失败", address.getHostAddress(), port, lastCause);
+            if (failed >= addresses.size()) {
+                result.completeExceptionally(lastCause);
+            } else {
+                //失败的地址不再等待，立即尝试下一个
+                attemptNext();
+            }
+        }
+
+        void fail(Throwable cause) {
+            if (result.completeExceptionally(cause)) {
+                eventLoop.execute(() -> closeOthers(null));
+            }
+        }
+
+        void closeOthers(ChannelFuture winner) {
+            if (null != delayTask) {
+                delayTask.cancel(false);
+            }
+            for (ChannelFuture attempt : attempts) {
+                if (attempt != winner) {
+                    attempt.cancel(false);
+                    attempt.channel().close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.wowtools.hppt.common.server;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 目标端域名解析器，ss新建会话连接目标端前用它把域名解析为地址。
+ * 解析必须是异步的，不能阻塞调用线程；实现类需有无参构造方法，以便在ss配置的dns.resolver中指定
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public interface TargetResolver extends AutoCloseable {
+
+    /**
+     * 解析域名
+     *
+     * @param host 域名或ip
+     * @return 解析出的所有地址，按优先连接的顺序排列，解析失败时异常完成
+     */
+    CompletableFuture<List<InetAddress>> resolve(String host);
+
+    @Override
+    default void close() {
+
+    }
+}
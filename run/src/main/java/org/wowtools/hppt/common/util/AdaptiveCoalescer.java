@@ -0,0 +1,103 @@
+package org.wowtools.hppt.common.util;
+
+/**
+ * 自适应的发送合并策略，思路类似Nagle算法：
+ * 链路空闲时取到数据立即发出，交互式的小包不必等待；
+ * 链路繁忙(上一批刚发出不久或发出时还有数据积压)时，攒够大小预算或等到截止时间再发出，批量传输仍能合并成大包。
+ * 大小预算取吞吐量乘往返时间，截止时间取往返时间的一半，两者都随实测的往返时间和吞吐量持续调整。
+ * 非线程安全，每个发送循环各用一个实例
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class AdaptiveCoalescer {
+
+    //平滑系数，与tcp计算srtt的取值一致
+    private static final double ALPHA = 0.125;
+
+    private final long maxDelayNanos;
+    private final long minBatch;
+    private final long maxBatch;
+
+    //平滑往返时间(ns)，小于0表示还没有样本
+    private double srtt = -1;
+    //平滑吞吐量(byte/ns)
+    private double rate;
+    //上一批数据发出的时刻
+    private long lastFlush;
+    //上一批数据发出时队列中是否还有数据
+    private boolean backlog;
+
+    /**
+     * @param config   配置
+     * @param maxBatch 一批最多合并的字节数，一般取单个包体的大小上限
+     */
+    public AdaptiveCoalescer(CommonConfig.CoalesceConfig config, long maxBatch) {
+        maxDelayNanos = config.maxDelay * 1_000_000L;
+        this.maxBatch = Math.max(maxBatch, 1);
+        minBatch = Math.min(Math.max(config.minBatch, 1), this.maxBatch);
+    }
+
+    /**
+     * 按配置构造，未启用时返回null
+     *
+     * @param config   配置
+     * @param maxBatch 一批最多合并的字节数
+     * @return AdaptiveCoalescer或null
+     */
+    public static AdaptiveCoalescer build(CommonConfig.CoalesceConfig config, long maxBatch) {
+        if (null == config || !config.enabled) {
+            return null;
+        }
+        return new AdaptiveCoalescer(config, maxBatch);
+    }
+
+    /**
+     * 取到一批数据中的第一块后调用，得到最晚等到何时发出
+     *
+     * @param now 当前System.nanoTime()
+     * @return 截止时刻，链路空闲时返回now，即立即发出
+     */
+    public long deadline(long now) {
+        if (srtt < 0 || !(backlog || now - lastFlush < 2 * srtt)) {
+            return now;
+        }
+        return now + (long) Math.min(maxDelayNanos, srtt / 2);
+    }
+
+    /**
+     * @return 攒够多少字节就立即发出
+     */
+    public long sizeBudget() {
+        long budget = (long) (rate * Math.max(srtt, 0));
+        return Math.min(Math.max(budget, minBatch), maxBatch);
+    }
+
+    /**
+     * 记录一个往返时间样本
+     *
+     * @param rttNanos 往返时间(ns)
+     */
+    public void rtt(long rttNanos) {
+        if (rttNanos < 0) {
+            return;
+        }
+        srtt = srtt < 0 ? rttNanos : srtt + ALPHA * (rttNanos - srtt);
+    }
+
+    /**
+     * 一批数据发出后调用
+     *
+     * @param bytes   本批字节数
+     * @param backlog 发出时队列中是否还有数据等待
+     */
+    public void flushed(long bytes, boolean backlog) {
+        long now = System.nanoTime();
+        if (lastFlush != 0) {
+            double sample = (double) bytes / Math.max(now - lastFlush, 1);
+            rate += ALPHA * (sample - rate);
+        }
+        lastFlush = now;
+        this.backlog = backlog;
+    }
+}
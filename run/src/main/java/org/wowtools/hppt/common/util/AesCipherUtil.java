@@ -1,12 +1,15 @@
 package org.wowtools.hppt.common.util;
 
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.metrics.Histogram;
+import org.wowtools.hppt.common.metrics.Metrics;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * aes加解密工具
@@ -17,6 +20,11 @@ import java.security.SecureRandom;
 @Slf4j
 public class AesCipherUtil {
 
+    private static final String CIPHER_METRIC = "hppt_cipher_seconds";
+    private static final String CIPHER_METRIC_HELP = "单次加密/解密的耗时";
+    private static final Histogram encryptNanos = Metrics.histogram(CIPHER_METRIC, CIPHER_METRIC_HELP, Histogram.Unit.NANOS, "op", "encrypt");
+    private static final Histogram decryptNanos = Metrics.histogram(CIPHER_METRIC, CIPHER_METRIC_HELP, Histogram.Unit.NANOS, "op", "decrypt");
+
     public final Encryptor encryptor;
 
     public final Descriptor descriptor;
@@ -36,56 +44,88 @@ public class AesCipherUtil {
     }
 
     /**
-     * 加密器
+     * 加密器，可被多个线程同时使用
      */
     public static final class Encryptor {
-        private final Cipher cipher;
+        private final CipherPool ciphers;
 
         private Encryptor(SecretKey key) {
-            try {
-                cipher = Cipher.getInstance("AES");
-                cipher.init(Cipher.ENCRYPT_MODE, key);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+            ciphers = new CipherPool(key, Cipher.ENCRYPT_MODE);
         }
 
         public byte[] encrypt(byte[] bytes) {
+            long t = System.nanoTime();
+            Cipher cipher = ciphers.borrow();
             try {
                 return cipher.doFinal(bytes);
             } catch (Exception e) {
                 throw new RuntimeException(e);
+            } finally {
+                ciphers.giveBack(cipher);
+                encryptNanos.recordSince(t);
             }
         }
 
     }
 
     /**
-     * 解密器
+     * 解密器，可被多个线程同时使用
      */
     public static final class Descriptor {
-        private final Cipher cipher;
+        private final CipherPool ciphers;
 
         private Descriptor(SecretKey key) {
-            try {
-                cipher = Cipher.getInstance("AES");
-                cipher.init(Cipher.DECRYPT_MODE, key);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+            ciphers = new CipherPool(key, Cipher.DECRYPT_MODE);
         }
 
         public byte[] decrypt(byte[] bytes) {
+            long t = System.nanoTime();
+            Cipher cipher = ciphers.borrow();
             try {
                 return cipher.doFinal(bytes);
             } catch (Exception e) {
                 throw new RuntimeException(e);
+            } finally {
+                ciphers.giveBack(cipher);
+                decryptNanos.recordSince(t);
             }
         }
 
     }
 
 
+    //Cipher不是线程安全的，流水线中同一客户端的消息会在多个线程中同时加解密，故按需创建、用完归还复用
+    private static final class CipherPool {
+        private final SecretKey key;
+        private final int mode;
+        private final ConcurrentLinkedQueue<Cipher> idle = new ConcurrentLinkedQueue<>();
+
+        private CipherPool(SecretKey key, int mode) {
+            this.key = key;
+            this.mode = mode;
+            idle.offer(newCipher());
+        }
+
+        private Cipher borrow() {
+            Cipher cipher = idle.poll();
+            return null == cipher ? newCipher() : cipher;
+        }
+
+        private void giveBack(Cipher cipher) {
+            idle.offer(cipher);
+        }
+
+        private Cipher newCipher() {
+            try {
+                Cipher cipher = Cipher.getInstance("AES");
+                cipher.init(mode, key);
+                return cipher;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     private static SecretKey generateKey(String input) {
         try {
             KeyGenerator kgen = KeyGenerator.getInstance("AES");// 创建AES的Key生产者
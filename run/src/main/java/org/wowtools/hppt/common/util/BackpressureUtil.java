@@ -0,0 +1,87 @@
+package org.wowtools.hppt.common.util;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在两个netty channel之间直接转发数据时传递背压：
+ * 目标channel不可写时暂停源channel的读取，目标恢复可写(或关闭)后恢复源channel的读取
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class BackpressureUtil {
+
+    //因目标不可写而被暂停读取的源channel
+    private static final AttributeKey<Set<Channel>> pausedSourcesKey = AttributeKey.valueOf("hppt.pausedSources");
+
+    /**
+     * 把msg写入target，若写入后target不可写，则暂停source的读取
+     *
+     * @param source 数据来源的channel，为空则不做背压
+     * @param target 写入的channel
+     * @param msg    写入的对象，所有权转移给target
+     * @return 写入结果
+     */
+    public static ChannelFuture writeAndFlush(Channel source, Channel target, Object msg) {
+        ChannelFuture future = target.writeAndFlush(msg);
+        if (null != source && !target.isWritable()) {
+            pause(source, target);
+        }
+        return future;
+    }
+
+    private static void pause(Channel source, Channel target) {
+        Set<Channel> pausedSources = target.attr(pausedSourcesKey).get();
+        if (null == pausedSources) {
+            Set<Channel> newSet = ConcurrentHashMap.newKeySet();
+            pausedSources = target.attr(pausedSourcesKey).setIfAbsent(newSet);
+            if (null == pausedSources) {
+                pausedSources = newSet;
+                target.pipeline().addFirst(new WritabilityHandler(pausedSources));
+            }
+        }
+        source.config().setAutoRead(false);
+        pausedSources.add(source);
+        //暂停的过程中target可能已经恢复可写，补一次恢复以免错过事件
+        if (target.isWritable() || !target.isActive()) {
+            resume(pausedSources);
+        }
+    }
+
+    private static void resume(Set<Channel> pausedSources) {
+        for (Channel source : pausedSources) {
+            if (pausedSources.remove(source)) {
+                source.config().setAutoRead(true);
+            }
+        }
+    }
+
+    private static final class WritabilityHandler extends ChannelInboundHandlerAdapter {
+        private final Set<Channel> pausedSources;
+
+        private WritabilityHandler(Set<Channel> pausedSources) {
+            this.pausedSources = pausedSources;
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            if (ctx.channel().isWritable()) {
+                resume(pausedSources);
+            }
+            super.channelWritabilityChanged(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            resume(pausedSources);
+            super.channelInactive(ctx);
+        }
+    }
+}
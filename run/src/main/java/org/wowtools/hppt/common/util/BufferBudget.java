@@ -0,0 +1,219 @@
+package org.wowtools.hppt.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.Cleaner;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程级的缓冲内存预算，各缓冲池按所属客户端的账户向这里申请内存，
+ * 申请不到(客户端份额或进程总量用尽)时由缓冲池把数据溢出到磁盘
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public class BufferBudget {
+
+    private static final Cleaner cleaner = Cleaner.create();
+
+    //进程内已占用的字节数
+    private static final AtomicLong used = new AtomicLong();
+
+    private static volatile CommonConfig.BufferBudgetConfig config = new CommonConfig.BufferBudgetConfig();
+    private static boolean inited;
+
+    /**
+     * 以配置初始化预算，进程启动读取配置后调用，同一进程中有多个配置时(如中继模式)以先调用的为准
+     *
+     * @param budgetConfig 配置
+     */
+    public static synchronized void init(CommonConfig.BufferBudgetConfig budgetConfig) {
+        if (null == budgetConfig || inited) {
+            return;
+        }
+        inited = true;
+        config = budgetConfig;
+        log.info("缓冲内存预算 maxBytes {} maxBytesPerClient {} spillDir {}",
+                budgetConfig.maxBytes, budgetConfig.maxBytesPerClient, budgetConfig.spillDir);
+    }
+
+    static CommonConfig.BufferBudgetConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return 进程内缓冲池已占用的字节数
+     */
+    public static long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * 新建一个账户，通常一个客户端对应一个账户，同一客户端的多个缓冲池共用
+     *
+     * @param name 账户名，用于日志
+     * @return 账户
+     */
+    public static Account newAccount(String name) {
+        return new Account(name);
+    }
+
+    /**
+     * 预算账户，账户不再被引用后其占用的字节自动归还给进程。
+     * 账户同时统计各缓冲池溢出到磁盘的字节数，达到maxSpillBytesPerClient后数据的生产方应暂停，见onSpillDrained
+     */
+    public static final class Account implements AutoCloseable {
+        private final String name;
+        private final Usage usage = new Usage();
+        private final Cleaner.Cleanable cleanable;
+        private final AtomicLong spilled = new AtomicLong();
+        //溢出的数据发出一半后执行的回调
+        private final Queue<Runnable> spillWaiters = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        private Account(String name) {
+            this.name = name;
+            cleanable = cleaner.register(this, usage);
+        }
+
+        /**
+         * 申请n个字节
+         *
+         * @param n 字节数
+         * @return 是否申请成功，0字节总是成功
+         */
+        public boolean tryReserve(long n) {
+            if (n <= 0) {
+                return true;
+            }
+            CommonConfig.BufferBudgetConfig c = config;
+            long a = usage.used.addAndGet(n);
+            if (c.maxBytesPerClient > 0 && a > c.maxBytesPerClient) {
+                usage.used.addAndGet(-n);
+                return false;
+            }
+            if (usage.closed) {
+                return true;
+            }
+            long g = used.addAndGet(n);
+            if (c.maxBytes > 0 && g > c.maxBytes) {
+                used.addAndGet(-n);
+                usage.used.addAndGet(-n);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * 归还n个字节
+         *
+         * @param n 字节数
+         */
+        public void release(long n) {
+            usage.release(n);
+        }
+
+        /**
+         * @return 账户已占用的字节数
+         */
+        public long getUsed() {
+            return usage.used.get();
+        }
+
+        /**
+         * @return 账户溢出到磁盘尚未读回的字节数
+         */
+        public long getSpilled() {
+            return spilled.get();
+        }
+
+        /**
+         * @return 溢出到磁盘的字节数是否已达上限，达到后数据的生产方应暂停并调用onSpillDrained等待恢复
+         */
+        public boolean isSpillFull() {
+            long max = config.maxSpillBytesPerClient;
+            return !closed && max > 0 && spilled.get() >= max;
+        }
+
+        /**
+         * 登记一个回调，溢出的字节数降到上限的一半以下(或账户关闭)时执行，若登记时已满足条件则立即执行。
+         * 回调在读回溢出数据的线程中执行，应当足够轻量，如恢复channel的autoRead
+         *
+         * @param resume 回调
+         */
+        public void onSpillDrained(Runnable resume) {
+            spillWaiters.add(resume);
+            //登记后再检查一次，避免登记前已降下来而没有回调
+            if (isSpillDrained()) {
+                runSpillWaiters();
+            }
+        }
+
+        void spilled(long n) {
+            spilled.addAndGet(n);
+        }
+
+        void unspilled(long n) {
+            spilled.addAndGet(-n);
+            if (!spillWaiters.isEmpty() && isSpillDrained()) {
+                runSpillWaiters();
+            }
+        }
+
+        private boolean isSpillDrained() {
+            long max = config.maxSpillBytesPerClient;
+            return closed || max <= 0 || spilled.get() <= max / 2;
+        }
+
+        private void runSpillWaiters() {
+            Runnable r;
+            while ((r = spillWaiters.poll()) != null) {
+                try {
+                    r.run();
+                } catch (Exception e) {
+                    log.warn("{} 恢复回调异常", name, e);
+                }
+            }
+        }
+
+        /**
+         * 关闭账户，把账户占用的字节归还给进程，之后账户只做自身的计数，等待溢出数据发出的回调全部执行
+         */
+        @Override
+        public void close() {
+            closed = true;
+            cleanable.clean();
+            runSpillWaiters();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    //账户的计数，单独成类以便Cleaner在账户不可达后归还
+    private static final class Usage implements Runnable {
+        private final AtomicLong used = new AtomicLong();
+        private volatile boolean closed;
+
+        private void release(long n) {
+            if (n <= 0) {
+                return;
+            }
+            used.addAndGet(-n);
+            if (!closed) {
+                BufferBudget.used.addAndGet(-n);
+            }
+        }
+
+        @Override
+        public void run() {
+            closed = true;
+            BufferBudget.used.addAndGet(-used.get());
+        }
+    }
+}
@@ -1,29 +1,117 @@
 package org.wowtools.hppt.common.util;
 
-import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.jfr.BufferPoolWaterlineEvent;
+import org.wowtools.hppt.common.metrics.Metrics;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
- * 缓冲池，内置一个LinkedBlockingQueue,用以解耦生产者和消费者、缓冲数据并做监控
+ * 缓冲池，内置一个多生产者单消费者的无锁队列MpscQueue,用以解耦生产者和消费者、缓冲数据并做监控
+ * 指定了预算账户的缓冲池，元素入池时向账户申请内存，申请不到则把元素溢出到SpillFile，队列中只留一个占位标记，
+ * 取出时遇到标记再从溢出文件中按顺序读回，以此限制慢客户端积压数据占用的堆内存
+ * 元素个数越过高水位线时发出jfr事件BufferPoolWaterlineEvent，用于排查各个生产者、消费者的积压情况
  *
  * @author liuyu
  * @date 2024/10/27
  */
-@Slf4j
+@SuppressWarnings("unchecked")
 public class BufferPool<T> {
-    private final LinkedBlockingQueue<T> queue = new LinkedBlockingQueue<>();
+    //元素溢出到文件后，在队列中占位的标记
+    private static final Object SPILLED = new Object();
+
+    private final MpscQueue<Object> queue = new MpscQueue<>();
+
+    //队列中(不含溢出到文件的)元素的字节数，有编解码器时才统计
+    private final LongAdder bytes = new LongAdder();
 
     private final String name;
 
+    private final BufferBudget.Account account;
+
+    private final SpillCodec<T> spillCodec;
+
+    private volatile SpillFile spillFile;
+
+    private volatile boolean closed;
+
+    /**
+     * 元素溢出到文件时的编解码器
+     *
+     * @param <T> 元素类型
+     */
+    public interface SpillCodec<T> {
+        /**
+         * 元素的字节数，既是向预算申请的内存大小，也是编码后的长度，元素出池前此值不能变化
+         *
+         * @param t 元素
+         * @return 字节数
+         */
+        int length(T t);
+
+        /**
+         * 把元素编码写入dst，dst的剩余空间恰好为length(t)，写入后元素不再使用，需要释放的资源在此释放
+         *
+         * @param t   元素
+         * @param dst dst
+         */
+        void encode(T t, ByteBuffer dst);
+
+        /**
+         * 从src解码出元素，方法返回后src不再可用
+         *
+         * @param src src
+         * @return 元素
+         */
+        T decode(ByteBuffer src);
+    }
+
+    /**
+     * byte[]的编解码器
+     */
+    public static final SpillCodec<byte[]> BYTES_CODEC = new SpillCodec<>() {
+        @Override
+        public int length(byte[] bytes) {
+            return bytes.length;
+        }
+
+        @Override
+        public void encode(byte[] bytes, ByteBuffer dst) {
+            dst.put(bytes);
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer src) {
+            byte[] bytes = new byte[src.remaining()];
+            src.get(bytes);
+            return bytes;
+        }
+    };
+
     /**
      * @param name 缓冲池名字，为便于排查，请保证名称在业务层面的准确清晰
      */
     public BufferPool(String name) {
+        this(name, null, null);
+    }
+
+    /**
+     * @param name       缓冲池名字，为便于排查，请保证名称在业务层面的准确清晰
+     * @param account    预算账户，为空则不限制内存
+     * @param spillCodec 内存预算不足时元素溢出到文件的编解码器，account不为空时必填，也用于统计缓冲池中的字节数
+     */
+    public BufferPool(String name, BufferBudget.Account account, SpillCodec<T> spillCodec) {
         this.name = name;
+        this.account = account;
+        this.spillCodec = spillCodec;
+        //未开启指标时不登记，否则登记的弱引用没有采集来清理，会一直增长
+        if (Metrics.isEnabled()) {
+            Metrics.registerBufferPool(this);
+        }
     }
 
     /**
@@ -32,14 +120,27 @@ public class BufferPool<T> {
      * @param t t
      */
     public void add(T t) {
-        if (!DebugConfig.OpenBufferPoolDetector) {
-            queue.add(t);
+        if (null != spillCodec) {
+            int length = spillCodec.length(t);
+            //关闭后加入的元素不再占用预算，也不溢出
+            if (null != account && !closed && !account.tryReserve(length) && spill(t)) {
+                return;
+            }
+            bytes.add(length);
+        }
+        BufferPoolWaterlineEvent event = new BufferPoolWaterlineEvent();
+        if (!event.isEnabled()) {
+            queue.offer(t);
         } else {
+            int waterline = BufferPoolWaterlineEvent.waterline();
             int n = queue.size();
-            queue.add(t);
+            queue.offer(t);
             int n1 = queue.size();
-            if (n < DebugConfig.BufferPoolWaterline && n1 >= DebugConfig.BufferPoolWaterline) {
-                log.debug("{} 缓冲池高水位线: {} -> {}", name, n, n1);
+            if (n < waterline && n1 >= waterline) {
+                event.pool = name;
+                event.size = n1;
+                event.waterline = waterline;
+                event.commit();
             }
         }
 
@@ -52,7 +153,7 @@ public class BufferPool<T> {
      */
     public T take() {
         try {
-            return queue.take();
+            return unwrap(queue.take());
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -64,24 +165,41 @@ public class BufferPool<T> {
      * @return t or null
      */
     public T poll() {
-        return queue.poll();
+        return unwrap(queue.poll());
     }
 
     /**
-     * 获取,队列为空则阻塞等待一段时间,超时则返回null
+     * 获取,队列为空则阻塞等待一段时间,超时或被wakeUp则返回null
      *
      * @param timeout timeout
      * @param unit    TimeUnit
      * @return t or null
      */
     public T poll(long timeout, TimeUnit unit) {
-        T t;
         try {
-            t = queue.poll(timeout, unit);
+            return pollInterruptibly(timeout, unit);
         } catch (InterruptedException e) {
             return null;
         }
-        return t;
+    }
+
+    /**
+     * 同poll(timeout, unit)，但等待时被中断会抛出异常，供需要响应中断退出的消费者使用
+     *
+     * @param timeout timeout
+     * @param unit    TimeUnit
+     * @return t or null
+     * @throws InterruptedException 等待时被中断
+     */
+    public T pollInterruptibly(long timeout, TimeUnit unit) throws InterruptedException {
+        return unwrap(queue.poll(timeout, unit));
+    }
+
+    /**
+     * 唤醒阻塞在poll(timeout, unit)上的消费者，使其立即返回null
+     */
+    public void wakeUp() {
+        queue.wakeUp();
     }
 
     /**
@@ -93,7 +211,7 @@ public class BufferPool<T> {
         List<T> list = new LinkedList<>();
         T t0 = take();
         list.add(t0);
-        queue.drainTo(list);
+        drainToList(list);
         return list;
     }
 
@@ -107,7 +225,7 @@ public class BufferPool<T> {
             return null;
         }
         List<T> list = new LinkedList<>();
-        queue.drainTo(list);
+        drainToList(list);
         return list;
     }
 
@@ -117,10 +235,108 @@ public class BufferPool<T> {
      * @param list list
      */
     public void drainToList(List<T> list) {
-        queue.drainTo(list);
+        queue.drain((o) -> list.add(unwrap(o)));
+    }
+
+    /**
+     * 把队列中当前可用的元素批量取出到batch中，batch可由消费者反复使用，避免每次新建list
+     *
+     * @param batch batch
+     * @return 取出的元素数，队列为空则返回0
+     */
+    public int drainTo(T[] batch) {
+        int[] n = {0};
+        queue.drain((o) -> batch[n[0]++] = unwrap(o), batch.length);
+        return n[0];
+    }
+
+    /**
+     * 清空队列，取出的元素逐个交给releaser处理，如释放元素持有的ByteBuf等
+     *
+     * @param releaser releaser
+     */
+    public void clear(Consumer<T> releaser) {
+        T t;
+        while ((t = poll()) != null) {
+            releaser.accept(t);
+        }
     }
 
     public boolean isEmpty() {
         return queue.isEmpty();
     }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 元素个数(含溢出到文件的)，并发时为近似值
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return 内存中的元素的字节数，未指定编解码器时为0，并发时为近似值
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * @return 溢出到文件中尚未读回的字节数
+     */
+    public long getSpilledBytes() {
+        SpillFile f = spillFile;
+        return null == f ? 0 : f.bytes();
+    }
+
+    /**
+     * 关闭缓冲池，删除溢出文件，之后加入的元素不再溢出。关闭前请先用clear取出剩余元素
+     */
+    public synchronized void close() {
+        closed = true;
+        SpillFile f = spillFile;
+        if (null != f) {
+            account.unspilled(f.bytes());
+            f.close();
+        }
+    }
+
+    //预算不足，元素写入溢出文件，队列中放入标记占位以保持顺序。缓冲池已关闭时返回false，元素留在内存中
+    private synchronized boolean spill(T t) {
+        if (closed) {
+            return false;
+        }
+        if (null == spillFile) {
+            spillFile = new SpillFile(name + "-" + account);
+        }
+        int length = spillCodec.length(t);
+        spillFile.write(length, (dst) -> spillCodec.encode(t, dst));
+        account.spilled(length);
+        queue.offer(SPILLED);
+        return true;
+    }
+
+    //把队列中取出的对象还原为元素，并归还其占用的预算
+    private T unwrap(Object o) {
+        if (null == o) {
+            return null;
+        }
+        if (o == SPILLED) {
+            T t = spillFile.read(spillCodec::decode);
+            account.unspilled(spillCodec.length(t));
+            return t;
+        }
+        T t = (T) o;
+        if (null != spillCodec) {
+            int length = spillCodec.length(t);
+            bytes.add(-length);
+            if (null != account && !closed) {
+                account.release(length);
+            }
+        }
+        return t;
+    }
 }
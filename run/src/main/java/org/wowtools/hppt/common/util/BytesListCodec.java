@@ -0,0 +1,206 @@
+package org.wowtools.hppt.common.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * 以流的方式编解码BytesListPb，不必先把整个包体拼成byte[]：
+ * 编码直接写入池化的ByteBuf；解码按http分块到达的顺序逐块喂入，每解析出一条bytesList就立即交出。
+ * 只处理bytesList字段，其它字段(如调试用的serialNumber)跳过
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public final class BytesListCodec {
+
+    /**
+     * http包体及其中单条数据的字节数上限，post、rpost的收发两端共用
+     */
+    public static final int MAX_BODY_LENGTH = 104857600; // 100 MB
+
+    //bytesList = 1 的tag，wire type 2 (length-delimited)
+    private static final int BYTES_LIST_TAG = (1 << 3) | 2;
+
+    private BytesListCodec() {
+    }
+
+    /**
+     * 把bytes集合编码为BytesListPb
+     *
+     * @param alloc           分配器
+     * @param bytesCollection bytes集合
+     * @return 编码结果，所有权归调用方
+     */
+    public static ByteBuf encode(ByteBufAllocator alloc, Collection<byte[]> bytesCollection) {
+        if (bytesCollection.isEmpty()) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        int size = 0;
+        for (byte[] bytes : bytesCollection) {
+            size += 1 + varintSize(bytes.length) + bytes.length;
+        }
+        ByteBuf buf = alloc.buffer(size);
+        for (byte[] bytes : bytesCollection) {
+            buf.writeByte(BYTES_LIST_TAG);
+            writeVarint(buf, bytes.length);
+            buf.writeBytes(bytes);
+        }
+        return buf;
+    }
+
+    private static int varintSize(int v) {
+        int n = 1;
+        while ((v & ~0x7F) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    private static void writeVarint(ByteBuf buf, int v) {
+        while ((v & ~0x7F) != 0) {
+            buf.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf.writeByte(v);
+    }
+
+    /**
+     * BytesListPb的增量解码器，非线程安全，一个请求体用一个实例
+     */
+    public static final class Decoder {
+        private enum State {
+            tag, length, payload, skipVarint, skipBytes
+        }
+
+        private final Consumer<byte[]> consumer;
+        private final int maxLength;
+        private State state = State.tag;
+        //正在读取的varint
+        private long varint;
+        private int shift;
+        //正在读取的字段
+        private int wireType;
+        private boolean bytesList;
+        private byte[] payload;
+        private int filled;
+        private long skip;
+
+        /**
+         * @param consumer  每解析出一条bytesList时调用，在decode的调用线程中执行
+         * @param maxLength 单条bytesList的字节数上限，超过视为数据错误
+         */
+        public Decoder(Consumer<byte[]> consumer, int maxLength) {
+            this.consumer = consumer;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * 喂入一块数据，读完buf中的可读字节，不释放buf
+         *
+         * @param buf 数据块
+         */
+        public void decode(ByteBuf buf) {
+            while (buf.isReadable()) {
+                switch (state) {
+                    case tag -> {
+                        if (readVarint(buf)) {
+                            long tag = varint;
+                            wireType = (int) (tag & 7);
+                            bytesList = tag == BYTES_LIST_TAG;
+                            switch (wireType) {
+                                case 0 -> state = State.skipVarint;
+                                case 1 -> startSkip(8);
+                                case 2 -> state = State.length;
+                                case 5 -> startSkip(4);
+                                default -> throw new IllegalStateException("不支持的wire type " + wireType);
+                            }
+                        }
+                    }
+                    case length -> {
+                        if (readVarint(buf)) {
+                            if (!bytesList) {
+                                startSkip(varint);
+                            } else if (varint > maxLength) {
+                                throw new IllegalStateException("bytesList过长 " + varint);
+                            } else {
+                                payload = new byte[(int) varint];
+                                filled = 0;
+                                state = State.payload;
+                                if (payload.length == 0) {
+                                    completePayload();
+                                }
+                            }
+                        }
+                    }
+                    case payload -> {
+                        int n = Math.min(buf.readableBytes(), payload.length - filled);
+                        buf.readBytes(payload, filled, n);
+                        filled += n;
+                        if (filled == payload.length) {
+                            completePayload();
+                        }
+                    }
+                    case skipVarint -> {
+                        if (readVarint(buf)) {
+                            state = State.tag;
+                        }
+                    }
+                    case skipBytes -> {
+                        int n = (int) Math.min(buf.readableBytes(), skip);
+                        buf.skipBytes(n);
+                        skip -= n;
+                        if (skip == 0) {
+                            state = State.tag;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * 请求体结束时调用，检查最后一条是否完整
+         */
+        public void finish() {
+            if (state != State.tag || shift != 0) {
+                throw new IllegalStateException("BytesListPb不完整 " + state);
+            }
+        }
+
+        //读取varint，读完整时返回true，结果在varint中
+        private boolean readVarint(ByteBuf buf) {
+            while (buf.isReadable()) {
+                if (shift == 0) {
+                    varint = 0;
+                }
+                byte b = buf.readByte();
+                varint |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    shift = 0;
+                    return true;
+                }
+                shift += 7;
+                if (shift >= 64) {
+                    throw new IllegalStateException("varint格式错误");
+                }
+            }
+            return false;
+        }
+
+        private void startSkip(long n) {
+            skip = n;
+            state = n == 0 ? State.tag : State.skipBytes;
+        }
+
+        private void completePayload() {
+            byte[] bytes = payload;
+            payload = null;
+            state = State.tag;
+            consumer.accept(bytes);
+        }
+    }
+}
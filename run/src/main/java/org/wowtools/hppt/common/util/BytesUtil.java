@@ -1,11 +1,13 @@
 package org.wowtools.hppt.common.util;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.jfr.BlockedWriteEvent;
 import org.wowtools.hppt.common.pojo.BytesList;
 
 import java.io.ByteArrayInputStream;
@@ -13,6 +15,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPOutputStream;
 
@@ -67,6 +70,21 @@ public class BytesUtil {
         return bytes;
     }
 
+    /**
+     * 合并ByteBuf集合为一个CompositeByteBuf，不拷贝
+     *
+     * @param collection ByteBuf集合，所有权转移给返回值
+     * @return ByteBuf
+     */
+    public static ByteBuf merge(List<ByteBuf> collection) {
+        if (collection.size() == 1) {
+            return collection.getFirst();
+        }
+        CompositeByteBuf composite = Unpooled.compositeBuffer(collection.size());
+        composite.addComponents(true, collection);
+        return composite;
+    }
+
     /**
      * bytes转base64字符串
      *
@@ -131,8 +149,17 @@ public class BytesUtil {
         return byteBuf;
     }
 
-    private static Throwable afterWrite(ChannelFuture future, Object msg) {
+    private static Throwable afterWrite(ChannelFuture future) {
+        BlockedWriteEvent event = new BlockedWriteEvent();
+        event.begin();
         boolean completed = future.awaitUninterruptibly(10, TimeUnit.SECONDS); // 同步等待完成
+        event.end();
+        if (event.shouldCommit()) {
+            event.remoteAddress = String.valueOf(future.channel().remoteAddress());
+            event.completed = completed;
+            event.success = completed && future.isSuccess();
+            event.commit();
+        }
         if (completed) {
             if (future.isSuccess()) {
                 return null;
@@ -142,8 +169,8 @@ public class BytesUtil {
         if (null == cause) {
             cause = new RuntimeException("写入消息未成功");
         }
+        //消息交给writeAndFlush后由netty负责释放(写失败时netty已释放，超时时仍在netty的发送队列中)，这里不能再释放
         log.warn("写入消息未成功!!! timeout? {}", !completed, cause);
-        ReferenceCountUtil.safeRelease(msg);
         return cause;
     }
 
@@ -169,7 +196,29 @@ public class BytesUtil {
         }
         ByteBuf byteBuf = bytes2byteBuf(ctx, bytes);
         ChannelFuture future = ctx.writeAndFlush(byteBuf);
-        return afterWrite(future, byteBuf);
+        return afterWrite(future);
+    }
+
+    //把ByteBuf写入ChannelHandlerContext 如果有异常则返回异常 byteBuf的所有权转移给此方法
+    public static Throwable writeToChannelHandlerContext(ChannelHandlerContext ctx, ByteBuf byteBuf) {
+        waitChannelWritable(ctx.channel());
+        if (!ctx.channel().isOpen()) {
+            byteBuf.release();
+            return new RuntimeException("channel已关闭");
+        }
+        ChannelFuture future = ctx.writeAndFlush(byteBuf);
+        return afterWrite(future);
+    }
+
+    //把ByteBuf写入Channel 如果有异常则返回异常 byteBuf的所有权转移给此方法
+    public static Throwable writeToChannel(Channel channel, ByteBuf byteBuf) {
+        waitChannelWritable(channel);
+        if (!channel.isOpen()) {
+            byteBuf.release();
+            return new RuntimeException("channel已关闭");
+        }
+        ChannelFuture future = channel.writeAndFlush(byteBuf);
+        return afterWrite(future);
     }
 
     //把字节写入Channel 如果有异常则返回异常
@@ -180,7 +229,7 @@ public class BytesUtil {
         }
         ByteBuf byteBuf = bytes2byteBuf(channel, bytes);
         ChannelFuture future = channel.writeAndFlush(byteBuf);
-        return afterWrite(future, byteBuf);
+        return afterWrite(future);
     }
 
     //把对象写入Channel 如果有异常则返回异常
@@ -190,7 +239,7 @@ public class BytesUtil {
             return new RuntimeException("channel已关闭");
         }
         ChannelFuture future = channel.writeAndFlush(obj);
-        return afterWrite(future, obj);
+        return afterWrite(future);
     }
 
     public static byte[] byteBuf2bytes(ByteBuf byteBuf) {
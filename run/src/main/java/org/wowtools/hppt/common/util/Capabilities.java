@@ -0,0 +1,87 @@
+package org.wowtools.hppt.common.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * hello握手中协商的能力。sc在hello中列出自己支持的选项，ss回复自己的选择，ss不认识的能力会被忽略，便于后续扩展。
+ * 格式为 名称=值 ，多项之间以逗号分隔，同一能力的多个候选值以|分隔，如 codec=pb,enc=aes,resume=123:0
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class Capabilities {
+
+    /**
+     * hello握手的协议版本
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * 消息编码
+     */
+    public static final String CODEC = "codec";
+    public static final String CODEC_PB = "pb";
+
+    /**
+     * 内容加密
+     */
+    public static final String ENCRYPT = "enc";
+    public static final String ENCRYPT_AES = "aes";
+    public static final String NONE = "none";
+
+    /**
+     * 会话恢复，sc发送 epoch:已收到的最大序号 ；ss回复new表示新建链路，回复数字表示恢复成功及ss已收到的最大序号，不回复此项表示不启用
+     */
+    public static final String RESUME = "resume";
+    public static final String RESUME_NEW = "new";
+
+    /**
+     * 值的候选项分隔符
+     */
+    public static final String OPTION_SPLIT = "\\|";
+
+    public static Map<String, String> parse(String str) {
+        Map<String, String> caps = new LinkedHashMap<>();
+        if (null == str || str.isEmpty()) {
+            return caps;
+        }
+        for (String cap : str.split(",")) {
+            int idx = cap.indexOf('=');
+            if (idx > 0) {
+                caps.put(cap.substring(0, idx), cap.substring(idx + 1));
+            }
+        }
+        return caps;
+    }
+
+    public static String format(Map<String, String> caps) {
+        StringBuilder sb = new StringBuilder();
+        caps.forEach((name, value) -> {
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+            sb.append(name).append('=').append(value);
+        });
+        return sb.toString();
+    }
+
+    /**
+     * 判断候选值中是否包含某个值
+     *
+     * @param options 以|分隔的候选值
+     * @param value   值
+     * @return 是否包含
+     */
+    public static boolean offered(String options, String value) {
+        if (null == options) {
+            return false;
+        }
+        for (String option : options.split(OPTION_SPLIT)) {
+            if (option.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -14,4 +14,181 @@ public class CommonConfig {
      * 是否启用内容加密，默认启用
      */
     public boolean enableEncrypt = true;
+
+    public static final class BufferBudgetConfig {
+        /**
+         * 进程内所有缓冲池可占用的内存字节数上限，超过后新进入缓冲池的数据溢出到磁盘，小于等于0表示不限制
+         */
+        public long maxBytes = 256L * 1024 * 1024;
+
+        /**
+         * 单个客户端可占用的内存字节数上限，超过后该客户端新进入缓冲池的数据溢出到磁盘，小于等于0表示不限制
+         */
+        public long maxBytesPerClient = 32L * 1024 * 1024;
+
+        /**
+         * 单个客户端溢出到磁盘的字节数上限，达到后暂停读取该客户端的目标端，溢出的数据发出一半后恢复，小于等于0表示不限制
+         */
+        public long maxSpillBytesPerClient = 256L * 1024 * 1024;
+
+        /**
+         * 溢出文件所在目录，为空则使用系统临时目录
+         */
+        public String spillDir;
+
+        /**
+         * 溢出文件每次映射的字节数
+         */
+        public int spillSegmentSize = 8 * 1024 * 1024;
+    }
+
+    /**
+     * 缓冲池内存预算，避免一个慢客户端积压的数据撑爆整个进程的堆
+     */
+    public BufferBudgetConfig bufferBudget = new BufferBudgetConfig();
+
+    public static final class PipelineConfig {
+        /**
+         * 解密解析、序列化加密的工作线程数，所有客户端共用，小于等于0表示取cpu核数
+         */
+        public int workers = 0;
+
+        /**
+         * 单个客户端同时处理中的消息数上限，超过后暂停接收新的消息，小于等于1表示不并行，在原线程中逐条处理
+         */
+        public int maxInFlight = 16;
+    }
+
+    /**
+     * 消息处理流水线，让单个客户端的解密/加密可以用上多个cpu核，消息的先后顺序不变
+     */
+    public PipelineConfig pipeline = new PipelineConfig();
+
+    public static final class MetricsConfig {
+        /**
+         * 指标http端口，以prometheus文本格式在/metrics路径输出，小于等于0表示不启用
+         */
+        public int port = 0;
+
+        /**
+         * 指标http监听的地址，默认只允许本机访问，需要远程采集时改为0.0.0.0或具体网卡地址
+         */
+        public String host = "127.0.0.1";
+    }
+
+    /**
+     * 运行指标，供prometheus等监控系统采集
+     */
+    public MetricsConfig metrics = new MetricsConfig();
+
+    public static final class TraceConfig {
+        /**
+         * 采样率，ss每读到多少个目标端数据块随机采样一个，记录其经过各环节的时间，小于等于0表示不采样(默认)，排查延迟时可设为1000左右
+         */
+        public int sampleRate = 0;
+    }
+
+    /**
+     * 分环节的延迟追踪，采样结果在sc端以各环节耗时直方图的形式输出到指标中
+     */
+    public TraceConfig trace = new TraceConfig();
+
+    public static final class RestartConfig {
+        /**
+         * 服务异常退出后第一次重启前等待的毫秒数，连续重启时等待时间逐次翻倍
+         */
+        public long minDelay = 1000;
+
+        /**
+         * 重启前等待的毫秒数上限
+         */
+        public long maxDelay = 60_000;
+
+        /**
+         * 服务连续运行超过此毫秒数后视为已恢复，下次重启的等待时间从minDelay重新开始
+         */
+        public long resetAfter = 60_000;
+    }
+
+    /**
+     * 服务异常退出后的自动重启，等待时间指数增长并带随机抖动，避免大量客户端在故障恢复时同时重连
+     */
+    public RestartConfig restart = new RestartConfig();
+
+    public static final class ResumeConfig {
+        /**
+         * 是否启用。sc启用后登录时会带上恢复所需的信息，不支持会话恢复的ss会拒绝此登录，sc会不带恢复信息重试一次
+         */
+        public boolean enabled = true;
+
+        /**
+         * 传输层断开后保留会话等待重连的毫秒数，超时后关闭会话
+         */
+        public long timeout = 120_000;
+
+        /**
+         * 已发出但对端尚未确认的消息最多保留的字节数，超过后此链路断开时无法恢复
+         */
+        public long bufferSize = 16L * 1024 * 1024;
+    }
+
+    /**
+     * 会话恢复，传输层断开(如代理掐断长连接)重连后，sc与ss之间已建立的会话继续使用，未被对端确认的消息会重发
+     */
+    public ResumeConfig resume = new ResumeConfig();
+
+    public static final class CoalesceConfig {
+        /**
+         * 是否启用，不启用时sc按post.sendSleepTime、ss按post.replyDelayTime固定等待
+         */
+        public boolean enabled = true;
+
+        /**
+         * 链路繁忙时为合并数据最多等待的毫秒数
+         */
+        public long maxDelay = 20;
+
+        /**
+         * 链路繁忙时一批数据至少攒够多少字节才提前发出，实际取值随吞吐量和往返时间增大
+         */
+        public long minBatch = 16 * 1024;
+    }
+
+    /**
+     * post类型发送数据时的自适应合并，链路空闲时立即发出，繁忙时按实测的往返时间和吞吐量攒批发出
+     */
+    public CoalesceConfig coalesce = new CoalesceConfig();
+
+    public static final class RecordConfig {
+        /**
+         * 录制文件路径，为空表示不录制
+         */
+        public String file;
+
+        /**
+         * 录制文件的字节数上限，达到后停止录制，小于等于0表示不限制
+         */
+        public long maxBytes = 1024L * 1024 * 1024;
+
+        /**
+         * 等待写入文件的消息最多占用的内存字节数，超过后丢弃新的消息
+         */
+        public long queueBytes = 64L * 1024 * 1024;
+
+        /**
+         * 录制文件每次映射的字节数
+         */
+        public int segmentSize = 64 * 1024 * 1024;
+    }
+
+    /**
+     * 流量录制，把sc与ss之间解密后的每条消息连同时间和方向写入文件，可用benchmarks中的TrafficReplay回放
+     */
+    public RecordConfig record = new RecordConfig();
+
+    /**
+     * 是否监听配置文件，修改后无需重启即生效。目前支持sc的forwards和ss的clients，其它配置的修改仍需重启进程。
+     * 生效时会断开被删除的用户、停止监听被删除的端口，默认关闭，需要时显式开启
+     */
+    public boolean watchConfig = false;
 }
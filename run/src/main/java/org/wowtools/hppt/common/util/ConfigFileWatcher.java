@@ -0,0 +1,91 @@
+package org.wowtools.hppt.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * 监听yml配置文件，文件内容变化后重新解析并回调，用于不重启服务即应用配置的修改
+ *
+ * @param <T> 配置类
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public class ConfigFileWatcher<T> implements AutoCloseable {
+
+    /**
+     * 文件被修改后，等待其大小和修改时间稳定下来再读取，避免读到编辑器写了一半的文件
+     */
+    private static final long STABLE_WAIT = 200;
+
+    private final Path file;
+    private final Class<T> clazz;
+    private final Consumer<T> cb;
+    private final DirChangeWatcher dirChangeWatcher;
+
+    private long lastModified;
+    private String lastContent;
+
+    /**
+     * 监听yml配置文件
+     *
+     * @param file  配置文件
+     * @param clazz 配置类
+     * @param cb    文件内容变化并解析成功后，触发cb(新的配置)
+     */
+    public ConfigFileWatcher(Path file, Class<T> clazz, Consumer<T> cb) {
+        this.file = file.toAbsolutePath().normalize();
+        this.clazz = clazz;
+        this.cb = cb;
+        try {
+            lastModified = Files.getLastModifiedTime(this.file).toMillis();
+            lastContent = Files.readString(this.file);
+        } catch (Exception e) {
+            throw new RuntimeException("读取配置文件异常 " + this.file, e);
+        }
+        Path fileName = this.file.getFileName();
+        dirChangeWatcher = new DirChangeWatcher(this.file.getParent(), (changed) -> {
+            if (fileName.equals(changed.getFileName())) {
+                reload();
+            }
+        });
+        log.info("监听配置文件 {}", this.file);
+    }
+
+    private synchronized void reload() {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == lastModified) {
+                return;
+            }
+            long size;
+            do {
+                size = Files.size(file);
+                Thread.sleep(STABLE_WAIT);
+                modified = Files.getLastModifiedTime(file).toMillis();
+            } while (size != Files.size(file) || modified != Files.getLastModifiedTime(file).toMillis());
+            lastModified = modified;
+            String content = Files.readString(file);
+            if (content.equals(lastContent)) {
+                return;
+            }
+            T config = Constant.ymlMapper.readValue(content, clazz);
+            if (null == config) {
+                return;
+            }
+            lastContent = content;
+            log.info("配置文件 {} 已修改，重新加载", file);
+            cb.accept(config);
+        } catch (Exception e) {
+            log.warn("重新加载配置文件异常，继续使用原配置 {}", file, e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        dirChangeWatcher.close();
+    }
+}
@@ -0,0 +1,67 @@
+package org.wowtools.hppt.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希环，节点增减时只有相邻区间内的key改变归属。
+ * 哈希值只由节点名和key决定，所以节点集合相同的两个环对同一key的计算结果相同。
+ * 构造后不可修改，节点变化时重新构造一个
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class ConsistentHashRing {
+
+    //<哈希值,节点>
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * @param nodes        节点
+     * @param virtualNodes 每个节点在环上的虚拟节点数，越多key分布越均匀
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        int n = Math.max(virtualNodes, 1);
+        for (String node : nodes) {
+            for (int i = 0; i < n; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * 获取key所属的节点
+     *
+     * @param key key
+     * @return 节点，环为空时返回null
+     */
+    public String get(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        if (null == entry) {
+            entry = ring.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    private static long hash(String str) {
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] digest = md5.digest(str.getBytes(StandardCharsets.UTF_8));
+        long h = 0;
+        for (int i = 0; i < 8; i++) {
+            h = (h << 8) | (digest[i] & 0xff);
+        }
+        return h;
+    }
+}
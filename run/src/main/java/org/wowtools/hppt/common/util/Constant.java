@@ -16,10 +16,13 @@ public class Constant {
 
     public static final String commandParamJoinFlag = "\n";
 
+    //新建session命令中多个目标端之间的分隔符
+    public static final String targetJoinFlag = ";";
+
     //ss端执行的命令代码
     public static final class SsCommands {
 
-        //新建session host,port,initFlag
+        //新建session host,port,initFlag[,targets] 有多个目标端时targets由ss从中选择，旧版ss忽略targets只连接host:port
         public static final char CreateSession = '0';
 
         //关闭Session SessionId
@@ -10,7 +10,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 /**
- * 监听某个文件夹中的文件被修改
+ * 监听某个文件夹中的文件被修改或新建
  *
  * @author liuyu
  * @date 2024/6/17
@@ -32,10 +32,10 @@ public class DirChangeWatcher implements AutoCloseable {
     }
 
     /**
-     * 监听某个文件夹中的文件被修改
+     * 监听某个文件夹中的文件被修改或新建。很多编辑器和配置工具保存时先写临时文件再改名覆盖，这只产生新建事件而没有修改事件
      *
      * @param dir 文件夹
-     * @param cb  文件被修改时，触发cb(file)
+     * @param cb  文件被修改或新建时，触发cb(file)
      */
     public DirChangeWatcher(Path dir, Cb cb) {
         try {
@@ -45,7 +45,7 @@ public class DirChangeWatcher implements AutoCloseable {
         }
         boolean success;
         try {
-            dir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
             success = true;
         } catch (Exception e) {
             log.warn("系统或文件夹不支持文件监听，降级为每10ms轮询一次文件的方式", e);
@@ -62,7 +62,7 @@ public class DirChangeWatcher implements AutoCloseable {
                     }
                     for (WatchEvent<?> event : key.pollEvents()) {
                         WatchEvent.Kind<?> kind = event.kind();
-                        if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                        if (kind == StandardWatchEventKinds.ENTRY_MODIFY || kind == StandardWatchEventKinds.ENTRY_CREATE) {
                             Path changed = (Path) event.context();
                             log.debug("file change: {}", changed);
                             cb.cb(changed);
@@ -0,0 +1,301 @@
+package org.wowtools.hppt.common.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 多生产者单消费者的无界队列，由定长数组块链接而成。
+ * 生产者只做一次getAndIncrement和一次数组写入，不加锁，也不为每个元素分配节点；
+ * 消费者在队列为空时park，生产者放入元素后unpark它。
+ * 个别场景下会有多个消费者(如post的并发回复请求)，消费侧加了一个锁保证正确，单消费者时这个锁没有竞争
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public final class MpscQueue<E> {
+
+    //每个块的元素数，一个会话一个队列，不宜过大
+    private static final int CHUNK_SIZE = 32;
+
+    //消费者未能登记为等待者时(已有其它消费者在等待)，轮询的间隔
+    private static final long SPIN_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final VarHandle NEXT;
+    private static final VarHandle PRODUCER_CHUNK;
+    private static final VarHandle WAITER;
+    private static final VarHandle CONSUMER_INDEX;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            NEXT = lookup.findVarHandle(Chunk.class, "next", Chunk.class);
+            PRODUCER_CHUNK = lookup.findVarHandle(MpscQueue.class, "producerChunk", Chunk.class);
+            WAITER = lookup.findVarHandle(MpscQueue.class, "waiter", Thread.class);
+            CONSUMER_INDEX = lookup.findVarHandle(MpscQueue.class, "consumerIndex", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final class Chunk {
+        private final long base;
+        private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(CHUNK_SIZE);
+        private volatile Chunk next;
+
+        private Chunk(long base) {
+            this.base = base;
+        }
+    }
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    //生产者查找块的起点，只会向后移动
+    private volatile Chunk producerChunk;
+
+    private final ReentrantLock consumerLock = new ReentrantLock();
+    private Chunk consumerChunk;
+    private volatile long consumerIndex;
+    //消费者缓存的生产者下标，小于它的下标都已被领取，避免每取一个元素都去读被生产者频繁修改的producerIndex
+    private long producerLimit;
+    //正在park等待元素的消费者
+    private volatile Thread waiter;
+    //是否要求限时等待的消费者提前返回
+    private volatile boolean wakeUp;
+
+    public MpscQueue() {
+        Chunk chunk = new Chunk(0);
+        producerChunk = chunk;
+        consumerChunk = chunk;
+    }
+
+    /**
+     * 放入元素
+     *
+     * @param e 元素，not null
+     */
+    public void offer(E e) {
+        Chunk chunk = producerChunk;
+        long index = producerIndex.getAndIncrement();
+        while (index >= chunk.base + CHUNK_SIZE) {
+            Chunk next = chunk.next;
+            if (null == next) {
+                Chunk newChunk = new Chunk(chunk.base + CHUNK_SIZE);
+                next = (Chunk) NEXT.compareAndExchange(chunk, (Chunk) null, newChunk);
+                if (null == next) {
+                    next = newChunk;
+                }
+            }
+            chunk = next;
+        }
+        Chunk pc = producerChunk;
+        if (pc.base < chunk.base) {
+            PRODUCER_CHUNK.compareAndSet(this, pc, chunk);
+        }
+        chunk.slots.set((int) (index - chunk.base), e);
+        Thread w = waiter;
+        if (null != w) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    /**
+     * 唤醒限时等待中的消费者，使其立即返回null，没有消费者在等待时，下一次限时等待立即返回null。
+     * 用于消费者除本队列外还要处理其它数据(如命令队列)，其它数据到达时不必等到超时
+     */
+    public void wakeUp() {
+        wakeUp = true;
+        Thread w = waiter;
+        if (null != w) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    /**
+     * 取出元素，队列为空则返回null
+     *
+     * @return 元素 or null
+     */
+    public E poll() {
+        if (isEmpty()) {
+            return null;
+        }
+        consumerLock.lock();
+        try {
+            return pollLocked();
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    /**
+     * 取出元素，队列为空则阻塞等待
+     *
+     * @return 元素
+     * @throws InterruptedException 等待时被中断
+     */
+    public E take() throws InterruptedException {
+        return poll(-1);
+    }
+
+    /**
+     * 取出元素，队列为空则阻塞等待一段时间，超时或被wakeUp时返回null
+     *
+     * @param timeout timeout
+     * @param unit    TimeUnit
+     * @return 元素 or null
+     * @throws InterruptedException 等待时被中断
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return poll(unit.toNanos(timeout));
+    }
+
+    //timeoutNanos小于0表示一直等待
+    private E poll(long timeoutNanos) throws InterruptedException {
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+        long deadline = timeoutNanos < 0 ? 0 : System.nanoTime() + timeoutNanos;
+        Thread current = Thread.currentThread();
+        while (true) {
+            //先登记再检查，生产者放入元素后必然能看到登记的等待者
+            boolean registered = WAITER.compareAndSet(this, (Thread) null, current);
+            try {
+                e = poll();
+                if (null != e) {
+                    return e;
+                }
+                if (timeoutNanos >= 0 && wakeUp) {
+                    wakeUp = false;
+                    return null;
+                }
+                if (timeoutNanos < 0) {
+                    if (registered) {
+                        LockSupport.park(this);
+                    } else {
+                        LockSupport.parkNanos(this, SPIN_PARK_NANOS);
+                    }
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, registered ? remaining : Math.min(remaining, SPIN_PARK_NANOS));
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } finally {
+                if (registered) {
+                    waiter = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 把当前可用的元素批量取出到batch中
+     *
+     * @param batch 可复用的数组
+     * @return 取出的元素数
+     */
+    public int drainTo(Object[] batch) {
+        if (isEmpty()) {
+            return 0;
+        }
+        consumerLock.lock();
+        try {
+            int n = 0;
+            while (n < batch.length) {
+                E e = pollLocked();
+                if (null == e) {
+                    break;
+                }
+                batch[n++] = e;
+            }
+            return n;
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    /**
+     * 把当前可用的元素逐个交给consumer
+     *
+     * @param consumer consumer
+     * @return 取出的元素数
+     */
+    public int drain(Consumer<? super E> consumer) {
+        return drain(consumer, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 把当前可用的元素逐个交给consumer，最多取出limit个
+     *
+     * @param consumer consumer
+     * @param limit    最多取出的元素数
+     * @return 取出的元素数
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        if (isEmpty()) {
+            return 0;
+        }
+        consumerLock.lock();
+        try {
+            int n = 0;
+            E e;
+            while (n < limit && (e = pollLocked()) != null) {
+                consumer.accept(e);
+                n++;
+            }
+            return n;
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    /**
+     * @return 元素个数，并发时为近似值
+     */
+    public int size() {
+        return (int) Math.max(0, producerIndex.get() - consumerIndex);
+    }
+
+    public boolean isEmpty() {
+        return consumerIndex >= producerIndex.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private E pollLocked() {
+        long index = consumerIndex;
+        if (index >= producerLimit) {
+            producerLimit = producerIndex.get();
+            if (index >= producerLimit) {
+                return null;
+            }
+        }
+        Chunk chunk = consumerChunk;
+        if (index == chunk.base + CHUNK_SIZE) {
+            Chunk next;
+            //生产者已领取了下标但还未把块链接上，稍等即可
+            while ((next = chunk.next) == null) {
+                Thread.onSpinWait();
+            }
+            consumerChunk = chunk = next;
+        }
+        int i = (int) (index - chunk.base);
+        Object e;
+        //生产者已领取了下标但还未写入元素，稍等即可
+        while ((e = chunk.slots.get(i)) == null) {
+            Thread.onSpinWait();
+        }
+        chunk.slots.lazySet(i, null);
+        CONSUMER_INDEX.setRelease(this, index + 1);
+        return (E) e;
+    }
+}
@@ -0,0 +1,228 @@
+package org.wowtools.hppt.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 保序的并行处理流水线。
+ * 提交的消息按提交顺序编号，在所有流水线共用的有界工作线程池中并行处理(解密、解析、序列化、加密等cpu密集的工作)，
+ * 处理结果在流水线自己的投递线程中按编号顺序逐个交给下游，下游看到的顺序与提交顺序一致。
+ * 处理中的消息数达到上限后提交方阻塞，形成背压
+ *
+ * @param <I> 输入类型
+ * @param <O> 处理结果类型
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class OrderedPipeline<I, O> implements AutoCloseable {
+
+    /**
+     * 处理阶段，在工作线程中并行执行，需要线程安全
+     */
+    @FunctionalInterface
+    public interface Stage<I, O> {
+        O process(I input) throws Exception;
+    }
+
+    /**
+     * 投递阶段，在投递线程中按提交顺序串行执行
+     */
+    @FunctionalInterface
+    public interface Sink<O> {
+        void accept(O output) throws Exception;
+    }
+
+    /**
+     * 处理或投递异常的处理器，在投递线程中执行。
+     * 出错的消息不会被投递，而它之后的消息仍会继续投递，有序性依赖每条消息都送达的调用方(如可恢复链路)应在这里断开链路
+     */
+    @FunctionalInterface
+    public interface ExceptionHandler {
+        void handle(Throwable t);
+    }
+
+    private static volatile CommonConfig.PipelineConfig config = new CommonConfig.PipelineConfig();
+    private static boolean inited;
+    private static volatile ExecutorService workers;
+
+    /**
+     * 以配置初始化流水线，进程启动读取配置后调用，同一进程中有多个配置时(如中继模式)以先调用的为准
+     *
+     * @param pipelineConfig 配置
+     */
+    public static synchronized void init(CommonConfig.PipelineConfig pipelineConfig) {
+        if (null == pipelineConfig || inited) {
+            return;
+        }
+        inited = true;
+        config = pipelineConfig;
+        log.info("消息处理流水线 workers {} maxInFlight {}", pipelineConfig.workers, pipelineConfig.maxInFlight);
+    }
+
+    //工作线程池，第一次用到时按配置创建
+    private static ExecutorService getWorkers() {
+        ExecutorService w = workers;
+        if (null == w) {
+            synchronized (OrderedPipeline.class) {
+                w = workers;
+                if (null == w) {
+                    int n = config.workers > 0 ? config.workers : Runtime.getRuntime().availableProcessors();
+                    w = Executors.newFixedThreadPool(n, Thread.ofPlatform().daemon().name("hppt-pipeline-", 0).factory());
+                    workers = w;
+                }
+            }
+        }
+        return w;
+    }
+
+    //一条消息的处理结果，按编号排队等待投递
+    private static final class Slot<O> {
+        private final long seq;
+        private final CompletableFuture<O> future = new CompletableFuture<>();
+
+        private Slot(long seq) {
+            this.seq = seq;
+        }
+    }
+
+    private final String name;
+    private final Stage<I, O> stage;
+    private final Sink<O> sink;
+    private final ExceptionHandler exceptionHandler;
+    private final Consumer<O> discarder;
+    //为null表示不并行，在提交线程中直接处理和投递
+    private final Semaphore inFlight;
+    private final MpscQueue<Slot<O>> slots;
+    private final AtomicInteger slotNum = new AtomicInteger();
+    private long nextSeq;
+    private volatile boolean running = true;
+
+    /**
+     * @param name             名称，用于日志
+     * @param stage            处理阶段
+     * @param sink             投递阶段
+     * @param exceptionHandler 处理或投递异常的处理器
+     * @param discarder        流水线关闭后未投递的处理结果交给它释放，不需要释放可传null
+     */
+    public OrderedPipeline(String name, Stage<I, O> stage, Sink<O> sink, ExceptionHandler exceptionHandler, Consumer<O> discarder) {
+        this.name = name;
+        this.stage = stage;
+        this.sink = sink;
+        this.exceptionHandler = exceptionHandler;
+        this.discarder = discarder;
+        int maxInFlight = config.maxInFlight;
+        if (maxInFlight > 1) {
+            inFlight = new Semaphore(maxInFlight);
+            slots = new MpscQueue<>();
+            Thread.startVirtualThread(this::deliverLoop);
+        } else {
+            inFlight = null;
+            slots = null;
+        }
+    }
+
+    /**
+     * 提交一条消息，处理中的消息数达到上限时阻塞等待，同一流水线需由一个线程提交
+     *
+     * @param input 消息
+     * @throws InterruptedException 等待时被中断
+     */
+    public void submit(I input) throws InterruptedException {
+        if (!running) {
+            //已关闭，投递线程可能已经退出，处理完直接释放
+            try {
+                O output = stage.process(input);
+                if (null != discarder) {
+                    discarder.accept(output);
+                }
+            } catch (Throwable t) {
+                log.debug("{} 已关闭，丢弃消息", name, t);
+            }
+            return;
+        }
+        if (null == inFlight) {
+            try {
+                sink.accept(stage.process(input));
+            } catch (Throwable t) {
+                exceptionHandler.handle(t);
+            }
+            return;
+        }
+        inFlight.acquire();
+        Slot<O> slot = new Slot<>(nextSeq++);
+        slotNum.incrementAndGet();
+        slots.offer(slot);
+        getWorkers().execute(() -> {
+            try {
+                slot.future.complete(stage.process(input));
+            } catch (Throwable t) {
+                slot.future.completeExceptionally(t);
+            }
+        });
+    }
+
+    /**
+     * @return 已提交但尚未投递的消息数
+     */
+    public int size() {
+        return null == inFlight ? 0 : slotNum.get();
+    }
+
+    /**
+     * 关闭流水线，已提交的消息仍会处理完，但处理结果不再投递而是交给discarder
+     */
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    private void deliverLoop() {
+        while (running || !slots.isEmpty()) {
+            Slot<O> slot;
+            try {
+                slot = slots.poll(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (null == slot) {
+                continue;
+            }
+            try {
+                //按编号顺序取出，前一条未处理完时在这里等待，后面先处理完的结果暂存在各自的slot中
+                O output;
+                try {
+                    output = slot.future.get();
+                } catch (ExecutionException e) {
+                    if (running) {
+                        exceptionHandler.handle(e.getCause());
+                    }
+                    continue;
+                } catch (InterruptedException e) {
+                    //投递线程不会被外部中断，万一发生也和处理异常一样交给处理器，不能悄悄丢掉这一条
+                    log.warn("{} 等待第 {} 条消息处理结果时被中断", name, slot.seq);
+                    if (running) {
+                        exceptionHandler.handle(e);
+                    }
+                    continue;
+                }
+                if (running) {
+                    try {
+                        sink.accept(output);
+                    } catch (Throwable t) {
+                        exceptionHandler.handle(t);
+                    }
+                } else if (null != discarder) {
+                    discarder.accept(output);
+                }
+            } finally {
+                slotNum.decrementAndGet();
+                inFlight.release();
+            }
+        }
+        log.debug("{} 投递线程结束", name);
+    }
+}
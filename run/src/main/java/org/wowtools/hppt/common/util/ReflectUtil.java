@@ -0,0 +1,28 @@
+package org.wowtools.hppt.common.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class ReflectUtil {
+
+    /**
+     * 判断对象是否重写了接口或父类中的某个方法，用于跳过未重写的默认钩子方法，以免为调用它而做额外的转换(如ByteBuf转byte[])
+     *
+     * @param obj            对象
+     * @param superType      声明此方法的接口或父类
+     * @param methodName     方法名
+     * @param parameterTypes 参数类型
+     * @return 是否重写
+     */
+    public static boolean isOverridden(Object obj, Class<?> superType, String methodName, Class<?>... parameterTypes) {
+        try {
+            Method method = obj.getClass().getMethod(methodName, parameterTypes);
+            return method.getDeclaringClass() != superType;
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
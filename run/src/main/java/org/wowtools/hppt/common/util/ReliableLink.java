@@ -0,0 +1,212 @@
+package org.wowtools.hppt.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 可恢复的消息链路，sc与ss各持有一个，记录一个客户端两个方向上的TalkMessage序号。
+ * 发出的消息从1开始编号，明文保留到对端确认为止，传输层重连后把对端没收到的消息重发；
+ * 收到的消息按序号去重，并以已按序收到的最大序号作为累计确认随发出的消息带给对端；
+ * 序号跳跃说明中间有消息丢失，此时拒收并抛出异常，由调用方断开传输层，重连后对端从缺失处开始重发。
+ * 序号为0的消息不参与编号，如只携带确认的空消息。
+ * 保留的明文计入缓冲内存预算，预算不足时与超过maxUnackedBytes一样，放弃保留，链路不再可恢复
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public class ReliableLink {
+
+    //收到多少条消息后，没有数据要发也主动回一条确认
+    private static final int ACK_EVERY_MESSAGES = 16;
+
+    private final long maxUnackedBytes;
+    //收到多少字节后，没有数据要发也主动回一条确认
+    private final long ackEveryBytes;
+    //保留的明文所占的预算
+    private final BufferBudget.Account account;
+
+    //<seq,消息明文> 已发出未被确认的消息
+    private final TreeMap<Long, byte[]> unacked = new TreeMap<>();
+    private long unackedBytes;
+    private long nextSeq = 1;
+    //对端确认过的最大序号，不大于它的消息已释放，无法再重发
+    private long ackedUpTo;
+    private boolean overflow;
+
+    private long received;
+    private long ackSent;
+    private long receivedBytesSinceAck;
+
+    /**
+     * @param name            链路名，用于预算账户和日志
+     * @param maxUnackedBytes 未被确认的消息最多保留的字节数，超过后链路不再可恢复
+     */
+    public ReliableLink(String name, long maxUnackedBytes) {
+        this.maxUnackedBytes = maxUnackedBytes;
+        ackEveryBytes = Math.max(maxUnackedBytes / 4, 1);
+        account = BufferBudget.newAccount("link-" + name);
+    }
+
+    /**
+     * @return 下一条要发出的消息的序号
+     */
+    public synchronized long nextSeq() {
+        return nextSeq++;
+    }
+
+    /**
+     * 消息序列化后、加密前调用，保留明文以便重发
+     *
+     * @param seq   序号
+     * @param plain 消息明文
+     */
+    public synchronized void sent(long seq, byte[] plain) {
+        if (seq <= 0 || overflow) {
+            return;
+        }
+        if (unackedBytes + plain.length > maxUnackedBytes) {
+            giveUp();
+            log.warn("{} 未被确认的消息超过 {} 字节，此链路断开后将无法恢复", account, maxUnackedBytes);
+            return;
+        }
+        if (!account.tryReserve(plain.length)) {
+            giveUp();
+            log.warn("{} 缓冲内存预算不足，不再保留未被确认的消息，此链路断开后将无法恢复", account);
+            return;
+        }
+        unacked.put(seq, plain);
+        unackedBytes += plain.length;
+    }
+
+    //放弃保留未被确认的消息，链路不再可恢复
+    private void giveUp() {
+        overflow = true;
+        unacked.clear();
+        account.release(unackedBytes);
+        unackedBytes = 0;
+    }
+
+    /**
+     * 对端确认已按序收到ack及之前的消息，释放这些消息
+     *
+     * @param ack 累计确认
+     */
+    public synchronized void acked(long ack) {
+        if (ack > ackedUpTo && ack < nextSeq) {
+            ackedUpTo = ack;
+        }
+        while (!unacked.isEmpty() && unacked.firstKey() <= ack) {
+            Map.Entry<Long, byte[]> entry = unacked.pollFirstEntry();
+            unackedBytes -= entry.getValue().length;
+            account.release(entry.getValue().length);
+        }
+    }
+
+    /**
+     * 收到对端的消息时调用
+     *
+     * @param seq    消息序号
+     * @param length 消息中字节的长度
+     * @return 是否是新消息，false表示重发导致的重复消息，应丢弃
+     * @throws IllegalStateException 序号不连续，中间有消息丢失。此消息应丢弃，并断开传输层以便重连后对端从getReceived()+1开始重发
+     */
+    public synchronized boolean receive(long seq, long length) {
+        if (seq <= 0) {
+            return true;
+        }
+        if (seq <= received) {
+            return false;
+        }
+        if (seq != received + 1) {
+            //不能累计确认到seq，否则缺失的消息再也不会重发
+            throw new IllegalStateException("消息序号不连续 " + received + " -> " + seq + "，需从 " + (received + 1) + " 开始重发");
+        }
+        received = seq;
+        receivedBytesSinceAck += length;
+        return true;
+    }
+
+    /**
+     * @return 已按序收到的对端消息的最大序号
+     */
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    /**
+     * 取出要随消息发给对端的累计确认
+     *
+     * @return 累计确认
+     */
+    public synchronized long takeAck() {
+        ackSent = received;
+        receivedBytesSinceAck = 0;
+        return received;
+    }
+
+    /**
+     * @return 是否有收到的消息还没向对端确认
+     */
+    public synchronized boolean hasPendingAck() {
+        return received > ackSent;
+    }
+
+    /**
+     * @return 未确认的接收是否已积累较多，需尽快回一条确认，以免对端保留的消息过多
+     */
+    public synchronized boolean needAck() {
+        return received - ackSent >= ACK_EVERY_MESSAGES || (received > ackSent && receivedBytesSinceAck >= ackEveryBytes);
+    }
+
+    /**
+     * @return 链路断开后是否可以恢复
+     */
+    public synchronized boolean isResumable() {
+        return !overflow;
+    }
+
+    /**
+     * 对端声称已按序收到peerReceived，判断能否在本链路上接续：
+     * 它不能小于对端确认过的序号(那之前的消息已释放)，也不能超过本链路发出过的序号，否则双方不是同一条链路(如一方已重建)
+     *
+     * @param peerReceived 对端已按序收到的最大序号
+     * @return 能否接续
+     */
+    public synchronized boolean canResume(long peerReceived) {
+        return !overflow && peerReceived >= ackedUpTo && peerReceived < nextSeq;
+    }
+
+    /**
+     * 传输层重连后，取出对端还没收到的消息明文以便重发，调用前需用canResume检查
+     *
+     * @param peerReceived 对端已按序收到的最大序号
+     * @return 按序号排列的消息明文
+     */
+    public synchronized List<byte[]> resend(long peerReceived) {
+        acked(peerReceived);
+        return new ArrayList<>(unacked.values());
+    }
+
+    /**
+     * 链路上出现了无法用重发补上的缺口(如某条已编号的消息未能发出或处理)，放弃恢复，此后isResumable和canResume都返回false
+     */
+    public synchronized void abandon() {
+        if (!overflow) {
+            giveUp();
+            log.warn("{} 有消息未能送达，此链路断开后将无法恢复", account);
+        }
+    }
+
+    /**
+     * 链路不再使用，释放保留的消息并关闭预算账户
+     */
+    public synchronized void close() {
+        giveUp();
+        account.close();
+    }
+}
@@ -0,0 +1,51 @@
+package org.wowtools.hppt.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 服务自动重启的退避等待。
+ * 连续重启时等待时间从minDelay起逐次翻倍直到maxDelay，实际等待时间在[delay/2, delay]中随机取值，
+ * 避免服务端故障恢复时所有客户端在同一时刻重连；服务稳定运行resetAfter毫秒后，等待时间重新从minDelay开始
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public class RestartBackoff {
+
+    private final CommonConfig.RestartConfig config;
+
+    private long delay;
+    private long startTime = System.currentTimeMillis();
+
+    public RestartBackoff(CommonConfig.RestartConfig config) {
+        this.config = null == config ? new CommonConfig.RestartConfig() : config;
+    }
+
+    /**
+     * 服务启动时调用，记录启动时间
+     */
+    public void started() {
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 服务退出后调用，阻塞等待到可以重启
+     */
+    public void await() {
+        if (System.currentTimeMillis() - startTime >= config.resetAfter) {
+            delay = config.minDelay;
+        } else {
+            delay = Math.min(Math.max(delay * 2, config.minDelay), config.maxDelay);
+        }
+        long half = delay / 2;
+        long sleep = half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+        log.warn("----------------------销毁当前Service,{}毫秒后重启", sleep);
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.wowtools.hppt.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 缓冲池的溢出文件，只追加写入、按写入顺序读出的内存映射文件，
+ * 记录格式为 [4字节长度][内容]，长度为-1表示当前映射段已写完，继续读下一段。
+ * 记录全部读完后文件截断为0重新开始，文件在关闭或SpillFile不再被引用后删除
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class SpillFile implements AutoCloseable {
+
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private static final int HEAD_LENGTH = 4;
+    private static final int SEGMENT_END = -1;
+
+    private final String name;
+    private final int segmentSize;
+    //已映射、尚未读完的段
+    private final ArrayDeque<MappedByteBuffer> segments = new ArrayDeque<>();
+    private Resource resource;
+    private Cleaner.Cleanable cleanable;
+    private MappedByteBuffer writeSegment;
+    private int writePos;
+    private int readPos;
+    //下一个段在文件中的起始位置
+    private long fileEnd;
+    private int recordNum;
+    private long recordBytes;
+
+    /**
+     * @param name 名称，用于日志和文件名
+     */
+    public SpillFile(String name) {
+        this.name = name;
+        segmentSize = BufferBudget.getConfig().spillSegmentSize;
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param length 记录长度
+     * @param writer 向记录写入内容，需恰好写入length个字节
+     */
+    public synchronized void write(int length, Consumer<ByteBuffer> writer) {
+        try {
+            int need = HEAD_LENGTH + length;
+            if (null == writeSegment || writeSegment.capacity() - writePos < need) {
+                nextSegment(need);
+            }
+            writeSegment.putInt(writePos, length);
+            writer.accept(writeSegment.slice(writePos + HEAD_LENGTH, length));
+            writePos += need;
+            recordNum++;
+            recordBytes += length;
+        } catch (IOException e) {
+            throw new RuntimeException("写入溢出文件异常 " + name, e);
+        }
+    }
+
+    /**
+     * 读出最早写入的一条记录
+     *
+     * @param reader 读取记录内容，方法返回后ByteBuffer不再可用，需要的内容请拷贝出去
+     * @param <T>    读取结果类型
+     * @return 读取结果
+     */
+    public synchronized <T> T read(Function<ByteBuffer, T> reader) {
+        if (recordNum == 0) {
+            throw new IllegalStateException("溢出文件中没有记录 " + name);
+        }
+        MappedByteBuffer segment = segments.getFirst();
+        if (segment.capacity() - readPos < HEAD_LENGTH || segment.getInt(readPos) == SEGMENT_END) {
+            segments.removeFirst();
+            segment = segments.getFirst();
+            readPos = 0;
+        }
+        int length = segment.getInt(readPos);
+        T t = reader.apply(segment.slice(readPos + HEAD_LENGTH, length));
+        readPos += HEAD_LENGTH + length;
+        recordNum--;
+        recordBytes -= length;
+        if (recordNum == 0) {
+            reset();
+        }
+        return t;
+    }
+
+    /**
+     * @return 尚未读出的记录数
+     */
+    public synchronized int size() {
+        return recordNum;
+    }
+
+    /**
+     * @return 尚未读出的记录的字节数
+     */
+    public synchronized long bytes() {
+        return recordBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        segments.clear();
+        writeSegment = null;
+        recordNum = 0;
+        recordBytes = 0;
+        if (null != cleanable) {
+            cleanable.clean();
+            cleanable = null;
+            resource = null;
+        }
+    }
+
+    private void nextSegment(int need) throws IOException {
+        if (null == resource) {
+            resource = new Resource(name);
+            cleanable = cleaner.register(this, resource);
+            log.info("{} 内存预算不足，数据溢出到文件 {}", name, resource.path);
+        }
+        if (null != writeSegment && writeSegment.capacity() - writePos >= HEAD_LENGTH) {
+            writeSegment.putInt(writePos, SEGMENT_END);
+        }
+        int size = Math.max(segmentSize, need);
+        writeSegment = resource.channel.map(FileChannel.MapMode.READ_WRITE, fileEnd, size);
+        fileEnd += size;
+        segments.addLast(writeSegment);
+        writePos = 0;
+    }
+
+    //记录已全部读出，丢弃映射并截断文件，之后从头写入
+    private void reset() {
+        segments.clear();
+        writeSegment = null;
+        writePos = 0;
+        readPos = 0;
+        fileEnd = 0;
+        try {
+            resource.channel.truncate(0);
+        } catch (IOException e) {
+            log.warn("截断溢出文件异常 {}", resource.path, e);
+        }
+    }
+
+    //文件资源，单独成类以便Cleaner在SpillFile不可达后关闭
+    private static final class Resource implements Runnable {
+        private final Path path;
+        private final FileChannel channel;
+
+        private Resource(String name) throws IOException {
+            String dir = BufferBudget.getConfig().spillDir;
+            String prefix = "hppt-spill-" + name.replaceAll("[^0-9A-Za-z_-]", "") + "-";
+            if (null == dir || dir.isEmpty()) {
+                path = Files.createTempFile(prefix, ".tmp");
+            } else {
+                Path dirPath = Path.of(dir);
+                Files.createDirectories(dirPath);
+                path = Files.createTempFile(dirPath, prefix, ".tmp");
+            }
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("关闭溢出文件异常 {}", path, e);
+            }
+        }
+    }
+}
@@ -19,7 +19,7 @@ public class ClientSessionServiceBuilder {
 
     public static ClientSessionService build(ScConfig config) throws Exception {
         log.info("type {}", config.type);
-        return switch (config.type) {
+        ClientSessionService service = switch (config.type) {
             case "post" -> new PostClientSessionService(config);
             case "websocket" -> new WebSocketClientSessionService(config);
             case "hppt" -> new HpptClientSessionService(config);
@@ -28,5 +28,7 @@ public class ClientSessionServiceBuilder {
             case "file" -> new FileClientSessionService(config);
             default -> throw new IllegalStateException("Unexpected config.type: " + config.type);
         };
+        service.start();
+        return service;
     }
 }
@@ -1,11 +1,15 @@
 package org.wowtools.hppt.run.sc;
 
 import lombok.extern.slf4j.Slf4j;
-import org.wowtools.hppt.common.util.Constant;
-import org.wowtools.hppt.common.util.ResourcesReader;
+import org.wowtools.hppt.common.metrics.HopTrace;
+import org.wowtools.hppt.common.metrics.Metrics;
+import org.wowtools.hppt.common.record.TrafficRecorder;
+import org.wowtools.hppt.common.util.*;
 import org.wowtools.hppt.run.sc.common.ClientSessionService;
 import org.wowtools.hppt.run.sc.pojo.ScConfig;
 
+import java.nio.file.Path;
+
 /**
  * @author liuyu
  * @date 2024/1/30
@@ -13,6 +17,8 @@ import org.wowtools.hppt.run.sc.pojo.ScConfig;
 @Slf4j
 public class RunSc {
 
+    private static volatile ClientSessionService currentService;
+
     public static void main(String[] args) {
         String configPath;
         if (args.length <= 1) {
@@ -26,17 +32,33 @@ public class RunSc {
         } catch (Exception e) {
             throw new RuntimeException("读取配置文件异常", e);
         }
+        BufferBudget.init(config.bufferBudget);
+        OrderedPipeline.init(config.pipeline);
+        Metrics.init(config.metrics);
+        HopTrace.init(config.trace);
+        TrafficRecorder.init(config.record);
+        if (config.watchConfig) {
+            new ConfigFileWatcher<>(Path.of(ResourcesReader.getRootPath(RunSc.class), configPath), ScConfig.class, (newConfig) -> {
+                config.forwards = newConfig.forwards;
+                ClientSessionService current = currentService;
+                if (null != current) {
+                    current.updateForwards(newConfig.forwards);
+                }
+            });
+        }
+        RestartBackoff backoff = new RestartBackoff(config.restart);
         while (true) {
-            try (ClientSessionService clientSessionService = ClientSessionServiceBuilder.build(config)){
+            backoff.started();
+            //服务退出时不close，保留已建立的会话，下次以同一个config重建服务时尝试恢复
+            try {
+                ClientSessionService clientSessionService = ClientSessionServiceBuilder.build(config);
+                currentService = clientSessionService;
                 clientSessionService.sync();
             } catch (Exception e) {
                 log.warn("服务异常", e);
             }
-            log.warn("----------------------销毁当前Service,10秒后重启");
-            try {
-                Thread.sleep(10000);
-            } catch (InterruptedException e) {
-            }
+            currentService = null;
+            backoff.await();
         }
     }
 }
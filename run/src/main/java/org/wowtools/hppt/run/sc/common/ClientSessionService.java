@@ -1,14 +1,22 @@
 package org.wowtools.hppt.run.sc.common;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.util.internal.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.wowtools.hppt.common.client.ClientSession;
 import org.wowtools.hppt.common.client.ClientSessionLifecycle;
+import org.wowtools.hppt.common.client.ClientSessionManager;
+import org.wowtools.hppt.common.filter.BytesFilter;
+import org.wowtools.hppt.common.util.BytesUtil;
 import org.wowtools.hppt.run.sc.pojo.ScConfig;
 
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author liuyu
@@ -21,8 +29,11 @@ public abstract class ClientSessionService implements AutoCloseable {
 
     public final Receiver receiver;
     protected volatile boolean running = true;
+    private final AtomicBoolean exited = new AtomicBoolean();
 
     private final BlockingQueue<byte[]> receiveServerBytesQueue = new ArrayBlockingQueue<>(128);
+    //tryReceiveServerBytes时缓冲区已满的调用方，缓冲区腾出空间后逐个回调
+    private final ConcurrentLinkedQueue<Runnable> receiveSpaceWaiters = new ConcurrentLinkedQueue<>();
 
     /**
      * 当一个事件结束时发起的回调
@@ -40,7 +51,7 @@ public abstract class ClientSessionService implements AutoCloseable {
     public ClientSessionService(ScConfig config) throws Exception {
         this.config = config;
         if (!config.isRelay) {
-            receiver = new PortReceiver(config, this);
+            receiver = PortReceiver.open(config, this);
             log.info("--- 普通模式");
         } else {
             receiver = new SsReceiver(config, this);
@@ -57,6 +68,10 @@ public abstract class ClientSessionService implements AutoCloseable {
                 if (null == bytes) {
                     continue;
                 }
+                Runnable waiter;
+                while (null != (waiter = receiveSpaceWaiters.poll())) {
+                    waiter.run();
+                }
                 try {
                     receiver.receiveServerBytes(bytes);
                 } catch (Exception e) {
@@ -69,6 +84,16 @@ public abstract class ClientSessionService implements AutoCloseable {
     }
 
 
+    /**
+     * 开始工作，普通模式下在此连接服务端并登录。由ClientSessionServiceBuilder在构造完成后调用，
+     * 不放在构造函数中，以免子类的字段还未初始化时connectToServer就被调用
+     */
+    public void start() throws Exception {
+        if (receiver instanceof PortReceiver portReceiver) {
+            portReceiver.attach(this);
+        }
+    }
+
     /**
      * 与服务端建立连接
      *
@@ -98,11 +123,69 @@ public abstract class ClientSessionService implements AutoCloseable {
     }
 
     /**
-     * 当发生难以修复的异常等情况时，主动调用此方法结束当前服务，以便后续自动重启等操作
+     * 不阻塞地接收服务端传过来的字节，供在netty的io线程中接收的实现使用。
+     * 缓冲区已满时不接收并返回false，调用方应暂停读取、保留bytes，缓冲区腾出空间后onSpace被回调(在接收线程中，不应阻塞)，届时再次调用
+     *
+     * @param bytes   bytes
+     * @param onSpace 缓冲区腾出空间时的回调，同一调用方应始终传入同一个对象
+     * @return 是否已接收
+     */
+    public boolean tryReceiveServerBytes(byte[] bytes, Runnable onSpace) {
+        if (receiveServerBytesQueue.offer(bytes)) {
+            return true;
+        }
+        receiveSpaceWaiters.add(onSpace);
+        //登记后再试一次，避免登记前缓冲区已腾出空间而没有回调
+        if (receiveServerBytesQueue.offer(bytes)) {
+            receiveSpaceWaiters.remove(onSpace);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 基于netty的实现在收到服务端传过来的ByteBuf时，可调用此方法代替receiveServerBytes，
+     * 中继模式下ByteBuf会不经拷贝直接转发，其它情况下等同于receiveServerBytes。
+     * 此方法不会释放buf，调用方照常释放即可
+     *
+     * @param buf buf
+     * @throws Exception
+     */
+    public void receiveServerByteBuf(ByteBuf buf) throws Exception {
+        if (receiver instanceof SsReceiver ssReceiver && ssReceiver.receiveServerByteBuf(buf)) {
+            return;
+        }
+        receiveServerBytes(BytesUtil.byteBuf2bytes(buf));
+    }
+
+    /**
+     * 获取与服务端连接的netty channel，基于netty的实现重写此方法后，中继模式下可直接以ByteBuf转发并传递背压
+     *
+     * @return channel，非netty实现或尚未连接时返回null
+     */
+    public Channel getServerChannel() {
+        return null;
+    }
+
+    /**
+     * 把要发送给服务端的ByteBuf包装为可直接写入getServerChannel所返回channel的对象，如websocket需包装为BinaryWebSocketFrame
+     *
+     * @param buf buf
+     * @return 写入channel的对象
+     */
+    public Object wrapServerMessage(ByteBuf buf) {
+        return buf;
+    }
+
+    /**
+     * 当发生难以修复的异常等情况时，主动调用此方法结束当前服务，以便后续自动重启等操作。
+     * 启用会话恢复时，已建立的会话和本地端口会保留一段时间，以同一个config重建服务后继续使用
      */
     public void exit() {
         running = false;
-        receiver.exit();
+        if (exited.compareAndSet(false, true)) {
+            receiver.exit();
+        }
         try {
             doClose();
         } catch (Exception e) {
@@ -113,9 +196,13 @@ public abstract class ClientSessionService implements AutoCloseable {
         }
     }
 
+    /**
+     * 结束当前服务，并关闭为等待重连而保留的会话和本地端口
+     */
     @Override
     public void close() throws Exception {
         exit();
+        receiver.close();
     }
 
     /**
@@ -131,7 +218,10 @@ public abstract class ClientSessionService implements AutoCloseable {
     public void sync() {
         synchronized (this) {
             try {
-                this.wait();
+                //exit可能在sync之前就已被调用
+                while (running) {
+                    this.wait();
+                }
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
@@ -153,7 +243,25 @@ public abstract class ClientSessionService implements AutoCloseable {
             try {
                 Class<? extends ClientSessionLifecycle> clazz = (Class<? extends ClientSessionLifecycle>) Class.forName(config.lifecycle);
                 ClientSessionLifecycle custom = clazz.getDeclaredConstructor().newInstance();
+                //custom中以byte[]为参数的钩子在此适配为过滤器，返回的生命周期本身不重写这些钩子
+                List<BytesFilter<ClientSession>> toUserFilters = ClientSessionManager.buildToUserFilters(custom);
+                List<BytesFilter<ClientSession>> toTargetFilters = ClientSessionManager.buildToTargetFilters(custom);
                 return new ClientSessionLifecycle() {
+                    @Override
+                    public void created(ClientSession clientSession) {
+                        custom.created(clientSession);
+                    }
+
+                    @Override
+                    public List<BytesFilter<ClientSession>> toUserFilters() {
+                        return toUserFilters;
+                    }
+
+                    @Override
+                    public List<BytesFilter<ClientSession>> toTargetFilters() {
+                        return toTargetFilters;
+                    }
+
                     @Override
                     public void closed(ClientSession clientSession) {
                         common.closed(clientSession);
@@ -171,6 +279,15 @@ public abstract class ClientSessionService implements AutoCloseable {
 
     }
 
+    /**
+     * 配置文件修改后，按新的forwards增删改本地监听端口，未变化的端口及其已建立的连接不受影响
+     *
+     * @param forwards 新的forwards
+     */
+    public void updateForwards(List<ScConfig.Forward> forwards) {
+        receiver.updateForwards(forwards);
+    }
+
     /**
      * 是否未被用户被使用
      *
@@ -6,17 +6,23 @@ import org.wowtools.hppt.common.client.ClientBytesSender;
 import org.wowtools.hppt.common.client.ClientSession;
 import org.wowtools.hppt.common.client.ClientSessionManager;
 import org.wowtools.hppt.common.client.ClientTalker;
+import org.wowtools.hppt.common.metrics.Counter;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
 import org.wowtools.hppt.common.pojo.SessionBytes;
+import org.wowtools.hppt.common.pojo.TalkMessage;
 import org.wowtools.hppt.common.util.*;
 import org.wowtools.hppt.run.sc.pojo.ScConfig;
 import org.wowtools.hppt.run.sc.util.ScUtil;
 
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 /**
  * @author liuyu
@@ -24,68 +30,215 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 @Slf4j
 final class PortReceiver implements Receiver {
+    //传输层断开后等待重连的PortReceiver，<config,PortReceiver>，以同一个config重建ClientSessionService时接上原来的会话
+    private static final Map<ScConfig, PortReceiver> detachedReceivers = new IdentityHashMap<>();
+
     private final ScConfig config;
     private final ClientSessionManager clientSessionManager;
-    private final ClientSessionService clientSessionService;
+    //当前所用的传输层，断开后等待重连期间为null
+    private volatile ClientSessionService clientSessionService;
 
 
     private final BufferPool<String> sendCommandQueue = new BufferPool<>(">PortReceiver-sendCommand");
     private final BufferPool<SessionBytes> sendBytesQueue = new BufferPool<>(">PortReceiver-sendBytesQueue");
 
     private final Map<Integer, ClientBytesSender.SessionIdCallBack> sessionIdCallBackMap = new ConcurrentHashMap<>();//<newSessionFlag,cb>
-    private AesCipherUtil aesCipherUtil;
+    private final Map<Integer, ScConfig.Forward> forwardMap = new ConcurrentHashMap<>();//<localPort,forward>
+    private volatile AesCipherUtil aesCipherUtil;
+
+    //序列化加密并行、按组装顺序发往服务端
+    private final OrderedPipeline<TalkMessage, SendMessage> sendPipeline;
 
-    private Long dt;
+    //序列化加密后发往服务端的字节，及开启流量录制时留下的明文
+    private record SendMessage(byte[] bytes, byte[] recordBytes) {
+    }
+
+    private volatile Long dt;
 
     private boolean firstLoginErr = true;
-    private boolean noLogin = true;
+    private volatile boolean noLogin = true;
 
     private volatile boolean running = true;
 
+    //对时、hello回复、登录、传输层断开或关闭时发出信号，等待这些状态的线程据此醒来，不必轮询
+    private final ReentrantLock loginLock = new ReentrantLock();
+    private final Condition loginChanged = loginLock.newCondition();
+
+    //本链路的随机标识，登录时带上，传输层重连后服务端据此接上原来的会话
+    private volatile long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    //可恢复的消息链路，未启用会话恢复时为null
+    private volatile ReliableLink link;
+    //登录时生成的加密工具，登录成功且不是恢复会话时才替换aesCipherUtil
+    private AesCipherUtil loginCipher;
+    private boolean everLogin;
+    private boolean sessionInitChecking;
+    private int detachCount;
+
+    //hello握手超时后改用先对时再登录的旧方式，此后重连也直接使用旧方式
+    private volatile boolean legacyLogin;
+    private volatile boolean helloReplied;
+    private long helloSendTime;
+    private boolean helloByTicket;
+    private int clockRetry;
+    //服务端签发的票据及其对应的加密工具，重连时凭票据登录，省去密钥派生
+    private String ticket;
+    private AesCipherUtil ticketCipher;
+
+    //与服务端之间收发的字节数
+    private final Counter inBytes;
+    private final Counter outBytes;
+
+
+    /**
+     * 取得config对应的PortReceiver，若有传输层断开后等待重连的则取出它，否则新建。
+     * 此时还不连接服务端，传输层构造完成后再调用attach，以免在传输层的构造函数中就用到它
+     *
+     * @param config               config
+     * @param clientSessionService 新的传输层
+     * @return PortReceiver
+     */
+    static PortReceiver open(ScConfig config, ClientSessionService clientSessionService) throws Exception {
+        PortReceiver receiver;
+        synchronized (detachedReceivers) {
+            receiver = detachedReceivers.remove(config);
+        }
+        if (null == receiver) {
+            return new PortReceiver(config, clientSessionService);
+        }
+        log.info("接续传输层断开前的会话");
+        //等待重连期间可能修改过forwards
+        receiver.updateForwards(config.forwards);
+        return receiver;
+    }
 
-    public PortReceiver(ScConfig config, ClientSessionService clientSessionService) throws Exception {
+    private PortReceiver(ScConfig config, ClientSessionService clientSessionService) throws Exception {
         this.config = config;
-        this.clientSessionService = clientSessionService;
+        if (config.resume.enabled) {
+            link = new ReliableLink(config.clientUser, config.resume.bufferSize);
+        }
+        inBytes = HpptMetrics.clientBytes(HpptMetrics.SIDE_SC, config.clientUser, HpptMetrics.IN);
+        outBytes = HpptMetrics.clientBytes(HpptMetrics.SIDE_SC, config.clientUser, HpptMetrics.OUT);
+        if (null != config.forwards) {
+            for (ScConfig.Forward forward : config.forwards) {
+                forwardMap.put(forward.localPort, forward);
+            }
+        }
         clientSessionManager = ScUtil.createClientSessionManager(config,
                 clientSessionService.buildClientSessionLifecycle(), buildClientBytesSender());
+        sendPipeline = new OrderedPipeline<>(">PortReceiver-sendPipeline",
+                (talkMessage) -> new SendMessage(ClientTalker.encodeSendToServerMessage(config, talkMessage, aesCipherUtil, link),
+                        talkMessage.getRecordBytes()),
+                (sendMessage) -> {
+                    //编码是并行的，在按顺序执行的投递阶段录制
+                    ClientTalker.recordSendToServer(sendMessage.recordBytes());
+                    byte[] sendBytes = sendMessage.bytes();
+                    ClientSessionService service = this.clientSessionService;
+                    if (noLogin || null == service) {
+                        //传输层已断开，消息保留在链路中，重连后重发
+                        return;
+                    }
+                    log.debug("sendBytesToServer {}", sendBytes.length);
+                    service.sendBytesToServer(sendBytes);
+                    outBytes.add(sendBytes.length);
+                },
+                (e) -> {
+                    //出错的消息已占用了序号，后面的消息发出去服务端也会因缺口而无法恢复，放弃链路并断开传输层
+                    log.warn("发送消息异常，断开链路", e);
+                    failLink();
+                },
+                null);
         buildSendThread().start();
+    }
+
+    //在新的传输层上握手登录，传输层构造完成后由ClientSessionService.start调用
+    void attach(ClientSessionService clientSessionService) throws Exception {
+        this.clientSessionService = clientSessionService;
         clientSessionService.connectToServer(config, (exceptionCb) -> {
             if (null != exceptionCb) {
                 log.warn("建立连接异常");
-                exit();
+                clientSessionService.exit();
+                return;
             }
             log.info("连接建立完成");
+            //等待期间传输层已断开或已关闭
+            BooleanSupplier stale = () -> !running || this.clientSessionService != clientSessionService;
             Thread.startVirtualThread(() -> {
-                //休眠一下等待clientSessionService初始化完成，解决native下启动时可能得空指针问题
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+                if (!legacyLogin && config.helloTimeout > 0) {
+                    //单次往返完成对时、认证和能力协商
+                    helloReplied = false;
+                    sendHello();
+                    try {
+                        awaitLoginChanged(() -> helloReplied || stale.getAsBoolean(), config.helloTimeout);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (stale.getAsBoolean()) {
+                        return;
+                    }
+                    if (helloReplied) {
+                        startCheckSessionInit();
+                        return;
+                    }
+                    log.warn("{}毫秒内未收到hello回复，服务端可能是低版本，改用先对时再登录的方式", config.helloTimeout);
+                    legacyLogin = true;
                 }
+                dt = null;
                 //建立连接后，获取时间戳
                 clientSessionService.sendBytesToServer(GridAesCipherUtil.encrypt("dt".getBytes(StandardCharsets.UTF_8)));
                 //等待时间戳返回
-                int n = 0;
-                while (null == dt) {
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        continue;
-                    }
-                    n++;
-                    if (n > 100) {
+                try {
+                    while (!awaitLoginChanged(() -> null != dt || stale.getAsBoolean(), 10_000)) {
                         //等超过10秒依然没有收到dt，重发一次
                         clientSessionService.sendBytesToServer(GridAesCipherUtil.encrypt("dt".getBytes(StandardCharsets.UTF_8)));
-                        n = 0;
                     }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (stale.getAsBoolean()) {
+                    return;
                 }
                 //登录
                 sendLoginCommand();
-                checkSessionInit();
+                startCheckSessionInit();
             });
         });
     }
 
+    //等待condition成立，condition所依赖的状态变化时需调用signalLoginChanged，超时返回false
+    private boolean awaitLoginChanged(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        loginLock.lock();
+        try {
+            while (!condition.getAsBoolean()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = loginChanged.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            loginLock.unlock();
+        }
+    }
+
+    private void signalLoginChanged() {
+        loginLock.lock();
+        try {
+            loginChanged.signalAll();
+        } finally {
+            loginLock.unlock();
+        }
+    }
+
+    private synchronized void startCheckSessionInit() {
+        if (!sessionInitChecking) {
+            sessionInitChecking = true;
+            checkSessionInit();
+        }
+    }
+
     @Override
     public void receiveServerBytes(byte[] bytes) throws Exception {
         if (noLogin) {
@@ -102,14 +255,39 @@ final class PortReceiver implements Receiver {
                             log.info("dt {} ms", dt);
                         }
                     }
+                    signalLoginChanged();
+                    break;
+                case "hello":
+                    receiveHello(cmd[1]);
                     break;
                 case "login":
-                    String code = cmd[1];
+                    //0表示登录成功，恢复会话时后面带着服务端已按序收到的最大序号
+                    String[] codes = cmd[1].split(" ");
+                    String code = codes[0];
                     if ("0".equals(code)) {
+                        if (codes.length > 1 && null != link) {
+                            long peerReceived = Long.parseLong(codes[1]);
+                            if (!link.canResume(peerReceived)) {
+                                abandonResume(peerReceived);
+                                break;
+                            }
+                            resend(peerReceived);
+                        } else {
+                            if (everLogin) {
+                                resetLink();
+                            }
+                            aesCipherUtil = loginCipher;
+                            log.info("登录成功");
+                        }
+                        everLogin = true;
                         noLogin = false;
-                        log.info("登录成功");
+                        signalLoginChanged();
                     } else if (firstLoginErr) {
                         firstLoginErr = false;
+                        if (null != link && !everLogin) {
+                            //低版本的服务端无法解析带恢复信息的登录命令，不带恢复信息重试
+                            dropLink();
+                        }
                         log.warn("第一次登录失败 {} ，重试", code);
                         Thread.sleep(10000);
                         sendLoginCommand();
@@ -122,30 +300,319 @@ final class PortReceiver implements Receiver {
                     log.warn("未知命令 {}", s);
             }
         } else {
-            ClientTalker.receiveServerBytes(config, bytes, clientSessionManager, aesCipherUtil, sendCommandQueue, sessionIdCallBackMap);
+            inBytes.add(bytes.length);
+            ReliableLink link = this.link;
+            ClientTalker.receiveServerBytes(config, bytes, clientSessionManager, aesCipherUtil, sendCommandQueue, sessionIdCallBackMap, dt, link);
+            if (!sendCommandQueue.isEmpty() || (null != link && link.needAck())) {
+                sendBytesQueue.wakeUp();
+            }
+        }
+    }
+
+    //hello回复 code serverTs ... ，成功时code为0，后面是服务端选择的能力和新的票据，失败时后面是原因
+    private void receiveHello(String reply) throws Exception {
+        if (legacyLogin) {
+            log.warn("hello回复来得太晚，已改用先对时再登录的方式，忽略 {}", reply);
+            return;
+        }
+        long localTs = System.currentTimeMillis();
+        String[] r = reply.split(" ", 3);
+        String code = r[0];
+        //取往返的中点估计服务端处理hello时的本地时间
+        dt = Long.parseLong(r[1]) - (helloSendTime + localTs) / 2;
+        log.info("dt {} ms", dt);
+        helloReplied = true;
+        signalLoginChanged();
+        switch (code) {
+            case "0" -> {
+                String[] params = r[2].split(" ");
+                Map<String, String> caps = Capabilities.parse(params[0]);
+                String resume = caps.get(Capabilities.RESUME);
+                if (null != resume && !Capabilities.RESUME_NEW.equals(resume) && null != link) {
+                    long peerReceived = Long.parseLong(resume);
+                    if (!link.canResume(peerReceived)) {
+                        abandonResume(peerReceived);
+                        return;
+                    }
+                    resend(peerReceived);
+                } else {
+                    if (everLogin) {
+                        resetLink();
+                    }
+                    if (null == resume) {
+                        //服务端未启用会话恢复
+                        dropLink();
+                    }
+                    aesCipherUtil = helloByTicket ? ticketCipher : loginCipher;
+                    log.info("登录成功 {}", params[0]);
+                }
+                ticket = "-".equals(params[1]) ? null : params[1];
+                ticketCipher = aesCipherUtil;
+                clockRetry = 0;
+                everLogin = true;
+                noLogin = false;
+                signalLoginChanged();
+            }
+            case "clock" -> {
+                if (++clockRetry > 3) {
+                    helloFailed(r[2]);
+                } else {
+                    log.warn("与服务端时钟偏差过大，校正后重新登录");
+                    sendHello();
+                }
+            }
+            case "ticket" -> {
+                log.info("票据已失效，改用密码登录");
+                ticket = null;
+                sendHello();
+            }
+            default -> helloFailed(r[2]);
+        }
+    }
+
+    private void helloFailed(String msg) throws Exception {
+        if (firstLoginErr) {
+            firstLoginErr = false;
+            log.warn("第一次登录失败 {} ，重试", msg);
+            Thread.sleep(10000);
+            sendHello();
+        } else {
+            log.error("登录失败 {}", msg);
+            System.exit(0);
+        }
+    }
+
+    private void sendHello() {
+        ClientSessionService service = clientSessionService;
+        if (null == service) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        helloSendTime = now;
+        Long dt = this.dt;
+        long ts = null == dt ? now : now + dt;
+        String auth;
+        if (null != ticket) {
+            //凭票据登录，以票据对应的加密工具加密"用户名 时间戳"作为凭证
+            helloByTicket = true;
+            byte[] proof = ticketCipher.encryptor.encrypt((config.clientUser + " " + ts).getBytes(StandardCharsets.UTF_8));
+            auth = "t:" + ticket + ":" + BytesUtil.bytes2base64(proof);
+        } else {
+            helloByTicket = false;
+            loginCipher = new AesCipherUtil(config.clientPassword, ts);
+            auth = "p:" + BytesUtil.bytes2base64(loginCipher.encryptor.encrypt(config.clientPassword.getBytes(StandardCharsets.UTF_8)));
+        }
+        Map<String, String> caps = new LinkedHashMap<>();
+        caps.put(Capabilities.CODEC, Capabilities.CODEC_PB);
+        caps.put(Capabilities.ENCRYPT, config.enableEncrypt ? Capabilities.ENCRYPT_AES : Capabilities.NONE);
+        ReliableLink link = this.link;
+        if (null != link) {
+            caps.put(Capabilities.RESUME, epoch + ":" + link.getReceived());
+        }
+        String hello = "hello " + Capabilities.VERSION + " " + config.clientUser + " " + ts + " " + auth + " " + Capabilities.format(caps);
+        service.sendBytesToServer(GridAesCipherUtil.encrypt(hello.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    //会话已恢复，重发服务端还没收到的消息
+    private void resend(long peerReceived) {
+        List<byte[]> resend = link.resend(peerReceived);
+        ClientSessionService service = clientSessionService;
+        for (byte[] bytes : resend) {
+            if (config.enableEncrypt) {
+                bytes = aesCipherUtil.encryptor.encrypt(bytes);
+            }
+            service.sendBytesToServer(bytes);
+            outBytes.add(bytes.length);
+        }
+        log.info("会话恢复成功，重发消息数 {}", resend.size());
+    }
+
+    //服务端已无法恢复原来的会话(如服务端重启或等待重连超时)，关闭原有会话，以新的链路重新开始
+    private void resetLink() {
+        log.warn("服务端未能恢复会话，关闭原有会话");
+        //等待重连期间新建会话的命令还没发出，保留下来在新的链路上发送，其余命令作废
+        List<String> commands = new LinkedList<>();
+        sendCommandQueue.drainToList(commands);
+        List<String> createCommands = new LinkedList<>();
+        Set<Integer> createFlags = new HashSet<>();
+        for (String cmd : commands) {
+            if (cmd.charAt(0) == Constant.SsCommands.CreateSession) {
+                createCommands.add(cmd);
+                createFlags.add(Integer.parseInt(cmd.substring(1).split(Constant.sessionIdJoinFlag)[2]));
+            }
+        }
+        sessionIdCallBackMap.entrySet().removeIf((entry) -> {
+            if (createFlags.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().channelHandlerContext.close();
+            return true;
+        });
+        clientSessionManager.disposeAllClientSessions("服务端未能恢复会话");
+        //关闭会话产生的命令也作废
+        sendCommandQueue.clear((cmd) -> {
+        });
+        for (String cmd : createCommands) {
+            sendCommandQueue.add(cmd);
+        }
+        sendBytesQueue.clear(SessionBytes::release);
+        ReliableLink old = link;
+        link = new ReliableLink(config.clientUser, config.resume.bufferSize);
+        if (null != old) {
+            old.close();
+        }
+    }
+
+    //服务端接上了会话，但其已收到的序号与本地链路对不上(一方的链路已重建过)，继续下去会丢消息或收到重复的消息，
+    //换一个标识断开重连，让服务端丢弃原来的会话，双方都从新链路开始
+    private void abandonResume(long peerReceived) {
+        log.warn("服务端已收到的序号 {} 与本地链路不一致，放弃恢复会话并重新登录", peerReceived);
+        epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        resetLink();
+        clientSessionService.exit();
+    }
+
+    //发送流水线出错，链路不可恢复，断开传输层后重新登录
+    private void failLink() {
+        ReliableLink link = this.link;
+        if (null != link) {
+            link.abandon();
+        }
+        ClientSessionService service = this.clientSessionService;
+        if (null != service) {
+            service.exit();
+        } else {
+            close();
+        }
+    }
+
+    //不再使用可恢复链路
+    private void dropLink() {
+        ReliableLink link = this.link;
+        this.link = null;
+        if (null != link) {
+            link.close();
         }
     }
 
     @Override
     public void closeClientSession(ClientSession clientSession) {
-        sendCommandQueue.add(String.valueOf(Constant.SsCommands.CloseSession) + clientSession.getSessionId());
+        addCommand(String.valueOf(Constant.SsCommands.CloseSession) + clientSession.getSessionId());
     }
 
     @Override
     public void exit() {
+        ReliableLink link = this.link;
+        if (running && everLogin && null != link && link.isResumable()) {
+            detach();
+        } else {
+            close();
+        }
+    }
+
+    //传输层断开，保留会话和本地端口，等待以同一个config重建ClientSessionService后接上，超时则关闭
+    private void detach() {
+        int detachCount;
+        synchronized (detachedReceivers) {
+            if (null == clientSessionService) {
+                return;
+            }
+            noLogin = true;
+            clientSessionService = null;
+            detachCount = ++this.detachCount;
+            detachedReceivers.put(config, this);
+        }
+        signalLoginChanged();
+        log.info("传输层断开，保留会话等待重连");
+        Thread.startVirtualThread(() -> {
+            try {
+                Thread.sleep(config.resume.timeout);
+            } catch (InterruptedException ignored) {
+            }
+            synchronized (detachedReceivers) {
+                if (detachedReceivers.get(config) != this || this.detachCount != detachCount) {
+                    return;
+                }
+            }
+            log.info("等待重连超时，关闭会话");
+            close();
+        });
+    }
+
+    @Override
+    public void close() {
+        synchronized (detachedReceivers) {
+            detachedReceivers.remove(config, this);
+        }
         running = false;
+        signalLoginChanged();
+        sendPipeline.close();
         clientSessionManager.close();
+        dropLink();
     }
 
     @Override
     public boolean notUsed() {
-        return !noLogin && clientSessionManager.getSessionNum() == 0;
+        //还有等待服务端回复sessionId的会话时不算空闲，否则post等协议会挂起接收线程，收不到新建会话的回复
+        return !noLogin && clientSessionManager.getSessionNum() == 0 && sessionIdCallBackMap.isEmpty();
+    }
+
+    @Override
+    public synchronized void updateForwards(List<ScConfig.Forward> forwards) {
+        Map<Integer, ScConfig.Forward> newForwardMap = new HashMap<>();
+        if (null != forwards) {
+            for (ScConfig.Forward forward : forwards) {
+                newForwardMap.put(forward.localPort, forward);
+            }
+        }
+        //先停止监听再移除，已建立的连接继续工作直到各自关闭
+        for (ScConfig.Forward old : new ArrayList<>(forwardMap.values())) {
+            if (!newForwardMap.containsKey(old.localPort)) {
+                boolean res = clientSessionManager.unbindPort(old.localPort);
+                clientSessionManager.removeRecvBuffer(old.localPort);
+                forwardMap.remove(old.localPort);
+                log.info("unbind port {} {} -> {}", res ? "success" : "fail",
+                        old.localPort, ScUtil.describeTargets(old));
+            }
+        }
+        for (ScConfig.Forward forward : newForwardMap.values()) {
+            ScConfig.Forward old = forwardMap.put(forward.localPort, forward);
+            //读缓冲的修改只影响此后新建的连接
+            ScUtil.applyRecvBuffer(clientSessionManager, config, forward);
+            if (null == old) {
+                boolean res = clientSessionManager.bindPort(forward.localPort);
+                if (!res) {
+                    forwardMap.remove(forward.localPort);
+                }
+                log.info("bind port {} {} -> {}", res ? "success" : "fail",
+                        forward.localPort, ScUtil.describeTargets(forward));
+            } else if (!ScUtil.describeTargets(old).equals(ScUtil.describeTargets(forward))) {
+                //只影响此后新建的连接
+                log.info("change port {} {} -> {}", forward.localPort,
+                        ScUtil.describeTargets(old), ScUtil.describeTargets(forward));
+            }
+        }
+    }
+
+    //添加一条向服务端发送的命令，并唤醒阻塞在取bytes上的发送线程
+    private void addCommand(String cmd) {
+        sendCommandQueue.add(cmd);
+        sendBytesQueue.wakeUp();
     }
 
     private void sendLoginCommand() {
-        aesCipherUtil = new AesCipherUtil(config.clientPassword, System.currentTimeMillis() + dt);
-        String loginCode = BytesUtil.bytes2base64(aesCipherUtil.encryptor.encrypt(config.clientPassword.getBytes(StandardCharsets.UTF_8)));
-        clientSessionService.sendBytesToServer(GridAesCipherUtil.encrypt(("login " + config.clientUser + " " + loginCode).getBytes(StandardCharsets.UTF_8)));
+        loginCipher = new AesCipherUtil(config.clientPassword, System.currentTimeMillis() + dt);
+        String loginCode = BytesUtil.bytes2base64(loginCipher.encryptor.encrypt(config.clientPassword.getBytes(StandardCharsets.UTF_8)));
+        String login = "login " + config.clientUser + " " + loginCode;
+        ReliableLink link = this.link;
+        if (null != link) {
+            //带上恢复会话所需的信息
+            login += " " + epoch + " " + link.getReceived();
+        }
+        ClientSessionService service = clientSessionService;
+        if (null != service) {
+            service.sendBytesToServer(GridAesCipherUtil.encrypt(login.getBytes(StandardCharsets.UTF_8)));
+        }
     }
 
     //起一个线程定时检测是否有SessionIdCallBack长期未得到响应，若是则说明连接故障，重启ClientSessionService
@@ -177,12 +644,33 @@ final class PortReceiver implements Receiver {
     private Thread buildSendThread() {
         return new Thread(() -> {
             while (running) {
+                //登录前aesCipherUtil还未初始化，登录前及等待重连期间建立的会话的命令留在队列里，登录后再发
+                if (noLogin) {
+                    try {
+                        awaitLoginChanged(() -> !noLogin || !running, 10_000);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
                 try {
-                    byte[] sendBytes = ClientTalker.buildSendToServerBytes(config, config.maxSendBodySize, sendCommandQueue, sendBytesQueue, aesCipherUtil, true);
-                    if (null != sendBytes) {
-                        log.debug("sendBytesToServer {}", sendBytes.length);
-                        clientSessionService.sendBytesToServer(sendBytes);
+                    TalkMessage talkMessage = ClientTalker.fetchSendToServerMessage(config.maxSendBodySize, sendCommandQueue, sendBytesQueue, true);
+                    ReliableLink link = this.link;
+                    if (null == talkMessage) {
+                        if (null == link || !link.hasPendingAck()) {
+                            continue;
+                        }
+                        //没有数据要发，单独回一条确认
+                        talkMessage = new TalkMessage(List.of(), List.of());
+                    }
+                    if (null != link) {
+                        //只携带确认的空消息不编号，丢了也无妨
+                        if (!talkMessage.isEmpty()) {
+                            talkMessage.setSeq(link.nextSeq());
+                        }
+                        talkMessage.setAck(link.takeAck());
                     }
+                    sendPipeline.submit(talkMessage);
                 } catch (Exception e) {
                     log.warn("发送消息异常", e);
                     try {
@@ -202,23 +690,24 @@ final class PortReceiver implements Receiver {
 
             @Override
             public void connected(int port, ChannelHandlerContext ctx, SessionIdCallBack cb) {
-                for (ScConfig.Forward forward : config.forwards) {
-                    if (forward.localPort == port) {
-                        int newSessionFlag = newSessionFlagIdx.addAndGet(1);
-                        String cmd = Constant.SsCommands.CreateSession + forward.remoteHost + Constant.sessionIdJoinFlag + forward.remotePort + Constant.sessionIdJoinFlag + newSessionFlag;
-                        sendCommandQueue.add(cmd);
-                        log.debug("connected command: {}", cmd);
-                        sessionIdCallBackMap.put(newSessionFlag, cb);
-                        log.info("建立连接 {}: {}->{}:{}", ctx.hashCode(), forward.localPort, forward.remoteHost, forward.remotePort);
-                        try {
-                            clientSessionService.newConnected();
-                        } catch (Exception e) {
-                            log.warn("newConnected Exception", e);
-                        }
-                        return;
+                ScConfig.Forward forward = forwardMap.get(port);
+                if (null == forward) {
+                    throw new RuntimeException("未知 localPort " + port);
+                }
+                int newSessionFlag = newSessionFlagIdx.addAndGet(1);
+                String cmd = ScUtil.buildCreateSessionCommand(forward, newSessionFlag);
+                addCommand(cmd);
+                log.debug("connected command: {}", cmd);
+                sessionIdCallBackMap.put(newSessionFlag, cb);
+                log.info("建立连接 {}: {}->{}", ctx.hashCode(), forward.localPort, ScUtil.describeTargets(forward));
+                try {
+                    ClientSessionService service = clientSessionService;
+                    if (null != service) {
+                        service.newConnected();
                     }
+                } catch (Exception e) {
+                    log.warn("newConnected Exception", e);
                 }
-                throw new RuntimeException("未知 localPort " + port);
             }
 
             @Override
@@ -2,6 +2,9 @@ package org.wowtools.hppt.run.sc.common;
 
 
 import org.wowtools.hppt.common.client.ClientSession;
+import org.wowtools.hppt.run.sc.pojo.ScConfig;
+
+import java.util.List;
 
 /**
  * @author liuyu
@@ -12,7 +15,22 @@ public sealed interface Receiver permits PortReceiver, SsReceiver {
 
     void closeClientSession(ClientSession clientSession);
 
+    /**
+     * 传输层断开时调用，可恢复时保留会话等待重连，否则关闭
+     */
     void exit();
 
+    /**
+     * 彻底关闭，不再等待重连
+     */
+    void close();
+
     boolean notUsed();
+
+    /**
+     * 配置文件修改后，按新的forwards增删改本地监听端口，未变化的端口及其已建立的连接不受影响
+     *
+     * @param forwards 新的forwards
+     */
+    void updateForwards(List<ScConfig.Forward> forwards);
 }
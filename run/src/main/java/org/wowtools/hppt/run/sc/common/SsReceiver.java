@@ -1,20 +1,45 @@
 package org.wowtools.hppt.run.sc.common;
 
+import io.netty.buffer.ByteBuf;
 import org.wowtools.hppt.common.client.ClientSession;
+import org.wowtools.hppt.common.util.BufferBudget;
 import org.wowtools.hppt.common.util.BufferPool;
 import org.wowtools.hppt.common.util.RoughTimeUtil;
 import org.wowtools.hppt.run.sc.pojo.ScConfig;
 
+import java.util.List;
+
 
 /**
  * @author liuyu
  * @date 2024/9/27
  */
 public final class SsReceiver implements Receiver {
-    public final BufferPool<byte[]> serverBytesQueue = new BufferPool<>(">SsReceiver-serverBytesQueue");
+    /**
+     * 服务退出的标记，exit时放入serverBytesQueue，以通知消费者当前连接已不可用
+     */
+    public static final byte[] EXIT_FLAG = new byte[0];
+
+    public final BufferPool<byte[]> serverBytesQueue = new BufferPool<>(">SsReceiver-serverBytesQueue",
+            BufferBudget.newAccount("sc"), BufferPool.BYTES_CODEC);
 
     private long lastUsedTime = RoughTimeUtil.getTimestamp();
 
+    /**
+     * 直接接收服务端ByteBuf的接收器
+     */
+    @FunctionalInterface
+    public interface ByteBufReceiver {
+        /**
+         * 接收ByteBuf，方法执行完后buf会被释放，需要继续持有时请retain
+         *
+         * @param buf buf
+         */
+        void receive(ByteBuf buf);
+    }
+
+    private volatile ByteBufReceiver byteBufReceiver;
+
     public SsReceiver(ScConfig config, ClientSessionService clientSessionService) throws Exception {
     }
 
@@ -24,6 +49,26 @@ public final class SsReceiver implements Receiver {
         serverBytesQueue.add(bytes);
     }
 
+    /**
+     * 设置直接接收服务端ByteBuf的接收器，设置后基于netty的实现收到的ByteBuf不再转为byte[]放入serverBytesQueue
+     *
+     * @param byteBufReceiver 接收器
+     */
+    public void setByteBufReceiver(ByteBufReceiver byteBufReceiver) {
+        this.byteBufReceiver = byteBufReceiver;
+    }
+
+    //交给ByteBuf接收器处理，没有接收器时返回false
+    boolean receiveServerByteBuf(ByteBuf buf) {
+        ByteBufReceiver r = byteBufReceiver;
+        if (null == r) {
+            return false;
+        }
+        lastUsedTime = RoughTimeUtil.getTimestamp();
+        r.receive(buf);
+        return true;
+    }
+
     @Override
     public void closeClientSession(ClientSession clientSession) {
 
@@ -31,11 +76,21 @@ public final class SsReceiver implements Receiver {
 
     @Override
     public void exit() {
+        serverBytesQueue.add(EXIT_FLAG);
+    }
 
+    @Override
+    public void close() {
+        //中继模式不做会话恢复，exit时已关闭
     }
 
     @Override
     public boolean notUsed() {
         return RoughTimeUtil.getTimestamp() - lastUsedTime > 60_000L;
     }
+
+    @Override
+    public void updateForwards(List<ScConfig.Forward> forwards) {
+        //中继模式下不监听本地端口，forwards由下游sc决定
+    }
 }
@@ -49,6 +49,9 @@ public class HpptClientSessionService extends ClientSessionService {
                             }
                         });
                 bootstrap.connect(config.hppt.host, config.hppt.port).sync().channel().closeFuture().sync();
+                //连接断开后及时退出，以便重连
+                log.info("与服务端的连接已断开");
+                exit();
             } catch (Exception e) {
                 log.warn("netty err", e);
                 exit();
@@ -71,6 +74,12 @@ public class HpptClientSessionService extends ClientSessionService {
         }
     }
 
+    @Override
+    public Channel getServerChannel() {
+        ChannelHandlerContext ctx = _ctx;
+        return null == ctx ? null : ctx.channel();
+    }
+
     private class MessageHandler extends SimpleChannelInboundHandler<ByteBuf> {
         private final Cb cb;
 
@@ -81,8 +90,7 @@ public class HpptClientSessionService extends ClientSessionService {
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
             // 处理接收到的消息
-            byte[] bytes = BytesUtil.byteBuf2bytes(msg);
-            receiveServerBytes(bytes);
+            receiveServerByteBuf(msg);
         }
 
         @Override
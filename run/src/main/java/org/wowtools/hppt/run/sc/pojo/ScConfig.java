@@ -31,6 +31,49 @@ public class ScConfig extends CommonConfig {
          */
         public int remotePort;
 
+        /**
+         * 多个目标端，配置后由ss按ss.balance的策略在其中选择、连接失败时尝试下一个，此时remoteHost、remotePort可不填。
+         * 旧版ss不支持时只连接remoteHost:remotePort，未填则连接第一个目标端
+         */
+        public ArrayList<Target> targets;
+
+        /**
+         * 此端口上用户连接的读缓冲大小，为空则使用全局的recvBuffer
+         */
+        public RecvBufferConfig recvBuffer;
+
+    }
+
+    public static final class Target {
+        /**
+         * 远程ip或域名
+         */
+        public String host;
+        /**
+         * 远程端口
+         */
+        public int port;
+        /**
+         * 权重，权重越大分到的会话越多
+         */
+        public int weight = 1;
+    }
+
+    public static final class RecvBufferConfig {
+        /**
+         * 读缓冲最小字节数
+         */
+        public int min = 1024;
+
+        /**
+         * 读缓冲初始字节数
+         */
+        public int initial = 16 * 1024;
+
+        /**
+         * 读缓冲最大字节数，超过maxSendBodySize时按maxSendBodySize算
+         */
+        public int max = 1024 * 1024;
     }
 
     public static final class PostConfig {
@@ -40,7 +83,8 @@ public class ScConfig extends CommonConfig {
         public String serverUrl;
 
         /**
-         * 人为添加一个发送等待时间（毫秒），若网络质量不佳或发送请求过于频繁，可设置一个大于0的值来等待若干毫秒后一起发送
+         * 人为添加一个发送等待时间（毫秒），若网络质量不佳或发送请求过于频繁，可设置一个大于0的值来等待若干毫秒后一起发送。
+         * 仅在coalesce.enabled为false时生效
          */
         public long sendSleepTime = 5;
 
@@ -145,12 +189,27 @@ public class ScConfig extends CommonConfig {
      */
     public String clientPassword;
 
+    /**
+     * 以单次往返的hello握手登录，等待此毫秒数仍未收到回复则视为低版本的ss，改用先对时再登录的旧方式，小于等于0表示直接使用旧方式
+     */
+    public long helloTimeout = 5000;
+
     /**
      * 向服务端发数据包包体的最大字节数，默认10M。包体过小影响传输性能，包体过大则可能导致发包超时或服务端拒绝等问题。
      * 例如，在使用nginx代理服务端端口时，有时会出现413 Request Entity Too Large问题，没办法改nginx的话就用这个值限制。
      */
     public int maxSendBodySize = 10 * 1024 * 1024;
 
+    /**
+     * 用户连接的读缓冲大小，实际大小按最近读到的字节数在[min,max]之间自适应调整，空闲连接不会占用大块内存
+     */
+    public RecvBufferConfig recvBuffer = new RecvBufferConfig();
+
+    /**
+     * 用户连接的内核收发缓冲字节数(SO_RCVBUF/SO_SNDBUF)，小于等于0表示使用系统默认，由内核自动调节
+     */
+    public int socketBufferSize = 0;
+
     /**
      * 端口转发
      */
@@ -3,6 +3,9 @@ package org.wowtools.hppt.run.sc.post;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import org.wowtools.hppt.common.metrics.Histogram;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
+import org.wowtools.hppt.common.util.AdaptiveCoalescer;
 import org.wowtools.hppt.common.util.BytesUtil;
 import org.wowtools.hppt.common.util.HttpUtil;
 import org.wowtools.hppt.run.sc.common.ClientSessionService;
@@ -47,17 +50,31 @@ public class PostClientSessionService extends ClientSessionService {
 
     private void startSendThread(Cb cb) {
         Thread.startVirtualThread(() -> {
-            //等待初始化完成
             cb.end(null);
             //起一个while循环不断发送数据
             final long sendSleepTime = config.post.sendSleepTime;
+            final AdaptiveCoalescer coalescer = AdaptiveCoalescer.build(config.coalesce, config.maxSendBodySize);
             while (running) {
                 try {
                     byte[] sendBytes;
                     List<byte[]> bytesList = new LinkedList<>();
                     sendBytes = sendQueue.take();
                     bytesList.add(sendBytes);
-                    if (sendSleepTime > 0) {
+                    if (null != coalescer) {
+                        //链路繁忙时攒批，空闲时立即发出
+                        long pending = sendBytes.length;
+                        long budget = coalescer.sizeBudget();
+                        long deadline = coalescer.deadline(System.nanoTime());
+                        long remain;
+                        while (pending < budget && (remain = deadline - System.nanoTime()) > 0) {
+                            byte[] next = sendQueue.poll(remain, TimeUnit.NANOSECONDS);
+                            if (null == next) {
+                                break;
+                            }
+                            bytesList.add(next);
+                            pending += next.length;
+                        }
+                    } else if (sendSleepTime > 0) {
                         try {
                             Thread.sleep(sendSleepTime);
                         } catch (InterruptedException e) {
@@ -66,28 +83,25 @@ public class PostClientSessionService extends ClientSessionService {
                     }
                     sendQueue.drainTo(bytesList);
                     sendBytes = BytesUtil.bytesCollection2PbBytes(bytesList);
-                    if (log.isDebugEnabled()) {
-                        long t = System.currentTimeMillis();
-                        try (Response r = HttpUtil.doPost(sendUrl, sendBytes)) {
-                            assert r.body() != null;
-                            byte[] rBytes = r.body().bytes();
-                            if (rBytes.length == 0) {
-                                log.debug("SendThread 发送完成,cost {}", System.currentTimeMillis() - t);
-                            } else {
-                                throw new RuntimeException("异常的响应值" + new String(rBytes, StandardCharsets.UTF_8));
-                            }
+                    long t = System.nanoTime();
+                    try (Response r = HttpUtil.doPost(sendUrl, sendBytes)) {
+                        assert r.body() != null;
+                        if (!r.isSuccessful()) {
+                            throw new RuntimeException("异常的响应码" + r.code());
                         }
-                    } else {
-                        try (Response r = HttpUtil.doPost(sendUrl, sendBytes)) {
-                            assert r.body() != null;
-                            byte[] rBytes = r.body().bytes();
-                            if (rBytes.length == 0) {
-                                log.debug("SendThread 发送完成");
-                            } else {
-                                throw new RuntimeException("异常的响应值" + new String(rBytes, StandardCharsets.UTF_8));
+                        byte[] rBytes = r.body().bytes();
+                        if (rBytes.length == 0) {
+                            if (log.isDebugEnabled()) {
+                                log.debug("SendThread 发送完成,cost {}", (System.nanoTime() - t) / 1_000_000);
                             }
+                        } else {
+                            throw new RuntimeException("异常的响应值" + new String(rBytes, StandardCharsets.UTF_8));
                         }
                     }
+                    if (null != coalescer) {
+                        coalescer.rtt(System.nanoTime() - t);
+                        coalescer.flushed(sendBytes.length, !sendQueue.isEmpty());
+                    }
 
                 } catch (Exception e) {
                     log.warn("SendThread异常", e);
@@ -97,20 +111,16 @@ public class PostClientSessionService extends ClientSessionService {
         });
     }
 
+    private static final Histogram longPoll = HpptMetrics.longPoll(HpptMetrics.SIDE_SC);
+
     private final Object replyThreadEmptyLock = new Object();
     private volatile boolean replyThreadEmptySleep = false;
 
     private void startReplyThread() {
         Thread.startVirtualThread(() -> {
-            while (null == sendUrl) {
-                log.info("wait url init");
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException e) {
-                }
-            }
             boolean empty = false;
             final long sendSleepTime = config.post.sendSleepTime;
+            final boolean coalesce = null != config.coalesce && config.coalesce.enabled;
             while (running) {
                 //检测是否需要挂起接收线程
                 if (empty && notUsed()) {
@@ -132,19 +142,19 @@ public class PostClientSessionService extends ClientSessionService {
                 //发一个接收请求接数据
                 try {
                     byte[] responseBytes;
-                    if (log.isDebugEnabled()) {
-                        log.debug("ReplyThread 发起请求");
-                        long t = System.currentTimeMillis();
-                        try (Response response = HttpUtil.doPost(replyUrl, null)) {
-                            ResponseBody body = response.body();
-                            responseBytes = null == body ? null : body.bytes();
-                        }finally {
-                            log.debug("ReplyThread 请求完成,cost {}", System.currentTimeMillis() - t);
+                    log.debug("ReplyThread 发起请求");
+                    long t = System.nanoTime();
+                    try (Response response = HttpUtil.doPost(replyUrl, null)) {
+                        //服务端出错或集群中的节点不可用，重连以便换一个cookie
+                        if (response.code() >= 500) {
+                            throw new RuntimeException("异常的响应码" + response.code());
                         }
-                    }else {
-                        try (Response response = HttpUtil.doPost(replyUrl, null)) {
-                            ResponseBody body = response.body();
-                            responseBytes = null == body ? null : body.bytes();
+                        ResponseBody body = response.body();
+                        responseBytes = null == body ? null : body.bytes();
+                    } finally {
+                        longPoll.recordSince(t);
+                        if (log.isDebugEnabled()) {
+                            log.debug("ReplyThread 请求完成,cost {}", (System.nanoTime() - t) / 1_000_000);
                         }
                     }
                     if (null != responseBytes && responseBytes.length > 0) {
@@ -167,8 +177,8 @@ public class PostClientSessionService extends ClientSessionService {
                     log.warn("ReplyThread异常", e);
                     exit();
                 }
-                //按需做等待
-                if (sendSleepTime > 0) {
+                //按需做等待，启用自适应合并时由ss决定何时返回数据，这里无需等待
+                if (!coalesce && sendSleepTime > 0) {
                     try {
                         Thread.sleep(sendSleepTime);
                     } catch (InterruptedException e) {
@@ -73,6 +73,12 @@ public class RHpptClientSessionService extends ClientSessionService {
         }
     }
 
+    @Override
+    public Channel getServerChannel() {
+        ChannelHandlerContext ctx = _ctx;
+        return null == ctx ? null : ctx.channel();
+    }
+
     private class MessageHandler extends SimpleChannelInboundHandler<ByteBuf> {
         private final Cb cb;
 
@@ -90,9 +96,8 @@ public class RHpptClientSessionService extends ClientSessionService {
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
             // 处理接收到的消息
-            byte[] content = BytesUtil.byteBuf2bytes(msg);
             try {
-                receiveServerBytes(content);
+                receiveServerByteBuf(msg);
             } catch (Exception e) {
                 log.warn("接收消息异常", e);
                 exit();
@@ -1,27 +1,33 @@
 package org.wowtools.hppt.run.sc.rpost;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.util.concurrent.ScheduledFuture;
 import lombok.extern.slf4j.Slf4j;
-import org.wowtools.hppt.common.util.BytesUtil;
+import org.wowtools.hppt.common.util.BytesListCodec;
 import org.wowtools.hppt.common.util.NettyObjectBuilder;
 import org.wowtools.hppt.run.sc.common.ClientSessionService;
 import org.wowtools.hppt.run.sc.pojo.ScConfig;
 
-import java.util.Collection;
+import java.util.ArrayDeque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 public class RPostClientSessionService extends ClientSessionService {
 
     private final BlockingQueue<byte[]> sendQueue = new LinkedBlockingQueue<>();
+    //正在等待数据的/s长轮询，sendQueue中有新数据时取出并执行以唤醒它
+    private final AtomicReference<Runnable> sendWaiter = new AtomicReference<>();
 
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
@@ -44,7 +50,6 @@ public class RPostClientSessionService extends ClientSessionService {
                         @Override
                         protected void initChannel(SocketChannel ch) {
                             ch.pipeline().addLast(new HttpServerCodec());
-                            ch.pipeline().addLast(new HttpObjectAggregator(104857600)); // 100 MB
                             ch.pipeline().addLast(new PostHandler());
                         }
                     });
@@ -63,6 +68,10 @@ public class RPostClientSessionService extends ClientSessionService {
     @Override
     public void sendBytesToServer(byte[] bytes) {
         sendQueue.add(bytes);
+        Runnable waiter = sendWaiter.getAndSet(null);
+        if (null != waiter) {
+            waiter.run();
+        }
     }
 
     @Override
@@ -87,89 +96,155 @@ public class RPostClientSessionService extends ClientSessionService {
         }
     }
 
-    private class PostHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+    //请求体不聚合，/r边接收边解析，/s长轮询期间不占用线程
+    //以下方法都在连接的io线程中执行，不能阻塞，否则同一io线程上的/s长轮询定时器也会停住
+    private class PostHandler extends SimpleChannelInboundHandler<HttpObject> {
+        //当前请求的路径，null表示忽略请求的剩余部分
+        private String uri;
+        private BytesListCodec.Decoder decoder;
+        private ChannelHandlerContext ctx;
+        //已解析出但接收缓冲区已满未能交出的字节，交出前暂停读取，全部交出后才回复/r，由此把背压传给服务端
+        private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+        private final Runnable spaceWaker = () -> ctx.executor().execute(this::drain);
+        private boolean respondWhenDrained;
 
-        private final class ChannelReader implements Runnable{
-            private final ChannelHandlerContext ctx;
-            private final FullHttpRequest req;
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+            super.handlerAdded(ctx);
+            this.ctx = ctx;
+        }
 
-            public ChannelReader(ChannelHandlerContext ctx, FullHttpRequest req) {
-                this.ctx = ctx;
-                this.req = req;
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+            if (msg instanceof HttpRequest req) {
+                uri = req.uri();
+                if ("/r".equals(uri)) {
+                    decoder = new BytesListCodec.Decoder(this::receive, BytesListCodec.MAX_BODY_LENGTH);
+                } else if (!"/s".equals(uri)) {
+                    respond(ctx, new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND));
+                    return;
+                }
             }
-
-            @Override
-            public void run() {
-                try {
-                    HttpResponse response;
-                    String uri = req.uri();
-                    if ("/s".equals(uri)) {
-                        try {
-                            response = sendResponse();
-                        } catch (Exception e) {
-                            log.error("sendResponse error", e);
-                            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR);
-                        }
-                    } else if ("/r".equals(uri)) {
-                        try {
-                            response = receiveBytes(req);
-                        } catch (Exception e) {
-                            log.error("receiveBytes error", e);
-                            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            if (null == uri) {
+                return;
+            }
+            try {
+                if (null != decoder && msg instanceof HttpContent content) {
+                    decoder.decode(content.content());
+                }
+                if (msg instanceof LastHttpContent) {
+                    if (null != decoder) {
+                        decoder.finish();
+                        if (pending.isEmpty()) {
+                            respond(ctx, emptyResponse());
+                        } else {
+                            respondWhenDrained = true;
                         }
                     } else {
-                        response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
+                        uri = null;
+                        new SendPoll(ctx).start();
                     }
-                    ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
-                } finally {
-                    req.release();
                 }
+            } catch (Exception e) {
+                log.error("receiveBytes error", e);
+                respond(ctx, new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR));
             }
         }
 
-        @Override
-        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
-            req.retain();
-            Thread.startVirtualThread(new ChannelReader(ctx,req));
+        private void receive(byte[] bytes) {
+            if (pending.isEmpty() && tryReceiveServerBytes(bytes, spaceWaker)) {
+                return;
+            }
+            pending.add(bytes);
+            ctx.channel().config().setAutoRead(false);
         }
 
-        private HttpResponse sendResponse() throws Exception {
-            byte[] rBytes = sendQueue.poll(config.rpost.waitResponseTime, TimeUnit.MILLISECONDS);
-            if (null != rBytes) {
-                List<byte[]> bytesList = new LinkedList<>();
-                bytesList.add(rBytes);
-                sendQueue.drainTo(bytesList);
-                rBytes = BytesUtil.bytesCollection2PbBytes(bytesList);
-                log.debug("向客户端发送字节 {}", rBytes.length);
-
-                FullHttpResponse response = new DefaultFullHttpResponse(
-                        HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
-                response.content().writeBytes(rBytes);
-                response.headers().set(HttpHeaderNames.CONTENT_LENGTH, rBytes.length);
-                return response;
-            } else {
-                FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
-                response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
-                return response;
+        //接收缓冲区腾出空间后继续交出暂存的字节
+        private void drain() {
+            while (!pending.isEmpty()) {
+                if (!tryReceiveServerBytes(pending.peek(), spaceWaker)) {
+                    return;
+                }
+                pending.poll();
+            }
+            ctx.channel().config().setAutoRead(true);
+            if (respondWhenDrained) {
+                respondWhenDrained = false;
+                respond(ctx, emptyResponse());
             }
+        }
+
+        //写出响应并忽略请求的剩余部分，每个请求处理完都关闭连接
+        private void respond(ChannelHandlerContext ctx, HttpResponse response) {
+            uri = null;
+            decoder = null;
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private static FullHttpResponse emptyResponse() {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.EMPTY_BUFFER);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        return response;
+    }
+
+    //一次/s长轮询，除wakeUp外的方法都在连接的io线程中执行
+    private final class SendPoll {
+        private final ChannelHandlerContext ctx;
+        private final Runnable waker = this::wakeUp;
+        private ScheduledFuture<?> timer;
+        private boolean done;
+
+        SendPoll(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
 
+        void start() {
+            timer = ctx.executor().schedule(() -> finish(null), config.rpost.waitResponseTime, TimeUnit.MILLISECONDS);
+            poll();
         }
 
-        private HttpResponse receiveBytes(FullHttpRequest req) throws Exception {
-            byte[] bytes = BytesUtil.byteBuf2bytes(req.content());
-            Collection<byte[]> bytesList = BytesUtil.pbBytes2BytesList(bytes).getBytes();
-            for (byte[] sub : bytesList) {
-                try {
-                    receiveServerBytes(sub);
-                } catch (Exception e) {
-                    log.warn("接收字节异常", e);
-                    exit();
+        private void wakeUp() {
+            ctx.executor().execute(this::poll);
+        }
+
+        private void poll() {
+            if (done) {
+                return;
+            }
+            byte[] bytes = sendQueue.poll();
+            if (null == bytes) {
+                //先登记再检查一次，避免登记前到达的数据没有唤醒
+                sendWaiter.set(waker);
+                bytes = sendQueue.poll();
+                if (null == bytes) {
+                    return;
                 }
+                sendWaiter.compareAndSet(waker, null);
             }
+            finish(bytes);
+        }
 
-            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
-            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
-            return response;
+        private void finish(byte[] first) {
+            if (done) {
+                return;
+            }
+            done = true;
+            sendWaiter.compareAndSet(waker, null);
+            timer.cancel(false);
+            FullHttpResponse response;
+            if (null == first) {
+                response = emptyResponse();
+            } else {
+                List<byte[]> bytesList = new LinkedList<>();
+                bytesList.add(first);
+                sendQueue.drainTo(bytesList);
+                ByteBuf body = BytesListCodec.encode(ctx.alloc(), bytesList);
+                log.debug("向客户端发送字节 {}", body.readableBytes());
+                response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, body);
+                response.headers().set(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+            }
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
         }
     }
 }
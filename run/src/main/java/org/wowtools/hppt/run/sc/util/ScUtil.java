@@ -5,6 +5,8 @@ import org.wowtools.hppt.common.client.ClientBytesSender;
 import org.wowtools.hppt.common.client.ClientSessionLifecycle;
 import org.wowtools.hppt.common.client.ClientSessionManager;
 import org.wowtools.hppt.common.client.ClientSessionManagerBuilder;
+import org.wowtools.hppt.common.server.TargetBalancer;
+import org.wowtools.hppt.common.util.Constant;
 import org.wowtools.hppt.common.util.NettyObjectBuilder;
 import org.wowtools.hppt.run.sc.pojo.ScConfig;
 
@@ -19,18 +21,70 @@ public class ScUtil {
     public static ClientSessionManager createClientSessionManager(ScConfig config, ClientSessionLifecycle lifecycle, ClientBytesSender clientBytesSender) {
 
         ClientSessionManager clientSessionManager = new ClientSessionManagerBuilder()
-                .setBufferSize(config.maxSendBodySize * 2)
+                .setSocketBufferSize(config.socketBufferSize)
+                .setRecvBuffer(config.recvBuffer.min, config.recvBuffer.initial, Math.min(config.recvBuffer.max, config.maxSendBodySize))
                 .setLifecycle(lifecycle)
                 .setWorkerGroup(NettyObjectBuilder.buildEventLoopGroup(config.workerGroupNum))
                 .setClientBytesSender(clientBytesSender)
                 .build();
         if (null != config.forwards) {
             for (ScConfig.Forward forward : config.forwards) {
+                applyRecvBuffer(clientSessionManager, config, forward);
                 boolean res = clientSessionManager.bindPort(forward.localPort);
-                log.info("bind port {} {} -> {}:{}", res ? "success" : "fail",
-                        forward.localPort, forward.remoteHost, forward.remotePort);
+                log.info("bind port {} {} -> {}", res ? "success" : "fail",
+                        forward.localPort, describeTargets(forward));
             }
         }
         return clientSessionManager;
     }
+
+    /**
+     * 生成新建会话的命令 host,port,initFlag[,targets]，配置了多个目标端时附带targets由ss选择
+     */
+    public static String buildCreateSessionCommand(ScConfig.Forward forward, int initFlag) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(Constant.SsCommands.CreateSession);
+        if (null == forward.targets || forward.targets.isEmpty()) {
+            sb.append(forward.remoteHost).append(Constant.sessionIdJoinFlag).append(forward.remotePort)
+                    .append(Constant.sessionIdJoinFlag).append(initFlag);
+            return sb.toString();
+        }
+        //旧版ss只认前三个参数，未配置remoteHost时让它连第一个目标端
+        ScConfig.Target first = forward.targets.get(0);
+        boolean noRemote = null == forward.remoteHost || forward.remoteHost.isEmpty();
+        sb.append(noRemote ? first.host : forward.remoteHost).append(Constant.sessionIdJoinFlag)
+                .append(noRemote ? first.port : forward.remotePort).append(Constant.sessionIdJoinFlag)
+                .append(initFlag).append(Constant.sessionIdJoinFlag)
+                .append(describeTargets(forward));
+        return sb.toString();
+    }
+
+    /**
+     * forward的目标端描述，只有一个目标端时为host:port，多个时为host:port:weight;host:port:weight，用于日志和判断是否修改
+     */
+    public static String describeTargets(ScConfig.Forward forward) {
+        if (null == forward.targets || forward.targets.isEmpty()) {
+            return forward.remoteHost + ":" + forward.remotePort;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (ScConfig.Target target : forward.targets) {
+            if (!sb.isEmpty()) {
+                sb.append(Constant.targetJoinFlag);
+            }
+            sb.append(TargetBalancer.encode(target.host, target.port, target.weight));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按forward的配置设置其端口上用户连接的读缓冲大小，未配置则使用全局的
+     */
+    public static void applyRecvBuffer(ClientSessionManager clientSessionManager, ScConfig config, ScConfig.Forward forward) {
+        ScConfig.RecvBufferConfig recvBuffer = forward.recvBuffer;
+        if (null == recvBuffer) {
+            clientSessionManager.removeRecvBuffer(forward.localPort);
+        } else {
+            clientSessionManager.setRecvBuffer(forward.localPort, recvBuffer.min, recvBuffer.initial, Math.min(recvBuffer.max, config.maxSendBodySize));
+        }
+    }
 }
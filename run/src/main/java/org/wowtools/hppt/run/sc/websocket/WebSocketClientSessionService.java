@@ -1,6 +1,7 @@
 package org.wowtools.hppt.run.sc.websocket;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.*;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
@@ -66,7 +67,18 @@ public class WebSocketClientSessionService extends ClientSessionService {
 
                             @Override
                             protected void channelRead0(ChannelHandlerContext ctx, BinaryWebSocketFrame msg) throws Exception {
-                                receiveServerBytes(BytesUtil.byteBuf2bytes(msg.content()));
+                                receiveServerByteBuf(msg.content());
+                            }
+
+                            @Override
+                            public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+                                super.channelInactive(ctx);
+                                //连接断开后及时退出，以便重连
+                                log.info("与服务端的连接已断开");
+                                exit();
+                                if (!inited) {
+                                    cb.end(new RuntimeException("握手完成前连接已断开"));
+                                }
                             }
 
                             @Override
@@ -114,6 +126,16 @@ public class WebSocketClientSessionService extends ClientSessionService {
         wsChannel = cf.channel();
     }
 
+    @Override
+    public Channel getServerChannel() {
+        return wsChannel;
+    }
+
+    @Override
+    public Object wrapServerMessage(ByteBuf buf) {
+        return new BinaryWebSocketFrame(buf);
+    }
+
     @Override
     public void sendBytesToServer(byte[] bytes) {
         BinaryWebSocketFrame frame = new BinaryWebSocketFrame(BytesUtil.bytes2byteBuf(wsChannel, bytes));
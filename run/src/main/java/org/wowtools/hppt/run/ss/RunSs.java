@@ -1,16 +1,14 @@
 package org.wowtools.hppt.run.ss;
 
 import lombok.extern.slf4j.Slf4j;
-import org.wowtools.hppt.common.util.Constant;
-import org.wowtools.hppt.common.util.ResourcesReader;
+import org.wowtools.hppt.common.metrics.HopTrace;
+import org.wowtools.hppt.common.metrics.Metrics;
+import org.wowtools.hppt.common.record.TrafficRecorder;
+import org.wowtools.hppt.common.util.*;
 import org.wowtools.hppt.run.ss.common.ServerSessionService;
-import org.wowtools.hppt.run.ss.file.FileServerSessionService;
-import org.wowtools.hppt.run.ss.hppt.HpptServerSessionService;
 import org.wowtools.hppt.run.ss.pojo.SsConfig;
-import org.wowtools.hppt.run.ss.post.PostServerSessionService;
-import org.wowtools.hppt.run.ss.rhppt.RHpptServerSessionService;
-import org.wowtools.hppt.run.ss.rpost.RPostServerSessionService;
-import org.wowtools.hppt.run.ss.websocket.WebsocketServerSessionService;
+
+import java.nio.file.Path;
 
 /**
  * @author liuyu
@@ -19,6 +17,8 @@ import org.wowtools.hppt.run.ss.websocket.WebsocketServerSessionService;
 @Slf4j
 public class RunSs {
 
+    private static volatile ServerSessionService<?> currentService;
+
     public static void main(String[] args) throws Exception {
 
         String configPath;
@@ -33,21 +33,29 @@ public class RunSs {
         } catch (Exception e) {
             throw new RuntimeException("读取配置文件异常", e);
         }
+        BufferBudget.init(config.bufferBudget);
+        OrderedPipeline.init(config.pipeline);
+        Metrics.init(config.metrics);
+        HopTrace.init(config.trace);
+        TrafficRecorder.init(config.record);
 
+        if (config.watchConfig) {
+            new ConfigFileWatcher<>(Path.of(ResourcesReader.getRootPath(RunSs.class), configPath), SsConfig.class, (newConfig) -> {
+                config.clients = newConfig.clients;
+                ServerSessionService<?> current = currentService;
+                if (null != current) {
+                    current.updateClients(newConfig.clients);
+                }
+            });
+        }
+        RestartBackoff backoff = new RestartBackoff(config.restart);
         while (true) {
             ServerSessionService<?> sessionService = null;
+            backoff.started();
             try {
-                log.info("type {}", config.type);
-                sessionService = switch (config.type) {
-                    case "post" -> new PostServerSessionService(config);
-                    case "websocket" -> new WebsocketServerSessionService(config);
-                    case "hppt" -> new HpptServerSessionService(config);
-                    case "rhppt" -> new RHpptServerSessionService(config);
-                    case "rpost" -> new RPostServerSessionService(config);
-                    case "file" -> new FileServerSessionService(config);
-                    default -> throw new IllegalStateException("Unexpected config.type: " + config.type);
-                };
+                sessionService = ServerSessionServiceBuilder.build(config);
                 final ServerSessionService<?> fs = sessionService;
+                currentService = fs;
                 Thread.startVirtualThread(() -> {
                     try {
                         fs.init(config);
@@ -58,19 +66,20 @@ public class RunSs {
                 log.info("ServerSessionService init success {}", sessionService);
 
                 sessionService.sync();
-                try {
-                    Thread.sleep(10000);
-                } catch (InterruptedException e1) {
-                }
             } catch (Exception e) {
                 onErr(e, sessionService);
             }
+            currentService = null;
+            backoff.await();
         }
 
     }
 
     private static void onErr(Exception e, ServerSessionService<?> sessionService) {
-        log.info("----------------------销毁当前Service,10秒后重启", e);
+        log.info("----------------------销毁当前Service", e);
+        if (null == sessionService) {
+            return;
+        }
         try {
             sessionService.exit();
         } catch (Exception ex) {
@@ -0,0 +1,32 @@
+package org.wowtools.hppt.run.ss;
+
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.run.ss.common.ServerSessionService;
+import org.wowtools.hppt.run.ss.file.FileServerSessionService;
+import org.wowtools.hppt.run.ss.hppt.HpptServerSessionService;
+import org.wowtools.hppt.run.ss.pojo.SsConfig;
+import org.wowtools.hppt.run.ss.post.PostServerSessionService;
+import org.wowtools.hppt.run.ss.rhppt.RHpptServerSessionService;
+import org.wowtools.hppt.run.ss.rpost.RPostServerSessionService;
+import org.wowtools.hppt.run.ss.websocket.WebsocketServerSessionService;
+
+/**
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+public class ServerSessionServiceBuilder {
+
+    public static ServerSessionService<?> build(SsConfig config) throws Exception {
+        log.info("type {}", config.type);
+        return switch (config.type) {
+            case "post" -> new PostServerSessionService(config);
+            case "websocket" -> new WebsocketServerSessionService(config);
+            case "hppt" -> new HpptServerSessionService(config);
+            case "rhppt" -> new RHpptServerSessionService(config);
+            case "rpost" -> new RPostServerSessionService(config);
+            case "file" -> new FileServerSessionService(config);
+            default -> throw new IllegalStateException("Unexpected config.type: " + config.type);
+        };
+    }
+}
@@ -1,17 +1,26 @@
 package org.wowtools.hppt.run.ss.common;
 
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.metrics.Counter;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
+import org.wowtools.hppt.common.pojo.TalkMessage;
 import org.wowtools.hppt.common.server.LoginClientService;
+import org.wowtools.hppt.common.server.ServerSession;
 import org.wowtools.hppt.common.server.ServerSessionManager;
 import org.wowtools.hppt.common.server.ServerTalker;
+import org.wowtools.hppt.common.util.AesCipherUtil;
+import org.wowtools.hppt.common.util.Capabilities;
 import org.wowtools.hppt.common.util.GridAesCipherUtil;
+import org.wowtools.hppt.common.util.OrderedPipeline;
+import org.wowtools.hppt.common.util.ReliableLink;
 import org.wowtools.hppt.run.ss.pojo.SsConfig;
 import org.wowtools.hppt.run.ss.util.SsUtil;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 普通模式下，数据被发送到真实端口
@@ -21,19 +30,18 @@ import java.util.concurrent.TimeUnit;
  */
 @Slf4j
 final class PortReceiver<CTX> implements Receiver<CTX> {
-    private final ServerSessionService<CTX> serverSessionService;
+    private final ServerSessionService<?> serverSessionService;
     private final ServerSessionManager serverSessionManager;
     private final LoginClientService loginClientService;
     private final SsConfig ssConfig;
 
-    public PortReceiver(SsConfig ssConfig, ServerSessionService<CTX> serverSessionService) {
+    public PortReceiver(SsConfig ssConfig, ServerSessionService<?> serverSessionService) {
         this.ssConfig = ssConfig;
         this.serverSessionService = serverSessionService;
         LoginClientService.Config lConfig = new LoginClientService.Config();
-        for (SsConfig.Client client : ssConfig.clients) {
-            lConfig.users.add(new String[]{client.user, client.password});
-        }
+        lConfig.users = toUsers(ssConfig.clients);
         lConfig.passwordRetryNum = ssConfig.passwordRetryNum;
+        lConfig.ticketTimeout = ssConfig.ticketTimeout;
         loginClientService = new LoginClientService(lConfig);
         serverSessionManager = SsUtil.createServerSessionManagerBuilder(ssConfig).build();
     }
@@ -43,7 +51,19 @@ final class PortReceiver<CTX> implements Receiver<CTX> {
         volatile boolean running = true;
         volatile boolean actived = true;
 
-        CTX ctx;
+        //客户端当前所用的传输层连接，断开后等待重连期间为null
+        volatile CTX ctx;
+        //客户端登录时生成的随机数，重连时以此识别是同一个客户端进程，0表示客户端不支持会话恢复
+        long epoch;
+        //断开次数，用于判断等待重连超时时是否已经重连过
+        int detachCount;
+        //回复消息与重连后的重发互斥，保证发给客户端的消息按序号排列
+        final ReentrantLock replyLock = new ReentrantLock();
+        //与客户端之间收发的字节数
+        Counter inBytes;
+        Counter outBytes;
+        //解密解析并行、按接收顺序处理的流水线
+        OrderedPipeline<byte[], TalkMessage> receivePipeline;
         final LoginClientService.ClientActiveWatcher clientActiveWatcher = new LoginClientService.ClientActiveWatcher() {
             @Override
             public void toInactivity() {
@@ -61,6 +81,8 @@ final class PortReceiver<CTX> implements Receiver<CTX> {
     }
 
     private final Map<CTX, ClientCell> ctxClientCellMap = new ConcurrentHashMap<>();
+    //<clientId,ClientCell> 包括断开后等待重连的客户端
+    private final Map<String, ClientCell> clientCellMap = new ConcurrentHashMap<>();
 
     @Override
     public void receiveClientBytes(CTX ctx, byte[] bytes) {
@@ -82,38 +104,44 @@ final class PortReceiver<CTX> implements Receiver<CTX> {
                     log.debug("请求dt");
                     byte[] dt = ("dt " + System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8);
                     dt = GridAesCipherUtil.encrypt(dt);
-                    serverSessionService.sendBytesToClient(ctx, dt);
+                    serverSessionService.sendToClient(ctx, dt);
+                    break;
+                case "mux":
+                    //中继发来的多路复用连接，此后的字节按通道拆分，每个通道各自进行对时和登录
+                    log.info("中继多路复用连接接入 {}", ctx);
+                    serverSessionService.registerRelayMux(ctx);
+                    byte[] mux = GridAesCipherUtil.encrypt("mux 0".getBytes(StandardCharsets.UTF_8));
+                    serverSessionService.sendToClient(ctx, mux);
                     break;
                 case "login":
-                    clientCell = new ClientCell();
-                    LoginClientService.Client client;
-                    String loginCode = cmd[1];
+                    //对时后登录的旧方式 user code [epoch received]，后两项仅支持会话恢复的客户端会带上
+                    String loginArgs = cmd.length > 1 ? cmd[1] : "";
+                    String[] loginParams = loginArgs.split(" ");
+                    String loginCode = loginParams.length > 2 ? loginParams[0] + " " + loginParams[1] : loginArgs;
                     log.debug("请求login {}", loginCode);
+                    long epoch;
+                    long peerReceived;
+                    AesCipherUtil aesCipherUtil;
                     try {
-                        client = loginClientService.login(loginCode, clientCell.clientActiveWatcher);
+                        if (loginParams.length < 2) {
+                            throw new RuntimeException("无效的login");
+                        }
+                        boolean withResume = loginParams.length > 3 && ssConfig.resume.enabled;
+                        epoch = withResume ? Long.parseLong(loginParams[2]) : 0;
+                        peerReceived = withResume ? Long.parseLong(loginParams[3]) : 0;
+                        aesCipherUtil = loginClientService.authenticate(loginCode);
+                    } catch (NumberFormatException e) {
+                        loginFail(ctx, loginCode, new RuntimeException("无效的login"));
+                        break;
                     } catch (Exception e) {
-                        log.warn("登录失败 {} {}", loginCode, e.getMessage());
-                        byte[] login = ("login " + e.getMessage()).getBytes(StandardCharsets.UTF_8);
-                        login = GridAesCipherUtil.encrypt(login);
-                        serverSessionService.sendBytesToClient(ctx, login);
+                        loginFail(ctx, loginCode, e);
                         break;
                     }
-                    clientCell.client = client;
-                    clientCell.ctx = ctx;
-                    synchronized (ctxClientCellMap) {
-                        ctxClientCellMap.forEach((oldCtx, oldCell) -> {
-                            if (oldCell.client.clientId.equals(client.clientId)) {
-                                log.info("重复登录，移除旧client {} {}", oldCell.client.clientId, ctx);
-                                removeCtx(oldCtx);
-                            }
-                        });
-                        ctxClientCellMap.put(ctx, clientCell);
-                    }
-                    log.info("客户端接入成功 user: {} ctx: {}", clientCell.client.clientId, ctx);
-                    startSendThread(clientCell);
-                    byte[] login = ("login 0").getBytes(StandardCharsets.UTF_8);
-                    login = GridAesCipherUtil.encrypt(login);
-                    serverSessionService.sendBytesToClient(ctx, login);
+                    accept(ctx, loginParams[0], aesCipherUtil, epoch, peerReceived,
+                            (client, received) -> received < 0 ? "login 0" : "login 0 " + received);
+                    break;
+                case "hello":
+                    hello(ctx, cmd.length > 1 ? cmd[1] : "");
                     break;
                 default:
                     log.warn("未知命令 {} ", s);
@@ -123,20 +151,206 @@ final class PortReceiver<CTX> implements Receiver<CTX> {
         }
         // 否则进行常规数据接收操作
         LoginClientService.Client client = clientCell.client;
+        clientCell.inBytes.add(bytes.length);
         client.receiveClientBytes.add(bytes);
         if (!clientCell.actived) {
             clientCell.clientActiveWatcher.toActivity();
         }
     }
 
+    //登录成功后回复给客户端的内容
+    @FunctionalInterface
+    private interface LoginReply {
+        /**
+         * @param client   登录后的客户端
+         * @param received 恢复会话时为服务端已按序收到的最大序号，新登录时为-1
+         * @return 回复内容
+         */
+        String build(LoginClientService.Client client, long received);
+    }
+
+    //单次往返完成对时、认证和能力协商 version user ts auth caps ，auth为 p:loginCode 或 t:票据:凭证
+    private void hello(CTX ctx, String params) {
+        long serverTs = System.currentTimeMillis();
+        //hello在认证之前处理，字段都来自未认证的输入，格式不对时回复失败而不是抛出异常
+        String[] p = params.split(" ");
+        if (p.length < 5 || !(p[3].startsWith("p:") || p[3].startsWith("t:"))) {
+            helloFail(ctx, "auth", serverTs, "无效的hello");
+            return;
+        }
+        String user = p[1];
+        String auth = p[3];
+        long ts;
+        Map<String, String> caps;
+        long epoch = 0;
+        long peerReceived = 0;
+        try {
+            ts = Long.parseLong(p[2]);
+            caps = Capabilities.parse(p[4]);
+            String resume = caps.get(Capabilities.RESUME);
+            if (null != resume && ssConfig.resume.enabled) {
+                String[] r = resume.split(":");
+                if (r.length != 2) {
+                    throw new IllegalArgumentException(resume);
+                }
+                epoch = Long.parseLong(r[0]);
+                peerReceived = Long.parseLong(r[1]);
+            }
+        } catch (IllegalArgumentException e) {
+            helloFail(ctx, "auth", serverTs, "无效的hello");
+            return;
+        }
+        log.debug("请求hello {} {}", user, p[4]);
+        if (Math.abs(serverTs - ts) > ssConfig.maxClockSkew) {
+            helloFail(ctx, "clock", serverTs, "时钟偏差过大");
+            return;
+        }
+        if (!Capabilities.offered(caps.get(Capabilities.CODEC), Capabilities.CODEC_PB)) {
+            helloFail(ctx, "caps", serverTs, "不支持的编码" + caps.get(Capabilities.CODEC));
+            return;
+        }
+        String enc = ssConfig.enableEncrypt ? Capabilities.ENCRYPT_AES : Capabilities.NONE;
+        if (!Capabilities.offered(caps.get(Capabilities.ENCRYPT), enc)) {
+            helloFail(ctx, "caps", serverTs, "enableEncrypt与服务端不一致");
+            return;
+        }
+        boolean byTicket = auth.startsWith("t:");
+        String[] ticketParts = byTicket ? auth.split(":") : null;
+        if (byTicket && ticketParts.length != 3) {
+            helloFail(ctx, "auth", serverTs, "无效的hello");
+            return;
+        }
+        AesCipherUtil aesCipherUtil;
+        try {
+            if (byTicket) {
+                aesCipherUtil = loginClientService.redeemTicket(user, ticketParts[1], ticketParts[2], ts);
+            } else {
+                aesCipherUtil = loginClientService.authenticate(user + " " + auth.substring(2), ts);
+            }
+        } catch (Exception e) {
+            if (byTicket) {
+                //ss重启后客户端持有的票据都会失效，客户端随即改用密码登录
+                log.info("票据登录失败 {} {}", user, e.getMessage());
+            } else {
+                log.warn("登录失败 {} {}", user, e.getMessage());
+            }
+            helloFail(ctx, byTicket ? "ticket" : "auth", serverTs, e.getMessage());
+            return;
+        }
+        accept(ctx, user, aesCipherUtil, epoch, peerReceived, (client, received) -> {
+            Map<String, String> chosen = new LinkedHashMap<>();
+            chosen.put(Capabilities.CODEC, Capabilities.CODEC_PB);
+            chosen.put(Capabilities.ENCRYPT, enc);
+            if (null != client.link) {
+                chosen.put(Capabilities.RESUME, received < 0 ? Capabilities.RESUME_NEW : String.valueOf(received));
+            }
+            String ticket = loginClientService.issueTicket(user, client.aesCipherUtil);
+            return "hello 0 " + serverTs + " " + Capabilities.format(chosen) + " " + (null == ticket ? "-" : ticket);
+        });
+    }
+
+    private void helloFail(CTX ctx, String code, long serverTs, String msg) {
+        byte[] hello = ("hello " + code + " " + serverTs + " " + msg).getBytes(StandardCharsets.UTF_8);
+        serverSessionService.sendToClient(ctx, GridAesCipherUtil.encrypt(hello));
+    }
+
+    //认证通过的客户端接入，同一个客户端进程换了传输层连接时接上原来的会话
+    private void accept(CTX ctx, String user, AesCipherUtil aesCipherUtil, long epoch, long peerReceived, LoginReply reply) {
+        ClientCell oldCell = clientCellMap.get(user);
+        if (epoch != 0 && null != oldCell && oldCell.epoch == epoch && oldCell.running
+                && oldCell.client.link.canResume(peerReceived)) {
+            Thread.startVirtualThread(() -> resume(oldCell, ctx, peerReceived, reply));
+            return;
+        }
+        ClientCell clientCell = new ClientCell();
+        LoginClientService.Client client = loginClientService.login(user, aesCipherUtil, clientCell.clientActiveWatcher);
+        if (epoch != 0) {
+            client.link = new ReliableLink(client.clientId, ssConfig.resume.bufferSize);
+        }
+        clientCell.epoch = epoch;
+        clientCell.client = client;
+        clientCell.ctx = ctx;
+        clientCell.inBytes = HpptMetrics.clientBytes(HpptMetrics.SIDE_SS, client.clientId, HpptMetrics.IN);
+        clientCell.outBytes = HpptMetrics.clientBytes(HpptMetrics.SIDE_SS, client.clientId, HpptMetrics.OUT);
+        synchronized (ctxClientCellMap) {
+            ClientCell old = clientCellMap.put(client.clientId, clientCell);
+            if (null != old) {
+                CTX oldCtx = old.ctx;
+                log.info("重复登录，移除旧client {} {}", old.client.clientId, oldCtx);
+                discard(old, "重复登录");
+                if (null != oldCtx && oldCtx != ctx) {
+                    serverSessionService.closeAnyCtx(oldCtx);
+                }
+            }
+            ctxClientCellMap.put(ctx, clientCell);
+        }
+        log.info("客户端接入成功 user: {} ctx: {}", clientCell.client.clientId, ctx);
+        startSendThread(clientCell);
+        byte[] login = reply.build(client, -1).getBytes(StandardCharsets.UTF_8);
+        serverSessionService.sendToClient(ctx, GridAesCipherUtil.encrypt(login));
+    }
+
+    private void loginFail(CTX ctx, String loginCode, Exception e) {
+        log.warn("登录失败 {} {}", loginCode, e.getMessage());
+        byte[] login = ("login " + e.getMessage()).getBytes(StandardCharsets.UTF_8);
+        login = GridAesCipherUtil.encrypt(login);
+        serverSessionService.sendToClient(ctx, login);
+    }
+
+    //客户端重连后接管新的传输层连接，并重发客户端还没收到的消息
+    private void resume(ClientCell cell, CTX ctx, long peerReceived, LoginReply reply) {
+        LoginClientService.Client client = cell.client;
+        CTX oldCtx = cell.ctx;
+        if (null != oldCtx && oldCtx != ctx) {
+            //服务端可能还没发现旧连接已断开
+            ctxClientCellMap.remove(oldCtx, cell);
+            cell.ctx = null;
+            serverSessionService.closeAnyCtx(oldCtx);
+        }
+        //唤醒可能挂起的回复消息线程，待其本轮回复结束后再接管
+        client.wakeUp();
+        cell.clientActiveWatcher.toActivity();
+        cell.replyLock.lock();
+        try {
+            List<byte[]> resend = client.link.resend(peerReceived);
+            ctxClientCellMap.put(ctx, cell);
+            synchronized (cell) {
+                cell.ctx = ctx;
+                cell.notifyAll();
+            }
+            byte[] login = reply.build(client, client.link.getReceived()).getBytes(StandardCharsets.UTF_8);
+            serverSessionService.sendToClient(ctx, GridAesCipherUtil.encrypt(login));
+            for (byte[] bytes : resend) {
+                if (ssConfig.enableEncrypt) {
+                    bytes = client.aesCipherUtil.encryptor.encrypt(bytes);
+                }
+                serverSessionService.sendToClient(ctx, bytes);
+                cell.outBytes.add(bytes.length);
+            }
+            log.info("客户端恢复成功 user: {} ctx: {} 重发消息数 {}", client.clientId, ctx, resend.size());
+        } catch (Exception e) {
+            log.warn("恢复客户端异常 {}", client.clientId, e);
+            removeCtx(ctx);
+        } finally {
+            cell.replyLock.unlock();
+        }
+    }
+
     private void startSendThread(ClientCell cell) {
         LoginClientService.Client client = cell.client;
+        //客户端的目标端连接都放在同一分片上
+        serverSessionManager.assignShard(client);
         //回复消息到客户端的线程
         Thread.startVirtualThread(() -> {
             ServerTalker.Replier replier = (bytes) -> {
+                CTX ctx = cell.ctx;
+                if (null == ctx) {
+                    return false;
+                }
                 try {
                     if (null != bytes) {
-                        serverSessionService.sendBytesToClient(cell.ctx, bytes);
+                        serverSessionService.sendToClient(ctx, bytes);
+                        cell.outBytes.add(bytes.length);
                     } else if (!cell.actived) {
                         synchronized (cell.clientActiveWatcher) {
                             log.info("客户端 {} 非活跃，挂起回复消息线程", cell.client.clientId);
@@ -152,64 +366,162 @@ final class PortReceiver<CTX> implements Receiver<CTX> {
                     }
                 } catch (Exception e) {
                     log.warn("向用户端发送消息异常", e);
-                    removeCtx(cell.ctx);
+                    removeCtx(ctx);
                     return false;
                 }
                 return true;
             };
             while (cell.running) {
+                if (null == cell.ctx) {
+                    //传输层断开，等待客户端重连
+                    synchronized (cell) {
+                        while (null == cell.ctx && cell.running) {
+                            try {
+                                cell.wait(10_000);
+                            } catch (InterruptedException ignored) {
+                            }
+                        }
+                    }
+                    continue;
+                }
+                cell.replyLock.lock();
                 try {
                     ServerTalker.replyToClient(ssConfig, serverSessionManager, client, ssConfig.maxReturnBodySize, true, replier);
                 } catch (Exception e) {
                     log.warn("向用户端发送消息异常", e);
                     removeCtx(cell.ctx);
+                } finally {
+                    cell.replyLock.unlock();
                 }
             }
+            client.close();
+            serverSessionManager.releaseShard(client);
             log.info("回复消息线程结束 {} {}", cell.client.clientId, cell.ctx);
         });
-        //接收客户端消息的线程
-        Thread.startVirtualThread(() -> {
-            while (cell.running) {
-                byte[] bytes;
-                try {
-                    bytes = client.receiveClientBytes.poll(10, TimeUnit.SECONDS);
-                } catch (Exception e) {
-                    log.warn("e", e);
-                    continue;
-                }
-                if (null != bytes) {
-                    //接消息
-                    try {
-                        ServerTalker.receiveClientBytes(ssConfig, serverSessionManager, client, bytes, ssConfig.initSessionTimeout);
-                    } catch (Exception e) {
-                        log.warn("接收客户端消息异常", e);
+        //接收客户端消息的流水线
+        cell.receivePipeline = new OrderedPipeline<>("<PortReceiver-receivePipeline-" + client.clientId,
+                (bytes) -> ServerTalker.decodeClientBytes(ssConfig, client, bytes),
+                (talkMessage) -> {
+                    if (null != talkMessage) {
+                        ServerTalker.receiveClientMessage(serverSessionManager, client, talkMessage, ssConfig.initSessionTimeout);
+                    }
+                },
+                (t) -> {
+                    if (t instanceof Exception) {
+                        log.warn("接收客户端消息异常", t);
                         removeCtx(cell.ctx);
-                    } catch (Throwable t) {
+                    } else {
                         log.error("接收客户端消息错误", t);
                         serverSessionService.exit();
                     }
-                } else if (!cell.actived) {
-                    synchronized (cell.clientActiveWatcher) {
-                        log.info("客户端 {} 非活跃，挂起接收消息线程", cell.client.clientId);
-                        do {
-                            try {
+                },
+                (talkMessage) -> {
+                    if (null != talkMessage) {
+                        talkMessage.release();
+                    }
+                });
+        //接收客户端消息的线程
+        Thread.startVirtualThread(() -> {
+            try {
+                while (cell.running) {
+                    byte[] bytes = client.receiveClientBytes.pollInterruptibly(10, TimeUnit.SECONDS);
+                    if (null != bytes) {
+                        //接消息，交给流水线解密解析，处理顺序与接收顺序一致
+                        cell.receivePipeline.submit(bytes);
+                    } else if (!cell.actived) {
+                        synchronized (cell.clientActiveWatcher) {
+                            log.info("客户端 {} 非活跃，挂起接收消息线程", cell.client.clientId);
+                            do {
                                 cell.clientActiveWatcher.wait(10_000);
-                            } catch (InterruptedException ignored) {
-                            }
-                        }while (!cell.actived);
-                        log.info("客户端 {} 活跃，恢复接收消息线程", cell.client.clientId);
-
+                            } while (!cell.actived);
+                            log.info("客户端 {} 活跃，恢复接收消息线程", cell.client.clientId);
+                        }
                     }
                 }
+            } catch (InterruptedException e) {
+                //保留中断标记，由线程的所有者决定后续处理
+                Thread.currentThread().interrupt();
+                log.warn("接收消息线程被中断，停止接收 {}", cell.client.clientId);
             }
+            cell.receivePipeline.close();
             log.info("接收消息线程结束 {} {}", cell.client.clientId, cell.ctx);
         });
     }
 
     public void removeCtx(CTX ctx) {
+        if (null == ctx) {
+            return;
+        }
         ClientCell cell = ctxClientCellMap.remove(ctx);
-        if (null != cell) {
-            cell.running = false;
+        if (null == cell) {
+            return;
+        }
+        ReliableLink link = cell.client.link;
+        if (cell.running && null != link && link.isResumable()) {
+            detach(cell, ctx);
+        } else {
+            discard(cell, null);
+        }
+    }
+
+    //传输层断开但链路可恢复，保留客户端及其会话，超时未重连再移除
+    private void detach(ClientCell cell, CTX ctx) {
+        int detachCount;
+        synchronized (cell) {
+            if (cell.ctx != ctx) {
+                return;
+            }
+            cell.ctx = null;
+            detachCount = ++cell.detachCount;
+        }
+        log.info("客户端 {} 传输层断开，等待重连 {}", cell.client.clientId, ctx);
+        Thread.startVirtualThread(() -> {
+            try {
+                Thread.sleep(ssConfig.resume.timeout);
+            } catch (InterruptedException ignored) {
+            }
+            synchronized (cell) {
+                if (null != cell.ctx || cell.detachCount != detachCount || !cell.running) {
+                    return;
+                }
+            }
+            log.info("客户端 {} 等待重连超时", cell.client.clientId);
+            discard(cell, "等待重连超时");
+        });
+    }
+
+    /**
+     * 移除客户端，结束其收发消息线程
+     *
+     * @param cell        客户端
+     * @param disposeType 关闭其会话的原因，为null则不关闭会话，由会话超时机制回收
+     */
+    private void discard(ClientCell cell, String disposeType) {
+        cell.running = false;
+        clientCellMap.remove(cell.client.clientId, cell);
+        CTX ctx = cell.ctx;
+        if (null != ctx) {
+            ctxClientCellMap.remove(ctx, cell);
+        }
+        if (null != cell.receivePipeline) {
+            cell.receivePipeline.close();
+        }
+        //唤醒挂起的收发线程，使其退出
+        synchronized (cell) {
+            cell.notifyAll();
+        }
+        cell.clientActiveWatcher.toActivity();
+        cell.client.wakeUp();
+        if (null == disposeType) {
+            return;
+        }
+        Map<Integer, ServerSession> sessions = serverSessionManager.getServerSessionMapByClientId(cell.client.clientId);
+        if (null != sessions) {
+            for (ServerSession session : new ArrayList<>(sessions.values())) {
+                if (session.getClient() == cell.client) {
+                    serverSessionManager.disposeServerSession(session, disposeType);
+                }
+            }
         }
     }
 
@@ -217,4 +529,36 @@ final class PortReceiver<CTX> implements Receiver<CTX> {
     public void exit() {
         serverSessionManager.close();
     }
+
+    @Override
+    public void updateClients(List<SsConfig.Client> clients) {
+        ArrayList<String[]> users = toUsers(clients);
+        Set<String> revoked = new HashSet<>(loginClientService.updateUsers(users));
+        log.info("更新用户，共{}个用户，吊销 {}", users.size(), revoked);
+        if (revoked.isEmpty()) {
+            return;
+        }
+        for (String clientId : revoked) {
+            ClientCell cell = clientCellMap.get(clientId);
+            if (null == cell) {
+                continue;
+            }
+            CTX ctx = cell.ctx;
+            log.info("用户已吊销，断开客户端 {} {}", clientId, ctx);
+            discard(cell, "用户已吊销");
+            if (null != ctx) {
+                serverSessionService.closeAnyCtx(ctx);
+            }
+        }
+    }
+
+    private static ArrayList<String[]> toUsers(List<SsConfig.Client> clients) {
+        ArrayList<String[]> users = new ArrayList<>();
+        if (null != clients) {
+            for (SsConfig.Client client : clients) {
+                users.add(new String[]{client.user, client.password});
+            }
+        }
+        return users;
+    }
 }
@@ -1,5 +1,9 @@
 package org.wowtools.hppt.run.ss.common;
 
+import org.wowtools.hppt.run.ss.pojo.SsConfig;
+
+import java.util.List;
+
 /**
  * @author liuyu
  * @date 2024/9/26
@@ -10,4 +14,11 @@ sealed interface Receiver<CTX> permits PortReceiver, SsReceiver {
     void removeCtx(CTX ctx);
 
     void exit();
+
+    /**
+     * 配置文件修改后，按新的clients增加或吊销用户，被吊销用户已登录的客户端会被断开，其它客户端不受影响
+     *
+     * @param clients 新的clients
+     */
+    void updateClients(List<SsConfig.Client> clients);
 }
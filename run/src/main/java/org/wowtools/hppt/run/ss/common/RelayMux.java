@@ -0,0 +1,81 @@
+package org.wowtools.hppt.run.ss.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 中继模式的多路复用，多个下游客户端的数据以通道id区分，共用中继与下一个ss之间的连接
+ * 帧格式为 [4字节通道id][负载]，负载为空表示关闭该通道
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+final class RelayMux {
+
+    /**
+     * 帧头长度
+     */
+    static final int HEAD_LENGTH = 4;
+
+    /**
+     * 多路复用连接中的一个通道，作为该通道的上下文
+     *
+     * @param parent    通道所在的多路复用连接的上下文
+     * @param channelId 通道id
+     */
+    record Channel(Object parent, int channelId) {
+    }
+
+    //<多路复用连接的上下文,<通道id,通道>>
+    private final Map<Object, Map<Integer, Channel>> parents = new ConcurrentHashMap<>();
+
+    //将一个上下文登记为多路复用连接
+    void registerParent(Object ctx) {
+        parents.putIfAbsent(ctx, new ConcurrentHashMap<>());
+    }
+
+    //获取多路复用连接下的通道，ctx不是多路复用连接则返回null
+    Map<Integer, Channel> getChannels(Object ctx) {
+        return parents.get(ctx);
+    }
+
+    //移除多路复用连接并返回其下的所有通道
+    Collection<Channel> removeParent(Object ctx) {
+        Map<Integer, Channel> channels = parents.remove(ctx);
+        if (null == channels) {
+            return List.of();
+        }
+        return channels.values();
+    }
+
+    static byte[] encode(int channelId, byte[] payload) {
+        byte[] frame = new byte[HEAD_LENGTH + payload.length];
+        frame[0] = (byte) (channelId >>> 24);
+        frame[1] = (byte) (channelId >>> 16);
+        frame[2] = (byte) (channelId >>> 8);
+        frame[3] = (byte) channelId;
+        System.arraycopy(payload, 0, frame, HEAD_LENGTH, payload.length);
+        return frame;
+    }
+
+    //以组合ByteBuf的方式封帧，不拷贝负载，payload的所有权转移给返回的帧
+    static ByteBuf encode(int channelId, ByteBuf payload) {
+        ByteBuf head = Unpooled.buffer(HEAD_LENGTH, HEAD_LENGTH).writeInt(channelId);
+        return Unpooled.wrappedBuffer(head, payload);
+    }
+
+    static int readChannelId(byte[] frame) {
+        return ((frame[0] & 0xff) << 24) | ((frame[1] & 0xff) << 16) | ((frame[2] & 0xff) << 8) | (frame[3] & 0xff);
+    }
+
+    static byte[] readPayload(byte[] frame) {
+        byte[] payload = new byte[frame.length - HEAD_LENGTH];
+        System.arraycopy(frame, HEAD_LENGTH, payload, 0, payload.length);
+        return payload;
+    }
+}
@@ -0,0 +1,393 @@
+package org.wowtools.hppt.run.ss.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.util.BackpressureUtil;
+import org.wowtools.hppt.common.util.BufferPool;
+import org.wowtools.hppt.common.util.BytesUtil;
+import org.wowtools.hppt.common.util.GridAesCipherUtil;
+import org.wowtools.hppt.common.util.RoughTimeUtil;
+import org.wowtools.hppt.run.sc.ClientSessionServiceBuilder;
+import org.wowtools.hppt.run.sc.common.ClientSessionService;
+import org.wowtools.hppt.run.sc.common.SsReceiver;
+import org.wowtools.hppt.run.sc.pojo.ScConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 中继模式下与下一个ss之间的连接池，每个下游上下文占用某个连接中的一个通道，
+ * 连接断开后按需重建，新接入的下游上下文直接挂到已就绪的连接上，无需再建连和握手
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+final class RelayUpstreamPool {
+
+    /**
+     * 等待连接就绪的最长时间(ms)
+     */
+    private static final long readyTimeout = 30_000L;
+
+    private final ScConfig scConfig;
+    private final ServerSessionService<?> serverSessionService;
+    private final Link[] links;
+    private volatile boolean running = true;
+
+    RelayUpstreamPool(ScConfig scConfig, int linkNum, ServerSessionService<?> serverSessionService) {
+        this.scConfig = scConfig;
+        this.serverSessionService = serverSessionService;
+        links = new Link[linkNum];
+        //预先建立连接，第一个下游上下文接入时也无需等待
+        synchronized (this) {
+            for (int i = 0; i < links.length; i++) {
+                links[i] = new Link();
+            }
+        }
+    }
+
+    /**
+     * 为下游上下文分配一个通道，不等待连接就绪，就绪前发送的字节暂存在通道中
+     *
+     * @param ctx 下游上下文
+     * @return 通道
+     */
+    Attachment attach(Object ctx) {
+        Attachment attachment = new Attachment(ctx);
+        acquireLink().whenComplete(attachment::bind);
+        return attachment;
+    }
+
+    //取通道数最少的就绪连接，没有就绪的连接则等待一个正在建立的连接。建连在Link的线程中进行，这里只做选择
+    private CompletableFuture<Link> acquireLink() {
+        Link best = null;
+        Link pending = null;
+        synchronized (this) {
+            for (int i = 0; i < links.length; i++) {
+                Link link = links[i];
+                if (null == link || link.closed) {
+                    link = new Link();
+                    links[i] = link;
+                }
+                if (link.ready.isDone() && !link.ready.isCompletedExceptionally()) {
+                    if (null == best || link.attachments.size() < best.attachments.size()) {
+                        best = link;
+                    }
+                } else if (null == pending) {
+                    pending = link;
+                }
+            }
+        }
+        if (null != best) {
+            return CompletableFuture.completedFuture(best);
+        }
+        Link link = pending;
+        return link.ready.thenApply((b) -> link).orTimeout(readyTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    void exit() {
+        running = false;
+        synchronized (this) {
+            for (Link link : links) {
+                if (null != link) {
+                    link.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 与下一个ss之间的一个连接
+     */
+    private final class Link {
+        //建连在单独的线程中进行，ready完成前可能为null
+        private volatile ClientSessionService clientSessionService;
+        private BufferPool<byte[]> serverBytesQueue;
+        //<通道id,通道>
+        private final Map<Integer, Attachment> attachments = new ConcurrentHashMap<>();
+        private final AtomicInteger channelIdBuilder = new AtomicInteger();
+        //握手完成后complete
+        private final CompletableFuture<Boolean> ready = new CompletableFuture<>();
+        private volatile boolean closed;
+
+        Link() {
+            //构建和连接可能阻塞，不能占用调用方(可能是io线程)
+            Thread.startVirtualThread(this::connect);
+        }
+
+        private void connect() {
+            try {
+                ClientSessionService css = ClientSessionServiceBuilder.build(scConfig);
+                SsReceiver ssReceiver = (SsReceiver) css.receiver;
+                serverBytesQueue = ssReceiver.serverBytesQueue;
+                ssReceiver.setByteBufReceiver(this::receiveByteBuf);
+                clientSessionService = css;
+                if (closed) {
+                    css.exit();
+                    return;
+                }
+                Thread.startVirtualThread(this::receive);
+                css.connectToServer(scConfig, (e) -> {
+                    if (null != e) {
+                        log.warn("中继连接建立失败", e);
+                        close();
+                        return;
+                    }
+                    //回调可能位于netty的io线程中，另起线程握手以免阻塞
+                    Thread.startVirtualThread(this::handshake);
+                });
+            } catch (Exception e) {
+                log.warn("中继连接建立失败", e);
+                close();
+            }
+        }
+
+        private void handshake() {
+            try {
+                byte[] mux = GridAesCipherUtil.encrypt("mux".getBytes(StandardCharsets.UTF_8));
+                clientSessionService.sendBytesToServer(mux);
+                ready.get(readyTimeout, TimeUnit.MILLISECONDS);
+                log.info("中继连接就绪 {}", this);
+            } catch (Exception e) {
+                log.warn("中继连接握手失败，若下一个ss不支持多路复用，请将relayMux设为false", e);
+                close();
+            }
+        }
+
+        private void receive() {
+            while (!closed && running) {
+                byte[] bytes;
+                try {
+                    bytes = serverBytesQueue.poll(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    continue;
+                }
+                if (null == bytes) {
+                    continue;
+                }
+                if (bytes == SsReceiver.EXIT_FLAG) {
+                    close();
+                    break;
+                }
+                if (!ready.isDone()) {
+                    String s;
+                    try {
+                        s = new String(GridAesCipherUtil.decrypt(bytes), StandardCharsets.UTF_8);
+                    } catch (Exception e) {
+                        log.warn("无效的握手回复，舍弃");
+                        continue;
+                    }
+                    if ("mux 0".equals(s)) {
+                        ready.complete(true);
+                    } else {
+                        ready.completeExceptionally(new RuntimeException("握手回复异常 " + s));
+                    }
+                    continue;
+                }
+                if (bytes.length <= RelayMux.HEAD_LENGTH) {
+                    continue;
+                }
+                int channelId = RelayMux.readChannelId(bytes);
+                Attachment attachment = attachments.get(channelId);
+                if (null == attachment) {
+                    log.debug("通道 {} 已不存在，舍弃字节", channelId);
+                    continue;
+                }
+                attachment.sendToClientQueue.add(RelayMux.readPayload(bytes));
+            }
+            log.info("中继连接接收线程结束 {}", this);
+        }
+
+        //基于netty的连接收到ByteBuf时在io线程中直接转发，不经过serverBytesQueue
+        private void receiveByteBuf(ByteBuf buf) {
+            if (!ready.isDone() || buf.readableBytes() <= RelayMux.HEAD_LENGTH) {
+                serverBytesQueue.add(BytesUtil.byteBuf2bytes(buf));
+                return;
+            }
+            int channelId = buf.getInt(buf.readerIndex());
+            Attachment attachment = attachments.get(channelId);
+            if (null == attachment) {
+                log.debug("通道 {} 已不存在，舍弃字节", channelId);
+                return;
+            }
+            ByteBuf payload = buf.retainedSlice(buf.readerIndex() + RelayMux.HEAD_LENGTH, buf.readableBytes() - RelayMux.HEAD_LENGTH);
+            attachment.cutThroughToClient(this, payload);
+        }
+
+        private void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            log.info("中继连接关闭 {} 通道数 {}", this, attachments.size());
+            ready.completeExceptionally(new RuntimeException("中继连接已关闭"));
+            ClientSessionService css = clientSessionService;
+            if (null != css) {
+                css.exit();
+            }
+            //连接上的下游上下文也一并关闭，以便下游重连后挂到新的连接上
+            attachments.forEach((id, attachment) -> {
+                attachment.running = false;
+                serverSessionService.closeAnyCtx(attachment.ctx);
+            });
+            attachments.clear();
+        }
+    }
+
+    /**
+     * 下游上下文在连接中占用的通道
+     */
+    final class Attachment {
+        private final Object ctx;
+        private final BufferPool<byte[]> sendToClientQueue = new BufferPool<>(">RelayUpstreamPool-sendToClientQueue");
+        //连接就绪后赋值，之前发送的字节暂存在pendingBytes中，二者的读写都在synchronized中
+        private volatile Link link;
+        private int channelId;
+        private List<byte[]> pendingBytes = new ArrayList<>(1);
+        private volatile boolean running = true;
+        volatile long activeTime = RoughTimeUtil.getTimestamp();
+
+        private Attachment(Object ctx) {
+            this.ctx = ctx;
+            //每个下游上下文单独发送，避免一个慢的下游阻塞整个连接
+            Thread.startVirtualThread(() -> {
+                while (running) {
+                    byte[] bytes;
+                    try {
+                        bytes = sendToClientQueue.poll(10, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        continue;
+                    }
+                    if (null == bytes) {
+                        continue;
+                    }
+                    activeTime = RoughTimeUtil.getTimestamp();
+                    try {
+                        serverSessionService.sendToClient(ctx, bytes);
+                    } catch (Exception e) {
+                        log.warn("向下游发送字节异常 {}", ctx, e);
+                        serverSessionService.closeAnyCtx(ctx);
+                    }
+                }
+            });
+        }
+
+        //连接就绪或失败后调用，在连接的线程中执行
+        private void bind(Link link, Throwable e) {
+            if (null != e) {
+                log.warn("下游上下文 {} 等待中继连接失败", ctx, e);
+                running = false;
+                serverSessionService.closeAnyCtx(ctx);
+                return;
+            }
+            synchronized (this) {
+                if (!running) {
+                    return;
+                }
+                channelId = link.channelIdBuilder.incrementAndGet();
+                link.attachments.put(channelId, this);
+                for (byte[] bytes : pendingBytes) {
+                    link.clientSessionService.sendBytesToServer(RelayMux.encode(channelId, bytes));
+                }
+                pendingBytes = null;
+                this.link = link;
+            }
+            log.info("下游上下文 {} 接入中继连接 {} 通道 {}", ctx, link, channelId);
+        }
+
+        boolean isRunning() {
+            Link link = this.link;
+            return running && (null == link || !link.closed);
+        }
+
+        void sendToServer(byte[] bytes) {
+            activeTime = RoughTimeUtil.getTimestamp();
+            Link link = this.link;
+            if (null == link) {
+                synchronized (this) {
+                    link = this.link;
+                    if (null == link) {
+                        if (null != pendingBytes) {
+                            pendingBytes.add(bytes);
+                        }
+                        return;
+                    }
+                }
+            }
+            link.clientSessionService.sendBytesToServer(RelayMux.encode(channelId, bytes));
+        }
+
+        /**
+         * 以ByteBuf直接转发给下一个ss，下一个ss不可写时暂停source的读取
+         *
+         * @param source 下游上下文对应的channel
+         * @param buf    buf，此方法不会释放它
+         * @return 连接尚未就绪或不是基于netty的实现时返回false
+         */
+        boolean cutThroughToServer(Channel source, ByteBuf buf) {
+            Link link = this.link;
+            if (null == link) {
+                return false;
+            }
+            ClientSessionService css = link.clientSessionService;
+            Channel target = css.getServerChannel();
+            if (null == target) {
+                return false;
+            }
+            activeTime = RoughTimeUtil.getTimestamp();
+            ByteBuf frame = RelayMux.encode(channelId, buf.retain());
+            BackpressureUtil.writeAndFlush(source, target, css.wrapServerMessage(frame)).addListener((ChannelFutureListener) f -> {
+                if (!f.isSuccess()) {
+                    log.warn("向下一个ss直接发送ByteBuf异常", f.cause());
+                    css.exit();
+                }
+            });
+            return true;
+        }
+
+        //把下一个ss发来的ByteBuf直接转发给下游，下游不支持时转为byte[]排队发送。
+        //link由收到字节的连接传入，bind登记通道后到给this.link赋值前就可能有回复到达，此时this.link还是null
+        private void cutThroughToClient(Link link, ByteBuf payload) {
+            activeTime = RoughTimeUtil.getTimestamp();
+            if (serverSessionService.cutThroughToClient(ctx, link.clientSessionService.getServerChannel(), payload)) {
+                return;
+            }
+            try {
+                sendToClientQueue.add(BytesUtil.byteBuf2bytes(payload));
+            } finally {
+                payload.release();
+            }
+        }
+
+        //下游上下文已不再使用，通知下一个ss关闭通道
+        void close() {
+            Link link;
+            synchronized (this) {
+                if (!running) {
+                    return;
+                }
+                running = false;
+                pendingBytes = null;
+                link = this.link;
+            }
+            if (null != link && null != link.attachments.remove(channelId) && !link.closed) {
+                try {
+                    link.clientSessionService.sendBytesToServer(RelayMux.encode(channelId, new byte[0]));
+                } catch (Exception e) {
+                    log.debug("发送关闭通道帧异常 {}", channelId, e);
+                }
+            }
+        }
+    }
+}
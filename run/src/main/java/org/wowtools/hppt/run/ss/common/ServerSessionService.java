@@ -1,8 +1,16 @@
 package org.wowtools.hppt.run.ss.common;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.util.BackpressureUtil;
+import org.wowtools.hppt.common.util.BytesUtil;
 import org.wowtools.hppt.run.ss.pojo.SsConfig;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * ServerSessionService抽象类
  * 注意，编写实现类时，不要在构造方法里做会阻塞的事情(比如起一个端口)，丢到init方法里做
@@ -14,7 +22,9 @@ public abstract class ServerSessionService<CTX> {
 
     protected final SsConfig ssConfig;
 
-    private final Receiver<CTX> receiver;
+    private final Receiver<Object> receiver;
+
+    private final RelayMux relayMux = new RelayMux();
 
     public ServerSessionService(SsConfig ssConfig) {
         this.ssConfig = ssConfig;
@@ -22,7 +32,7 @@ public abstract class ServerSessionService<CTX> {
             receiver = new PortReceiver<>(ssConfig, this);
             log.info("--- 普通模式");
         } else {
-            receiver = new SsReceiver<>(ssConfig.relayScConfig, this);
+            receiver = new SsReceiver<>(ssConfig, this);
             log.info("--- 中继模式");
         }
     }
@@ -54,6 +64,30 @@ public abstract class ServerSessionService<CTX> {
             return;
         }
         log.debug("收到客户端字节数 {} , {}", bytes.length, ctx);
+        receive(ctx, bytes);
+    }
+
+    //接收上下文发来的字节，若上下文是中继的多路复用连接，则拆帧后交给对应的通道接收
+    private void receive(Object ctx, byte[] bytes) {
+        Map<Integer, RelayMux.Channel> channels = relayMux.getChannels(ctx);
+        if (null != channels) {
+            if (bytes.length < RelayMux.HEAD_LENGTH) {
+                log.warn("无效的多路复用帧，舍弃 {}", ctx);
+                return;
+            }
+            int channelId = RelayMux.readChannelId(bytes);
+            if (bytes.length == RelayMux.HEAD_LENGTH) {
+                RelayMux.Channel channel = channels.remove(channelId);
+                if (null != channel) {
+                    log.debug("中继关闭通道 {}", channel);
+                    removeAnyCtx(channel);
+                }
+                return;
+            }
+            RelayMux.Channel channel = channels.computeIfAbsent(channelId, (id) -> new RelayMux.Channel(ctx, id));
+            receive(channel, RelayMux.readPayload(bytes));
+            return;
+        }
         try {
             receiver.receiveClientBytes(ctx, bytes);
         } catch (Exception e) {
@@ -61,6 +95,97 @@ public abstract class ServerSessionService<CTX> {
         }
     }
 
+    /**
+     * 基于netty的实现在收到客户端传过来的ByteBuf时，可调用此方法代替receiveClientBytes，
+     * 中继模式下ByteBuf会不经拷贝直接转发给下一个ss，其它情况下等同于receiveClientBytes。
+     * 此方法不会释放buf，调用方照常释放即可
+     *
+     * @param ctx 实际和客户端连接的上下文
+     * @param buf buf
+     */
+    public void receiveClientByteBuf(CTX ctx, ByteBuf buf) {
+        if (!buf.isReadable()) {
+            return;
+        }
+        if (receiver instanceof SsReceiver<Object> ssReceiver) {
+            Channel source = getClientChannel(ctx);
+            if (null != source && ssReceiver.cutThrough(ctx, source, buf)) {
+                return;
+            }
+        }
+        receiveClientBytes(ctx, BytesUtil.byteBuf2bytes(buf));
+    }
+
+    /**
+     * 获取上下文对应的netty channel，基于netty的实现重写此方法后，中继模式下可直接以ByteBuf转发并传递背压
+     *
+     * @param ctx 实际和客户端连接的上下文
+     * @return channel，非netty实现返回null
+     */
+    protected Channel getClientChannel(CTX ctx) {
+        return null;
+    }
+
+    /**
+     * 把要发送给客户端的ByteBuf包装为可直接写入getClientChannel所返回channel的对象，如websocket需包装为BinaryWebSocketFrame
+     *
+     * @param buf buf
+     * @return 写入channel的对象
+     */
+    protected Object wrapClientMessage(ByteBuf buf) {
+        return buf;
+    }
+
+    /**
+     * 以ByteBuf直接发送到客户端，客户端不可写时暂停source的读取
+     *
+     * @param ctx    上下文
+     * @param source 数据来源的channel
+     * @param buf    buf，发送成功时所有权转移
+     * @return 上下文不支持直接发送ByteBuf时返回false，此时buf未被释放
+     */
+    @SuppressWarnings("unchecked")
+    boolean cutThroughToClient(Object ctx, Channel source, ByteBuf buf) {
+        if (ctx instanceof RelayMux.Channel) {
+            return false;
+        }
+        Channel target = getClientChannel((CTX) ctx);
+        if (null == target) {
+            return false;
+        }
+        BackpressureUtil.writeAndFlush(source, target, wrapClientMessage(buf)).addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                log.warn("向客户端直接发送ByteBuf异常 {}", ctx, f.cause());
+                closeAnyCtx(ctx);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 发送字节到客户端，若上下文是多路复用连接中的通道，则封帧后经由其所在的连接发送
+     *
+     * @param ctx   上下文
+     * @param bytes bytes
+     */
+    @SuppressWarnings("unchecked")
+    void sendToClient(Object ctx, byte[] bytes) {
+        if (ctx instanceof RelayMux.Channel channel) {
+            sendToClient(channel.parent(), RelayMux.encode(channel.channelId(), bytes));
+        } else {
+            sendBytesToClient((CTX) ctx, bytes);
+        }
+    }
+
+    /**
+     * 将上下文登记为中继发来的多路复用连接，此后从该上下文收到的字节按帧拆分到各个通道
+     *
+     * @param ctx 上下文
+     */
+    void registerRelayMux(Object ctx) {
+        relayMux.registerParent(ctx);
+    }
+
 
     /**
      * 关闭上下文
@@ -90,6 +215,15 @@ public abstract class ServerSessionService<CTX> {
         }
     }
 
+    /**
+     * 配置文件修改后，按新的clients增加或吊销用户，被吊销用户已登录的客户端会被断开，其它客户端不受影响
+     *
+     * @param clients 新的clients
+     */
+    public void updateClients(List<SsConfig.Client> clients) {
+        receiver.updateClients(clients);
+    }
+
     /**
      * 阻塞直到exit方法被调用
      */
@@ -110,7 +244,7 @@ public abstract class ServerSessionService<CTX> {
      * @param ctx
      */
     protected void removeCtx(CTX ctx) {
-        receiver.removeCtx(ctx);
+        removeAnyCtx(ctx);
         try {
             closeCtx(ctx);
         } catch (Exception e) {
@@ -118,5 +252,36 @@ public abstract class ServerSessionService<CTX> {
         }
     }
 
+    /**
+     * 移除并关闭上下文，若上下文是多路复用连接中的通道，则向其所在的连接发送关闭通道的帧
+     *
+     * @param ctx 上下文
+     */
+    @SuppressWarnings("unchecked")
+    void closeAnyCtx(Object ctx) {
+        if (ctx instanceof RelayMux.Channel channel) {
+            Map<Integer, RelayMux.Channel> channels = relayMux.getChannels(channel.parent());
+            if (null != channels) {
+                channels.remove(channel.channelId());
+            }
+            removeAnyCtx(channel);
+            try {
+                sendToClient(channel.parent(), RelayMux.encode(channel.channelId(), new byte[0]));
+            } catch (Exception e) {
+                log.debug("发送关闭通道帧异常 {}", channel, e);
+            }
+        } else {
+            removeCtx((CTX) ctx);
+        }
+    }
+
+    //移除上下文，上下文是多路复用连接时一并移除其下的通道
+    private void removeAnyCtx(Object ctx) {
+        receiver.removeCtx(ctx);
+        for (RelayMux.Channel channel : relayMux.removeParent(ctx)) {
+            removeAnyCtx(channel);
+        }
+    }
+
 
 }
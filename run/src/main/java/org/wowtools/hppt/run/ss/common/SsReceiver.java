@@ -1,12 +1,16 @@
 package org.wowtools.hppt.run.ss.common;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import lombok.extern.slf4j.Slf4j;
 import org.wowtools.hppt.common.util.RoughTimeUtil;
 import org.wowtools.hppt.run.sc.ClientSessionServiceBuilder;
 import org.wowtools.hppt.run.sc.common.ClientSessionService;
 import org.wowtools.hppt.run.sc.pojo.ScConfig;
+import org.wowtools.hppt.run.ss.pojo.SsConfig;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -37,8 +41,12 @@ final class SsReceiver<CTX> implements Receiver<CTX> {
                         if (null == bytes) {
                             continue;
                         }
+                        if (bytes == org.wowtools.hppt.run.sc.common.SsReceiver.EXIT_FLAG) {
+                            running = false;
+                            break;
+                        }
                         activeTime = RoughTimeUtil.getTimestamp();
-                        serverSessionService.sendBytesToClient(ctx, bytes);
+                        serverSessionService.sendToClient(ctx, bytes);
                     } catch (Exception e) {
                         exit();
                     }
@@ -56,17 +64,38 @@ final class SsReceiver<CTX> implements Receiver<CTX> {
 
     private final ScConfig scConfig;
     private final Map<CTX, Cell> ctxClientSessionServiceMap = new ConcurrentHashMap<>(1);
-    private final ServerSessionService<CTX> serverSessionService;
+    private final ServerSessionService<?> serverSessionService;
     private volatile boolean running = true;
 
-    SsReceiver(ScConfig scConfig, ServerSessionService<CTX> serverSessionService) {
-        this.scConfig = scConfig;
+    //与下一个ss之间的连接池，未启用relayMux时为空，此时每个上下文单独建立连接
+    private final RelayUpstreamPool upstreamPool;
+    private final Map<CTX, RelayUpstreamPool.Attachment> ctxAttachmentMap = new ConcurrentHashMap<>();
+
+    SsReceiver(SsConfig ssConfig, ServerSessionService<?> serverSessionService) {
+        scConfig = ssConfig.relayScConfig;
         scConfig.isRelay = true;
         this.serverSessionService = serverSessionService;
+        if (ssConfig.relayMux && ssConfig.relayLinkNum > 0) {
+            upstreamPool = new RelayUpstreamPool(scConfig, ssConfig.relayLinkNum, serverSessionService);
+            log.info("中继连接池 连接数 {}", ssConfig.relayLinkNum);
+        } else {
+            upstreamPool = null;
+        }
         Thread.startVirtualThread(() -> {
             while (running) {
                 try {
                     Thread.sleep(600_000L);
+                    ctxAttachmentMap.forEach((ctx, attachment) -> {
+                        if (!attachment.isRunning()) {
+                            log.info("清理不在运行的通道 {}", ctx);
+                            ctxAttachmentMap.remove(ctx);
+                            attachment.close();
+                        } else if (RoughTimeUtil.getTimestamp() - attachment.activeTime > 600_000L) {
+                            log.info("清理超时通道 {}", ctx);
+                            ctxAttachmentMap.remove(ctx);
+                            attachment.close();
+                        }
+                    });
                     ctxClientSessionServiceMap.forEach((ctx, cell) -> {
                         if (!cell.running) {
                             log.info("清理不在运行的cell {}", ctx);
@@ -78,7 +107,7 @@ final class SsReceiver<CTX> implements Receiver<CTX> {
                             cell.close();
                         }
                     });
-                    log.info("cell num {}", ctxClientSessionServiceMap.size());
+                    log.info("cell num {} attachment num {}", ctxClientSessionServiceMap.size(), ctxAttachmentMap.size());
                 } catch (Exception e) {
                     log.warn("检查活跃cell异常", e);
                 }
@@ -88,6 +117,10 @@ final class SsReceiver<CTX> implements Receiver<CTX> {
 
     @Override
     public void receiveClientBytes(CTX ctx, byte[] bytes) throws Exception {
+        if (null != upstreamPool) {
+            getAttachment(ctx).sendToServer(bytes);
+            return;
+        }
         Cell cell = ctxClientSessionServiceMap.get(ctx);
         if (null == cell) {
             ClientSessionService clientSessionService = ClientSessionServiceBuilder.build(scConfig);
@@ -103,8 +136,41 @@ final class SsReceiver<CTX> implements Receiver<CTX> {
         cell.clientSessionService.sendBytesToServer(bytes);
     }
 
+    /**
+     * 以ByteBuf直接转发给下一个ss，仅在使用连接池且连接基于netty时可用
+     *
+     * @param ctx    上下文
+     * @param source 上下文对应的channel
+     * @param buf    buf，此方法不会释放它
+     * @return 是否已转发，返回false时需按byte[]的方式处理
+     */
+    boolean cutThrough(CTX ctx, Channel source, ByteBuf buf) {
+        if (null == upstreamPool) {
+            return false;
+        }
+        return getAttachment(ctx).cutThroughToServer(source, buf);
+    }
+
+    private RelayUpstreamPool.Attachment getAttachment(CTX ctx) {
+        RelayUpstreamPool.Attachment attachment = ctxAttachmentMap.get(ctx);
+        if (null != attachment && attachment.isRunning()) {
+            return attachment;
+        }
+        return ctxAttachmentMap.compute(ctx, (k, old) -> {
+            if (null != old && old.isRunning()) {
+                return old;
+            }
+            //attach不等待连接就绪，不会长时间占用map的锁和调用方的io线程
+            return upstreamPool.attach(ctx);
+        });
+    }
+
     @Override
     public void removeCtx(CTX ctx) {
+        RelayUpstreamPool.Attachment attachment = ctxAttachmentMap.remove(ctx);
+        if (null != attachment) {
+            attachment.close();
+        }
         Cell cell = ctxClientSessionServiceMap.remove(ctx);
         if (null != cell) {
             cell.close();
@@ -115,5 +181,13 @@ final class SsReceiver<CTX> implements Receiver<CTX> {
     public void exit() {
         running = false;
         ctxClientSessionServiceMap.forEach((ctx, cell) -> cell.close());
+        if (null != upstreamPool) {
+            upstreamPool.exit();
+        }
+    }
+
+    @Override
+    public void updateClients(List<SsConfig.Client> clients) {
+        //中继模式下由上游ss校验用户
     }
 }
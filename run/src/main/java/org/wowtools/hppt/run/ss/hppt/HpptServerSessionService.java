@@ -60,6 +60,11 @@ public class HpptServerSessionService extends ServerSessionService<ChannelHandle
         }
     }
 
+    @Override
+    protected Channel getClientChannel(ChannelHandlerContext ctx) {
+        return ctx.channel();
+    }
+
     @Override
     protected void closeCtx(ChannelHandlerContext ctx) throws Exception {
         ctx.close();
@@ -83,9 +88,8 @@ public class HpptServerSessionService extends ServerSessionService<ChannelHandle
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
             // 处理接收到的消息
-            byte[] content = BytesUtil.byteBuf2bytes(msg);
             try {
-                receiveClientBytes(ctx, content);
+                receiveClientByteBuf(ctx, msg);
             } catch (Exception e) {
                 log.warn("receiveClientBytes err",e);
                 ctx.close();
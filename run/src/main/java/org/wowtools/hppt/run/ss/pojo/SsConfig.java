@@ -23,6 +23,17 @@ public class SsConfig extends CommonConfig {
      */
     public ScConfig relayScConfig;
 
+    /**
+     * 中继模式下，是否与下一个ss之间以多路复用的方式共用连接。需要下一个ss也支持多路复用，
+     * 不支持的ss无法解析握手，会断开中继，所以默认不启用，即每个客户端单独建立一个连接
+     */
+    public boolean relayMux = false;
+
+    /**
+     * 中继模式下启用多路复用时，与下一个ss之间保持的连接数，所有客户端共用这些连接
+     */
+    public int relayLinkNum = 1;
+
     /**
      * 服务端口
      */
@@ -48,6 +59,11 @@ public class SsConfig extends CommonConfig {
      */
     public long maxReturnBodySize = 10 * 1024 * 1024;
 
+    /**
+     * 客户端分片数，同一客户端的目标端连接、接收和回复都在同一分片上处理，小于0表示不分片，0表示取cpu核数
+     */
+    public int shardNum = 0;
+
     /**
      * 生命周期实现类path，为空则使用默认
      */
@@ -63,6 +79,102 @@ public class SsConfig extends CommonConfig {
      */
     public int passwordRetryNum = 5;
 
+    /**
+     * hello握手中允许的客户端时间戳与服务端时间的最大偏差(ms)，超过后客户端按服务端时间校正再重新握手
+     */
+    public long maxClockSkew = 5 * 60 * 1000;
+
+    /**
+     * 登录票据的有效期(ms)，客户端重连时凭票据登录，省去密钥派生，小于等于0表示不签发票据
+     */
+    public long ticketTimeout = 24 * 60 * 60 * 1000L;
+
+    public static final class DnsConfig {
+        /**
+         * 自定义解析器实现类path，需实现org.wowtools.hppt.common.server.TargetResolver并有无参构造方法，为空则使用内置的异步dns解析，此时以下配置生效
+         */
+        public String resolver;
+
+        /**
+         * dns服务器地址，格式host:port或host，为空则读取系统配置(如/etc/resolv.conf)
+         */
+        public ArrayList<String> servers;
+
+        /**
+         * 单次dns查询的超时毫秒数
+         */
+        public long queryTimeout = 5000;
+
+        /**
+         * 解析结果按dns记录的ttl缓存，并限制在[cacheMinTtl,cacheMaxTtl]秒之间
+         */
+        public int cacheMinTtl = 0;
+
+        public int cacheMaxTtl = 3600;
+
+        /**
+         * 解析失败(如域名不存在)的结果缓存秒数
+         */
+        public int negativeTtl = 5;
+
+        /**
+         * 域名同时有ipv4和ipv6地址时是否优先连接ipv6
+         */
+        public boolean preferIpv6 = false;
+
+        /**
+         * 连接目标端时，上一个地址多少毫秒未连上就并行尝试下一个地址(happy eyeballs)
+         */
+        public long connectAttemptDelay = 250;
+    }
+
+    /**
+     * 目标端域名解析，ss以异步方式解析forwards中的域名并缓存结果，不阻塞新建会话
+     */
+    public DnsConfig dns = new DnsConfig();
+
+    public static final class BalanceConfig {
+        /**
+         * sc的forward配置了多个目标端时选择目标端的策略 leastOutstandingBytes(待写出到目标端的字节数最少)、leastActive(活跃会话数最少)，均按权重折算
+         */
+        public String strategy = "leastOutstandingBytes";
+
+        /**
+         * 目标端连续连接失败多少次后暂时摘除
+         */
+        public int failThreshold = 3;
+
+        /**
+         * 第一次摘除的毫秒数，连续摘除时逐次翻倍
+         */
+        public long ejectTime = 10_000;
+
+        /**
+         * 摘除毫秒数的上限
+         */
+        public long maxEjectTime = 300_000;
+
+        /**
+         * 连接单个目标端的超时毫秒数，超时后尝试下一个目标端
+         */
+        public long connectTimeout = 5000;
+
+        /**
+         * 目标端闲置(无会话、无待写出数据)多少毫秒后清理其统计和指标
+         */
+        public long idleTimeout = 600_000;
+
+        /**
+         * 最多为多少个目标端登记按目标端区分的指标(hppt_target_*)，超出的目标端不单独出现在指标中
+         */
+        public int maxTargetMetrics = 256;
+    }
+
+    /**
+     * 多目标端的负载均衡
+     */
+    public BalanceConfig balance = new BalanceConfig();
+
     public static final class Client {
         /**
          * 用户名
@@ -82,7 +194,7 @@ public class SsConfig extends CommonConfig {
         public long waitResponseTime = 10000;
 
         /**
-         * 回复的servlet人为设置的延迟，避免客户端过于频繁的发请求
+         * 回复的servlet人为设置的延迟(ms)，避免客户端过于频繁的发请求。仅在coalesce.enabled为false时生效
          */
         public long replyDelayTime = 0;
 
@@ -95,6 +207,53 @@ public class SsConfig extends CommonConfig {
          * 服务端netty workerGroupNum
          */
         public int workerGroupNum = 0;
+
+        /**
+         * 集群模式，多个ss部署在负载均衡之后时配置
+         */
+        public PostClusterConfig cluster = new PostClusterConfig();
+    }
+
+    public static final class PostClusterConfig {
+        /**
+         * 本节点的集群通信地址，格式host:port，须与nodes中的某一项完全一致，集群端口只监听此host，为空表示不启用集群
+         */
+        public String self;
+
+        /**
+         * 集群中所有节点的集群通信地址，各节点的此项配置须一致
+         */
+        public ArrayList<String> nodes;
+
+        /**
+         * 节点间认证用的共享密钥，各节点须一致，启用集群时必填
+         */
+        public String secret;
+
+        /**
+         * 一致性哈希环上每个节点的虚拟节点数
+         */
+        public int virtualNodes = 160;
+
+        /**
+         * 节点间心跳间隔(ms)，连续3个间隔未收到对端消息视为节点离开
+         */
+        public long heartbeatInterval = 2000;
+
+        /**
+         * 与其它节点断开后重连的间隔(ms)
+         */
+        public long reconnectInterval = 3000;
+
+        /**
+         * 转发给其它节点的请求等待响应的毫秒数，须大于waitResponseTime
+         */
+        public long forwardTimeout = 30000;
+
+        /**
+         * 同时处理的其它节点转来的请求数上限，超出时直接回复503
+         */
+        public int maxServing = 4096;
     }
 
     public PostConfig post = new PostConfig();
@@ -2,35 +2,33 @@ package org.wowtools.hppt.run.ss.post;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.*;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.util.concurrent.EventExecutor;
 import lombok.extern.slf4j.Slf4j;
-import org.wowtools.hppt.common.pojo.BytesList;
-import org.wowtools.hppt.common.util.BytesUtil;
+import org.wowtools.hppt.common.util.BytesListCodec;
 import org.wowtools.hppt.common.util.NettyObjectBuilder;
 import org.wowtools.hppt.run.ss.pojo.SsConfig;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
-
 @Slf4j
 class NettyHttpServer {
     public static final byte[] emptyBytes = new byte[0];
     private final int port;
     private final PostServerSessionService postServerSessionService;
+    private final PostCluster cluster;
     private final SsConfig ssConfig;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
     private Channel channel;
 
-    public NettyHttpServer(int port, PostServerSessionService postServerSessionService, SsConfig ssConfig) {
+    public NettyHttpServer(int port, PostServerSessionService postServerSessionService, PostCluster cluster, SsConfig ssConfig) {
         this.port = port;
         this.ssConfig = ssConfig;
         this.postServerSessionService = postServerSessionService;
+        this.cluster = cluster;
     }
 
     public void start() throws InterruptedException {
@@ -49,8 +47,7 @@ class NettyHttpServer {
                             ch.config().setOption(ChannelOption.SO_RCVBUF, 1048576); // 接收缓冲区大小
                             ch.config().setOption(ChannelOption.SO_SNDBUF, 1048576); // 发送缓冲区大小
                             ch.pipeline().addLast(new HttpServerCodec());
-                            ch.pipeline().addLast(new HttpObjectAggregator(104857600)); // 100 MB
-                            ch.pipeline().addLast(new HttpRequestHandler(postServerSessionService, ssConfig));
+                            ch.pipeline().addLast(new HttpRequestHandler(postServerSessionService, cluster));
                         }
                     });
 
@@ -63,6 +60,13 @@ class NettyHttpServer {
         }
     }
 
+    /**
+     * @return 一个io线程，供不在io线程中发起的长轮询使用
+     */
+    EventExecutor nextExecutor() {
+        return workerGroup.next();
+    }
+
     public void stop() {
         if (null != channel && channel.isOpen()) {
             try {
@@ -87,107 +91,133 @@ class NettyHttpServer {
 }
 
 @Slf4j
-// 处理请求
-class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
-    private final class ChannelReader implements Runnable {
-        private final ChannelHandlerContext ctx;
-        private final FullHttpRequest req;
-
-        public ChannelReader(ChannelHandlerContext ctx, FullHttpRequest req) {
-            this.ctx = ctx;
-            this.req = req;
-        }
-
-        @Override
-        public void run() {
-            try {
-                HttpResponse response;
-                try {
-                    String uri = req.uri();
-                    String[] arr = uri.split("\\?", 2);
-                    String path = arr[0];
-                    String cookie = arr[1].substring(2);
-                    if (path.equals("/s") && req.method() == HttpMethod.POST) {
-                        response = handleSend(req, cookie);
-                    } else if (path.equals("/r") && req.method() == HttpMethod.POST) {
-                        response = handleReply(req, cookie);
-                    } else {
-                        response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
-                    }
-                } catch (Exception e) {
-                    log.warn("channelRead0 err ", e);
-                    response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR);
-                }
-                // Write the response
-                ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
-            } finally {
-                req.release();
-            }
-        }
-    }
+// 处理请求，请求体不聚合，边接收边解析
+class HttpRequestHandler extends SimpleChannelInboundHandler<HttpObject> {
 
     private final PostServerSessionService postServerSessionService;
-    private final long replyDelayTime;
-    private final long waitResponseTime;
+    private final PostCluster cluster;
+
+    //当前请求的类型，0表示忽略请求的剩余部分
+    private byte op;
+    private String cookie;
+    //非集群模式下/s请求体的解码器
+    private BytesListCodec.Decoder decoder;
+    //集群模式下请求可能转给其它节点，仍需拼接完整的请求体
+    private CompositeByteBuf body;
 
-    public HttpRequestHandler(PostServerSessionService postServerSessionService, SsConfig ssConfig) {
+    public HttpRequestHandler(PostServerSessionService postServerSessionService, PostCluster cluster) {
         this.postServerSessionService = postServerSessionService;
-        replyDelayTime = ssConfig.post.replyDelayTime;
-        waitResponseTime = ssConfig.post.waitResponseTime;
+        this.cluster = cluster;
     }
 
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
-        req.retain();
-        Thread.startVirtualThread(new ChannelReader(ctx, req));
+    protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+        try {
+            if (msg instanceof HttpRequest req) {
+                onRequest(ctx, req);
+            }
+            if (op == 0) {
+                return;
+            }
+            if (msg instanceof HttpContent content) {
+                onContent(content.content());
+            }
+            if (msg instanceof LastHttpContent) {
+                onEnd(ctx);
+            }
+        } catch (Exception e) {
+            log.warn("channelRead0 err ", e);
+            respond(ctx, new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR));
+        }
     }
 
-    private FullHttpResponse handleSend(FullHttpRequest req, String cookie) {
-        PostCtx ctx = postServerSessionService.ctxMap.computeIfAbsent(cookie, (c) -> new PostCtx(cookie));
-        receive(ctx, req);
-        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    private void onRequest(ChannelHandlerContext ctx, HttpRequest req) {
+        String[] arr = req.uri().split("\\?", 2);
+        String path = arr[0];
+        if (path.equals("/s") && req.method() == HttpMethod.POST) {
+            op = PostCluster.OP_SEND;
+        } else if (path.equals("/r") && req.method() == HttpMethod.POST) {
+            op = PostCluster.OP_REPLY;
+        } else {
+            respond(ctx, new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND));
+            return;
+        }
+        cookie = arr[1].substring(2);
+        if (null != cluster) {
+            body = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+        } else if (op == PostCluster.OP_SEND) {
+            PostCtx postCtx = postServerSessionService.sendCtx(cookie);
+            decoder = new BytesListCodec.Decoder((bytes) -> postServerSessionService.receiveClientBytes(postCtx, bytes), BytesListCodec.MAX_BODY_LENGTH);
+        }
     }
 
-    private void receive(PostCtx ctx, FullHttpRequest req) {
-        // 获取请求体的内容
-        ByteBuf content = req.content();
-        byte[] bytes = BytesUtil.byteBuf2bytes(content);
-        log.debug("收到请求body {}", bytes.length);
-
-        BytesList bytesList = BytesUtil.pbBytes2BytesList(bytes);
-        for (byte[] sub : bytesList.getBytes()) {
-            postServerSessionService.receiveClientBytes(ctx, sub);
+    private void onContent(ByteBuf content) {
+        if (null != decoder) {
+            decoder.decode(content);
+        } else if (null != body && content.isReadable()) {
+            if (body.readableBytes() + content.readableBytes() > BytesListCodec.MAX_BODY_LENGTH) {
+                throw new RuntimeException("请求体过大");
+            }
+            body.addComponent(true, content.retain());
         }
     }
 
-    private FullHttpResponse handleReply(FullHttpRequest req, String cookie) {
-        PostCtx ctx = postServerSessionService.ctxMap.get(cookie);
-        if (ctx != null) {
-            return write(ctx);
+    private void onEnd(ChannelHandlerContext ctx) {
+        if (null != cluster) {
+            byte op = this.op;
+            String cookie = this.cookie;
+            CompositeByteBuf body = this.body;
+            this.body = null;
+            reset();
+            //转发和probe会阻塞等待其它节点的响应，不能占用io线程
+            Thread.startVirtualThread(() -> {
+                HttpResponse response;
+                try {
+                    response = cluster.handle(op, cookie, body);
+                } catch (Exception e) {
+                    log.warn("channelRead0 err ", e);
+                    response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+                } finally {
+                    body.release();
+                }
+                ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            });
+        } else if (op == PostCluster.OP_SEND) {
+            decoder.finish();
+            respond(ctx, new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        } else {
+            String cookie = this.cookie;
+            reset();
+            postServerSessionService.reply(cookie, ctx.executor(), ctx.alloc()).whenComplete((response, e) -> {
+                if (null != e) {
+                    log.warn("长轮询异常 {}", cookie, e);
+                    response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+                }
+                ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            });
         }
-        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
     }
 
-    private FullHttpResponse write(PostCtx ctx) {
-        if (replyDelayTime > 0) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }
+    //写出响应并忽略请求的剩余部分，每个请求处理完都关闭连接
+    private void respond(ChannelHandlerContext ctx, HttpResponse response) {
+        reset();
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
 
-        List<byte[]> bytesList = new LinkedList<>();
-        byte[] rBytes = ctx.sendQueue.poll(waitResponseTime, TimeUnit.MILLISECONDS);
-        if (null == rBytes) {
-            return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(NettyHttpServer.emptyBytes));
+    private void reset() {
+        op = 0;
+        cookie = null;
+        decoder = null;
+        if (null != body) {
+            body.release();
+            body = null;
         }
-        bytesList.add(rBytes);
+    }
 
-        ctx.sendQueue.drainToList(bytesList);
-        rBytes = BytesUtil.bytesCollection2PbBytes(bytesList);
-        log.debug("向客户端发送字节 bytesList {} body {}", bytesList.size(), rBytes.length);
-        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(rBytes));
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        reset();
+        super.channelInactive(ctx);
     }
 
     @Override
@@ -0,0 +1,500 @@
+package org.wowtools.hppt.run.ss.post;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.wowtools.hppt.common.util.BytesListCodec;
+import org.wowtools.hppt.common.util.BytesUtil;
+import org.wowtools.hppt.common.util.ConsistentHashRing;
+import org.wowtools.hppt.common.util.NettyObjectBuilder;
+import org.wowtools.hppt.run.ss.pojo.SsConfig;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * post集群。多个ss部署在轮询的负载均衡之后时，同一个sc的/s与/r请求会落到不同节点上，
+ * 集群中各节点按cookie在一致性哈希环上的位置确定其归属节点，请求落到非归属节点时经节点间的长连接转给归属节点处理。
+ * 哈希环只包含本节点和连接正常的节点，节点加入或离开时重建。
+ * 节点加入后，原先归属其它节点的cookie有一部分改为归属新节点，新节点收到本地没有的cookie时，
+ * 先询问不含自己的哈希环上的归属节点(即加入前的归属节点)是否持有，持有则交给它处理，已建立的会话因此不会中断。
+ * 连接建立后双方各发一个随机数，并以共享密钥对对方的随机数签名回复，互相验证通过后才转发请求
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+@Slf4j
+class PostCluster {
+    /**
+     * 请求类型 /s
+     */
+    static final byte OP_SEND = 1;
+    /**
+     * 请求类型 /r
+     */
+    static final byte OP_REPLY = 2;
+
+    //帧类型
+    private static final byte FRAME_PING = 0;
+    private static final byte FRAME_REQUEST = 1;
+    private static final byte FRAME_RESPONSE = 2;
+    private static final byte FRAME_HELLO = 3;
+    private static final byte FRAME_AUTH = 4;
+
+    //签名时带上自己在连接中的角色，防止把对方的签名原样发回
+    private static final byte ROLE_CONNECTOR = 1;
+    private static final byte ROLE_ACCEPTOR = 2;
+    private static final int NONCE_LENGTH = 16;
+
+    //请求体不超过http请求体上限，再加上帧头和cookie
+    private static final int MAX_FRAME_LENGTH = BytesListCodec.MAX_BODY_LENGTH + 0xFFFF + 16;
+
+    //转发方式，FORWARD表示对端是归属节点，直接处理；PROBE表示对端可能持有cookie，持有则处理，否则回复STATUS_ABSENT
+    private static final byte MODE_FORWARD = 0;
+    private static final byte MODE_PROBE = 1;
+    private static final int STATUS_ABSENT = 0;
+
+    private final SsConfig.PostClusterConfig config;
+    private final PostServerSessionService service;
+    private final String self;
+    //<节点地址,节点> 不含本节点
+    private final Map<String, Peer> peers = new LinkedHashMap<>();
+    private final AtomicLong requestIdx = new AtomicLong();
+    private final SecretKeySpec secretKey;
+    private final SecureRandom random = new SecureRandom();
+    //正在处理的其它节点转来的请求，长轮询会占住处理线程，需限制数量
+    private final Semaphore serving;
+
+    //本节点及在线节点构成的哈希环
+    private volatile ConsistentHashRing ring;
+    //不含本节点的哈希环
+    private volatile ConsistentHashRing othersRing;
+
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private volatile boolean running = true;
+
+    PostCluster(SsConfig.PostClusterConfig config, PostServerSessionService service) {
+        this.config = config;
+        this.service = service;
+        self = config.self;
+        if (null == config.nodes || !config.nodes.contains(self)) {
+            throw new RuntimeException("post.cluster.nodes中未包含本节点 " + self);
+        }
+        if (null == config.secret || config.secret.isEmpty()) {
+            throw new RuntimeException("启用post集群时须配置post.cluster.secret");
+        }
+        secretKey = new SecretKeySpec(config.secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        serving = new Semaphore(config.maxServing);
+        for (String node : config.nodes) {
+            if (!node.equals(self)) {
+                peers.put(node, new Peer(node));
+            }
+        }
+        rebuildRing();
+    }
+
+    void start() throws InterruptedException {
+        group = NettyObjectBuilder.buildEventLoopGroup();
+        ServerBootstrap b = new ServerBootstrap();
+        b.group(group)
+                .channel(NettyObjectBuilder.getServerSocketChannelClass())
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        initPipeline(ch, null);
+                    }
+                });
+        serverChannel = b.bind(parseHost(self), parsePort(self)).sync().channel();
+        log.info("集群节点 {} 启动完成，其它节点 {}", self, peers.keySet());
+        for (Peer peer : peers.values()) {
+            Thread.startVirtualThread(peer::connectLoop);
+        }
+    }
+
+    void stop() {
+        running = false;
+        if (null != serverChannel) {
+            serverChannel.close();
+        }
+        for (Peer peer : peers.values()) {
+            Channel ch = peer.channel;
+            if (null != ch) {
+                ch.close();
+            }
+        }
+        if (null != group) {
+            group.shutdownGracefully();
+        }
+    }
+
+    /**
+     * 处理客户端发来的请求，cookie不归属本节点时转给归属节点
+     *
+     * @param op      请求类型
+     * @param cookie  cookie
+     * @param content 请求体
+     * @return 响应
+     */
+    FullHttpResponse handle(byte op, String cookie, ByteBuf content) {
+        String owner = ring.get(cookie);
+        if (self.equals(owner)) {
+            return handleOwned(op, cookie, content);
+        }
+        FullHttpResponse response = peers.get(owner).request(op, MODE_FORWARD, cookie, content);
+        return null == response ? unavailable() : response;
+    }
+
+    //处理归属于本节点的请求
+    private FullHttpResponse handleOwned(byte op, String cookie, ByteBuf content) {
+        if (!service.hasCtx(cookie)) {
+            String previous = othersRing.get(cookie);
+            if (null != previous) {
+                FullHttpResponse response = peers.get(previous).request(op, MODE_PROBE, cookie, content);
+                if (null != response) {
+                    return response;
+                }
+            }
+        }
+        return handleLocal(op, cookie, content);
+    }
+
+    private FullHttpResponse handleLocal(byte op, String cookie, ByteBuf content) {
+        return op == OP_SEND ? service.handleSend(cookie, content) : service.handleReply(cookie);
+    }
+
+    //处理其它节点转来的请求
+    private void serve(Channel channel, long id, byte op, byte mode, String cookie, byte[] body) {
+        int status;
+        byte[] bytes;
+        try {
+            FullHttpResponse response;
+            if (mode == MODE_PROBE) {
+                response = service.hasCtx(cookie) ? handleLocal(op, cookie, Unpooled.wrappedBuffer(body)) : null;
+            } else {
+                response = handleOwned(op, cookie, Unpooled.wrappedBuffer(body));
+            }
+            if (null == response) {
+                status = STATUS_ABSENT;
+                bytes = NettyHttpServer.emptyBytes;
+            } else {
+                status = response.status().code();
+                bytes = BytesUtil.byteBuf2bytes(response.content());
+                response.release();
+            }
+        } catch (Exception e) {
+            log.warn("处理节点转发的请求异常", e);
+            status = HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+            bytes = NettyHttpServer.emptyBytes;
+        } finally {
+            serving.release();
+        }
+        Throwable e = BytesUtil.writeToChannel(channel, responseFrame(channel, id, status, bytes));
+        if (null != e) {
+            log.warn("向节点回复响应失败 {}", channel.remoteAddress(), e);
+        }
+    }
+
+    private static ByteBuf responseFrame(Channel channel, long id, int status, byte[] bytes) {
+        ByteBuf buf = channel.alloc().buffer(11 + bytes.length);
+        buf.writeByte(FRAME_RESPONSE);
+        buf.writeLong(id);
+        buf.writeShort(status);
+        buf.writeBytes(bytes);
+        return buf;
+    }
+
+    //以共享密钥对随机数和签名方角色签名
+    private byte[] sign(byte[] nonce, byte role) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(secretKey);
+            mac.update(nonce);
+            mac.update(role);
+            return mac.doFinal();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized void rebuildRing() {
+        List<String> online = new ArrayList<>(peers.size() + 1);
+        for (Peer peer : peers.values()) {
+            if (null != peer.channel) {
+                online.add(peer.address);
+            }
+        }
+        othersRing = new ConsistentHashRing(online, config.virtualNodes);
+        online.add(self);
+        ring = new ConsistentHashRing(online, config.virtualNodes);
+        log.info("集群在线节点 {}", online);
+    }
+
+    private void initPipeline(SocketChannel ch, Peer peer) {
+        ChannelPipeline pipeline = ch.pipeline();
+        pipeline.addLast(new LengthFieldBasedFrameDecoder(MAX_FRAME_LENGTH, 0, 4, 0, 4));
+        pipeline.addLast(new LengthFieldPrepender(4));
+        long heartbeat = config.heartbeatInterval;
+        pipeline.addLast(new IdleStateHandler(heartbeat * 3, heartbeat, 0, TimeUnit.MILLISECONDS));
+        pipeline.addLast(new LinkHandler(peer));
+    }
+
+    private static FullHttpResponse unavailable() {
+        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.SERVICE_UNAVAILABLE,
+                Unpooled.copiedBuffer("cluster node unavailable", StandardCharsets.UTF_8));
+    }
+
+    private static String parseHost(String address) {
+        return address.substring(0, address.lastIndexOf(':'));
+    }
+
+    private static int parsePort(String address) {
+        return Integer.parseInt(address.substring(address.lastIndexOf(':') + 1));
+    }
+
+    //节点间的长连接，每个节点主动连接其它所有节点，通过自己发起的连接转发请求、接收响应
+    private final class Peer {
+        final String address;
+        volatile Channel channel;
+        //<请求id,响应> 已转发未响应的请求
+        final Map<Long, CompletableFuture<FullHttpResponse>> pending = new ConcurrentHashMap<>();
+
+        Peer(String address) {
+            this.address = address;
+        }
+
+        void connectLoop() {
+            String host = parseHost(address);
+            int port = parsePort(address);
+            while (running) {
+                try {
+                    Bootstrap b = new Bootstrap();
+                    b.group(group)
+                            .channel(NettyObjectBuilder.getSocketChannelClass())
+                            .option(ChannelOption.TCP_NODELAY, true)
+                            .option(ChannelOption.SO_KEEPALIVE, true)
+                            .handler(new ChannelInitializer<SocketChannel>() {
+                                @Override
+                                protected void initChannel(SocketChannel ch) {
+                                    initPipeline(ch, Peer.this);
+                                }
+                            });
+                    b.connect(host, port).sync().channel().closeFuture().sync();
+                } catch (Exception e) {
+                    log.debug("连接集群节点失败 {}", address, e);
+                }
+                if (running) {
+                    try {
+                        Thread.sleep(config.reconnectInterval);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+        }
+
+        void up(Channel ch) {
+            channel = ch;
+            log.info("集群节点 {} 已连接", address);
+            rebuildRing();
+        }
+
+        void down() {
+            if (null == channel) {
+                return;
+            }
+            channel = null;
+            log.info("集群节点 {} 已断开", address);
+            rebuildRing();
+            RuntimeException e = new RuntimeException("与集群节点的连接已断开 " + address);
+            pending.values().forEach(f -> f.completeExceptionally(e));
+            pending.clear();
+        }
+
+        /**
+         * 把请求转给此节点
+         *
+         * @return 响应，对端不持有cookie(PROBE时)或未能发出时返回null，发出后失败返回503
+         */
+        FullHttpResponse request(byte op, byte mode, String cookie, ByteBuf content) {
+            Channel ch = channel;
+            if (null == ch) {
+                return null;
+            }
+            long id = requestIdx.incrementAndGet();
+            byte[] cookieBytes = cookie.getBytes(StandardCharsets.UTF_8);
+            int bodyLength = op == OP_SEND ? content.readableBytes() : 0;
+            ByteBuf buf = ch.alloc().buffer(13 + cookieBytes.length + bodyLength);
+            buf.writeByte(FRAME_REQUEST);
+            buf.writeLong(id);
+            buf.writeByte(op);
+            buf.writeByte(mode);
+            buf.writeShort(cookieBytes.length);
+            buf.writeBytes(cookieBytes);
+            if (bodyLength > 0) {
+                //不移动读索引，对端不持有cookie时本节点还要读取
+                buf.writeBytes(content, content.readerIndex(), bodyLength);
+            }
+            CompletableFuture<FullHttpResponse> future = new CompletableFuture<>();
+            pending.put(id, future);
+            Throwable e = BytesUtil.writeToChannel(ch, buf);
+            if (null != e) {
+                pending.remove(id);
+                log.warn("向集群节点转发请求失败 {}", address, e);
+                return null;
+            }
+            try {
+                return future.get(config.forwardTimeout, TimeUnit.MILLISECONDS);
+            } catch (Exception ex) {
+                pending.remove(id);
+                log.warn("集群节点 {} 处理请求失败 {}", address, ex.toString());
+                return unavailable();
+            }
+        }
+
+        void complete(long id, int status, byte[] body) {
+            CompletableFuture<FullHttpResponse> future = pending.remove(id);
+            if (null == future) {
+                return;
+            }
+            if (status == STATUS_ABSENT) {
+                future.complete(null);
+            } else {
+                future.complete(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(status), Unpooled.wrappedBuffer(body)));
+            }
+        }
+    }
+
+    private final class LinkHandler extends SimpleChannelInboundHandler<ByteBuf> {
+        //本节点发起的连接对应的节点，对端发起的连接为null
+        private final Peer peer;
+        //以下字段只在io线程中访问
+        //发给对端的随机数，对端需以共享密钥签名后发回
+        private final byte[] nonce = new byte[NONCE_LENGTH];
+        //对端已通过认证
+        private boolean authed;
+
+        LinkHandler(Peer peer) {
+            this.peer = peer;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            super.channelActive(ctx);
+            random.nextBytes(nonce);
+            ctx.writeAndFlush(ctx.alloc().buffer(1 + NONCE_LENGTH).writeByte(FRAME_HELLO).writeBytes(nonce));
+            //未在心跳超时内完成认证的连接直接断开
+            ctx.executor().schedule(() -> {
+                if (!authed && ctx.channel().isActive()) {
+                    log.warn("集群节点连接 {} 未在规定时间内完成认证，断开", ctx.channel().remoteAddress());
+                    ctx.close();
+                }
+            }, config.heartbeatInterval * 3, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            super.channelInactive(ctx);
+            if (null != peer) {
+                peer.down();
+            }
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+            byte type = msg.readByte();
+            if (!authed) {
+                authenticate(ctx, type, msg);
+                return;
+            }
+            if (type == FRAME_REQUEST) {
+                long id = msg.readLong();
+                byte op = msg.readByte();
+                byte mode = msg.readByte();
+                String cookie = msg.readCharSequence(msg.readUnsignedShort(), StandardCharsets.UTF_8).toString();
+                Channel channel = ctx.channel();
+                if (!serving.tryAcquire()) {
+                    log.warn("节点转来的请求过多，拒绝 {}", channel.remoteAddress());
+                    ctx.writeAndFlush(responseFrame(channel, id, HttpResponseStatus.SERVICE_UNAVAILABLE.code(), NettyHttpServer.emptyBytes));
+                    return;
+                }
+                byte[] body = BytesUtil.byteBuf2bytes(msg);
+                //长轮询会阻塞，不能占用io线程
+                Thread.startVirtualThread(() -> serve(channel, id, op, mode, cookie, body));
+            } else if (type == FRAME_RESPONSE && null != peer) {
+                long id = msg.readLong();
+                int status = msg.readUnsignedShort();
+                peer.complete(id, status, BytesUtil.byteBuf2bytes(msg));
+            }
+        }
+
+        //认证完成前只接受随机数和签名，对端为本节点发起连接的节点时，认证通过后才加入哈希环
+        private void authenticate(ChannelHandlerContext ctx, byte type, ByteBuf msg) {
+            byte selfRole = null != peer ? ROLE_CONNECTOR : ROLE_ACCEPTOR;
+            byte peerRole = null != peer ? ROLE_ACCEPTOR : ROLE_CONNECTOR;
+            if (type == FRAME_PING) {
+                return;
+            }
+            if (type == FRAME_HELLO && msg.readableBytes() == NONCE_LENGTH) {
+                byte[] peerNonce = BytesUtil.byteBuf2bytes(msg);
+                byte[] proof = sign(peerNonce, selfRole);
+                ctx.writeAndFlush(ctx.alloc().buffer(1 + proof.length).writeByte(FRAME_AUTH).writeBytes(proof));
+                return;
+            }
+            if (type == FRAME_AUTH && MessageDigest.isEqual(sign(nonce, peerRole), BytesUtil.byteBuf2bytes(msg))) {
+                authed = true;
+                if (null != peer) {
+                    peer.up(ctx.channel());
+                }
+                return;
+            }
+            log.warn("集群节点连接 {} 认证失败，断开", ctx.channel().remoteAddress());
+            ctx.close();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent e) {
+                if (e.state() == IdleState.WRITER_IDLE) {
+                    ctx.writeAndFlush(ctx.alloc().buffer(1).writeByte(FRAME_PING));
+                } else if (e.state() == IdleState.READER_IDLE) {
+                    log.warn("集群节点连接 {} 心跳超时，断开", ctx.channel().remoteAddress());
+                    ctx.close();
+                }
+                return;
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("集群节点连接异常 {}", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+        }
+    }
+}
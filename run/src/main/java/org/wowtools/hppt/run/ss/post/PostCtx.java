@@ -1,9 +1,14 @@
 package org.wowtools.hppt.run.ss.post;
 
+import org.wowtools.hppt.common.util.AdaptiveCoalescer;
+import org.wowtools.hppt.common.util.BufferBudget;
 import org.wowtools.hppt.common.util.BufferPool;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author liuyu
@@ -11,10 +16,46 @@ import java.util.concurrent.LinkedBlockingQueue;
  */
 public class PostCtx {
     final String cookie;
-    final BufferPool<byte[]> sendQueue = new BufferPool<>(">PostCtx-sendQueue");
+    //cookie的摘要，用于jfr事件、预算账户名等可能被导出分享的地方，避免泄露会话凭据
+    final String cookieHash;
+    final BufferBudget.Account account;
+    final BufferPool<byte[]> sendQueue;
+    //回复数据的合并策略，未启用时为null。同一cookie的拉取请求由sc的接收线程逐个发起，不会并发使用
+    final AdaptiveCoalescer coalescer;
+    //上一次带数据的回复返回的时刻，到下一次拉取请求到达之间约为一个往返时间，0表示上一次回复没有数据
+    volatile long lastReplyTime;
+    //正在等待数据的长轮询，sendQueue中有新数据时取出并执行以唤醒它
+    final AtomicReference<Runnable> waiter = new AtomicReference<>();
 
     public PostCtx(String cookie) {
+        this(cookie, null);
+    }
+
+    public PostCtx(String cookie, AdaptiveCoalescer coalescer) {
         this.cookie = cookie;
+        cookieHash = hash(cookie);
+        this.coalescer = coalescer;
+        //post客户端拉取慢时数据积压在这里，以单独的预算账户限制其内存
+        account = BufferBudget.newAccount("post-" + cookieHash);
+        sendQueue = new BufferPool<>(">PostCtx-sendQueue", account, BufferPool.BYTES_CODEC);
+    }
+
+    //取sha-256的前8字节，足以区分不同会话且无法还原出cookie
+    private static String hash(String cookie) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(cookie.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //客户端已下线，删除溢出文件并关闭预算账户
+    void close() {
+        sendQueue.clear((bytes) -> {
+        });
+        sendQueue.close();
+        account.close();
     }
 
 }
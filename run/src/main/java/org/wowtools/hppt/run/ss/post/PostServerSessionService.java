@@ -1,11 +1,29 @@
 package org.wowtools.hppt.run.ss.post;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.wowtools.common.utils.LruCache;
+import org.wowtools.hppt.common.jfr.LongPollEvent;
+import org.wowtools.hppt.common.metrics.Histogram;
+import org.wowtools.hppt.common.metrics.HpptMetrics;
+import org.wowtools.hppt.common.util.AdaptiveCoalescer;
+import org.wowtools.hppt.common.util.BytesListCodec;
 import org.wowtools.hppt.run.ss.common.ServerSessionService;
 import org.wowtools.hppt.run.ss.pojo.SsConfig;
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author liuyu
@@ -14,18 +32,34 @@ import java.util.Map;
 @Slf4j
 public class PostServerSessionService extends ServerSessionService<PostCtx> {
 
+    private static final Histogram longPoll = HpptMetrics.longPoll(HpptMetrics.SIDE_SS);
+
     private NettyHttpServer server;
 
+    private PostCluster cluster;
+
+    private final long replyDelayTime;
+    private final long waitResponseTime;
+    private final SsConfig ssConfig;
+
     public PostServerSessionService(SsConfig ssConfig) throws Exception {
         super(ssConfig);
         int size = null == ssConfig.clients ? 8 : ssConfig.clients.size() * 2;
         ctxMap = LruCache.buildCache(size, size);
+        replyDelayTime = ssConfig.post.replyDelayTime;
+        waitResponseTime = ssConfig.post.waitResponseTime;
+        this.ssConfig = ssConfig;
     }
 
     @Override
     public void init(SsConfig ssConfig) throws Exception {
         log.info("*********");
-        server = new NettyHttpServer(ssConfig.port, this, ssConfig);
+        String self = ssConfig.post.cluster.self;
+        if (null != self && !self.isEmpty()) {
+            cluster = new PostCluster(ssConfig.post.cluster, this);
+            cluster.start();
+        }
+        server = new NettyHttpServer(ssConfig.port, this, cluster, ssConfig);
         server.start();
     }
 
@@ -34,17 +68,223 @@ public class PostServerSessionService extends ServerSessionService<PostCtx> {
     @Override
     protected void sendBytesToClient(PostCtx ctx, byte[] bytes) {
         ctx.sendQueue.add(bytes);
+        Runnable waiter = ctx.waiter.getAndSet(null);
+        if (null != waiter) {
+            waiter.run();
+        }
     }
 
     @Override
     protected void closeCtx(PostCtx ctx) {
         ctxMap.remove(ctx.cookie);
+        ctx.close();
     }
 
     @Override
     public void onExit() throws Exception {
         server.stop();
+        if (null != cluster) {
+            cluster.stop();
+        }
+    }
+
+    /**
+     * @param cookie cookie
+     * @return 本节点是否持有此cookie对应的客户端
+     */
+    boolean hasCtx(String cookie) {
+        return null != ctxMap.get(cookie);
+    }
+
+    /**
+     * 获取发送数据的客户端对应的上下文，不存在则新建
+     *
+     * @param cookie cookie
+     * @return 上下文
+     */
+    PostCtx sendCtx(String cookie) {
+        return ctxMap.computeIfAbsent(cookie, (c) -> new PostCtx(cookie, AdaptiveCoalescer.build(ssConfig.coalesce, ssConfig.maxReturnBodySize)));
+    }
+
+    /**
+     * 处理客户端发送数据的请求
+     *
+     * @param cookie  cookie
+     * @param content 请求体
+     * @return 响应
+     */
+    FullHttpResponse handleSend(String cookie, ByteBuf content) {
+        PostCtx ctx = sendCtx(cookie);
+        log.debug("收到请求body {}", content.readableBytes());
+        BytesListCodec.Decoder decoder = new BytesListCodec.Decoder((sub) -> receiveClientBytes(ctx, sub), BytesListCodec.MAX_BODY_LENGTH);
+        decoder.decode(content);
+        decoder.finish();
+        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    }
+
+    /**
+     * 处理客户端拉取数据的请求，阻塞直到有响应，供集群转发使用
+     *
+     * @param cookie cookie
+     * @return 响应
+     */
+    FullHttpResponse handleReply(String cookie) {
+        return reply(cookie, server.nextExecutor(), ByteBufAllocator.DEFAULT).join();
     }
 
+    /**
+     * 处理客户端拉取数据的请求，等待数据期间不占用线程，等待和合并的计时都由executor调度
+     *
+     * @param cookie   cookie
+     * @param executor 执行长轮询的线程，一般是请求所在连接的io线程
+     * @param alloc    响应体的分配器
+     * @return 响应，在executor中完成
+     */
+    CompletableFuture<FullHttpResponse> reply(String cookie, EventExecutor executor, ByteBufAllocator alloc) {
+        PostCtx ctx = ctxMap.get(cookie);
+        if (ctx == null) {
+            return CompletableFuture.completedFuture(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND));
+        }
+        LongPoll poll = new LongPoll(ctx, executor, alloc);
+        executor.execute(poll::start);
+        return poll.future;
+    }
+
+    //一次长轮询，除wakeUp外的方法都在executor中执行
+    private final class LongPoll {
+        private final PostCtx ctx;
+        private final EventExecutor executor;
+        private final ByteBufAllocator alloc;
+        private final CompletableFuture<FullHttpResponse> future = new CompletableFuture<>();
+        private final LongPollEvent event = new LongPollEvent();
+        private final List<byte[]> bytesList = new LinkedList<>();
+        private final Runnable waker = this::wakeUp;
+        private long t;
+        private long pending;
+        private long budget;
+        private ScheduledFuture<?> timer;
+        private boolean done;
+
+        LongPoll(PostCtx ctx, EventExecutor executor, ByteBufAllocator alloc) {
+            this.ctx = ctx;
+            this.executor = executor;
+            this.alloc = alloc;
+        }
+
+        void start() {
+            event.begin();
+            t = System.nanoTime();
+            AdaptiveCoalescer coalescer = ctx.coalescer;
+            if (null == coalescer) {
+                if (replyDelayTime > 0) {
+                    executor.schedule(this::await, replyDelayTime, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            } else if (ctx.lastReplyTime > 0) {
+                coalescer.rtt(System.nanoTime() - ctx.lastReplyTime);
+            }
+            await();
+        }
+
+        private void await() {
+            timer = executor.schedule(this::finish, waitResponseTime, TimeUnit.MILLISECONDS);
+            poll();
+        }
+
+        //sendQueue中有新数据，由sendBytesToClient的线程调用
+        private void wakeUp() {
+            executor.execute(this::poll);
+        }
+
+        private void poll() {
+            if (done) {
+                return;
+            }
+            while (true) {
+                byte[] bytes = ctx.sendQueue.poll();
+                if (null == bytes) {
+                    //先登记再检查一次，避免登记前到达的数据没有唤醒
+                    ctx.waiter.set(waker);
+                    bytes = ctx.sendQueue.poll();
+                    if (null == bytes) {
+                        return;
+                    }
+                    ctx.waiter.compareAndSet(waker, null);
+                }
+                if (!received(bytes)) {
+                    return;
+                }
+            }
+        }
+
+        //收到一条数据，返回是否继续等待
+        private boolean received(byte[] bytes) {
+            bytesList.add(bytes);
+            pending += bytes.length;
+            AdaptiveCoalescer coalescer = ctx.coalescer;
+            if (null == coalescer) {
+                finish();
+                return false;
+            }
+            if (bytesList.size() == 1) {
+                //链路繁忙时攒批，空闲时立即返回
+                budget = coalescer.sizeBudget();
+                long remain = coalescer.deadline(System.nanoTime()) - System.nanoTime();
+                if (remain <= 0) {
+                    finish();
+                    return false;
+                }
+                timer.cancel(false);
+                timer = executor.schedule(this::finish, remain, TimeUnit.NANOSECONDS);
+            }
+            if (pending >= budget) {
+                finish();
+                return false;
+            }
+            return true;
+        }
+
+        private void finish() {
+            if (done) {
+                return;
+            }
+            done = true;
+            ctx.waiter.compareAndSet(waker, null);
+            if (null != timer) {
+                timer.cancel(false);
+            }
+            FullHttpResponse response = null;
+            try {
+                response = buildResponse();
+                future.complete(response);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                longPoll.recordSince(t);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.cookieHash = ctx.cookieHash;
+                    event.size = null == response ? 0 : response.content().readableBytes();
+                    event.commit();
+                }
+            }
+        }
+
+        private FullHttpResponse buildResponse() {
+            if (bytesList.isEmpty()) {
+                ctx.lastReplyTime = 0;
+                return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.EMPTY_BUFFER);
+            }
+            ctx.sendQueue.drainToList(bytesList);
+            ByteBuf body = BytesListCodec.encode(alloc, bytesList);
+            AdaptiveCoalescer coalescer = ctx.coalescer;
+            if (null != coalescer) {
+                coalescer.flushed(body.readableBytes(), !ctx.sendQueue.isEmpty());
+                ctx.lastReplyTime = System.nanoTime();
+            }
+            log.debug("向客户端发送字节 bytesList {} body {}", bytesList.size(), body.readableBytes());
+            return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, body);
+        }
+    }
 
 }
@@ -59,8 +59,7 @@ public class RHpptServerSessionService extends ServerSessionService<ChannelHandl
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
             // 处理接收到的消息
-            byte[] bytes = BytesUtil.byteBuf2bytes(msg);
-            receiveClientBytes(ctx, bytes);
+            receiveClientByteBuf(ctx, msg);
         }
 
         @Override
@@ -79,6 +78,11 @@ public class RHpptServerSessionService extends ServerSessionService<ChannelHandl
         }
     }
 
+    @Override
+    protected Channel getClientChannel(ChannelHandlerContext ctx) {
+        return ctx.channel();
+    }
+
     @Override
     protected void closeCtx(ChannelHandlerContext ctx) throws Exception {
         ctx.close();
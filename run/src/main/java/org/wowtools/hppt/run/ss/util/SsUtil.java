@@ -1,8 +1,11 @@
 package org.wowtools.hppt.run.ss.util;
 
 import io.netty.util.internal.StringUtil;
+import org.wowtools.hppt.common.server.DnsTargetResolver;
 import org.wowtools.hppt.common.server.ServerSessionLifecycle;
 import org.wowtools.hppt.common.server.ServerSessionManagerBuilder;
+import org.wowtools.hppt.common.server.TargetBalancer;
+import org.wowtools.hppt.common.server.TargetResolver;
 import org.wowtools.hppt.run.ss.pojo.SsConfig;
 
 /**
@@ -13,7 +16,30 @@ public class SsUtil {
 
     public static ServerSessionManagerBuilder createServerSessionManagerBuilder(SsConfig ssConfig) {
         return new ServerSessionManagerBuilder()
-                .setLifecycle(buildServerSessionLifecycle(ssConfig));
+                .setLifecycle(buildServerSessionLifecycle(ssConfig))
+                .setShardNum(ssConfig.shardNum)
+                .setResolver(buildTargetResolver(ssConfig.dns))
+                .setConnectAttemptDelay(ssConfig.dns.connectAttemptDelay)
+                .setBalancer(buildTargetBalancer(ssConfig.balance));
+    }
+
+    private static TargetBalancer buildTargetBalancer(SsConfig.BalanceConfig balance) {
+        return new TargetBalancer(TargetBalancer.Strategy.valueOf(balance.strategy),
+                balance.failThreshold, balance.ejectTime, balance.maxEjectTime, balance.connectTimeout,
+                balance.idleTimeout, balance.maxTargetMetrics);
+    }
+
+    private static TargetResolver buildTargetResolver(SsConfig.DnsConfig dns) {
+        if (StringUtil.isNullOrEmpty(dns.resolver)) {
+            return new DnsTargetResolver(dns.servers, dns.queryTimeout, dns.cacheMinTtl, dns.cacheMaxTtl, dns.negativeTtl, dns.preferIpv6);
+        } else {
+            try {
+                Class<? extends TargetResolver> clazz = (Class<? extends TargetResolver>) Class.forName(dns.resolver);
+                return clazz.getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     private static ServerSessionLifecycle buildServerSessionLifecycle(SsConfig ssConfig) {
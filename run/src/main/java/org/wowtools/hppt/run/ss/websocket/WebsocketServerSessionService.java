@@ -1,6 +1,7 @@
 package org.wowtools.hppt.run.ss.websocket;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.*;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
@@ -72,9 +73,7 @@ public class WebsocketServerSessionService extends ServerSessionService<ChannelH
 
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, BinaryWebSocketFrame msg) throws Exception {
-            byte[] bytes = new byte[msg.content().readableBytes()];
-            msg.content().readBytes(bytes);
-            receiveClientBytes(ctx, bytes);
+            receiveClientByteBuf(ctx, msg.content());
         }
     }
 
@@ -84,6 +83,16 @@ public class WebsocketServerSessionService extends ServerSessionService<ChannelH
         ctx.channel().writeAndFlush(f);
     }
 
+    @Override
+    protected Channel getClientChannel(ChannelHandlerContext ctx) {
+        return ctx.channel();
+    }
+
+    @Override
+    protected Object wrapClientMessage(ByteBuf buf) {
+        return new BinaryWebSocketFrame(buf);
+    }
+
     @Override
     protected void closeCtx(ChannelHandlerContext channelHandlerContext) {
         channelHandlerContext.close();
@@ -0,0 +1,181 @@
+package org.wowtools.hppt.common.util;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.wowtools.hppt.common.pojo.SendAbleSessionBytes;
+import org.wowtools.hppt.common.pojo.SessionBytes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class BufferBudgetTest {
+
+    @BeforeAll
+    static void init() {
+        TestBudget.init();
+    }
+
+    @Test
+    void perClientLimit() {
+        try (BufferBudget.Account account = BufferBudget.newAccount("test-client")) {
+            long used = BufferBudget.getUsed();
+            assertTrue(account.tryReserve(200));
+            assertFalse(account.tryReserve(100));
+            assertEquals(200, account.getUsed());
+            assertEquals(used + 200, BufferBudget.getUsed());
+            account.release(150);
+            assertTrue(account.tryReserve(100));
+            assertEquals(150, account.getUsed());
+            assertTrue(account.tryReserve(0));
+            account.release(150);
+            assertEquals(used, BufferBudget.getUsed());
+        }
+    }
+
+    @Test
+    void processLimitAndClose() {
+        long used = BufferBudget.getUsed();
+        List<BufferBudget.Account> accounts = new ArrayList<>();
+        long reserved = 0;
+        //每个账户占满单客户端上限，直到进程总量用尽
+        while (true) {
+            BufferBudget.Account account = BufferBudget.newAccount("test-process-" + accounts.size());
+            accounts.add(account);
+            if (!account.tryReserve(TestBudget.MAX_BYTES_PER_CLIENT)) {
+                break;
+            }
+            reserved += TestBudget.MAX_BYTES_PER_CLIENT;
+        }
+        assertTrue(used + reserved <= TestBudget.MAX_BYTES);
+        assertEquals(0, accounts.getLast().getUsed());
+        //关闭账户后其占用的字节归还给进程
+        for (BufferBudget.Account account : accounts) {
+            account.close();
+        }
+        assertEquals(used, BufferBudget.getUsed());
+    }
+
+    @Test
+    void closedAccountOnlyCountsItself() {
+        BufferBudget.Account account = BufferBudget.newAccount("test-closed");
+        long used = BufferBudget.getUsed();
+        assertTrue(account.tryReserve(100));
+        account.close();
+        assertEquals(used, BufferBudget.getUsed());
+        assertTrue(account.tryReserve(100));
+        assertFalse(account.tryReserve(100));
+        account.release(200);
+        assertEquals(used, BufferBudget.getUsed());
+    }
+
+    @Test
+    void poolSpillsBeyondBudgetAndKeepsOrder() {
+        try (BufferBudget.Account account = BufferBudget.newAccount("test-pool")) {
+            BufferPool<byte[]> pool = new BufferPool<>("test-pool", account, BufferPool.BYTES_CODEC);
+            for (int i = 0; i < 10; i++) {
+                pool.add(filled(100, i));
+            }
+            //单客户端上限256，前两块留在内存，其余溢出
+            assertEquals(200, account.getUsed());
+            assertEquals(800, pool.getSpilledBytes());
+            assertEquals(800, account.getSpilled());
+            for (int i = 0; i < 10; i++) {
+                assertArrayEquals(filled(100, i), pool.poll());
+            }
+            assertNull(pool.poll());
+            assertEquals(0, account.getUsed());
+            assertEquals(0, account.getSpilled());
+            pool.close();
+        }
+    }
+
+    @Test
+    void spillLimitWaitsForDrain() {
+        try (BufferBudget.Account account = BufferBudget.newAccount("test-spill-limit")) {
+            BufferPool<byte[]> pool = new BufferPool<>("test-spill-limit", account, BufferPool.BYTES_CODEC);
+            AtomicInteger resumed = new AtomicInteger();
+            int n = 0;
+            while (!account.isSpillFull()) {
+                pool.add(filled(100, n++));
+            }
+            account.onSpillDrained(resumed::incrementAndGet);
+            assertEquals(0, resumed.get());
+            //读回到溢出字节数降到上限的一半以下时恢复，且只恢复一次
+            int polled = 0;
+            while (account.getSpilled() > TestBudget.MAX_SPILL_BYTES_PER_CLIENT / 2) {
+                assertEquals(0, resumed.get());
+                assertArrayEquals(filled(100, polled), pool.poll());
+                polled++;
+            }
+            assertEquals(1, resumed.get());
+            while (polled < n) {
+                assertArrayEquals(filled(100, polled), pool.poll());
+                polled++;
+            }
+            assertEquals(1, resumed.get());
+            //已降下来时登记的回调立即执行
+            account.onSpillDrained(resumed::incrementAndGet);
+            assertEquals(2, resumed.get());
+            pool.close();
+        }
+    }
+
+    @Test
+    void closeRunsSpillWaitersAndReturnsSpill() {
+        BufferBudget.Account account = BufferBudget.newAccount("test-spill-close");
+        BufferPool<byte[]> pool = new BufferPool<>("test-spill-close", account, BufferPool.BYTES_CODEC);
+        while (!account.isSpillFull()) {
+            pool.add(new byte[100]);
+        }
+        AtomicInteger resumed = new AtomicInteger();
+        account.onSpillDrained(resumed::incrementAndGet);
+        pool.clear((bytes) -> {
+        });
+        pool.close();
+        account.close();
+        assertEquals(1, resumed.get());
+        assertEquals(0, account.getSpilled());
+        assertFalse(account.isSpillFull());
+    }
+
+    @Test
+    void spilledCallBackCompletesOnlyWhenSent() {
+        try (BufferBudget.Account account = BufferBudget.newAccount("test-callback")) {
+            BufferPool<SendAbleSessionBytes> pool = new BufferPool<>("test-callback", account, SendAbleSessionBytes.newSpillCodec());
+            AtomicInteger[] completed = new AtomicInteger[10];
+            for (int i = 0; i < completed.length; i++) {
+                AtomicInteger c = new AtomicInteger();
+                completed[i] = c;
+                pool.add(new SendAbleSessionBytes(new SessionBytes(i, Unpooled.wrappedBuffer(new byte[100])), (success) -> c.incrementAndGet()));
+            }
+            assertTrue(pool.getSpilledBytes() > 0);
+            //溢出时不回调，数据的生产方仍处于等待
+            for (AtomicInteger c : completed) {
+                assertEquals(0, c.get());
+            }
+            for (int i = 0; i < completed.length; i++) {
+                SendAbleSessionBytes ssb = pool.poll();
+                assertEquals(i, ssb.sessionBytes().getSessionId());
+                ssb.sessionBytes().release();
+                ssb.callBack().cb(true);
+                assertEquals(1, completed[i].get());
+            }
+            pool.close();
+        }
+    }
+
+    private static byte[] filled(int length, int v) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) v);
+        return bytes;
+    }
+}
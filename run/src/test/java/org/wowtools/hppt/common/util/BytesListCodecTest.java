@@ -0,0 +1,124 @@
+package org.wowtools.hppt.common.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class BytesListCodecTest {
+
+    private static byte[] message(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (seed + i);
+        }
+        return bytes;
+    }
+
+    private static byte[] encode(List<byte[]> messages) {
+        ByteBuf buf = BytesListCodec.encode(ByteBufAllocator.DEFAULT, messages);
+        try {
+            return BytesUtil.byteBuf2bytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    //按chunkSize把body切块依次喂给解码器
+    private static List<byte[]> decode(byte[] body, int chunkSize) {
+        List<byte[]> res = new ArrayList<>();
+        BytesListCodec.Decoder decoder = new BytesListCodec.Decoder(res::add, 1 << 20);
+        for (int i = 0; i < body.length; i += chunkSize) {
+            ByteBuf chunk = Unpooled.wrappedBuffer(body, i, Math.min(chunkSize, body.length - i));
+            decoder.decode(chunk);
+            assertFalse(chunk.isReadable());
+        }
+        decoder.finish();
+        return res;
+    }
+
+    @Test
+    void decodeWhole() {
+        List<byte[]> messages = List.of(message(10, 1), message(0, 2), message(300, 3));
+        List<byte[]> res = decode(encode(messages), Integer.MAX_VALUE);
+        assertEquals(messages.size(), res.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertArrayEquals(messages.get(i), res.get(i));
+        }
+    }
+
+    @Test
+    void decodeByteByByte() {
+        //200字节的长度是两字节的varint，逐字节喂入时tag、varint、payload都会被切开
+        List<byte[]> messages = List.of(message(200, 1), message(1, 2), message(20000, 3));
+        List<byte[]> res = decode(encode(messages), 1);
+        assertEquals(messages.size(), res.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertArrayEquals(messages.get(i), res.get(i));
+        }
+    }
+
+    @Test
+    void decodeAnyChunkSize() {
+        List<byte[]> messages = List.of(message(127, 1), message(128, 2), message(16384, 3), message(5, 4));
+        byte[] body = encode(messages);
+        for (int chunkSize = 2; chunkSize < 300; chunkSize++) {
+            List<byte[]> res = decode(body, chunkSize);
+            assertEquals(messages.size(), res.size(), "chunkSize " + chunkSize);
+            for (int i = 0; i < messages.size(); i++) {
+                assertArrayEquals(messages.get(i), res.get(i), "chunkSize " + chunkSize);
+            }
+        }
+    }
+
+    @Test
+    void skipUnknownFields() {
+        ByteBuf buf = Unpooled.buffer();
+        //field 2 varint
+        buf.writeByte((2 << 3));
+        buf.writeByte(0x96).writeByte(0x01);
+        //field 3 length-delimited
+        buf.writeByte((3 << 3) | 2).writeByte(3).writeBytes(new byte[]{9, 9, 9});
+        byte[] msg = message(4, 7);
+        buf.writeBytes(encode(List.of(msg)));
+        List<byte[]> res = decode(BytesUtil.byteBuf2bytes(buf), 1);
+        assertEquals(1, res.size());
+        assertArrayEquals(msg, res.get(0));
+    }
+
+    @Test
+    void truncatedPayloadFails() {
+        byte[] body = encode(List.of(message(10, 1), message(100, 2)));
+        List<byte[]> res = new ArrayList<>();
+        BytesListCodec.Decoder decoder = new BytesListCodec.Decoder(res::add, 1 << 20);
+        decoder.decode(Unpooled.wrappedBuffer(body, 0, body.length - 1));
+        //完整的第一条已交出，不完整的第二条不交出
+        assertEquals(1, res.size());
+        assertThrows(IllegalStateException.class, decoder::finish);
+    }
+
+    @Test
+    void truncatedVarintFails() {
+        byte[] body = encode(List.of(message(200, 1)));
+        BytesListCodec.Decoder decoder = new BytesListCodec.Decoder((bytes) -> fail(), 1 << 20);
+        //只有tag和长度varint的第一个字节
+        decoder.decode(Unpooled.wrappedBuffer(body, 0, 2));
+        assertThrows(IllegalStateException.class, decoder::finish);
+    }
+
+    @Test
+    void tooLongFails() {
+        byte[] body = encode(List.of(message(100, 1)));
+        BytesListCodec.Decoder decoder = new BytesListCodec.Decoder((bytes) -> fail(), 99);
+        assertThrows(IllegalStateException.class, () -> decoder.decode(Unpooled.wrappedBuffer(body)));
+    }
+}
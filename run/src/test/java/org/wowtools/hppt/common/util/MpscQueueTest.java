@@ -0,0 +1,122 @@
+package org.wowtools.hppt.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class MpscQueueTest {
+
+    @Test
+    void keepsPerProducerOrderAcrossChunks() throws Exception {
+        int producers = 4;
+        int perProducer = 10_000;
+        MpscQueue<long[]> queue = new MpscQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            threads.add(Thread.startVirtualThread(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    queue.offer(new long[]{producer, i});
+                }
+            }));
+        }
+        //每个生产者的元素必须按放入顺序取出，且不丢不重
+        long[] next = new long[producers];
+        for (int n = 0; n < producers * perProducer; n++) {
+            long[] e = queue.poll(30, TimeUnit.SECONDS);
+            assertNotNull(e);
+            assertEquals(next[(int) e[0]]++, e[1]);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (long count : next) {
+            assertEquals(perProducer, count);
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void takeWaitsForOffer() throws Exception {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        Thread producer = Thread.startVirtualThread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            queue.offer(1);
+        });
+        assertEquals(1, queue.take());
+        producer.join();
+    }
+
+    @Test
+    void pollTimesOut() throws Exception {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        long start = System.nanoTime();
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void wakeUpReturnsNullEarly() throws Exception {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        //没有消费者在等待时，下一次限时等待立即返回
+        queue.wakeUp();
+        long start = System.nanoTime();
+        assertNull(queue.poll(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        Thread waker = Thread.startVirtualThread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            queue.wakeUp();
+        });
+        start = System.nanoTime();
+        assertNull(queue.poll(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        waker.join();
+    }
+
+    @Test
+    void interruptedPollThrows() {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> queue.poll(10, TimeUnit.SECONDS));
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test
+    void drainHonoursLimitAndOrder() {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        for (int i = 0; i < 100; i++) {
+            queue.offer(i);
+        }
+        assertEquals(100, queue.size());
+        List<Integer> out = new ArrayList<>();
+        assertEquals(40, queue.drain(out::add, 40));
+        Object[] batch = new Object[50];
+        assertEquals(50, queue.drainTo(batch));
+        for (Object o : batch) {
+            out.add((Integer) o);
+        }
+        assertEquals(10, queue.drain(out::add));
+        assertEquals(0, queue.drain(out::add));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, out.get(i));
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,177 @@
+package org.wowtools.hppt.common.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class OrderedPipelineTest {
+
+    private static final int WORKERS = 4;
+    private static final int MAX_IN_FLIGHT = 8;
+
+    @BeforeAll
+    static void init() {
+        CommonConfig.PipelineConfig config = new CommonConfig.PipelineConfig();
+        config.workers = WORKERS;
+        config.maxInFlight = MAX_IN_FLIGHT;
+        OrderedPipeline.init(config);
+    }
+
+    //处理耗时随机，让后提交的消息经常先处理完
+    private static int slowIdentity(int i) throws InterruptedException {
+        Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+        return i;
+    }
+
+    @Test
+    void deliversInSubmitOrderWithParallelWorkers() throws Exception {
+        int n = 500;
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(n);
+        AtomicInteger errors = new AtomicInteger();
+        try (OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>("test-order",
+                OrderedPipelineTest::slowIdentity,
+                (i) -> {
+                    delivered.add(i);
+                    done.countDown();
+                },
+                (t) -> errors.incrementAndGet(),
+                null)) {
+            for (int i = 0; i < n; i++) {
+                pipeline.submit(i);
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        }
+        assertEquals(0, errors.get());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, delivered.get(i));
+        }
+    }
+
+    @Test
+    void stageErrorDoesNotBreakOrder() throws Exception {
+        int n = 100;
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(n);
+        try (OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>("test-error",
+                (i) -> {
+                    slowIdentity(i);
+                    if (i % 10 == 0) {
+                        throw new IllegalStateException(String.valueOf(i));
+                    }
+                    return i;
+                },
+                (i) -> {
+                    delivered.add(i);
+                    done.countDown();
+                },
+                (t) -> {
+                    errors.add(t);
+                    done.countDown();
+                },
+                null)) {
+            for (int i = 0; i < n; i++) {
+                pipeline.submit(i);
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        }
+        assertEquals(10, errors.size());
+        int expected = 0;
+        for (int i : delivered) {
+            if (expected % 10 == 0) {
+                expected++;
+            }
+            assertEquals(expected++, i);
+        }
+    }
+
+    @Test
+    void submitBlocksAtMaxInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger submitted = new AtomicInteger();
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        try (OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>("test-backpressure",
+                (i) -> {
+                    release.await();
+                    return i;
+                },
+                delivered::add,
+                (t) -> {
+                },
+                null)) {
+            Thread producer = Thread.startVirtualThread(() -> {
+                try {
+                    for (int i = 0; i < MAX_IN_FLIGHT * 2; i++) {
+                        pipeline.submit(i);
+                        submitted.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            //处理阶段被阻塞，提交到上限后提交方等待
+            Thread.sleep(200);
+            assertEquals(MAX_IN_FLIGHT, submitted.get());
+            assertEquals(MAX_IN_FLIGHT, pipeline.size());
+            release.countDown();
+            producer.join(TimeUnit.SECONDS.toMillis(30));
+            assertEquals(MAX_IN_FLIGHT * 2, submitted.get());
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (delivered.size() < MAX_IN_FLIGHT * 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        assertEquals(MAX_IN_FLIGHT * 2, delivered.size());
+    }
+
+    @Test
+    void closeDrainsInFlightToDiscarder() throws Exception {
+        int n = MAX_IN_FLIGHT;
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> discarded = Collections.synchronizedList(new ArrayList<>());
+        OrderedPipeline<Integer, Integer> pipeline = new OrderedPipeline<>("test-close",
+                (i) -> {
+                    release.await();
+                    return i;
+                },
+                delivered::add,
+                (t) -> {
+                },
+                discarded::add);
+        for (int i = 0; i < n; i++) {
+            pipeline.submit(i);
+        }
+        //关闭时还在处理中的消息，处理完后交给discarder而不是投递
+        pipeline.close();
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (pipeline.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pipeline.size());
+        assertTrue(delivered.isEmpty());
+        assertEquals(n, discarded.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, discarded.get(i));
+        }
+        //关闭后提交的消息直接交给discarder
+        pipeline.submit(n);
+        assertEquals(n + 1, discarded.size());
+        assertTrue(delivered.isEmpty());
+    }
+}
@@ -0,0 +1,163 @@
+package org.wowtools.hppt.common.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class ReliableLinkTest {
+
+    @BeforeAll
+    static void init() {
+        TestBudget.init();
+    }
+
+    private static byte[] message(int length, int v) {
+        byte[] bytes = new byte[length];
+        bytes[0] = (byte) v;
+        return bytes;
+    }
+
+    @Test
+    void receiveInOrder() {
+        ReliableLink link = new ReliableLink("test-order", 1024);
+        assertTrue(link.receive(1, 10));
+        assertTrue(link.receive(2, 10));
+        //序号为0的消息不参与编号
+        assertTrue(link.receive(0, 0));
+        assertTrue(link.receive(3, 10));
+        assertEquals(3, link.getReceived());
+        assertTrue(link.hasPendingAck());
+        assertEquals(3, link.takeAck());
+        assertFalse(link.hasPendingAck());
+        link.close();
+    }
+
+    @Test
+    void duplicateIsDropped() {
+        ReliableLink link = new ReliableLink("test-dup", 1024);
+        assertTrue(link.receive(1, 10));
+        assertTrue(link.receive(2, 10));
+        assertFalse(link.receive(1, 10));
+        assertFalse(link.receive(2, 10));
+        assertEquals(2, link.getReceived());
+        assertTrue(link.receive(3, 10));
+        link.close();
+    }
+
+    @Test
+    void gapIsRejectedWithoutAcking() {
+        ReliableLink link = new ReliableLink("test-gap", 1024);
+        assertTrue(link.receive(1, 10));
+        assertThrows(IllegalStateException.class, () -> link.receive(3, 10));
+        //缺失的2不能被累计确认
+        assertEquals(1, link.getReceived());
+        assertEquals(1, link.takeAck());
+        //对端从2开始重发后照常接收
+        assertTrue(link.receive(2, 10));
+        assertTrue(link.receive(3, 10));
+        assertEquals(3, link.getReceived());
+        link.close();
+    }
+
+    @Test
+    void resendFromPeerReceived() {
+        ReliableLink link = new ReliableLink("test-resend", 1024);
+        for (int i = 0; i < 5; i++) {
+            long seq = link.nextSeq();
+            assertEquals(i + 1, seq);
+            link.sent(seq, message(10, i + 1));
+        }
+        link.acked(2);
+        List<byte[]> resend = link.resend(3);
+        assertEquals(2, resend.size());
+        assertEquals(4, resend.get(0)[0]);
+        assertEquals(5, resend.get(1)[0]);
+        //对端已确认的不再重发
+        assertTrue(link.resend(5).isEmpty());
+        assertTrue(link.isResumable());
+        link.close();
+    }
+
+    @Test
+    void canResumeOnlyWithinUnackedWindow() {
+        ReliableLink link = new ReliableLink("test-can-resume", 1024);
+        for (int i = 0; i < 5; i++) {
+            link.sent(link.nextSeq(), message(10, i + 1));
+        }
+        link.acked(2);
+        //对端收到的序号在已确认与已发送之间才能接续
+        assertTrue(link.canResume(2));
+        assertTrue(link.canResume(5));
+        assertFalse(link.canResume(1));
+        //对端收到的比本端发出的还多，说明对端是另一条链路
+        assertFalse(link.canResume(6));
+        link.close();
+        assertFalse(link.canResume(2));
+    }
+
+    @Test
+    void unackedCountsAgainstBudget() {
+        long used = BufferBudget.getUsed();
+        ReliableLink link = new ReliableLink("test-budget", 1024);
+        link.sent(link.nextSeq(), message(100, 1));
+        link.sent(link.nextSeq(), message(50, 2));
+        assertEquals(used + 150, BufferBudget.getUsed());
+        link.acked(1);
+        assertEquals(used + 50, BufferBudget.getUsed());
+        link.close();
+        assertEquals(used, BufferBudget.getUsed());
+        assertFalse(link.isResumable());
+    }
+
+    @Test
+    void budgetShortageGivesUpResume() {
+        long used = BufferBudget.getUsed();
+        ReliableLink link = new ReliableLink("test-budget-short", 1024);
+        //单客户端上限256，第三条申请不到预算
+        link.sent(link.nextSeq(), message(100, 1));
+        link.sent(link.nextSeq(), message(100, 2));
+        assertTrue(link.isResumable());
+        link.sent(link.nextSeq(), message(100, 3));
+        assertFalse(link.isResumable());
+        assertTrue(link.resend(0).isEmpty());
+        assertEquals(used, BufferBudget.getUsed());
+        link.close();
+    }
+
+    @Test
+    void overflowGivesUpResume() {
+        long used = BufferBudget.getUsed();
+        ReliableLink link = new ReliableLink("test-overflow", 150);
+        link.sent(link.nextSeq(), message(100, 1));
+        link.sent(link.nextSeq(), message(100, 2));
+        assertFalse(link.isResumable());
+        assertEquals(used, BufferBudget.getUsed());
+        //放弃后不再保留
+        link.sent(link.nextSeq(), message(10, 3));
+        assertTrue(link.resend(0).isEmpty());
+        link.close();
+    }
+
+    @Test
+    void abandonGivesUpResume() {
+        long used = BufferBudget.getUsed();
+        ReliableLink link = new ReliableLink("test-abandon", 1024);
+        link.sent(link.nextSeq(), message(10, 1));
+        //第二条编号后未能发出
+        link.nextSeq();
+        link.sent(link.nextSeq(), message(10, 3));
+        assertTrue(link.canResume(0));
+        link.abandon();
+        assertFalse(link.isResumable());
+        assertFalse(link.canResume(0));
+        assertEquals(used, BufferBudget.getUsed());
+        link.close();
+    }
+}
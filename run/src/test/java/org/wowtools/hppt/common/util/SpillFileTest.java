@@ -0,0 +1,151 @@
+package org.wowtools.hppt.common.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author liuyu
+ * @date 2026/10/19
+ */
+public class SpillFileTest {
+
+    @BeforeAll
+    static void init() {
+        TestBudget.init();
+    }
+
+    private static byte[] record(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (seed + i);
+        }
+        return bytes;
+    }
+
+    private static void write(SpillFile file, byte[] bytes) {
+        file.write(bytes.length, (dst) -> dst.put(bytes));
+    }
+
+    private static byte[] read(SpillFile file) {
+        return file.read((src) -> {
+            byte[] bytes = new byte[src.remaining()];
+            src.get(bytes);
+            return bytes;
+        });
+    }
+
+    @Test
+    void readsInWriteOrderAcrossSegments() {
+        try (SpillFile file = new SpillFile("test-order")) {
+            List<byte[]> written = new ArrayList<>();
+            long total = 0;
+            //记录长度从1到40，段大小64，会跨越多个段
+            for (int i = 1; i <= 40; i++) {
+                byte[] bytes = record(i, i);
+                written.add(bytes);
+                write(file, bytes);
+                total += i;
+            }
+            assertEquals(40, file.size());
+            assertEquals(total, file.bytes());
+            for (byte[] expected : written) {
+                assertArrayEquals(expected, read(file));
+            }
+            assertEquals(0, file.size());
+            assertEquals(0, file.bytes());
+        }
+    }
+
+    @Test
+    void recordLargerThanSegment() {
+        try (SpillFile file = new SpillFile("test-large")) {
+            byte[] small = record(10, 1);
+            byte[] large = record(TestBudget.SPILL_SEGMENT_SIZE * 3, 2);
+            write(file, small);
+            write(file, large);
+            write(file, small);
+            assertArrayEquals(small, read(file));
+            assertArrayEquals(large, read(file));
+            assertArrayEquals(small, read(file));
+        }
+    }
+
+    @Test
+    void reusesFileAfterDrained() {
+        try (SpillFile file = new SpillFile("test-reuse")) {
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 5; i++) {
+                    write(file, record(30, round * 10 + i));
+                }
+                for (int i = 0; i < 5; i++) {
+                    assertArrayEquals(record(30, round * 10 + i), read(file));
+                }
+                assertEquals(0, file.size());
+            }
+        }
+    }
+
+    @Test
+    void interleavedWriteAndRead() {
+        try (SpillFile file = new SpillFile("test-interleaved")) {
+            int w = 0;
+            int r = 0;
+            for (int i = 0; i < 50; i++) {
+                write(file, record(20, w++));
+                write(file, record(20, w++));
+                assertArrayEquals(record(20, r++), read(file));
+            }
+            while (r < w) {
+                assertArrayEquals(record(20, r++), read(file));
+            }
+            assertEquals(0, file.size());
+        }
+    }
+
+    @Test
+    void emptyRecord() {
+        try (SpillFile file = new SpillFile("test-empty")) {
+            write(file, new byte[0]);
+            write(file, record(5, 1));
+            assertEquals(0, read(file).length);
+            assertArrayEquals(record(5, 1), read(file));
+        }
+    }
+
+    @Test
+    void readWithoutRecordThrows() {
+        try (SpillFile file = new SpillFile("test-none")) {
+            assertThrows(IllegalStateException.class, () -> read(file));
+        }
+    }
+
+    @Test
+    void closeDiscardsRecords() {
+        SpillFile file = new SpillFile("test-close");
+        write(file, record(10, 1));
+        file.close();
+        assertEquals(0, file.size());
+        assertEquals(0, file.bytes());
+        assertThrows(IllegalStateException.class, () -> read(file));
+    }
+
+    @Test
+    void writerSeesExactLength() {
+        try (SpillFile file = new SpillFile("test-length")) {
+            int[] remaining = new int[1];
+            file.write(17, (ByteBuffer dst) -> {
+                remaining[0] = dst.remaining();
+                dst.put(new byte[17]);
+            });
+            assertEquals(17, remaining[0]);
+            assertTrue(Arrays.equals(new byte[17], read(file)));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.wowtools.hppt.common.util;
+
+/**
+ * 测试用的缓冲内存预算配置，BufferBudget在进程内只初始化一次，各测试共用这份配置
+ *
+ * @author liuyu
+ * @date 2026/10/19
+ */
+final class TestBudget {
+    static final long MAX_BYTES = 1024;
+    static final long MAX_BYTES_PER_CLIENT = 256;
+    static final long MAX_SPILL_BYTES_PER_CLIENT = 1024;
+    static final int SPILL_SEGMENT_SIZE = 64;
+
+    private TestBudget() {
+    }
+
+    static void init() {
+        CommonConfig.BufferBudgetConfig config = new CommonConfig.BufferBudgetConfig();
+        config.maxBytes = MAX_BYTES;
+        config.maxBytesPerClient = MAX_BYTES_PER_CLIENT;
+        config.maxSpillBytesPerClient = MAX_SPILL_BYTES_PER_CLIENT;
+        config.spillSegmentSize = SPILL_SEGMENT_SIZE;
+        BufferBudget.init(config);
+    }
+}